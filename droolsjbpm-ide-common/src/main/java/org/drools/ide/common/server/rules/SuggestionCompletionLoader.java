@@ -179,6 +179,25 @@ public class SuggestionCompletionLoader
                                                           final List<JarInputStream> jars,
                                                           final List<DSLTokenizedMappingFile> dsls,
                                                           final List<String> dataEnums) {
+        List<DataEnumLoader> enumLoaders = new ArrayList<DataEnumLoader>( dataEnums.size() );
+        for ( String enumFile : dataEnums ) {
+            enumLoaders.add( new DataEnumLoader( enumFile ) );
+        }
+
+        return getSuggestionEngineFromEnumLoaders( header,
+                                                   jars,
+                                                   dsls,
+                                                   enumLoaders );
+    }
+
+    /**
+     * As {@link #getSuggestionEngine(String, List, List, List)}, but with data
+     * enums that have already been loaded (and possibly cached) by the caller.
+     */
+    public SuggestionCompletionEngine getSuggestionEngineFromEnumLoaders(final String header,
+                                                                         final List<JarInputStream> jars,
+                                                                         final List<DSLTokenizedMappingFile> dsls,
+                                                                         final List<DataEnumLoader> enumLoaders) {
         builder.newCompletionEngine();
 
         if ( headerNotEmpty( header ) ) {
@@ -188,14 +207,13 @@ public class SuggestionCompletionLoader
 
         populateDSLSentences( dsls );
 
-        populateDateEnums( dataEnums );
+        populateDateEnums( enumLoaders );
 
         return builder.getInstance();
     }
 
-    private void populateDateEnums(List<String> dataEnums) {
-        for ( String enumFile : dataEnums ) {
-            DataEnumLoader enumLoader = new DataEnumLoader( enumFile );
+    private void populateDateEnums(List<DataEnumLoader> enumLoaders) {
+        for ( DataEnumLoader enumLoader : enumLoaders ) {
             if ( enumLoader.hasErrors() ) {
                 errors.addAll( enumLoader.getErrors() );
             } else {
@@ -18,7 +18,6 @@ package org.drools.ide.common.server.util;
 
 
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
 import org.drools.ide.common.client.modeldriven.brl.*;
 
 /**
@@ -34,81 +33,83 @@ public class BRXMLPersistence
     private static final BRLPersistence INSTANCE = new BRXMLPersistence();
 
     protected BRXMLPersistence() {
-        this.xt = new XStream( new DomDriver() );
-
-        this.xt.alias( "rule",
-                       RuleModel.class );
-        this.xt.alias( "fact",
-                       FactPattern.class );
-        this.xt.alias( "retract",
-                       ActionRetractFact.class );
-        this.xt.alias( "assert",
-                       ActionInsertFact.class );
-        this.xt.alias( "modify",
-                       ActionUpdateField.class );
-        this.xt.alias( "setField",
-                       ActionSetField.class );
-        this.xt.alias( "dslSentence",
-                       DSLSentence.class );
-        this.xt.alias( "compositePattern",
-                       CompositeFactPattern.class );
-        this.xt.alias( "fromCompositePattern",
-                       FromCompositeFactPattern.class );
-        this.xt.alias( "fromCollectCompositePattern",
-                       FromCollectCompositeFactPattern.class );
-        this.xt.alias( "fromAccumulateCompositePattern",
-                       FromAccumulateCompositeFactPattern.class );
-        this.xt.alias( "metadata",
-                       RuleMetadata.class );
-        this.xt.alias( "attribute",
-                       RuleAttribute.class );
-
-        this.xt.alias( "fieldValue",
-                       ActionFieldValue.class );
-        this.xt.alias( "connectiveConstraint",
-                       ConnectiveConstraint.class );
-        this.xt.alias( "fieldConstraint",
-                       SingleFieldConstraint.class );
-
-        this.xt.alias( "compositeConstraint",
-                       CompositeFieldConstraint.class );
-
-        this.xt.alias( "assertLogical",
-                       ActionInsertLogicalFact.class );
-        this.xt.alias( "freeForm",
-                       FreeFormLine.class );
-
-        this.xt.alias( "addToGlobal",
-                       ActionGlobalCollectionAdd.class );
-        //Begin ExpressionFormLine
-        this.xt.alias( "expression",
-                ExpressionFormLine.class );
+        this.xt = XStreamRegistry.getInstance().getXStream( "brl",
+                                                            new XStreamRegistry.Configurer() {
+            public void configure(XStream xt) {
+                xt.alias( "rule",
+                          RuleModel.class );
+                xt.alias( "fact",
+                          FactPattern.class );
+                xt.alias( "retract",
+                          ActionRetractFact.class );
+                xt.alias( "assert",
+                          ActionInsertFact.class );
+                xt.alias( "modify",
+                          ActionUpdateField.class );
+                xt.alias( "setField",
+                          ActionSetField.class );
+                xt.alias( "dslSentence",
+                          DSLSentence.class );
+                xt.alias( "compositePattern",
+                          CompositeFactPattern.class );
+                xt.alias( "fromCompositePattern",
+                          FromCompositeFactPattern.class );
+                xt.alias( "fromCollectCompositePattern",
+                          FromCollectCompositeFactPattern.class );
+                xt.alias( "fromAccumulateCompositePattern",
+                          FromAccumulateCompositeFactPattern.class );
+                xt.alias( "metadata",
+                          RuleMetadata.class );
+                xt.alias( "attribute",
+                          RuleAttribute.class );
+
+                xt.alias( "fieldValue",
+                          ActionFieldValue.class );
+                xt.alias( "connectiveConstraint",
+                          ConnectiveConstraint.class );
+                xt.alias( "fieldConstraint",
+                          SingleFieldConstraint.class );
+
+                xt.alias( "compositeConstraint",
+                          CompositeFieldConstraint.class );
+
+                xt.alias( "assertLogical",
+                          ActionInsertLogicalFact.class );
+                xt.alias( "freeForm",
+                          FreeFormLine.class );
+
+                xt.alias( "addToGlobal",
+                          ActionGlobalCollectionAdd.class );
+                //Begin ExpressionFormLine
+                xt.alias( "expression",
+                        ExpressionFormLine.class );
         
-        this.xt.alias( "field",
-                ExpressionField.class );
+                xt.alias( "field",
+                        ExpressionField.class );
         
-        this.xt.alias( "method",
-                ExpressionMethod.class );
+                xt.alias( "method",
+                        ExpressionMethod.class );
         
-        this.xt.alias( "collection",
-                ExpressionCollection.class );
+                xt.alias( "collection",
+                        ExpressionCollection.class );
         
-        this.xt.alias( "collectionIndex",
-                ExpressionCollectionIndex.class );
+                xt.alias( "collectionIndex",
+                        ExpressionCollectionIndex.class );
         
-        this.xt.alias( "text",
-                ExpressionText.class );
+                xt.alias( "text",
+                        ExpressionText.class );
 
-        this.xt.alias( "global",
-                ExpressionGlobalVariable.class );
+                xt.alias( "global",
+                        ExpressionGlobalVariable.class );
         
-        this.xt.alias( "variable",
-                ExpressionVariable.class );
-        //end ExpressionFormLine
+                xt.alias( "variable",
+                        ExpressionVariable.class );
+                //end ExpressionFormLine
         
-        //See https://issues.jboss.org/browse/GUVNOR-1115
-        this.xt.aliasPackage( "org.drools.guvnor.client", "org.drools.ide.common.client" );
-
+                //See https://issues.jboss.org/browse/GUVNOR-1115
+                xt.aliasPackage( "org.drools.guvnor.client", "org.drools.ide.common.client" );
+            }
+        } );
     }
 
     public static BRLPersistence getInstance() {
@@ -119,7 +120,8 @@ public class BRXMLPersistence
      * @see org.drools.ide.common.server.util.BRLPersistence#toXML(org.drools.guvnor.client.modeldriven.brl.RuleModel)
      */
     public String marshal(final RuleModel model) {
-        return this.xt.toXML( model );
+        return XStreamRegistry.getInstance().toString( this.xt,
+                                                       model );
     }
 
     /* (non-Javadoc)
@@ -129,7 +131,8 @@ public class BRXMLPersistence
         if ( xml == null || xml.trim().length() == 0) {
             return createEmptyModel();
         }
-        RuleModel rm = (RuleModel) this.xt.fromXML( xml );
+        RuleModel rm = (RuleModel) XStreamRegistry.getInstance().fromString( this.xt,
+                                                                             xml );
         //Fixme , hack for a upgrade to add Metadata
         if ( rm.metadataList == null ) {
             rm.metadataList = new RuleMetadata[0];
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.ide.common.server.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.mvel2.MVEL;
+import org.mvel2.templates.CompiledTemplate;
+import org.mvel2.templates.TemplateCompiler;
+import org.mvel2.templates.TemplateRuntime;
+
+/**
+ * A bounded cache of compiled MVEL expressions and templates, keyed by their
+ * source text. The least recently used entries are evicted once the cache is
+ * full. Compiled expressions are stateless, so they can be shared between
+ * threads; each evaluation gets its own variables.
+ */
+public class CompiledExpressionCache {
+
+    public static final int                        DEFAULT_MAX_ENTRIES = 500;
+
+    // A parameter standing for a whole quoted string: '@{name}' or "@{name}"
+    private static final Pattern                   QUOTED_PARAMETER    = Pattern.compile( "(['\"])@\\{([^}]*)\\}\\1" );
+
+    private static final CompiledExpressionCache   INSTANCE            = new CompiledExpressionCache( DEFAULT_MAX_ENTRIES );
+
+    private final Map<String, Serializable>        expressions;
+    private final Map<String, CompiledTemplate>    templates;
+    private final Map<String, Parameterized>       parameterized;
+
+    public CompiledExpressionCache(int maxEntries) {
+        this.expressions = new LRUMap<String, Serializable>( maxEntries );
+        this.templates = new LRUMap<String, CompiledTemplate>( maxEntries );
+        this.parameterized = new LRUMap<String, Parameterized>( maxEntries );
+    }
+
+    public static CompiledExpressionCache getInstance() {
+        return INSTANCE;
+    }
+
+    public Serializable getCompiledExpression(String expression) {
+        synchronized ( expressions ) {
+            Serializable compiled = expressions.get( expression );
+            if ( compiled == null ) {
+                compiled = MVEL.compileExpression( expression );
+                expressions.put( expression,
+                                 compiled );
+            }
+            return compiled;
+        }
+    }
+
+    public CompiledTemplate getCompiledTemplate(String template) {
+        synchronized ( templates ) {
+            CompiledTemplate compiled = templates.get( template );
+            if ( compiled == null ) {
+                compiled = TemplateCompiler.compileTemplate( template );
+                templates.put( template,
+                               compiled );
+            }
+            return compiled;
+        }
+    }
+
+    public Object eval(String expression,
+                       Map<String, ? > vars) {
+        return MVEL.executeExpression( getCompiledExpression( expression ),
+                                       vars );
+    }
+
+    public Object evalTemplate(String template,
+                               Map<String, ? > vars) {
+        return TemplateRuntime.execute( getCompiledTemplate( template ),
+                                        vars );
+    }
+
+    /**
+     * Evaluates an expression with "@{name}" parameters. Where each of them
+     * stands for a whole quoted string ('@{name}'), the values are passed in
+     * as variables, so the expression is compiled once whatever they are.
+     * Otherwise the parameters are interpolated first, as a template, and the
+     * result is evaluated.
+     */
+    public Object evalParameterized(String expression,
+                                    Map<String, String> params) {
+        Parameterized compiled;
+        synchronized ( parameterized ) {
+            compiled = parameterized.get( expression );
+            if ( compiled == null ) {
+                compiled = Parameterized.compile( expression );
+                parameterized.put( expression,
+                                   compiled );
+            }
+        }
+        if ( compiled.expression == null || !params.keySet().containsAll( compiled.names ) ) {
+            return eval( (String) evalTemplate( expression,
+                                                params ),
+                         new HashMap<String, Object>() );
+        }
+        Map<String, Object> vars = new HashMap<String, Object>();
+        for ( int i = 0; i < compiled.names.size(); i++ ) {
+            vars.put( Parameterized.variable( i ),
+                      params.get( compiled.names.get( i ) ) );
+        }
+        return MVEL.executeExpression( compiled.expression,
+                                       vars );
+    }
+
+    public int size() {
+        synchronized ( expressions ) {
+            synchronized ( templates ) {
+                synchronized ( parameterized ) {
+                    return expressions.size() + templates.size() + parameterized.size();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized ( expressions ) {
+            expressions.clear();
+        }
+        synchronized ( templates ) {
+            templates.clear();
+        }
+        synchronized ( parameterized ) {
+            parameterized.clear();
+        }
+    }
+
+    /**
+     * An expression with its quoted parameters replaced by variables, or
+     * without a compiled expression if it has parameters elsewhere.
+     */
+    private static class Parameterized {
+
+        private final Serializable expression;
+        private final List<String> names;
+
+        private Parameterized(Serializable expression,
+                              List<String> names) {
+            this.expression = expression;
+            this.names = names;
+        }
+
+        static String variable(int i) {
+            return "_param" + i;
+        }
+
+        static Parameterized compile(String source) {
+            List<String> names = new ArrayList<String>();
+            StringBuffer replaced = new StringBuffer();
+            Matcher matcher = QUOTED_PARAMETER.matcher( source );
+            while ( matcher.find() ) {
+                matcher.appendReplacement( replaced,
+                                           variable( names.size() ) );
+                names.add( matcher.group( 2 ) );
+            }
+            matcher.appendTail( replaced );
+            if ( replaced.indexOf( "@{" ) >= 0 ) {
+                return new Parameterized( null,
+                                          names );
+            }
+            return new Parameterized( MVEL.compileExpression( replaced.toString() ),
+                                      names );
+        }
+    }
+
+    /**
+     * A LinkedHashMap in access order, that drops its eldest entry when full.
+     */
+    static class LRUMap<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 510l;
+
+        private final int         maxEntries;
+
+        LRUMap(int maxEntries) {
+            super( 16,
+                   0.75f,
+                   true );
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package org.drools.ide.common.server.util;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -30,6 +31,18 @@ import org.mvel2.MVEL;
  */
 public class DataEnumLoader {
 
+    private static final int MAX_CACHED_ASSETS = 200;
+
+    // What a literal source is made of, besides whitespace and quoted strings
+    private static final String LITERAL_CHARS = "[]:,.+-0123456789";
+
+    /**
+     * Parsed enumerations, keyed by asset UUID. An entry is only reused while
+     * the asset version, source and class loader it was parsed with are
+     * unchanged.
+     */
+    private static final Map<String, CachedEnum> ASSET_CACHE = new CompiledExpressionCache.LRUMap<String, CachedEnum>( MAX_CACHED_ASSETS );
+
     private final List<String> errors;
     private final Map<String, String[]> data;
 
@@ -41,6 +54,72 @@ public class DataEnumLoader {
         this.data = loadEnum(mvelSource);
     }
 
+    /**
+     * Return the loader for a given version of an enumeration asset, only
+     * evaluating the MVEL source if that version has not been loaded before.
+     * Sources that fail to load are not cached, as they may depend on classes
+     * that are not yet available. Neither are dynamic ones, anything but
+     * literal lists and strings, whose values may change without the asset
+     * changing.
+     */
+    public static DataEnumLoader forAsset(String uuid,
+                                          long versionNumber,
+                                          String mvelSource) {
+        if (isDynamic(mvelSource)) {
+            return new DataEnumLoader(mvelSource);
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        synchronized (ASSET_CACHE) {
+            CachedEnum cached = ASSET_CACHE.get(uuid);
+            if (cached != null && cached.matches(versionNumber, mvelSource, classLoader)) {
+                return cached.loader;
+            }
+        }
+        DataEnumLoader loader = new DataEnumLoader(mvelSource);
+        synchronized (ASSET_CACHE) {
+            if (loader.hasErrors()) {
+                ASSET_CACHE.remove(uuid);
+            } else {
+                ASSET_CACHE.put(uuid, new CachedEnum(versionNumber, mvelSource, classLoader, loader));
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * @return true unless the source is only made of literals: quoted strings,
+     *         numbers and lists of them. Anything else (an "=" expression, a
+     *         method call, a constructor...) is evaluated each time it is
+     *         loaded.
+     */
+    static boolean isDynamic(String mvelSource) {
+        if (mvelSource == null) {
+            return false;
+        }
+        char quote = 0;
+        for (int i = 0; i < mvelSource.length(); i++) {
+            char c = mvelSource.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (!Character.isWhitespace(c) && LITERAL_CHARS.indexOf(c) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void clearCache() {
+        synchronized (ASSET_CACHE) {
+            ASSET_CACHE.clear();
+        }
+    }
+
     private Map<String, String[]> loadEnum(String mvelSource) {
 
         if (mvelSource == null || (mvelSource.trim().equals( "" ))) {
@@ -137,4 +216,26 @@ public class DataEnumLoader {
         return this.data;
     }
 
+    private static class CachedEnum {
+
+        private final long versionNumber;
+        private final String source;
+        // Weak, so that a cached enumeration doesn't keep old model jars loaded
+        private final WeakReference<ClassLoader> classLoader;
+        private final DataEnumLoader loader;
+
+        CachedEnum(long versionNumber, String source, ClassLoader classLoader, DataEnumLoader loader) {
+            this.versionNumber = versionNumber;
+            this.source = source;
+            this.classLoader = new WeakReference<ClassLoader>(classLoader);
+            this.loader = loader;
+        }
+
+        boolean matches(long versionNumber, String source, ClassLoader classLoader) {
+            return this.versionNumber == versionNumber
+                    && (this.source == null ? source == null : this.source.equals(source))
+                    && this.classLoader.get() == classLoader;
+        }
+    }
+
 }
@@ -33,7 +33,6 @@ import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
 import org.drools.ide.common.client.modeldriven.dt52.MetadataCol52;
 
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
 
 public class GuidedDTXMLPersistence {
 
@@ -41,45 +40,48 @@ public class GuidedDTXMLPersistence {
     private static GuidedDTXMLPersistence INSTANCE = new GuidedDTXMLPersistence();
 
     private GuidedDTXMLPersistence() {
-        xt = new XStream( new DomDriver() );
+        xt = XStreamRegistry.getInstance().getXStream( "guided-dt",
+                                                       new XStreamRegistry.Configurer() {
+            public void configure(XStream xt) {
+                //Legacy model
+                xt.alias( "decision-table",
+                          GuidedDecisionTable.class );
+                xt.alias( "metadata-column",
+                          MetadataCol.class );
+                xt.alias( "attribute-column",
+                          AttributeCol.class );
+                xt.alias( "condition-column",
+                          ConditionCol.class );
+                xt.alias( "set-field-col",
+                          ActionSetFieldCol.class );
+                xt.alias( "retract-fact-column",
+                          ActionRetractFactCol.class );
+                xt.alias( "insert-fact-column",
+                          ActionInsertFactCol.class );
 
-        //Legacy model
-        xt.alias( "decision-table",
-                  GuidedDecisionTable.class );
-        xt.alias( "metadata-column",
-                  MetadataCol.class );
-        xt.alias( "attribute-column",
-                  AttributeCol.class );
-        xt.alias( "condition-column",
-                  ConditionCol.class );
-        xt.alias( "set-field-col",
-                  ActionSetFieldCol.class );
-        xt.alias( "retract-fact-column",
-                  ActionRetractFactCol.class );
-        xt.alias( "insert-fact-column",
-                  ActionInsertFactCol.class );
+                //Post 5.2 model
+                xt.alias( "decision-table52",
+                          GuidedDecisionTable52.class );
+                xt.alias( "metadata-column52",
+                          MetadataCol52.class );
+                xt.alias( "attribute-column52",
+                          AttributeCol52.class );
+                xt.alias( "condition-column52",
+                          ConditionCol52.class );
+                xt.alias( "set-field-col52",
+                          ActionSetFieldCol52.class );
+                xt.alias( "retract-fact-column52",
+                          ActionRetractFactCol52.class );
+                xt.alias( "insert-fact-column52",
+                          ActionInsertFactCol52.class );
+                xt.alias( "value",
+                          DTCellValue52.class );
 
-        //Post 5.2 model
-        xt.alias( "decision-table52",
-                  GuidedDecisionTable52.class );
-        xt.alias( "metadata-column52",
-                  MetadataCol52.class );
-        xt.alias( "attribute-column52",
-                  AttributeCol52.class );
-        xt.alias( "condition-column52",
-                  ConditionCol52.class );
-        xt.alias( "set-field-col52",
-                  ActionSetFieldCol52.class );
-        xt.alias( "retract-fact-column52",
-                  ActionRetractFactCol52.class );
-        xt.alias( "insert-fact-column52",
-                  ActionInsertFactCol52.class );
-        xt.alias( "value",
-                  DTCellValue52.class );
-
-        //See https://issues.jboss.org/browse/GUVNOR-1115
-        xt.aliasPackage( "org.drools.guvnor.client",
-                         "org.drools.ide.common.client" );
+                //See https://issues.jboss.org/browse/GUVNOR-1115
+                xt.aliasPackage( "org.drools.guvnor.client",
+                                 "org.drools.ide.common.client" );
+            }
+        } );
     }
 
     public static GuidedDTXMLPersistence getInstance() {
@@ -87,7 +89,8 @@ public class GuidedDTXMLPersistence {
     }
 
     public String marshal(GuidedDecisionTable52 dt) {
-        return xt.toXML( dt );
+        return XStreamRegistry.getInstance().toString( xt,
+                                                       dt );
     }
 
     public GuidedDecisionTable52 unmarshal(String xml) {
@@ -96,7 +99,8 @@ public class GuidedDTXMLPersistence {
         }
 
         //Upgrade DTModel to new class
-        Object model = xt.fromXML( xml );
+        Object model = XStreamRegistry.getInstance().fromString( xt,
+                                                                 xml );
         GuidedDecisionTable52 newDTModel;
         if ( model instanceof GuidedDecisionTable ) {
             GuidedDecisionTable legacyDTModel = (GuidedDecisionTable) model;
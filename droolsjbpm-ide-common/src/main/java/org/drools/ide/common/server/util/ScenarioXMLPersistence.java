@@ -28,7 +28,6 @@ import org.drools.ide.common.client.modeldriven.testing.VerifyField;
 import org.drools.ide.common.client.modeldriven.testing.VerifyRuleFired;
 
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
 
 
 /**
@@ -40,22 +39,25 @@ public class ScenarioXMLPersistence {
     private static final ScenarioXMLPersistence INSTANCE = new ScenarioXMLPersistence();
 
     private ScenarioXMLPersistence() {
-        xt = new XStream(new DomDriver());
-        xt.alias("scenario", Scenario.class);
-        xt.alias("execution-trace", ExecutionTrace.class);
-        xt.alias("expectation", Expectation.class);
-        xt.alias("fact-data", FactData.class);
-        xt.alias("field-data", FieldData.class);
-        xt.alias("fixture", Fixture.class);
-        xt.alias("retract-fact", RetractFact.class);
-        xt.alias("expect-fact", VerifyFact.class);
-        xt.alias("expect-field", VerifyField.class);
-        xt.alias("expect-rule", VerifyRuleFired.class);
-        xt.omitField(ExecutionTrace.class, "rulesFired");
-
-        //See https://issues.jboss.org/browse/GUVNOR-1115
-        xt.aliasPackage( "org.drools.guvnor.client", "org.drools.ide.common.client" );
-}
+        xt = XStreamRegistry.getInstance().getXStream("scenario", new XStreamRegistry.Configurer() {
+            public void configure(XStream xt) {
+                xt.alias("scenario", Scenario.class);
+                xt.alias("execution-trace", ExecutionTrace.class);
+                xt.alias("expectation", Expectation.class);
+                xt.alias("fact-data", FactData.class);
+                xt.alias("field-data", FieldData.class);
+                xt.alias("fixture", Fixture.class);
+                xt.alias("retract-fact", RetractFact.class);
+                xt.alias("expect-fact", VerifyFact.class);
+                xt.alias("expect-field", VerifyField.class);
+                xt.alias("expect-rule", VerifyRuleFired.class);
+                xt.omitField(ExecutionTrace.class, "rulesFired");
+
+                //See https://issues.jboss.org/browse/GUVNOR-1115
+                xt.aliasPackage( "org.drools.guvnor.client", "org.drools.ide.common.client" );
+            }
+        });
+    }
 
     public static ScenarioXMLPersistence getInstance() {
         return INSTANCE;
@@ -72,13 +74,13 @@ public class ScenarioXMLPersistence {
             }
 
         }
-        return xt.toXML(sc);
+        return XStreamRegistry.getInstance().toString(xt, sc);
     }
 
     public Scenario unmarshal(String xml) {
         if (xml == null) return new Scenario();
         if (xml.trim().equals("")) return new Scenario();
-        return (Scenario) xt.fromXML(xml);
+        return (Scenario) XStreamRegistry.getInstance().fromString(xt, xml);
     }
 
 }
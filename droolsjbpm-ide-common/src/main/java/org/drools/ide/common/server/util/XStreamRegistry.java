@@ -0,0 +1,125 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.ide.common.server.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.core.util.Base64Encoder;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * Configured XStream instances, shared by name. XStream is expensive to set
+ * up (aliases, and the reflection metadata it collects for each class it
+ * meets), but once configured it is thread safe, so each kind of content gets
+ * one instance for the life of the JVM.
+ * <p>
+ * The instances read and write XML with a pull parser (XPP) rather than
+ * building a DOM first. The XML is the same, so existing content reads as
+ * before.
+ * <p>
+ * {@link #toString(XStream, Object)} can also write a compact binary form
+ * (XStream's binary stream, Base64 encoded), when the system property
+ * {@value #BINARY_CODEC_PROPERTY} is true. It is off by default: stored XML is
+ * read by other tools (the Eclipse plug in, WebDAV clients and diffs of the
+ * history). {@link #fromString(XStream, String)} reads both forms, whatever
+ * the setting.
+ */
+public class XStreamRegistry {
+
+    public static final String           BINARY_CODEC_PROPERTY = "drools.ide.xstream.binary";
+
+    /**
+     * Marks content in the binary form. Can't start an XML document.
+     */
+    static final String                  BINARY_PREFIX         = "#xstream-binary:";
+
+    private static final XStreamRegistry INSTANCE              = new XStreamRegistry();
+
+    private final Map<String, XStream>   instances             = new HashMap<String, XStream>();
+    private final boolean                binary;
+
+    private XStreamRegistry() {
+        this( Boolean.getBoolean( BINARY_CODEC_PROPERTY ) );
+    }
+
+    XStreamRegistry(boolean binary) {
+        this.binary = binary;
+    }
+
+    public static XStreamRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets up an XStream instance, with aliases and so on.
+     */
+    public interface Configurer {
+        void configure(XStream xstream);
+    }
+
+    /**
+     * @return the instance registered under the name, configured by the given
+     *         configurer the first time it is asked for. Callers using the
+     *         same name must configure it the same way.
+     */
+    public XStream getXStream(String name,
+                              Configurer configurer) {
+        synchronized ( instances ) {
+            XStream xstream = instances.get( name );
+            if ( xstream == null ) {
+                xstream = new XStream( new XppDriver() );
+                configurer.configure( xstream );
+                instances.put( name,
+                               xstream );
+            }
+            return xstream;
+        }
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public String toString(XStream xstream,
+                           Object object) {
+        if ( !binary ) {
+            return xstream.toXML( object );
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryStreamWriter writer = new BinaryStreamWriter( out );
+        xstream.marshal( object,
+                         writer );
+        writer.flush();
+        return BINARY_PREFIX + new Base64Encoder().encode( out.toByteArray() );
+    }
+
+    public Object fromString(XStream xstream,
+                             String content) {
+        if ( !content.startsWith( BINARY_PREFIX ) ) {
+            return xstream.fromXML( content );
+        }
+        byte[] bytes = new Base64Encoder().decode( content.substring( BINARY_PREFIX.length() ) );
+        return xstream.unmarshal( new BinaryStreamReader( new ByteArrayInputStream( bytes ) ) );
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.testframework;
+
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+import org.mvel2.compiler.ExpressionCompiler;
+
+/**
+ * The compiled "execution plan" of the scenarios: per fact class, its no
+ * argument constructor and the compiled MVEL expressions used to populate and
+ * verify its fields. The expressions only depend on the class, the field name
+ * and the operator, so they are compiled once and reused by every scenario
+ * run, instead of being parsed again for every field of every fact.
+ *
+ * Entries are kept per Class object (not class name), so that classes of a
+ * rebuilt package get their own accessors. The classes are only weakly held,
+ * so the class loader of a rebuilt package can still be collected. As the
+ * compiled expressions refer back to their class, they are softly held.
+ */
+class FactAccessorCache {
+
+    private static final FactAccessorCache                      INSTANCE  = new FactAccessorCache();
+
+    private final Map<Class< ? >, SoftReference<FactAccessors>> accessors = new WeakHashMap<Class< ? >, SoftReference<FactAccessors>>();
+
+    static FactAccessorCache getInstance() {
+        return INSTANCE;
+    }
+
+    Object newInstance(Class< ? > type) throws Exception {
+        return getAccessors( type ).newInstance();
+    }
+
+    /**
+     * Sets the field, with the same type coercion as
+     * <code>__fact__.field = __val__</code> in MVEL.
+     */
+    void setField(Object fact,
+                  String fieldName,
+                  Object value) {
+        Map<String, Object> vars = new HashMap<String, Object>( 4 );
+        vars.put( "__fact__",
+                  fact );
+        vars.put( "__val__",
+                  value );
+        MVEL.executeExpression( getAccessors( fact.getClass() ).getSetter( fieldName ),
+                                vars );
+    }
+
+    Object getField(Object fact,
+                    String fieldName) {
+        Map<String, Object> vars = new HashMap<String, Object>( 4 );
+        vars.put( "__fact__",
+                  fact );
+        return MVEL.executeExpression( getAccessors( fact.getClass() ).getGetter( fieldName ),
+                                       vars );
+    }
+
+    /**
+     * @return the result of <code>__fact__.field operator __expected__</code>.
+     */
+    Boolean compareField(Object fact,
+                         String fieldName,
+                         String operator,
+                         Object expected) {
+        Map<String, Object> vars = new HashMap<String, Object>( 4 );
+        vars.put( "__fact__",
+                  fact );
+        vars.put( "__expected__",
+                  expected );
+        return (Boolean) MVEL.executeExpression( getAccessors( fact.getClass() ).getComparison( fieldName,
+                                                                                              operator,
+                                                                                              expected.getClass() ),
+                                                 vars );
+    }
+
+    int size() {
+        synchronized ( accessors ) {
+            return accessors.size();
+        }
+    }
+
+    void clear() {
+        synchronized ( accessors ) {
+            accessors.clear();
+        }
+    }
+
+    private FactAccessors getAccessors(Class< ? > type) {
+        synchronized ( accessors ) {
+            SoftReference<FactAccessors> reference = accessors.get( type );
+            FactAccessors factAccessors = (reference == null) ? null : reference.get();
+            if ( factAccessors == null ) {
+                factAccessors = new FactAccessors( type );
+                accessors.put( type,
+                               new SoftReference<FactAccessors>( factAccessors ) );
+            }
+            return factAccessors;
+        }
+    }
+
+    /**
+     * The constructor and compiled field expressions of one class.
+     */
+    private static class FactAccessors {
+
+        private final Class< ? >                type;
+        private Constructor< ? >                constructor;
+        private final Map<String, Serializable> setters     = new HashMap<String, Serializable>();
+        private final Map<String, Serializable> getters     = new HashMap<String, Serializable>();
+        private final Map<String, Serializable> comparisons = new HashMap<String, Serializable>();
+
+        FactAccessors(Class< ? > type) {
+            this.type = type;
+        }
+
+        Object newInstance() throws Exception {
+            Constructor< ? > c;
+            synchronized ( this ) {
+                if ( constructor == null ) {
+                    constructor = type.getConstructor();
+                }
+                c = constructor;
+            }
+            return c.newInstance();
+        }
+
+        synchronized Serializable getSetter(String fieldName) {
+            Serializable setter = setters.get( fieldName );
+            if ( setter == null ) {
+                setter = MVEL.compileExpression( "__fact__." + fieldName + " = __val__" );
+                setters.put( fieldName,
+                             setter );
+            }
+            return setter;
+        }
+
+        synchronized Serializable getGetter(String fieldName) {
+            Serializable getter = getters.get( fieldName );
+            if ( getter == null ) {
+                ParserContext parserContext = new ParserContext();
+                parserContext.addInput( "__fact__",
+                                        type );
+                getter = new ExpressionCompiler( "__fact__." + fieldName ).compile( parserContext );
+                getters.put( fieldName,
+                             getter );
+            }
+            return getter;
+        }
+
+        synchronized Serializable getComparison(String fieldName,
+                                                String operator,
+                                                Class< ? > expectedType) {
+            String key = fieldName + " " + operator + " " + expectedType.getName();
+            Serializable comparison = comparisons.get( key );
+            if ( comparison == null ) {
+                ParserContext parserContext = new ParserContext();
+                parserContext.addInput( "__fact__",
+                                        type );
+                parserContext.addInput( "__expected__",
+                                        expectedType );
+                comparison = new ExpressionCompiler( "__fact__." + fieldName + " " + operator + " __expected__" ).compile( parserContext );
+                comparisons.put( key,
+                                 comparison );
+            }
+            return comparison;
+        }
+    }
+}
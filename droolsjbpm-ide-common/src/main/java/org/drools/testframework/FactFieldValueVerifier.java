@@ -18,17 +18,12 @@ package org.drools.testframework;
 
 import static org.mvel2.MVEL.eval;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.drools.base.TypeResolver;
 import org.drools.ide.common.client.modeldriven.testing.VerifyField;
-import org.mvel2.MVEL;
-import org.mvel2.ParserContext;
-import org.mvel2.compiler.CompiledExpression;
-import org.mvel2.compiler.ExpressionCompiler;
 
 public class FactFieldValueVerifier {
 
@@ -117,38 +112,27 @@ public class FactFieldValueVerifier {
 }
 class ResultVerifier {
 
-    private final Map<String, Object> variables     = new HashMap<String, Object>();
-    private ParserContext             parserContext = new ParserContext();
+    private final Object factObject;
+    private Object       expected;
 
     protected ResultVerifier(Object factObject) {
-        addVariable( "__fact__",
-                     factObject );
+        this.factObject = factObject;
     }
 
     protected void setExpected(Object expected) {
-        addVariable( "__expected__",
-                     expected );
-    }
-
-    private void addVariable(String name,
-                             Object object) {
-        variables.put( name,
-                       object );
-
-        parserContext.addInput( name,
-                                object.getClass() );
+        this.expected = expected;
     }
 
     protected Boolean isSuccess(VerifyField currentField) {
-        CompiledExpression expression = new ExpressionCompiler( "__fact__." + currentField.getFieldName() + " " + currentField.getOperator() + " __expected__" ).compile( parserContext );
-
-        return (Boolean) MVEL.executeExpression( expression,
-                                                 variables );
+        return FactAccessorCache.getInstance().compareField( factObject,
+                                                             currentField.getFieldName(),
+                                                             currentField.getOperator(),
+                                                             expected );
     }
 
     protected String getActual(VerifyField currentField) {
-        Object actualValue = MVEL.executeExpression( new ExpressionCompiler( "__fact__." + currentField.getFieldName() ).compile( parserContext ),
-                                                     variables );
+        Object actualValue = FactAccessorCache.getInstance().getField( factObject,
+                                                                       currentField.getFieldName() );
 
         return (actualValue != null) ? actualValue.toString() : "";
 
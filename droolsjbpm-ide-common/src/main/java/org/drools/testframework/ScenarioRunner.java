@@ -18,6 +18,7 @@ package org.drools.testframework;
 
 import static org.mvel2.MVEL.eval;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -137,8 +138,7 @@ public class ScenarioRunner {
         List<Populate> toPopulate = new ArrayList<Populate>();
 
         for (final FactData fact : scenario.getGlobals()) {
-            final Object factObject = eval("new " + getTypeName(resolver,
-                    fact) + "()");
+            final Object factObject = newFact(fact);
             toPopulate.add(new Populate() {
                 public void go() {
                     populateFields(fact,
@@ -159,8 +159,7 @@ public class ScenarioRunner {
             if (fixture instanceof FactData) {
                 //deal with facts and globals
                 final FactData fact = (FactData) fixture;
-                final Object factObject = (fact.isModify()) ? this.populatedData.get(fact.getName()) : eval("new " + getTypeName(resolver,
-                        fact) + "()");
+                final Object factObject = (fact.isModify()) ? this.populatedData.get(fact.getName()) : newFact(fact);
                 if (fact.isModify()) {
                     if (!this.factHandles.containsKey(fact.getName())) {
                         throw new IllegalArgumentException("Was not a previously inserted fact. [" + fact.getName() + "]");
@@ -246,6 +245,25 @@ public class ScenarioRunner {
         toPopulate.clear();
     }
 
+    /**
+     * Creates the fact with the (cached) no argument constructor of its class,
+     * falling back to MVEL if there isn't one.
+     */
+    private Object newFact(FactData fact) throws ClassNotFoundException {
+        String typeName = getTypeName(resolver,
+                fact);
+        try {
+            return FactAccessorCache.getInstance().newInstance(resolver.resolveType(typeName));
+        } catch (InvocationTargetException e) {
+            // The constructor ran and failed, running it again through MVEL won't help
+            throw new RuntimeException("Unable to create a new " + typeName,
+                    e.getCause());
+        } catch (Exception e) {
+            // No instance was created (no public no argument constructor), let MVEL try
+            return eval("new " + typeName + "()");
+        }
+    }
+
     private String getTypeName(TypeResolver resolver,
                                FactData fact) throws ClassNotFoundException {
 
@@ -384,14 +402,9 @@ public class ScenarioRunner {
                     val = field.getValue();
                 }
 
-                Map<String, Object> vars = new HashMap<String, Object>();
-                vars.putAll(populatedData);
-                vars.put("__val__",
+                FactAccessorCache.getInstance().setField(factObject,
+                        field.getName(),
                         val);
-                vars.put("__fact__",
-                        factObject);
-                eval("__fact__." + field.getName() + " = __val__",
-                        vars);
             }
         }
         return factObject;
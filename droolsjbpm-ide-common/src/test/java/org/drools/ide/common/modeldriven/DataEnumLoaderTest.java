@@ -99,6 +99,57 @@ public class DataEnumLoaderTest {
     }
 
 
+    @Test
+    public void testForAssetCachesByVersion() {
+        DataEnumLoader.clearCache();
+        String source = "'Person.age' : [1, 2]";
+        DataEnumLoader loader = DataEnumLoader.forAsset("uuid1", 1, source);
+        assertFalse(loader.hasErrors());
+        assertEquals(1, loader.getData().size());
+
+        assertSame(loader, DataEnumLoader.forAsset("uuid1", 1, source));
+        assertNotSame(loader, DataEnumLoader.forAsset("uuid1", 2, source));
+
+        DataEnumLoader changed = DataEnumLoader.forAsset("uuid1", 2, "'Person.age' : [1, 2, 3]");
+        assertEquals(3, changed.getData().get("Person.age").length);
+
+        DataEnumLoader broken = DataEnumLoader.forAsset("uuid2", 1, "goober poo error");
+        assertTrue(broken.hasErrors());
+        assertNotSame(broken, DataEnumLoader.forAsset("uuid2", 1, "goober poo error"));
+
+        // Evaluated every time, the values may change without the asset changing
+        String dynamic = "=['Person.age' : [1, 2]]";
+        DataEnumLoader first = DataEnumLoader.forAsset("uuid3", 1, dynamic);
+        assertFalse(first.hasErrors());
+        assertEquals(2, first.getData().get("Person.age").length);
+        assertNotSame(first, DataEnumLoader.forAsset("uuid3", 1, dynamic));
+
+        // So is anything that isn't a literal, even without the "="
+        String call = "'Person.name' : String.valueOf('x')";
+        DataEnumLoader called = DataEnumLoader.forAsset("uuid4", 1, call);
+        assertFalse(called.hasErrors());
+        assertEquals("x", called.getData().get("Person.name")[0]);
+        assertNotSame(called, DataEnumLoader.forAsset("uuid4", 1, call));
+    }
+
+    @Test
+    public void testForAssetCachesByClassLoader() {
+        DataEnumLoader.clearCache();
+        String source = "'Person.age' : ['1', '2']";
+        DataEnumLoader loader = DataEnumLoader.forAsset("uuid5", 1, source);
+        assertSame(loader, DataEnumLoader.forAsset("uuid5", 1, source));
+
+        // The model changed
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(new ClassLoader(original) {});
+        try {
+            assertNotSame(loader, DataEnumLoader.forAsset("uuid5", 1, source));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
     @Test
     public void testNewLines() {
         String s = "yeah yeah, \nyeah \nyeah";
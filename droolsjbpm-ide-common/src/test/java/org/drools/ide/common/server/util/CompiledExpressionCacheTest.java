@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.ide.common.server.util;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompiledExpressionCacheTest {
+
+    @Test
+    public void testEvalReusesCompiledExpression() {
+        CompiledExpressionCache cache = new CompiledExpressionCache( 10 );
+        Serializable compiled = cache.getCompiledExpression( "['a', 'b']" );
+        assertSame( compiled,
+                    cache.getCompiledExpression( "['a', 'b']" ) );
+
+        Object result = cache.eval( "['a', 'b']",
+                                    new HashMap<String, Object>() );
+        assertTrue( result instanceof List );
+        assertEquals( 2,
+                      ((List< ? >) result).size() );
+    }
+
+    @Test
+    public void testEvalTemplate() {
+        CompiledExpressionCache cache = new CompiledExpressionCache( 10 );
+        Map<String, String> context = new HashMap<String, String>();
+        context.put( "f1",
+                     "x" );
+        assertEquals( "['x']",
+                      cache.evalTemplate( "['@{f1}']",
+                                          context ) );
+        context.put( "f1",
+                     "y" );
+        assertEquals( "['y']",
+                      cache.evalTemplate( "['@{f1}']",
+                                          context ) );
+        assertEquals( 1,
+                      cache.size() );
+    }
+
+    @Test
+    public void testEvalParameterizedCompilesOnce() {
+        CompiledExpressionCache cache = new CompiledExpressionCache( 10 );
+        Map<String, String> context = new HashMap<String, String>();
+        context.put( "f1",
+                     "x" );
+        assertEquals( "x",
+                      ((List< ? >) cache.evalParameterized( "['@{f1}', 'b']",
+                                                            context )).get( 0 ) );
+        context.put( "f1",
+                     "y'z" );
+        assertEquals( "y'z",
+                      ((List< ? >) cache.evalParameterized( "['@{f1}', 'b']",
+                                                            context )).get( 0 ) );
+        assertEquals( 1,
+                      cache.size() );
+
+        // Not quoted, so interpolated
+        context.put( "f1",
+                     "2" );
+        assertEquals( 3,
+                      cache.evalParameterized( "@{f1} + 1",
+                                               context ) );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        CompiledExpressionCache cache = new CompiledExpressionCache( 2 );
+        Serializable one = cache.getCompiledExpression( "1" );
+        cache.getCompiledExpression( "2" );
+        cache.getCompiledExpression( "1" );
+        Serializable three = cache.getCompiledExpression( "3" );
+
+        assertEquals( 2,
+                      cache.size() );
+        assertSame( one,
+                    cache.getCompiledExpression( "1" ) );
+        assertSame( three,
+                    cache.getCompiledExpression( "3" ) );
+    }
+
+}
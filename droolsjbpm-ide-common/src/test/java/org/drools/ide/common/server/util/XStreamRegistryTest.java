@@ -0,0 +1,101 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.ide.common.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.drools.ide.common.client.modeldriven.brl.FactPattern;
+import org.drools.ide.common.client.modeldriven.brl.RuleModel;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+public class XStreamRegistryTest {
+
+    private static class CountingConfigurer
+        implements
+        XStreamRegistry.Configurer {
+
+        int calls;
+
+        public void configure(XStream xstream) {
+            calls++;
+            xstream.alias( "rule",
+                           RuleModel.class );
+            xstream.alias( "fact",
+                           FactPattern.class );
+        }
+    }
+
+    @Test
+    public void testInstancesAreShared() {
+        XStreamRegistry registry = new XStreamRegistry( false );
+        CountingConfigurer configurer = new CountingConfigurer();
+
+        XStream first = registry.getXStream( "rules",
+                                             configurer );
+        XStream second = registry.getXStream( "rules",
+                                              configurer );
+
+        assertSame( first,
+                    second );
+        assertEquals( 1,
+                      configurer.calls );
+    }
+
+    @Test
+    public void testBinaryRoundTripAndReadingXml() {
+        XStreamRegistry xmlRegistry = new XStreamRegistry( false );
+        XStreamRegistry binaryRegistry = new XStreamRegistry( true );
+        XStream xmlXStream = xmlRegistry.getXStream( "rules",
+                                                     new CountingConfigurer() );
+        XStream binaryXStream = binaryRegistry.getXStream( "rules",
+                                                           new CountingConfigurer() );
+
+        RuleModel model = new RuleModel();
+        model.name = "foo";
+        model.addLhsItem( new FactPattern( "Person" ) );
+
+        String xml = xmlRegistry.toString( xmlXStream,
+                                           model );
+        assertTrue( xml.startsWith( "<rule>" ) );
+
+        String binary = binaryRegistry.toString( binaryXStream,
+                                                 model );
+        assertTrue( binary.startsWith( XStreamRegistry.BINARY_PREFIX ) );
+        assertFalse( binary.contains( "<rule>" ) );
+
+        //content written either way is read whatever the setting
+        for ( String content : new String[]{xml, binary} ) {
+            RuleModel read = (RuleModel) binaryRegistry.fromString( binaryXStream,
+                                                                    content );
+            assertEquals( "foo",
+                          read.name );
+            assertEquals( "Person",
+                          ((FactPattern) read.lhs[0]).getFactType() );
+
+            read = (RuleModel) xmlRegistry.fromString( xmlXStream,
+                                                       content );
+            assertEquals( "foo",
+                          read.name );
+        }
+    }
+
+}
@@ -343,6 +343,44 @@ public class ScenarioRunnerTest extends RuleUnit {
                 c.getPrice());
     }
 
+    @Test
+    public void testFactAccessorsReusedAcrossScenarios() throws Exception {
+        TypeResolver resolver = new ClassTypeResolver(new HashSet<String>(),
+                Thread.currentThread().getContextClassLoader());
+        resolver.addImport("org.drools.Cheese");
+
+        for (String price : new String[]{"42", "=40 + 2", "42"}) {
+            Scenario sc = new Scenario();
+            sc.getFixtures().add(new FactData("Cheese",
+                    "c1",
+                    ls(new FieldData("type",
+                            "cheddar"),
+                            new FieldData("price",
+                                    price)),
+                    false));
+            VerifyFact vf = new VerifyFact("c1",
+                    ls(new VerifyField("price",
+                            "42",
+                            "=="),
+                            new VerifyField("type",
+                                    "brie",
+                                    "==")));
+            sc.getFixtures().add(vf);
+
+            ScenarioRunner runner = new ScenarioRunner(sc,
+                    resolver,
+                    new MockWorkingMemory());
+
+            Cheese c = (Cheese) runner.getPopulatedData().get("c1");
+            assertEquals(42,
+                    c.getPrice());
+            assertTrue(((VerifyField) vf.getFieldValues().get(0)).getSuccessResult());
+            assertFalse(((VerifyField) vf.getFieldValues().get(1)).getSuccessResult());
+            assertEquals("cheddar",
+                    ((VerifyField) vf.getFieldValues().get(1)).getActualResult());
+        }
+    }
+
     @Test
     public void testVerifyFacts() throws Exception {
 
@@ -1656,6 +1694,37 @@ public class ScenarioRunnerTest extends RuleUnit {
         assertTrue(listChesse.getMaturity() == m);
     }
 
+    @Test
+    public void testFailingConstructorIsRunOnce() throws Exception {
+        Scenario sc = new Scenario();
+        sc.getFixtures().add(new FactData("org.drools.testframework.ScenarioRunnerTest$FailingFact",
+                "f1",
+                new ArrayList(),
+                false));
+        TypeResolver resolver = new ClassTypeResolver(new HashSet<String>(),
+                Thread.currentThread().getContextClassLoader());
+
+        FailingFact.instances = 0;
+        try {
+            new ScenarioRunner(sc,
+                    resolver,
+                    new MockWorkingMemory());
+            fail("The fact can't be created");
+        } catch (RuntimeException e) {
+            assertEquals(1,
+                    FailingFact.instances);
+        }
+    }
+
+    public static class FailingFact {
+        static int instances;
+
+        public FailingFact() {
+            instances++;
+            throw new IllegalStateException("Not today");
+        }
+    }
+
     @Test
     public void testCallMethodOnClassArgumentAndOnArgumentStandardOnFact() throws Exception {
 
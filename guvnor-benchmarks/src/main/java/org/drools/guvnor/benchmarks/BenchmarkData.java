@@ -0,0 +1,209 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.guvnor.client.common.AssetFormats;
+import org.drools.ide.common.client.modeldriven.SuggestionCompletionEngine;
+import org.drools.ide.common.client.modeldriven.brl.ActionFieldValue;
+import org.drools.ide.common.client.modeldriven.brl.ActionSetField;
+import org.drools.ide.common.client.modeldriven.brl.FactPattern;
+import org.drools.ide.common.client.modeldriven.brl.RuleAttribute;
+import org.drools.ide.common.client.modeldriven.brl.RuleModel;
+import org.drools.ide.common.client.modeldriven.brl.SingleFieldConstraint;
+import org.drools.ide.common.client.modeldriven.dt52.ActionSetFieldCol52;
+import org.drools.ide.common.client.modeldriven.dt52.ConditionCol52;
+import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
+import org.drools.ide.common.client.modeldriven.dt52.Pattern52;
+import org.drools.ide.common.client.modeldriven.testing.ExecutionTrace;
+import org.drools.ide.common.client.modeldriven.testing.FactData;
+import org.drools.ide.common.client.modeldriven.testing.FieldData;
+import org.drools.ide.common.client.modeldriven.testing.Scenario;
+import org.drools.ide.common.client.modeldriven.testing.VerifyRuleFired;
+import org.drools.ide.common.server.util.BRXMLPersistence;
+import org.drools.ide.common.server.util.RepositoryUpgradeHelper;
+import org.drools.repository.AssetItem;
+import org.drools.repository.PackageItem;
+import org.drools.repository.RulesRepository;
+
+/**
+ * Builds the synthetic packages and models the benchmarks work on. They are
+ * all about one declared fact type, so that they compile without a model jar.
+ */
+public class BenchmarkData {
+
+    public static final String    PACKAGE_NAME = "bench";
+
+    public static final String    FACT_MODEL   = "declare Item\n    id: int\n    price: int\nend\n";
+
+    // For the package headers of the suggestion completion loader
+    private static final String[] IMPORTS      = {"java.util.ArrayList", "java.util.HashMap", "java.util.Date", "java.util.LinkedList", "java.util.TreeMap", "java.util.HashSet", "java.util.Locale", "java.util.UUID", "java.math.BigDecimal", "java.math.BigInteger", "java.net.URI", "java.net.URL", "java.io.File", "java.lang.StringBuilder", "java.lang.Thread", "java.sql.Timestamp", "java.text.SimpleDateFormat", "java.util.Calendar", "java.util.Currency", "java.util.Properties"};
+
+    /**
+     * Creates a package with a fact model and the given number of rule assets,
+     * alternately technical (DRL) and guided (BRL) rules.
+     */
+    public static PackageItem createPackage(RulesRepository repository,
+                                            String name,
+                                            int assets) {
+        PackageItem pkg = repository.createPackage( name,
+                                                    "" );
+        AssetItem model = pkg.addAsset( "model",
+                                        "" );
+        model.updateFormat( AssetFormats.DRL_MODEL );
+        model.updateContent( FACT_MODEL );
+        model.checkin( "" );
+
+        for ( int i = 0; i < assets; i++ ) {
+            AssetItem asset = pkg.addAsset( "rule_" + i,
+                                            "" );
+            if ( i % 2 == 0 ) {
+                asset.updateFormat( AssetFormats.DRL );
+                asset.updateContent( drl( i ) );
+            } else {
+                asset.updateFormat( AssetFormats.BUSINESS_RULE );
+                asset.updateContent( BRXMLPersistence.getInstance().marshal( ruleModel( "rule_" + i,
+                                                                                        1 ) ) );
+            }
+            asset.checkin( "" );
+            if ( i % 100 == 99 ) {
+                repository.save();
+            }
+        }
+        repository.save();
+        return pkg;
+    }
+
+    public static String drl(int i) {
+        return "rule \"rule_" + i + "\"\n    when\n        $i : Item( price > " + i + " )\n    then\n        $i.setId( " + i + " );\nend\n";
+    }
+
+    /**
+     * @return a guided rule with the given number of patterns, each with a
+     *         constraint, and an action per pattern.
+     */
+    public static RuleModel ruleModel(String name,
+                                      int patterns) {
+        RuleModel model = new RuleModel();
+        model.name = name;
+        model.addAttribute( new RuleAttribute( "no-loop",
+                                               "true" ) );
+        for ( int p = 0; p < patterns; p++ ) {
+            FactPattern pattern = new FactPattern( "Item" );
+            pattern.setBoundName( "$i" + p );
+            SingleFieldConstraint constraint = new SingleFieldConstraint( "price",
+                                                                          SuggestionCompletionEngine.TYPE_NUMERIC,
+                                                                          null );
+            constraint.setOperator( ">" );
+            constraint.setValue( String.valueOf( p ) );
+            constraint.setConstraintValueType( SingleFieldConstraint.TYPE_LITERAL );
+            pattern.addConstraint( constraint );
+            model.addLhsItem( pattern );
+
+            ActionSetField action = new ActionSetField( "$i" + p );
+            action.addFieldValue( new ActionFieldValue( "id",
+                                                        String.valueOf( p ),
+                                                        SuggestionCompletionEngine.TYPE_NUMERIC ) );
+            model.addRhsItem( action );
+        }
+        return model;
+    }
+
+    /**
+     * @return a decision table with five conditions and one action, and the
+     *         given number of rows.
+     */
+    public static GuidedDecisionTable52 decisionTable(int rows) {
+        GuidedDecisionTable52 dt = new GuidedDecisionTable52();
+        dt.setTableName( "table" );
+        Pattern52 p = new Pattern52();
+        p.setBoundName( "$i" );
+        p.setFactType( "Item" );
+        for ( int i = 0; i < 5; i++ ) {
+            ConditionCol52 c = new ConditionCol52();
+            c.setFactField( "price" );
+            c.setOperator( ">" );
+            c.setConstraintValueType( SingleFieldConstraint.TYPE_LITERAL );
+            c.setFieldType( SuggestionCompletionEngine.TYPE_NUMERIC );
+            p.getConditions().add( c );
+        }
+        dt.getConditionPatterns().add( p );
+        ActionSetFieldCol52 a = new ActionSetFieldCol52();
+        a.setBoundName( "$i" );
+        a.setFactField( "id" );
+        a.setType( SuggestionCompletionEngine.TYPE_NUMERIC );
+        dt.getActionCols().add( a );
+
+        String[][] data = new String[rows][];
+        for ( int i = 0; i < rows; i++ ) {
+            data[i] = new String[]{String.valueOf( i + 1 ), "", String.valueOf( i ), String.valueOf( i + 1 ), String.valueOf( i + 2 ), String.valueOf( i + 3 ), String.valueOf( i + 4 ), String.valueOf( i )};
+        }
+        dt.setData( RepositoryUpgradeHelper.makeDataLists( data ) );
+        return dt;
+    }
+
+    /**
+     * @return the DRL of a package with the fact model and the given number
+     *         of rules, for the scenarios to run against.
+     */
+    public static String packageDrl(int rules) {
+        StringBuilder drl = new StringBuilder( "package " ).append( PACKAGE_NAME ).append( "\n\n" ).append( FACT_MODEL );
+        for ( int i = 0; i < rules; i++ ) {
+            drl.append( '\n' ).append( drl( i ) );
+        }
+        return drl.toString();
+    }
+
+    /**
+     * @return a scenario inserting the given number of facts, firing the
+     *         rules and checking the first one fired.
+     */
+    public static Scenario scenario(int facts) {
+        Scenario scenario = new Scenario();
+        for ( int i = 0; i < facts; i++ ) {
+            List<FieldData> fields = new ArrayList<FieldData>();
+            fields.add( new FieldData( "id",
+                                       String.valueOf( i ) ) );
+            fields.add( new FieldData( "price",
+                                       String.valueOf( i ) ) );
+            scenario.getFixtures().add( new FactData( "Item",
+                                                      "item" + i,
+                                                      fields,
+                                                      false ) );
+        }
+        scenario.getFixtures().add( new ExecutionTrace() );
+        scenario.getFixtures().add( new VerifyRuleFired( "rule_0",
+                                                         null,
+                                                         Boolean.TRUE ) );
+        return scenario;
+    }
+
+    /**
+     * @return a package header importing the given number of classes (at
+     *         most 20), with the fact model declared in it.
+     */
+    public static String header(int imports) {
+        StringBuilder header = new StringBuilder();
+        for ( int i = 0; i < imports && i < IMPORTS.length; i++ ) {
+            header.append( "import " ).append( IMPORTS[i] ).append( '\n' );
+        }
+        return header.append( '\n' ).append( FACT_MODEL ).toString();
+    }
+
+}
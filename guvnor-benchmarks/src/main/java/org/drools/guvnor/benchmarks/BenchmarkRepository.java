@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.drools.repository.JCRRepositoryConfigurator;
+import org.drools.repository.RepositorySessionUtil;
+import org.drools.repository.RulesRepository;
+import org.drools.repository.RulesRepositoryConfigurator;
+import org.drools.repository.RulesRepositoryException;
+
+/**
+ * A Jackrabbit repository in a temporary directory, set up as
+ * TestEnvironmentSessionHelper does for the unit tests. JMH runs each
+ * benchmark (and each set of parameters) in forked JVMs, so there is one
+ * repository per fork, opened when the benchmark state is set up and removed
+ * when it is torn down.
+ */
+public class BenchmarkRepository {
+
+    private static final String JACKRABBIT = "org.drools.repository.jackrabbit.JackrabbitRepositoryConfigurator";
+
+    private static File         directory;
+    private static Session      session;
+
+    public static synchronized RulesRepository open() {
+        if ( session == null ) {
+            try {
+                directory = File.createTempFile( "guvnor-benchmarks",
+                                                 "" );
+                directory.delete();
+                directory.mkdirs();
+
+                Properties properties = new Properties();
+                properties.setProperty( RulesRepositoryConfigurator.CONFIGURATOR_CLASS,
+                                        JACKRABBIT );
+                properties.setProperty( JCRRepositoryConfigurator.REPOSITORY_ROOT_DIRECTORY,
+                                        directory.getAbsolutePath() );
+                RulesRepositoryConfigurator config = RulesRepositoryConfigurator.getInstance( properties );
+                session = config.login( "benchmark",
+                                        "password" );
+                config.setupRepository( session );
+            } catch ( IOException e ) {
+                throw new IllegalStateException( e );
+            } catch ( RepositoryException e ) {
+                throw new RulesRepositoryException( e );
+            }
+        }
+        return new RulesRepository( session );
+    }
+
+    public static synchronized void close() {
+        if ( session == null ) {
+            return;
+        }
+        session.logout();
+        session = null;
+        try {
+            RulesRepositoryConfigurator.getInstance( null ).shutdown();
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+        RepositorySessionUtil.deleteDir( directory );
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Properties;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks (all of them, or those selected with the usual JMH
+ * command line options), and keeps their scores as a baseline to compare the
+ * next releases with:
+ * 
+ * <pre>
+ * java -Dbaseline.save=5.3.0.properties -jar guvnor-benchmarks.jar
+ * java -Dbaseline=5.3.0.properties [-Dbaseline.tolerance=0.1] -jar guvnor-benchmarks.jar
+ * </pre>
+ * 
+ * A baseline holds the score of each benchmark, with its parameters. When
+ * comparing, a benchmark slower than its baseline by more than the tolerance
+ * (10% by default), beyond its margin of error, is a regression, and the
+ * run exits with 1. Baselines are only comparable when taken on the same
+ * machine and JVM.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().parent( new CommandLineOptions( args ) ).build();
+        Collection<RunResult> results = new Runner( options ).run();
+
+        String save = System.getProperty( "baseline.save" );
+        if ( save != null ) {
+            save( results,
+                  new File( save ) );
+        }
+        String baseline = System.getProperty( "baseline" );
+        if ( baseline != null ) {
+            double tolerance = Double.parseDouble( System.getProperty( "baseline.tolerance",
+                                                                       "0.1" ) );
+            if ( compare( results,
+                          load( new File( baseline ) ),
+                          tolerance ) > 0 ) {
+                System.exit( 1 );
+            }
+        }
+    }
+
+    /**
+     * @return the number of regressions.
+     */
+    static int compare(Collection<RunResult> results,
+                       Properties baseline,
+                       double tolerance) {
+        int regressions = 0;
+        System.out.println();
+        System.out.println( "Compared with the baseline (tolerance " + (tolerance * 100) + "%):" );
+        for ( RunResult run : results ) {
+            String key = getKey( run.getParams() );
+            Result result = run.getPrimaryResult();
+            String expected = baseline.getProperty( key );
+            if ( expected == null ) {
+                System.out.println( "  NEW        " + key + ": " + format( result.getScore() ) + " " + result.getScoreUnit() );
+                continue;
+            }
+            double before = Double.parseDouble( expected );
+            double error = Double.isNaN( result.getScoreError() ) ? 0 : result.getScoreError();
+            String status = "  OK         ";
+            if ( result.getScore() - error > before * (1 + tolerance) ) {
+                status = "  REGRESSION ";
+                regressions++;
+            } else if ( result.getScore() + error < before * (1 - tolerance) ) {
+                status = "  IMPROVED   ";
+            }
+            System.out.println( status + key + ": " + format( result.getScore() ) + " " + result.getScoreUnit() + " (baseline " + format( before ) + ")" );
+        }
+        return regressions;
+    }
+
+    private static void save(Collection<RunResult> results,
+                             File file) throws IOException {
+        Properties baseline = file.exists() ? load( file ) : new Properties();
+        for ( RunResult run : results ) {
+            baseline.setProperty( getKey( run.getParams() ),
+                                  String.valueOf( run.getPrimaryResult().getScore() ) );
+        }
+        OutputStream out = new FileOutputStream( file );
+        try {
+            baseline.store( out,
+                            "Guvnor benchmark baseline, average times" );
+        } finally {
+            out.close();
+        }
+        System.out.println( "Saved the baseline to " + file.getAbsolutePath() );
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties baseline = new Properties();
+        InputStream in = new FileInputStream( file );
+        try {
+            baseline.load( in );
+        } finally {
+            in.close();
+        }
+        return baseline;
+    }
+
+    /**
+     * @return the benchmark method and its parameters, such as
+     *         "org.drools.guvnor.benchmarks.PackageBuildBenchmark.build(assets=100)".
+     */
+    static String getKey(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder( params.getBenchmark() ).append( '(' );
+        boolean first = true;
+        for ( String name : params.getParamsKeys() ) {
+            if ( !first ) {
+                key.append( ',' );
+            }
+            first = false;
+            key.append( name ).append( '=' ).append( params.getParam( name ) );
+        }
+        return key.append( ')' ).toString();
+    }
+
+    private static String format(double score) {
+        return String.format( "%.3f",
+                              score );
+    }
+
+}
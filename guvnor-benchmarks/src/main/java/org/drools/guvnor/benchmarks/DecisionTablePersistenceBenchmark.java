@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
+import org.drools.ide.common.server.util.GuidedDTDRLPersistence;
+import org.drools.ide.common.server.util.GuidedDTXMLPersistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting a guided decision table of the given number of rows to DRL, as
+ * done when building, and the XML round trip of saving and loading it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DecisionTablePersistenceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int                    rows;
+
+    private GuidedDecisionTable52 dt;
+
+    @Setup
+    public void setUp() {
+        dt = BenchmarkData.decisionTable( rows );
+    }
+
+    @Benchmark
+    public String marshalDrl() {
+        return GuidedDTDRLPersistence.getInstance().marshal( dt );
+    }
+
+    @Benchmark
+    public GuidedDecisionTable52 xmlRoundTrip() {
+        GuidedDTXMLPersistence persistence = GuidedDTXMLPersistence.getInstance();
+        return persistence.unmarshal( persistence.marshal( dt ) );
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.guvnor.server.builder.PackageAssembler;
+import org.drools.repository.PackageItem;
+import org.drools.repository.RulesRepository;
+import org.drools.rule.Package;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds a package of the given number of assets with the PackageAssembler,
+ * as a package build from the GUI or a deployment does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PackageBuildBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int          assets;
+
+    private PackageItem pkg;
+
+    @Setup
+    public void setUp() {
+        RulesRepository repository = BenchmarkRepository.open();
+        pkg = BenchmarkData.createPackage( repository,
+                                           "build",
+                                           assets );
+        PackageAssembler asm = new PackageAssembler( pkg );
+        asm.compile();
+        if ( asm.hasErrors() ) {
+            throw new IllegalStateException( "The synthetic package doesn't build: " + asm.getErrors() );
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkRepository.close();
+    }
+
+    @Benchmark
+    public Package build() {
+        PackageAssembler asm = new PackageAssembler( pkg );
+        asm.compile();
+        return asm.getBinaryPackage();
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.guvnor.client.common.AssetFormats;
+import org.drools.repository.AssetItemIterator;
+import org.drools.repository.RulesRepository;
+import org.drools.repository.VersionableItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Asset searches against a repository holding a package of the given number
+ * of assets. Each search goes through all the results, loading the assets, as
+ * the search screens do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RepositoryQueryBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int                    assets;
+
+    private RulesRepository       repository;
+    private Map<String, String[]> formatQuery;
+
+    @Setup
+    public void setUp() {
+        repository = BenchmarkRepository.open();
+        BenchmarkData.createPackage( repository,
+                                     "query",
+                                     assets );
+        formatQuery = new HashMap<String, String[]>();
+        formatQuery.put( VersionableItem.FORMAT_PROPERTY_NAME,
+                         new String[]{AssetFormats.DRL} );
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkRepository.close();
+    }
+
+    /**
+     * Matches about a tenth of the assets.
+     */
+    @Benchmark
+    public int findAssetsByName() {
+        return consume( repository.findAssetsByName( "rule_1%",
+                                                     false ) );
+    }
+
+    /**
+     * Matches half of the assets.
+     */
+    @Benchmark
+    public int queryByFormat() {
+        return consume( repository.query( formatQuery,
+                                          false,
+                                          null ) );
+    }
+
+    private static int consume(AssetItemIterator it) {
+        int count = 0;
+        while ( it.hasNext() ) {
+            count += it.next().getName().length();
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ide.common.client.modeldriven.brl.RuleModel;
+import org.drools.ide.common.server.util.BRDRLPersistence;
+import org.drools.ide.common.server.util.BRLPersistence;
+import org.drools.ide.common.server.util.BRXMLPersistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting a guided rule of the given number of patterns to and from DRL,
+ * as done when building and when opening a DRL as a guided rule, and the XML
+ * round trip of saving and loading it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RuleModelPersistenceBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int                   patterns;
+
+    private final BRLPersistence drlPersistence = BRDRLPersistence.getInstance();
+    private final BRLPersistence xmlPersistence = BRXMLPersistence.getInstance();
+
+    private RuleModel            model;
+    private String               drl;
+
+    @Setup
+    public void setUp() {
+        model = BenchmarkData.ruleModel( "rule",
+                                         patterns );
+        drl = drlPersistence.marshal( model );
+    }
+
+    @Benchmark
+    public String marshalDrl() {
+        return drlPersistence.marshal( model );
+    }
+
+    @Benchmark
+    public RuleModel unmarshalDrl() {
+        return drlPersistence.unmarshal( drl );
+    }
+
+    @Benchmark
+    public RuleModel xmlRoundTrip() {
+        return xmlPersistence.unmarshal( xmlPersistence.marshal( model ) );
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import static org.mvel2.MVEL.eval;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ClockType;
+import org.drools.RuleBase;
+import org.drools.RuleBaseFactory;
+import org.drools.SessionConfiguration;
+import org.drools.base.ClassTypeResolver;
+import org.drools.common.InternalRuleBase;
+import org.drools.common.InternalWorkingMemory;
+import org.drools.compiler.PackageBuilder;
+import org.drools.ide.common.client.modeldriven.testing.FactData;
+import org.drools.ide.common.client.modeldriven.testing.FieldData;
+import org.drools.ide.common.client.modeldriven.testing.Fixture;
+import org.drools.ide.common.client.modeldriven.testing.Scenario;
+import org.drools.testframework.ScenarioRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs a scenario of the given number of facts against a package of the given
+ * number of rules, on a new session each time, set up as
+ * RepositoryPackageService.runScenario does. The scenario and the session are
+ * made before each call, as running the scenario changes them.
+ * <p>
+ * With accessors=interpreted the facts are made and populated as ScenarioRunner
+ * did before FactAccessorCache, interpreting MVEL for each field, and the rest
+ * of the scenario is run by ScenarioRunner, for a comparison with the compiled
+ * accessors (accessors=cached).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScenarioRunnerBenchmark {
+
+    @Param({"10", "100"})
+    public int                    rules;
+
+    @Param({"10", "1000"})
+    public int                    facts;
+
+    @Param({"cached", "interpreted"})
+    public String                 accessors;
+
+    private RuleBase              ruleBase;
+    private ClassTypeResolver     resolver;
+
+    private Scenario              scenario;
+    private InternalWorkingMemory workingMemory;
+
+    @Setup
+    public void setUp() throws Exception {
+        PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( BenchmarkData.packageDrl( rules ) ) );
+        if ( builder.hasErrors() ) {
+            throw new IllegalStateException( "The synthetic package doesn't build: " + builder.getErrors() );
+        }
+        ruleBase = RuleBaseFactory.newRuleBase();
+        ruleBase.addPackage( builder.getPackage() );
+
+        Set<String> imports = new HashSet<String>();
+        imports.add( BenchmarkData.PACKAGE_NAME + ".*" );
+        resolver = new ClassTypeResolver( imports,
+                                          ((InternalRuleBase) ruleBase).getRootClassLoader() );
+    }
+
+    @Setup(Level.Invocation)
+    public void newSession() {
+        scenario = BenchmarkData.scenario( facts );
+        SessionConfiguration sessionConfiguration = new SessionConfiguration();
+        sessionConfiguration.setClockType( ClockType.PSEUDO_CLOCK );
+        sessionConfiguration.setKeepReference( false );
+        workingMemory = (InternalWorkingMemory) ruleBase.newStatefulSession( sessionConfiguration,
+                                                                             null );
+    }
+
+    @TearDown(Level.Invocation)
+    public void disposeSession() {
+        workingMemory.dispose();
+    }
+
+    @Benchmark
+    public boolean run() throws Exception {
+        if ( "interpreted".equals( accessors ) ) {
+            return runInterpreted();
+        }
+        new ScenarioRunner( scenario,
+                            resolver,
+                            workingMemory );
+        return scenario.wasSuccessful();
+    }
+
+    private boolean runInterpreted() throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        // So that MVEL finds the declared types, as in runScenario
+        thread.setContextClassLoader( ((InternalRuleBase) ruleBase).getRootClassLoader() );
+        try {
+            Scenario rest = new Scenario();
+            Map<String, Object> populatedData = new HashMap<String, Object>();
+            for ( Fixture fixture : scenario.getFixtures() ) {
+                if ( fixture instanceof FactData ) {
+                    FactData fact = (FactData) fixture;
+                    Object factObject = eval( "new " + resolver.getFullTypeName( fact.getType() ) + "()" );
+                    populatedData.put( fact.getName(),
+                                       factObject );
+                    populateInterpreted( fact,
+                                         factObject,
+                                         populatedData );
+                    workingMemory.insert( factObject );
+                } else {
+                    rest.getFixtures().add( fixture );
+                }
+            }
+            new ScenarioRunner( rest,
+                                resolver,
+                                workingMemory );
+            return rest.wasSuccessful();
+        } finally {
+            thread.setContextClassLoader( original );
+        }
+    }
+
+    // What ScenarioRunner.populateFields did for each field before the accessors were cached
+    private static void populateInterpreted(FactData fact,
+                                            Object factObject,
+                                            Map<String, Object> populatedData) {
+        for ( FieldData field : fact.getFieldData() ) {
+            Map<String, Object> vars = new HashMap<String, Object>();
+            vars.putAll( populatedData );
+            vars.put( "__val__",
+                      field.getValue() );
+            vars.put( "__fact__",
+                      factObject );
+            eval( "__fact__." + field.getName() + " = __val__",
+                  vars );
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarInputStream;
+
+import org.drools.ide.common.client.modeldriven.SuggestionCompletionEngine;
+import org.drools.ide.common.server.rules.SuggestionCompletionLoader;
+import org.drools.lang.dsl.DSLTokenizedMappingFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loads the suggestion completion engine (the data behind the guided editors)
+ * for a package header importing the given number of classes, with a declared
+ * type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SuggestionCompletionLoaderBenchmark {
+
+    @Param({"1", "10", "20"})
+    public int     imports;
+
+    private String header;
+
+    @Setup
+    public void setUp() {
+        header = BenchmarkData.header( imports );
+        SuggestionCompletionLoader loader = new SuggestionCompletionLoader();
+        loader.getSuggestionEngine( header,
+                                    Collections.<JarInputStream> emptyList(),
+                                    Collections.<DSLTokenizedMappingFile> emptyList() );
+        if ( loader.hasErrors() ) {
+            throw new IllegalStateException( "The synthetic header doesn't load: " + loader.getErrors() );
+        }
+    }
+
+    @Benchmark
+    public SuggestionCompletionEngine load() {
+        return new SuggestionCompletionLoader().getSuggestionEngine( header,
+                                                                     Collections.<JarInputStream> emptyList(),
+                                                                     Collections.<DSLTokenizedMappingFile> emptyList() );
+    }
+
+}
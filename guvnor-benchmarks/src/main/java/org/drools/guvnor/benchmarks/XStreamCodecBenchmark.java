@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ide.common.client.modeldriven.brl.RuleModel;
+import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
+import org.drools.ide.common.client.modeldriven.testing.Scenario;
+import org.drools.ide.common.server.util.BRLPersistence;
+import org.drools.ide.common.server.util.BRXMLPersistence;
+import org.drools.ide.common.server.util.GuidedDTXMLPersistence;
+import org.drools.ide.common.server.util.ScenarioXMLPersistence;
+import org.drools.ide.common.server.util.XStreamRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and loading a guided rule, a guided decision table and a scenario,
+ * with the XML and with the binary codec of XStreamRegistry. The codec is
+ * chosen with the system property XStreamRegistry reads on start up, so each
+ * codec needs its own JVM: keep at least one fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XStreamCodecBenchmark {
+
+    @Param({"xml", "binary"})
+    public String                 codec;
+
+    @Param({"10", "100"})
+    public int                    size;
+
+    private RuleModel             rule;
+    private GuidedDecisionTable52 dt;
+    private Scenario              scenario;
+
+    @Setup
+    public void setUp() {
+        boolean binary = "binary".equals( codec );
+        System.setProperty( XStreamRegistry.BINARY_CODEC_PROPERTY,
+                            String.valueOf( binary ) );
+        if ( XStreamRegistry.getInstance().isBinary() != binary ) {
+            throw new IllegalStateException( "The codec was already chosen in this JVM, run with forks." );
+        }
+        rule = BenchmarkData.ruleModel( "rule",
+                                        size );
+        dt = BenchmarkData.decisionTable( size );
+        scenario = BenchmarkData.scenario( size );
+    }
+
+    @Benchmark
+    public RuleModel ruleRoundTrip() {
+        BRLPersistence persistence = BRXMLPersistence.getInstance();
+        return persistence.unmarshal( persistence.marshal( rule ) );
+    }
+
+    @Benchmark
+    public GuidedDecisionTable52 decisionTableRoundTrip() {
+        GuidedDTXMLPersistence persistence = GuidedDTXMLPersistence.getInstance();
+        return persistence.unmarshal( persistence.marshal( dt ) );
+    }
+
+    @Benchmark
+    public Scenario scenarioRoundTrip() {
+        ScenarioXMLPersistence persistence = ScenarioXMLPersistence.getInstance();
+        return persistence.unmarshal( persistence.marshal( scenario ) );
+    }
+
+}
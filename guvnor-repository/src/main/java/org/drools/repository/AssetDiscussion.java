@@ -0,0 +1,232 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The discussion (comments) of an asset, stored apart from the asset so that
+ * adding a comment doesn't rewrite the whole thread, nor touch the asset
+ * node. Each comment is a child node with a unique name, in the order they
+ * were added:
+ * <pre>
+ * drools:discussion_area (nt:folder)
+ *     [asset uuid] (nt:file)
+ *         jcr:content (nt:unstructured)
+ *             [unique name]... (nt:unstructured, drools:author, drools:note, drools:timestamp)
+ * </pre>
+ * so appending and loading the latest comments don't depend on the length of
+ * the thread. Comments appended by different sessions at the same time don't
+ * collide, as nothing but the list of children is shared.
+ * <p>
+ * Changes are saved by the caller, as for the other items.
+ */
+public class AssetDiscussion {
+
+    private static final Logger log                = LoggerFactory.getLogger( AssetDiscussion.class );
+
+    public static final String  DISCUSSION_AREA    = "drools:discussion_area";
+
+    private static final String AUTHOR_PROPERTY    = "drools:author";
+    private static final String NOTE_PROPERTY      = "drools:note";
+    private static final String TIMESTAMP_PROPERTY = "drools:timestamp";
+
+    private final RulesRepository repository;
+    private final String          assetUUID;
+
+    public AssetDiscussion(RulesRepository repository,
+                           String assetUUID) {
+        this.repository = repository;
+        this.assetUUID = assetUUID;
+    }
+
+    /**
+     * A comment.
+     */
+    public static class Entry {
+
+        private final String author;
+        private final String note;
+        private final long   timestamp;
+
+        public Entry(String author,
+                     String note,
+                     long timestamp) {
+            this.author = author;
+            this.note = note;
+            this.timestamp = timestamp;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public String getNote() {
+            return note;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * @return false if nothing was ever stored for the asset (not even an
+     *         empty discussion).
+     */
+    public boolean exists() {
+        try {
+            return getContentNode( false ) != null;
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    public int size() {
+        try {
+            Node content = getContentNode( false );
+            return (content == null) ? 0 : (int) content.getNodes().getSize();
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    public void append(Entry entry) {
+        try {
+            Node content = getContentNode( true );
+            Node record = content.addNode( UUID.randomUUID().toString(),
+                                           "nt:unstructured" );
+            record.setProperty( AUTHOR_PROPERTY,
+                                entry.author );
+            record.setProperty( NOTE_PROPERTY,
+                                entry.note );
+            record.setProperty( TIMESTAMP_PROPERTY,
+                                entry.timestamp );
+        } catch ( RepositoryException e ) {
+            log.error( "Unable to add to the discussion of asset [" + assetUUID + "]",
+                       e );
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    /**
+     * @return the comments from the given index (the first one being 0), in
+     *         the order they were added.
+     */
+    public List<Entry> load(int startIndex,
+                            int maxEntries) {
+        List<Entry> result = new ArrayList<Entry>();
+        try {
+            Node content = getContentNode( false );
+            if ( content == null ) {
+                return result;
+            }
+            NodeIterator records = content.getNodes();
+            long start = Math.max( 0,
+                                   startIndex );
+            if ( start >= records.getSize() ) {
+                return result;
+            }
+            //Skipping doesn't load the comments skipped
+            records.skip( start );
+            while ( records.hasNext() && result.size() < maxEntries ) {
+                Node record = records.nextNode();
+                result.add( new Entry( record.getProperty( AUTHOR_PROPERTY ).getString(),
+                                       record.getProperty( NOTE_PROPERTY ).getString(),
+                                       record.getProperty( TIMESTAMP_PROPERTY ).getLong() ) );
+            }
+            return result;
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    public List<Entry> loadAll() {
+        return load( 0,
+                     Integer.MAX_VALUE );
+    }
+
+    /**
+     * @return the last comments added, oldest first.
+     */
+    public List<Entry> loadLatest(int maxEntries) {
+        return load( Math.max( 0,
+                               size() - maxEntries ),
+                     maxEntries );
+    }
+
+    /**
+     * Removes the comments, leaving an empty discussion.
+     */
+    public void clear() {
+        try {
+            Node content = getContentNode( false );
+            if ( content != null ) {
+                content.getParent().remove();
+            }
+            getContentNode( true );
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    /**
+     * Removes the discussion altogether, for when the asset is removed.
+     */
+    public void remove() {
+        try {
+            Node content = getContentNode( false );
+            if ( content != null ) {
+                content.getParent().remove();
+            }
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    private Node getContentNode(boolean create) throws RepositoryException {
+        Node root = repository.getSession().getRootNode().getNode( RulesRepository.RULES_REPOSITORY_NAME );
+        if ( !create ) {
+            if ( !root.hasNode( DISCUSSION_AREA + "/" + assetUUID + "/jcr:content" ) ) {
+                return null;
+            }
+            return root.getNode( DISCUSSION_AREA + "/" + assetUUID + "/jcr:content" );
+        }
+
+        Node area = RulesRepository.addNodeIfNew( root,
+                                                  DISCUSSION_AREA,
+                                                  "nt:folder" );
+        Node file = RulesRepository.addNodeIfNew( area,
+                                                  assetUUID,
+                                                  "nt:file" );
+        if ( file.hasNode( "jcr:content" ) ) {
+            return file.getNode( "jcr:content" );
+        }
+        return file.addNode( "jcr:content",
+                             "nt:unstructured" );
+    }
+
+}
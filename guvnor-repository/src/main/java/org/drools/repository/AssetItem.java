@@ -25,6 +25,7 @@ import javax.jcr.Node;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
+import javax.jcr.version.Version;
 
 import org.drools.repository.events.StorageEventManager;
 import org.drools.repository.utils.IOUtils;
@@ -515,10 +516,12 @@ public class AssetItem extends CategorisableItem {
     /**
      * Get the name of the enclosing package. As assets are stored in
      * versionable subfolders, this means walking up 2 levels in the hierarchy
-     * to get to the enclosing "package" node.
+     * to get to the enclosing "package" node. While the package is being
+     * renamed, this is already the new name.
      */
     public String getPackageName() {
-        return super.getStringProperty( PACKAGE_NAME_PROPERTY );
+        return PackageRename.getCurrentName( this,
+                                             super.getStringProperty( PACKAGE_NAME_PROPERTY ) );
     }
 
     /**
@@ -546,12 +549,30 @@ public class AssetItem extends CategorisableItem {
             }
         }
         try {
+            String uuid = getUUID();
             this.node.remove();
+            new AssetDiscussion( getRulesRepository(),
+                                 uuid ).remove();
+            AssetNameIndex.getIndex( getRulesRepository() ).remove( uuid );
+            AssetLinkIndex.getIndex( getRulesRepository() ).remove( uuid );
         } catch ( RepositoryException e ) {
             throw new RulesRepositoryException( e );
         }
     }
 
+    @Override
+    public void updateTitle(String title) {
+        super.updateTitle( title );
+        AssetNameIndex.getIndex( getRulesRepository() ).update( this );
+    }
+
+    @Override
+    public AssetItem archiveItem(boolean data) {
+        super.archiveItem( data );
+        AssetNameIndex.getIndex( getRulesRepository() ).update( this );
+        return this;
+    }
+
     /**
      * 
      * @return An iterator over the nodes history.
@@ -574,6 +595,25 @@ public class AssetItem extends CategorisableItem {
                                          this.node );
     }
 
+    /**
+     * @return the version of this asset with the given version number, from
+     *         the head or any of its versions.
+     * @throws RulesRepositoryException if the asset has no such version.
+     */
+    public AssetItem getVersion(long versionNumber) {
+        try {
+            Version version = findVersion( getHeadNode(),
+                                           versionNumber );
+            if ( version == null ) {
+                throw new RulesRepositoryException( "Unable to load AssetItem[" + getName() + "] with specified version[" + versionNumber + "]" );
+            }
+            return new AssetItem( this.rulesRepository,
+                                  version );
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
     /**
      * This will get the package an asset item belongs to.
      */
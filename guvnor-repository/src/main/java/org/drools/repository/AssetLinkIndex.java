@@ -0,0 +1,295 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+
+import org.drools.repository.metrics.HitRatio;
+import org.drools.repository.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in memory index of the assets linked to each category and state, for
+ * {@link RulesRepository#findAssetsByCategory(String, boolean, int, int)} and
+ * {@link RulesRepository#findAssetsByState(String, boolean, int, int)}, so
+ * that a page of a large category doesn't go through all the references to
+ * the category up to that page. Only assets in the package area are indexed
+ * (not snapshots). The assets of a category or state are kept in the order of
+ * their UUIDs, with and without the archived ones, so a page is a sub list.
+ * <p>
+ * There is one index per JCR repository, built from a query the first time it
+ * is used, then kept up to date by the operations that change the categories,
+ * the state or the archived flag of an asset, and that add or remove assets.
+ * Operations touching many assets at once (package copy or removal, imports)
+ * drop the index, to be built again when next used. As changes may be rolled
+ * back, and are indexed before they are saved, callers should still load the
+ * assets found and skip those they can't load, without removing them: another
+ * session may be about to save them.
+ */
+public class AssetLinkIndex {
+
+    private static final Logger                          log          = LoggerFactory.getLogger( AssetLinkIndex.class );
+
+    private static final String                          INDEXED_PATH = "/" + RulesRepository.RULES_REPOSITORY_NAME + "/" + RulesRepository.RULE_PACKAGE_AREA + "/";
+
+    private static final Map<Repository, AssetLinkIndex> indexes      = new WeakHashMap<Repository, AssetLinkIndex>();
+
+    private static final HitRatio                        hitRatio     = Metrics.hitRatio( "cache.assetLinkIndex" );
+
+    private Map<String, Entry>                           entries;
+    private final Map<String, Members>                   members      = new HashMap<String, Members>();
+
+    AssetLinkIndex() {
+    }
+
+    public static AssetLinkIndex getIndex(RulesRepository repository) {
+        return getIndex( repository.getSession().getRepository() );
+    }
+
+    static AssetLinkIndex getIndex(Repository key) {
+        synchronized ( indexes ) {
+            AssetLinkIndex index = indexes.get( key );
+            if ( index == null ) {
+                index = new AssetLinkIndex();
+                indexes.put( key,
+                             index );
+            }
+            return index;
+        }
+    }
+
+    /**
+     * The categories and state an asset is linked to.
+     */
+    private static class Entry {
+
+        private final Set<String> links;
+        private final boolean     archived;
+
+        Entry(Set<String> links,
+              boolean archived) {
+            this.links = links;
+            this.archived = archived;
+        }
+    }
+
+    /**
+     * The assets linked to a category or state, sorted by UUID.
+     */
+    private static class Members {
+
+        private final List<String> all        = new ArrayList<String>();
+        private final List<String> unarchived = new ArrayList<String>();
+
+        List<String> get(boolean seekArchived) {
+            return seekArchived ? all : unarchived;
+        }
+    }
+
+    /**
+     * @param linkUUID
+     *            the UUID of a category or state node.
+     * @param max
+     *            the number of assets to return at most, or -1 for all of
+     *            them.
+     * @return the UUIDs of the assets linked to it, from the given position.
+     */
+    public synchronized List<String> getAssets(RulesRepository repository,
+                                               String linkUUID,
+                                               boolean seekArchived,
+                                               int from,
+                                               int max) {
+        List<String> uuids = getMembers( repository,
+                                         linkUUID,
+                                         seekArchived );
+        if ( from >= uuids.size() ) {
+            return Collections.emptyList();
+        }
+        int to = (max < 0 || uuids.size() - from <= max) ? uuids.size() : from + max;
+        return new ArrayList<String>( uuids.subList( from,
+                                                     to ) );
+    }
+
+    /**
+     * @return the number of assets linked to a category or state, which may
+     *         include some that can't be loaded (see the class comment).
+     */
+    public synchronized int count(RulesRepository repository,
+                                  String linkUUID,
+                                  boolean seekArchived) {
+        return getMembers( repository,
+                           linkUUID,
+                           seekArchived ).size();
+    }
+
+    /**
+     * Indexes an asset again, after its categories, state or archived flag
+     * changed. Anything that is not an asset of the package area is ignored.
+     */
+    synchronized void update(Node node) {
+        if ( entries == null ) {
+            return;
+        }
+        try {
+            if ( node.getPrimaryNodeType().getName().equals( AssetItem.RULE_NODE_TYPE_NAME ) && node.getPath().startsWith( INDEXED_PATH ) ) {
+                put( node );
+            }
+        } catch ( RepositoryException e ) {
+            log.warn( "Unable to index the links of an asset, dropping the index: " + e.getMessage() );
+            invalidate();
+        }
+    }
+
+    synchronized void remove(String uuid) {
+        if ( entries != null ) {
+            removeEntry( uuid );
+        }
+    }
+
+    /**
+     * Drops the index, it will be built again when next used.
+     */
+    public synchronized void invalidate() {
+        entries = null;
+        members.clear();
+    }
+
+    private List<String> getMembers(RulesRepository repository,
+                                    String linkUUID,
+                                    boolean seekArchived) {
+        hitRatio.record( entries != null );
+        if ( entries == null ) {
+            build( repository );
+        }
+        Members linked = members.get( linkUUID );
+        if ( linked == null ) {
+            return Collections.emptyList();
+        }
+        return linked.get( seekArchived );
+    }
+
+    private void build(RulesRepository repository) {
+        long start = System.currentTimeMillis();
+        entries = new HashMap<String, Entry>();
+        try {
+            AssetItemIterator it = repository.findAssetsByName( "%",
+                                                                true,
+                                                                true );
+            while ( it.hasNext() ) {
+                put( it.next().getNode() );
+            }
+        } catch ( RepositoryException e ) {
+            invalidate();
+            throw new RulesRepositoryException( e );
+        } catch ( RuntimeException e ) {
+            invalidate();
+            throw e;
+        }
+        log.debug( "Built the asset link index of " + entries.size() + " assets in " + (System.currentTimeMillis() - start) + "ms" );
+    }
+
+    private void put(Node node) throws RepositoryException {
+        Set<String> links = new HashSet<String>();
+        if ( node.hasProperty( AssetItem.CATEGORY_PROPERTY_NAME ) ) {
+            Property categories = node.getProperty( AssetItem.CATEGORY_PROPERTY_NAME );
+            if ( categories.isMultiple() ) {
+                for ( Value value : categories.getValues() ) {
+                    links.add( value.getString() );
+                }
+            } else {
+                links.add( categories.getString() );
+            }
+        }
+        if ( node.hasProperty( AssetItem.STATE_PROPERTY_NAME ) ) {
+            links.add( node.getProperty( AssetItem.STATE_PROPERTY_NAME ).getString() );
+        }
+        boolean archived = node.hasProperty( AssetItem.CONTENT_PROPERTY_ARCHIVE_FLAG ) && node.getProperty( AssetItem.CONTENT_PROPERTY_ARCHIVE_FLAG ).getBoolean();
+
+        String uuid = node.getIdentifier();
+        removeEntry( uuid );
+        entries.put( uuid,
+                     new Entry( links,
+                                archived ) );
+        for ( String link : links ) {
+            Members linked = members.get( link );
+            if ( linked == null ) {
+                linked = new Members();
+                members.put( link,
+                             linked );
+            }
+            insert( linked.all,
+                    uuid );
+            if ( !archived ) {
+                insert( linked.unarchived,
+                        uuid );
+            }
+        }
+    }
+
+    private void removeEntry(String uuid) {
+        Entry entry = entries.remove( uuid );
+        if ( entry == null ) {
+            return;
+        }
+        for ( String link : entry.links ) {
+            Members linked = members.get( link );
+            if ( linked != null ) {
+                delete( linked.all,
+                        uuid );
+                delete( linked.unarchived,
+                        uuid );
+                if ( linked.all.isEmpty() ) {
+                    members.remove( link );
+                }
+            }
+        }
+    }
+
+    private static void insert(List<String> sorted,
+                               String uuid) {
+        int i = Collections.binarySearch( sorted,
+                                          uuid );
+        if ( i < 0 ) {
+            sorted.add( -i - 1,
+                        uuid );
+        }
+    }
+
+    private static void delete(List<String> sorted,
+                               String uuid) {
+        int i = Collections.binarySearch( sorted,
+                                          uuid );
+        if ( i >= 0 ) {
+            sorted.remove( i );
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+import javax.jcr.Repository;
+
+import org.drools.repository.metrics.HitRatio;
+import org.drools.repository.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in memory index of asset titles, for the quick find box, so that it
+ * doesn't run a JCR query for each key stroke. Only assets in the package
+ * area are indexed (not snapshots), as with
+ * {@link RulesRepository#findAssetsByName(String, boolean, boolean)}.
+ * <p>
+ * Names are indexed by their (lower case) trigrams; a search picks the
+ * candidates sharing the trigrams of the longest literal part of the pattern,
+ * and checks them against the whole pattern.
+ * <p>
+ * There is one index per JCR repository, built from a query the first time it
+ * is searched, then kept up to date by the operations that add, rename, move,
+ * archive or remove assets, or change their title. Operations touching many assets at once (package
+ * rename, copy or removal, imports) drop the index, to be built again on the
+ * next search. As changes may be rolled back, callers should still load the
+ * assets found, and skip those that no longer exist.
+ */
+public class AssetNameIndex {
+
+    private static final Logger                          log      = LoggerFactory.getLogger( AssetNameIndex.class );
+
+    private static final int                             GRAM     = 3;
+
+    private static final Map<Repository, AssetNameIndex> indexes  = new WeakHashMap<Repository, AssetNameIndex>();
+
+    private static final HitRatio                        hitRatio = Metrics.hitRatio( "cache.assetNameIndex" );
+
+    private Map<String, Entry>                           entries;
+    private final Map<String, Set<String>>               grams   = new HashMap<String, Set<String>>();
+
+    AssetNameIndex() {
+    }
+
+    public static AssetNameIndex getIndex(RulesRepository repository) {
+        return getIndex( repository.getSession().getRepository() );
+    }
+
+    static AssetNameIndex getIndex(Repository key) {
+        synchronized ( indexes ) {
+            AssetNameIndex index = indexes.get( key );
+            if ( index == null ) {
+                index = new AssetNameIndex();
+                indexes.put( key,
+                             index );
+            }
+            return index;
+        }
+    }
+
+    /**
+     * An indexed asset.
+     */
+    public static class Entry {
+
+        private final String  uuid;
+        private final String  title;
+        private final String  lowerCaseTitle;
+        private final String  packageName;
+        private final boolean archived;
+
+        Entry(String uuid,
+              String title,
+              String packageName,
+              boolean archived) {
+            this.uuid = uuid;
+            this.title = title;
+            this.lowerCaseTitle = title.toLowerCase();
+            this.packageName = packageName;
+            this.archived = archived;
+        }
+
+        public String getUUID() {
+            return uuid;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        public boolean isArchived() {
+            return archived;
+        }
+    }
+
+    /**
+     * @param pattern
+     *            as for a JCR LIKE: % matches any text, _ any character.
+     * @return the matching assets, sorted by title.
+     */
+    public synchronized List<Entry> find(RulesRepository repository,
+                                         String pattern,
+                                         boolean seekArchived,
+                                         boolean isCaseSensitive) {
+        hitRatio.record( entries != null );
+        if ( entries == null ) {
+            build( repository );
+        }
+
+        Pattern regex = toRegex( isCaseSensitive ? pattern : pattern.toLowerCase() );
+        List<Entry> result = new ArrayList<Entry>();
+        for ( String uuid : candidates( pattern.toLowerCase() ) ) {
+            Entry entry = entries.get( uuid );
+            if ( !seekArchived && entry.archived ) {
+                continue;
+            }
+            if ( regex.matcher( isCaseSensitive ? entry.title : entry.lowerCaseTitle ).matches() ) {
+                result.add( entry );
+            }
+        }
+        Collections.sort( result,
+                          new Comparator<Entry>() {
+                              public int compare(Entry e1,
+                                                 Entry e2) {
+                                  return e1.lowerCaseTitle.compareTo( e2.lowerCaseTitle );
+                              }
+                          } );
+        return result;
+    }
+
+    /**
+     * Indexes a new asset.
+     */
+    synchronized void add(AssetItem item) {
+        if ( entries != null ) {
+            put( item );
+        }
+    }
+
+    /**
+     * Updates an asset if it is indexed (so not for assets in snapshots).
+     */
+    synchronized void update(AssetItem item) {
+        if ( entries != null && entries.containsKey( item.getUUID() ) ) {
+            put( item );
+        }
+    }
+
+    synchronized void remove(String uuid) {
+        if ( entries != null ) {
+            removeEntry( uuid );
+        }
+    }
+
+    /**
+     * Drops the index, it will be built again when next searched.
+     */
+    public synchronized void invalidate() {
+        entries = null;
+        grams.clear();
+    }
+
+    private void build(RulesRepository repository) {
+        long start = System.currentTimeMillis();
+        entries = new HashMap<String, Entry>();
+        try {
+            AssetItemIterator it = repository.findAssetsByName( "%",
+                                                                true,
+                                                                true );
+            while ( it.hasNext() ) {
+                put( it.next() );
+            }
+        } catch ( RuntimeException e ) {
+            invalidate();
+            throw e;
+        }
+        log.debug( "Built the asset name index of " + entries.size() + " assets in " + (System.currentTimeMillis() - start) + "ms" );
+    }
+
+    private void put(AssetItem item) {
+        Entry entry = new Entry( item.getUUID(),
+                                 item.getTitle(),
+                                 item.getPackageName(),
+                                 item.isArchived() );
+        removeEntry( entry.uuid );
+        entries.put( entry.uuid,
+                     entry );
+        for ( String gram : gramsOf( entry.lowerCaseTitle ) ) {
+            Set<String> uuids = grams.get( gram );
+            if ( uuids == null ) {
+                uuids = new HashSet<String>();
+                grams.put( gram,
+                           uuids );
+            }
+            uuids.add( entry.uuid );
+        }
+    }
+
+    private void removeEntry(String uuid) {
+        Entry entry = entries.remove( uuid );
+        if ( entry == null ) {
+            return;
+        }
+        for ( String gram : gramsOf( entry.lowerCaseTitle ) ) {
+            Set<String> uuids = grams.get( gram );
+            if ( uuids != null ) {
+                uuids.remove( uuid );
+                if ( uuids.isEmpty() ) {
+                    grams.remove( gram );
+                }
+            }
+        }
+    }
+
+    /**
+     * The assets containing every trigram of the longest literal part of the
+     * pattern, or all of them if there is no part long enough.
+     */
+    private Set<String> candidates(String lowerCasePattern) {
+        String longest = "";
+        for ( String part : lowerCasePattern.split( "[%_]" ) ) {
+            if ( part.length() > longest.length() ) {
+                longest = part;
+            }
+        }
+        if ( longest.length() < GRAM ) {
+            return entries.keySet();
+        }
+
+        Set<String> result = null;
+        for ( String gram : gramsOf( longest ) ) {
+            Set<String> uuids = grams.get( gram );
+            if ( uuids == null ) {
+                return Collections.emptySet();
+            }
+            if ( result == null ) {
+                result = new HashSet<String>( uuids );
+            } else {
+                result.retainAll( uuids );
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> gramsOf(String text) {
+        Set<String> result = new HashSet<String>();
+        for ( int i = 0; i + GRAM <= text.length(); i++ ) {
+            result.add( text.substring( i,
+                                        i + GRAM ) );
+        }
+        return result;
+    }
+
+    static Pattern toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for ( char c : pattern.toCharArray() ) {
+            if ( c == '%' || c == '_' ) {
+                if ( literal.length() > 0 ) {
+                    regex.append( Pattern.quote( literal.toString() ) );
+                    literal.setLength( 0 );
+                }
+                regex.append( c == '%' ? ".*" : "." );
+            } else {
+                literal.append( c );
+            }
+        }
+        if ( literal.length() > 0 ) {
+            regex.append( Pattern.quote( literal.toString() ) );
+        }
+        return Pattern.compile( regex.toString(),
+                                Pattern.DOTALL );
+    }
+
+}
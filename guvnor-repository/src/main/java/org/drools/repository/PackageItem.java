@@ -62,8 +62,15 @@ public class PackageItem extends VersionableItem {
     public static final String DEPENDENCIES_PROPERTY_NAME = "drools:dependencies";
 
     private static final String COMPILED_PACKAGE_PROPERTY_NAME = "drools:compiledPackage";
+    private static final String BINARY_VERSION_ID_PROPERTY_NAME = "drools:binaryVersionId";
     private final String BINARY_UP_TO_DATE = "drools:binaryUpToDate";
 
+    /**
+     * The versions assets are pinned to, decoded from the dependencies
+     * property the first time they are needed.
+     */
+    private Map<String, String> pinnedVersions;
+
     /**
      * Constructs an object of type RulePackageItem corresponding the specified node
      *
@@ -172,6 +179,7 @@ public class PackageItem extends VersionableItem {
      */
     public void updateWorkspace(String[] workspace) {
         this.updateStringArrayProperty(workspace, WORKSPACE_PROPERTY_NAME, false);
+        rulesRepository.packageSummariesChanged();
     }
 
     /**
@@ -195,6 +203,7 @@ public class PackageItem extends VersionableItem {
             }
             newWorkspaces[existingWorkspaces.length] = workspace;
             this.updateStringArrayProperty(newWorkspaces, WORKSPACE_PROPERTY_NAME, false);
+            rulesRepository.packageSummariesChanged();
         }
     }
 
@@ -216,6 +225,7 @@ public class PackageItem extends VersionableItem {
         existingWorkspaceList.remove(workspace);
         if (existingWorkspaceList.size() != existingWorkspaces.length) {
             this.updateStringArrayProperty(existingWorkspaceList.toArray(new String[existingWorkspaceList.size()]), WORKSPACE_PROPERTY_NAME, false);
+            rulesRepository.packageSummariesChanged();
         }
     }
 
@@ -280,6 +290,7 @@ public class PackageItem extends VersionableItem {
                 rule.addCategory(initialCategory);
             }
 
+            AssetNameIndex.getIndex(rulesRepository).add(rule);
             return rule;
 
         } catch (RepositoryException e) {
@@ -321,6 +332,7 @@ public class PackageItem extends VersionableItem {
             Node ruleNode = rulesFolder.getNode(globalAssetItem.getName());
             AssetItem rule = new AssetItem(this.rulesRepository, ruleNode);
 
+            AssetNameIndex.getIndex(rulesRepository).invalidate();
             return rule;
         } catch (RepositoryException e) {
             if (e instanceof ItemExistsException) {
@@ -348,19 +360,63 @@ public class PackageItem extends VersionableItem {
         return false;
     }
 
+    @Override
+    public PackageItem archiveItem(boolean data) {
+        super.archiveItem(data);
+        rulesRepository.packageSummariesChanged();
+        return this;
+    }
+
     /**
      * This will permanently delete this package.
      */
     public void remove() {
         checkIsUpdateable();
         try {
-            log.info("USER:" + getCurrentUserName() + " REMOVEING package [" + getName() + "]");
+            String name = getName();
+            log.info("USER:" + getCurrentUserName() + " REMOVEING package [" + name + "]");
+            List<String> assetUUIDs = new ArrayList<String>();
+            collectAssetUUIDs(this.node, assetUUIDs);
+            PackageRename.cancel(rulesRepository, getUUID());
             this.node.remove();
+            for (String uuid : assetUUIDs) {
+                new AssetDiscussion(rulesRepository, uuid).remove();
+            }
+            rulesRepository.forgetPackageNode(name);
+            AssetNameIndex.getIndex(rulesRepository).invalidate();
+            AssetLinkIndex.getIndex(rulesRepository).invalidate();
+            rulesRepository.packageSummariesChanged();
         } catch (RepositoryException e) {
             throw new RulesRepositoryException("Was not able to delete package.", e);
         }
     }
 
+    /**
+     * The identifiers of the assets of a package and of its sub packages, for
+     * what is kept apart from the assets (their discussions).
+     */
+    private static void collectAssetUUIDs(Node pkg,
+                                          List<String> uuids) throws RepositoryException {
+        if (pkg.hasNode(ASSET_FOLDER_NAME)) {
+            NodeIterator assets = pkg.getNode(ASSET_FOLDER_NAME).getNodes();
+            while (assets.hasNext()) {
+                Node asset = assets.nextNode();
+                if (asset.getPrimaryNodeType().getName().equals(AssetItem.RULE_NODE_TYPE_NAME)) {
+                    uuids.add(asset.getIdentifier());
+                }
+            }
+        }
+        if (pkg.hasNode(RulesRepository.RULE_PACKAGE_AREA)) {
+            NodeIterator subPackages = pkg.getNode(RulesRepository.RULE_PACKAGE_AREA).getNodes();
+            while (subPackages.hasNext()) {
+                Node subPackage = subPackages.nextNode();
+                if (subPackage.getPrimaryNodeType().getName().equals(RULE_PACKAGE_TYPE_NAME)) {
+                    collectAssetUUIDs(subPackage, uuids);
+                }
+            }
+        }
+    }
+
     /**
      * To avoid updating dependency attribute for every asset operation like
      * adding/renaming/deleting etc, we calculate dependency path on the fly.
@@ -395,7 +451,29 @@ public class PackageItem extends VersionableItem {
         return result.values().toArray(new String[result.size()]);
     }
 
+    /**
+     * @return the version numbers that assets of this package are pinned to,
+     *         by asset name. Assets that follow the latest version are left
+     *         out. This is kept for the lifetime of this PackageItem, so that
+     *         the queries made while building a package don't decode it each
+     *         time.
+     */
+    Map<String, String> getPinnedVersions() {
+        if (pinnedVersions == null) {
+            Map<String, String> result = new HashMap<String, String>();
+            for (String dependency : getStringPropertyArray(DEPENDENCIES_PROPERTY_NAME)) {
+                String[] decodedPath = decodeDependencyPath(dependency);
+                if (!"LATEST".equals(decodedPath[1])) {
+                    result.put(decodedPath[0], decodedPath[1]);
+                }
+            }
+            pinnedVersions = result;
+        }
+        return pinnedVersions;
+    }
+
     public void updateDependency(String dependencyPath) {
+        pinnedVersions = null;
         String[] existingDependencies = getStringPropertyArray(DEPENDENCIES_PROPERTY_NAME);
         boolean found = false;
         for (int i = 0; i < existingDependencies.length; i++) {
@@ -588,7 +666,7 @@ public class PackageItem extends VersionableItem {
             Node content = getVersionContentNode();
             return new VersionedAssetItemIterator(content.getNode(ASSET_FOLDER_NAME).getNodes(),
                     this.rulesRepository,
-                    this.getDependencies());
+                    this);
         } catch (RepositoryException e) {
             throw new RulesRepositoryException(e);
         }
@@ -629,7 +707,7 @@ public class PackageItem extends VersionableItem {
 
 
             long time = System.currentTimeMillis();
-            QueryResult res = q.execute();
+            QueryResult res = RulesRepository.executeQuery(q, "packageAssets");
 
             NodeIterator it = res.getNodes();
             long taken = System.currentTimeMillis() - time;
@@ -640,7 +718,7 @@ public class PackageItem extends VersionableItem {
             }
 
             //return new AssetItemIterator(it, this.rulesRepository);
-            return new VersionedAssetItemIterator(it, this.rulesRepository, this.getDependencies());
+            return new VersionedAssetItemIterator(it, this.rulesRepository, this);
         } catch (RepositoryException e) {
             throw new RulesRepositoryException(e);
         }
@@ -965,6 +1043,8 @@ public class PackageItem extends VersionableItem {
         try {
             Binary binary = this.node.getSession().getValueFactory().createBinary(data);
             this.node.setProperty(COMPILED_PACKAGE_PROPERTY_NAME, binary);
+            // The version id of the previous binary no longer applies
+            this.node.setProperty(BINARY_VERSION_ID_PROPERTY_NAME, (String) null);
             this.node.setProperty(LAST_MODIFIED_PROPERTY_NAME,
                     Calendar.getInstance());
             return this;
@@ -974,6 +1054,38 @@ public class PackageItem extends VersionableItem {
         }
     }
 
+    /**
+     * Sets the version id of the compiled package, so it doesn't have to be
+     * worked out from the binary each time it is asked for. Updating the
+     * compiled package clears it.
+     */
+    public void updateBinaryVersionId(String versionId) {
+        checkout();
+        try {
+            this.node.setProperty(BINARY_VERSION_ID_PROPERTY_NAME, versionId);
+        } catch (RepositoryException e) {
+            log.error("Unable to update the binary version id of " + getName(), e);
+            throw new RulesRepositoryException(e);
+        }
+    }
+
+    /**
+     * @return the version id of the compiled package, or null if none was set
+     *         since it was last updated.
+     */
+    public String getBinaryVersionId() {
+        try {
+            Node ruleNode = getVersionContentNode();
+            if (ruleNode.hasProperty(BINARY_VERSION_ID_PROPERTY_NAME)) {
+                return ruleNode.getProperty(BINARY_VERSION_ID_PROPERTY_NAME).getString();
+            }
+            return null;
+        } catch (RepositoryException e) {
+            log.error("Unable to get the binary version id of " + getName(), e);
+            throw new RulesRepositoryException(e);
+        }
+    }
+
     /**
      * This is a convenience method for returning the binary data as a byte array.
      */
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renames a package. The package node is moved at once, then the package name
+ * kept on each of its assets is updated in batches, each saved on its own, so
+ * that renaming a large package doesn't hold one huge transaction blocking
+ * the other writers.
+ * <p>
+ * Until all the assets are updated the old name is an alias of the new one:
+ * {@link AssetItem#getPackageName()} gives the new name for the assets of the
+ * package that still have the old one. A rename in progress is recorded in
+ * the repository:
+ * <pre>
+ * drools:rename_area (nt:folder)
+ *     [package uuid] (nt:file)
+ *         jcr:content (nt:unstructured, drools:oldName, drools:newName)
+ * </pre>
+ * The assets are updated by {@link #resumeAll(RulesRepository)}, on a session
+ * of its own (Guvnor runs it in the background), which also takes up the
+ * renames that were interrupted.
+ */
+public class PackageRename {
+
+    private static final Logger                              log               = LoggerFactory.getLogger( PackageRename.class );
+
+    public static final String                               RENAME_AREA       = "drools:rename_area";
+
+    /**
+     * The number of assets updated in each save.
+     */
+    public static final int                                  BATCH_SIZE        = 200;
+
+    private static final String                              OLD_NAME_PROPERTY = "drools:oldName";
+    private static final String                              NEW_NAME_PROPERTY = "drools:newName";
+
+    private static final int                                 MAX_RETRIES       = 3;
+
+    // The renames in progress, for each JCR repository
+    private static final Map<Repository, Aliases>            aliases           = new WeakHashMap<Repository, Aliases>();
+
+    // The last ones looked up, there is normally one JCR repository only
+    private static volatile LastAliases                      lastAliases;
+
+    /**
+     * The renames in progress in a JCR repository, by old name. They are read
+     * for the package name of every asset, so the map is never changed but
+     * replaced, to be read without locking. It is null until loaded from the
+     * repository.
+     */
+    private static class Aliases {
+        private volatile Map<String, Alias> byOldName;
+    }
+
+    private static class LastAliases {
+
+        private final WeakReference<Repository> key;
+        private final Aliases                   aliases;
+
+        LastAliases(Repository key,
+                    Aliases aliases) {
+            this.key = new WeakReference<Repository>( key );
+            this.aliases = aliases;
+        }
+    }
+
+    /**
+     * The new name of a package, while its assets still have the old one.
+     */
+    private static class Alias {
+
+        private final String packageUUID;
+        private final String newName;
+
+        Alias(String packageUUID,
+              String newName) {
+            this.packageUUID = packageUUID;
+            this.newName = newName;
+        }
+    }
+
+    /**
+     * Told of the progress of a rename after each batch.
+     */
+    public static interface Listener {
+        void progress(PackageRename rename,
+                      long done,
+                      long total);
+    }
+
+    private final RulesRepository repository;
+    private final String          packageUUID;
+    private final String          oldName;
+    private final String          newName;
+
+    private NodeIterator          assets;
+    private long                  done;
+    private long                  total;
+
+    private PackageRename(RulesRepository repository,
+                          String packageUUID,
+                          String oldName,
+                          String newName) {
+        this.repository = repository;
+        this.packageUUID = packageUUID;
+        this.oldName = oldName;
+        this.newName = newName;
+    }
+
+    /**
+     * Moves the package to its new name, and records the rename. The assets
+     * are updated by {@link #run(int, Listener)}, or
+     * {@link #resumeAll(RulesRepository)}.
+     */
+    public static PackageRename start(RulesRepository repository,
+                                      String packageUUID,
+                                      String newName) {
+        try {
+            PackageItem item = repository.loadPackageByUUID( packageUUID );
+            String oldName = item.getName();
+            Node area = getRecordArea( repository,
+                                       true );
+            if ( area.hasNode( packageUUID ) ) {
+                throw new RulesRepositoryException( "The package [" + oldName + "] is still being renamed." );
+            }
+            log.info( "Renaming package: " + item.getNode().getPath() + " to " + newName );
+
+            Node node = item.getNode();
+            repository.getSession().move( node.getPath(),
+                                          node.getParent().getPath() + "/" + newName );
+            Node content = area.addNode( packageUUID,
+                                         "nt:file" ).addNode( "jcr:content",
+                                                              "nt:unstructured" );
+            content.setProperty( OLD_NAME_PROPERTY,
+                                 oldName );
+            content.setProperty( NEW_NAME_PROPERTY,
+                                 newName );
+            // The move and the record go together
+            repository.save();
+
+            PackageRename rename = new PackageRename( repository,
+                                                      packageUUID,
+                                                      oldName,
+                                                      newName );
+            putAlias( repository,
+                      oldName,
+                      new Alias( packageUUID,
+                                 newName ) );
+            repository.forgetPackageNode( oldName );
+            repository.forgetPackageNode( newName );
+
+            item.updateTitle( newName );
+            item.checkin( "Renamed package " + item.getName() );
+            AssetNameIndex.getIndex( repository ).invalidate();
+            PackageSummaryCache.getCache( repository ).invalidate();
+            return rename;
+        } catch ( RepositoryException e ) {
+            log.error( e.getMessage(),
+                       e );
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    /**
+     * Updates the assets of the renames in progress, including those that
+     * were interrupted. The repository must be one of its own, see
+     * {@link #run(int, Listener)}.
+     *
+     * @return the number of renames completed.
+     */
+    public static int resumeAll(RulesRepository repository) {
+        int resumed = 0;
+        for ( PackageRename rename : loadRenames( repository ) ) {
+            log.info( "Resuming the rename of package [" + rename.oldName + "] to [" + rename.newName + "]" );
+            rename.run( BATCH_SIZE,
+                        null );
+            resumed++;
+        }
+        return resumed;
+    }
+
+    /**
+     * @return the name to show for an asset with the given package name: the
+     *         new name if its package is being renamed from it.
+     */
+    static String getCurrentName(AssetItem asset,
+                                 String packageName) {
+        Alias alias = getAliases( asset.getRulesRepository() ).get( packageName );
+        if ( alias == null ) {
+            return packageName;
+        }
+        try {
+            // Snapshots, and old versions, keep the name they had
+            Node parent = asset.getNode().getParent();
+            if ( parent.getDepth() > 0 && parent.getParent().getIdentifier().equals( alias.packageUUID ) ) {
+                return alias.newName;
+            }
+        } catch ( RepositoryException e ) {
+            log.debug( "Unable to find the package of an asset: " + e.getMessage() );
+        }
+        return packageName;
+    }
+
+    /**
+     * @return true if a package is being renamed from this name, in which case
+     *         no other package can take the name until it is done.
+     */
+    static boolean isRenamedFrom(RulesRepository repository,
+                                 String packageName) {
+        return getAliases( repository ).containsKey( packageName );
+    }
+
+    /**
+     * Forgets the renames known for a JCR repository, when it is cleared. They
+     * are loaded again from the repository when next needed.
+     */
+    static void reset(Repository key) {
+        getAliases( key ).byOldName = null;
+    }
+
+    /**
+     * Drops the rename of a package that is removed. The change is saved by
+     * the caller.
+     */
+    static void cancel(RulesRepository repository,
+                       String packageUUID) {
+        try {
+            Node area = getRecordArea( repository,
+                                       false );
+            if ( area == null || !area.hasNode( packageUUID ) ) {
+                return;
+            }
+            String oldName = area.getNode( packageUUID ).getNode( "jcr:content" ).getProperty( OLD_NAME_PROPERTY ).getString();
+            area.getNode( packageUUID ).remove();
+            removeAlias( repository,
+                         oldName );
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    public String getOldName() {
+        return oldName;
+    }
+
+    public String getNewName() {
+        return newName;
+    }
+
+    /**
+     * Updates the assets, a batch at a time, until they all have the new
+     * package name. A batch failing (because of a concurrent change) is tried
+     * again from a refreshed session a few times before giving up, in which
+     * case the rename is left to be resumed. As the batches are saved, and the
+     * session refreshed, the repository must not be used for anything else:
+     * one with unsaved changes is refused.
+     */
+    public void run(int batchSize,
+                    Listener listener) {
+        try {
+            if ( repository.getSession().hasPendingChanges() ) {
+                throw new RulesRepositoryException( "The rename of package [" + oldName + "] needs a session of its own, this one has unsaved changes." );
+            }
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+        int failures = 0;
+        boolean more = true;
+        while ( more ) {
+            try {
+                more = step( batchSize );
+                failures = 0;
+                if ( listener != null ) {
+                    listener.progress( this,
+                                       done,
+                                       total );
+                }
+            } catch ( RulesRepositoryException e ) {
+                if ( ++failures > MAX_RETRIES ) {
+                    log.error( "Giving up renaming package [" + oldName + "] to [" + newName + "], it will be resumed on the next start." );
+                    throw e;
+                }
+                log.warn( "Retrying a batch of the rename of package [" + oldName + "]: " + e.getMessage() );
+                try {
+                    repository.getSession().refresh( false );
+                } catch ( RepositoryException re ) {
+                    throw new RulesRepositoryException( re );
+                }
+                // Start over, the assets already done are skipped
+                assets = null;
+            }
+        }
+    }
+
+    /**
+     * Updates the next batch of assets and saves them.
+     *
+     * @return false once all the assets have the new name, and the rename is
+     *         done.
+     */
+    public boolean step(int batchSize) {
+        try {
+            if ( assets == null ) {
+                assets = repository.loadPackageByUUID( packageUUID ).getNode().getNode( PackageItem.ASSET_FOLDER_NAME ).getNodes();
+                total = assets.getSize();
+                done = 0;
+            }
+            int updated = 0;
+            while ( updated < batchSize && assets.hasNext() ) {
+                Node node = assets.nextNode();
+                done++;
+                if ( node.hasProperty( AssetItem.PACKAGE_NAME_PROPERTY ) && newName.equals( node.getProperty( AssetItem.PACKAGE_NAME_PROPERTY ).getString() ) ) {
+                    continue;
+                }
+                new AssetItem( repository,
+                               node ).updateStringProperty( newName,
+                                                            AssetItem.PACKAGE_NAME_PROPERTY );
+                updated++;
+            }
+            if ( assets.hasNext() ) {
+                repository.save();
+                return true;
+            }
+
+            Node area = getRecordArea( repository,
+                                       false );
+            if ( area != null && area.hasNode( packageUUID ) ) {
+                area.getNode( packageUUID ).remove();
+            }
+            repository.save();
+            removeAlias( repository,
+                         oldName );
+            AssetNameIndex.getIndex( repository ).invalidate();
+            log.info( "Renamed package [" + oldName + "] to [" + newName + "], " + done + " assets." );
+            return false;
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    private static Aliases getAliases(Repository key) {
+        LastAliases last = lastAliases;
+        if ( last != null && last.key.get() == key ) {
+            return last.aliases;
+        }
+        synchronized ( aliases ) {
+            Aliases known = aliases.get( key );
+            if ( known == null ) {
+                known = new Aliases();
+                aliases.put( key,
+                             known );
+            }
+            lastAliases = new LastAliases( key,
+                                           known );
+            return known;
+        }
+    }
+
+    /**
+     * @return the renames in progress by old name, loaded from the repository
+     *         the first time.
+     */
+    private static Map<String, Alias> getAliases(RulesRepository repository) {
+        Aliases known = getAliases( repository.getSession().getRepository() );
+        Map<String, Alias> byOldName = known.byOldName;
+        if ( byOldName != null ) {
+            return byOldName;
+        }
+        synchronized ( known ) {
+            if ( known.byOldName == null ) {
+                Map<String, Alias> loaded = new HashMap<String, Alias>();
+                for ( PackageRename rename : loadRenames( repository ) ) {
+                    loaded.put( rename.oldName,
+                                new Alias( rename.packageUUID,
+                                           rename.newName ) );
+                }
+                known.byOldName = Collections.unmodifiableMap( loaded );
+            }
+            return known.byOldName;
+        }
+    }
+
+    private static void putAlias(RulesRepository repository,
+                                 String oldName,
+                                 Alias alias) {
+        Aliases known = getAliases( repository.getSession().getRepository() );
+        synchronized ( known ) {
+            Map<String, Alias> changed = new HashMap<String, Alias>( getAliases( repository ) );
+            changed.put( oldName,
+                         alias );
+            known.byOldName = Collections.unmodifiableMap( changed );
+        }
+    }
+
+    private static void removeAlias(RulesRepository repository,
+                                    String oldName) {
+        Aliases known = getAliases( repository.getSession().getRepository() );
+        synchronized ( known ) {
+            Map<String, Alias> changed = new HashMap<String, Alias>( getAliases( repository ) );
+            if ( changed.remove( oldName ) != null ) {
+                known.byOldName = Collections.unmodifiableMap( changed );
+            }
+        }
+    }
+
+    private static List<PackageRename> loadRenames(RulesRepository repository) {
+        List<PackageRename> result = new ArrayList<PackageRename>();
+        try {
+            Node area = getRecordArea( repository,
+                                       false );
+            if ( area == null ) {
+                return result;
+            }
+            NodeIterator it = area.getNodes();
+            while ( it.hasNext() ) {
+                Node file = it.nextNode();
+                Node content = file.getNode( "jcr:content" );
+                result.add( new PackageRename( repository,
+                                               file.getName(),
+                                               content.getProperty( OLD_NAME_PROPERTY ).getString(),
+                                               content.getProperty( NEW_NAME_PROPERTY ).getString() ) );
+            }
+            return result;
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    private static Node getRecordArea(RulesRepository repository,
+                                      boolean create) throws RepositoryException {
+        Node root = repository.getSession().getRootNode().getNode( RulesRepository.RULES_REPOSITORY_NAME );
+        if ( !create ) {
+            return root.hasNode( RENAME_AREA ) ? root.getNode( RENAME_AREA ) : null;
+        }
+        return RulesRepository.addNodeIfNew( root,
+                                             RENAME_AREA,
+                                             "nt:folder" );
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.jcr.Repository;
+
+import org.drools.repository.metrics.HitRatio;
+import org.drools.repository.metrics.Metrics;
+
+/**
+ * Summaries of the packages (name, uuid, archived flag, workspaces and the
+ * number of sub packages), one level of the package tree at a time, shared by
+ * all the users of a JCR repository. The package explorer is refreshed often
+ * by every user, but packages change rarely, so the levels are loaded from
+ * the repository when first asked for and kept until a package is created,
+ * renamed, copied, archived, removed, imported or has its workspaces changed,
+ * and that change is saved.
+ * <p>
+ * Archived packages are included; callers filter them (and apply the user's
+ * permissions) on top of the shared summaries.
+ */
+public class PackageSummaryCache {
+
+    private static final String                              TOP_LEVEL = "";
+
+    private static final Map<Repository, PackageSummaryCache> caches    = new WeakHashMap<Repository, PackageSummaryCache>();
+
+    private static final HitRatio                             hitRatio  = Metrics.hitRatio( "cache.packageSummary" );
+
+    private final Map<String, List<PackageSummary>>           levels    = new HashMap<String, List<PackageSummary>>();
+
+    PackageSummaryCache() {
+    }
+
+    public static PackageSummaryCache getCache(RulesRepository repository) {
+        return getCache( repository.getSession().getRepository() );
+    }
+
+    static PackageSummaryCache getCache(Repository key) {
+        synchronized ( caches ) {
+            PackageSummaryCache cache = caches.get( key );
+            if ( cache == null ) {
+                cache = new PackageSummaryCache();
+                caches.put( key,
+                            cache );
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * A package, as listed in the package explorer.
+     */
+    public static class PackageSummary {
+
+        private final String   uuid;
+        private final String   name;
+        private final boolean  archived;
+        private final String[] workspaces;
+        private final int      subPackageCount;
+        private final int      archivedSubPackageCount;
+
+        PackageSummary(String uuid,
+                       String name,
+                       boolean archived,
+                       String[] workspaces,
+                       int subPackageCount,
+                       int archivedSubPackageCount) {
+            this.uuid = uuid;
+            this.name = name;
+            this.archived = archived;
+            this.workspaces = workspaces;
+            this.subPackageCount = subPackageCount;
+            this.archivedSubPackageCount = archivedSubPackageCount;
+        }
+
+        public String getUUID() {
+            return uuid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isArchived() {
+            return archived;
+        }
+
+        public String[] getWorkspaces() {
+            return workspaces.clone();
+        }
+
+        /**
+         * @return the number of sub packages that are not archived, or of
+         *         those that are.
+         */
+        public int getSubPackageCount(boolean archivedOnes) {
+            return archivedOnes ? archivedSubPackageCount : subPackageCount - archivedSubPackageCount;
+        }
+    }
+
+    /**
+     * @param parentUUID
+     *            the package to list the sub packages of, or null for the top
+     *            level packages.
+     * @return the packages, archived or not, sorted by name.
+     */
+    public synchronized List<PackageSummary> getPackages(RulesRepository repository,
+                                                         String parentUUID) {
+        String key = (parentUUID == null) ? TOP_LEVEL : parentUUID;
+        List<PackageSummary> level = levels.get( key );
+        hitRatio.record( level != null );
+        if ( level == null ) {
+            PackageIterator packages = (parentUUID == null) ? repository.listPackages() : repository.loadPackageByUUID( parentUUID ).listSubPackages();
+            level = Collections.unmodifiableList( load( packages ) );
+            levels.put( key,
+                        level );
+        }
+        return level;
+    }
+
+    /**
+     * Drops all the summaries, they will be loaded again when next asked for.
+     */
+    public synchronized void invalidate() {
+        levels.clear();
+    }
+
+    private static List<PackageSummary> load(PackageIterator packages) {
+        List<PackageSummary> result = new ArrayList<PackageSummary>();
+        packages.setArchivedIterator( true );
+        while ( packages.hasNext() ) {
+            PackageItem item = packages.next();
+
+            int subPackageCount = 0;
+            int archivedSubPackageCount = 0;
+            PackageIterator subPackages = item.listSubPackages();
+            subPackages.setArchivedIterator( true );
+            while ( subPackages.hasNext() ) {
+                subPackageCount++;
+                if ( subPackages.next().isArchived() ) {
+                    archivedSubPackageCount++;
+                }
+            }
+
+            result.add( new PackageSummary( item.getUUID(),
+                                            item.getName(),
+                                            item.isArchived(),
+                                            item.getWorkspaces(),
+                                            subPackageCount,
+                                            archivedSubPackageCount ) );
+        }
+        Collections.sort( result,
+                          new Comparator<PackageSummary>() {
+                              public int compare(PackageSummary s1,
+                                                 PackageSummary s2) {
+                                  return s1.name.compareTo( s2.name );
+                              }
+                          } );
+        return result;
+    }
+
+}
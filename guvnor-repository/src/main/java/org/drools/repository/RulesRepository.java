@@ -32,14 +32,15 @@ import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
-import javax.jcr.Property;
-import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryResult;
+import javax.jcr.version.Version;
 
 import org.drools.repository.events.StorageEventManager;
+import org.drools.repository.metrics.Metrics;
+import org.drools.repository.metrics.Timer;
 import org.drools.repository.migration.MigrateDroolsPackage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -130,6 +131,22 @@ public class RulesRepository {
 
     boolean                     initialized                     = false;
 
+    /**
+     * The area nodes, and the identifiers of the packages by name, as found by
+     * this session, so that the frequent lookups don't go down from the root
+     * node every time. They are checked before being used, as another session
+     * may have removed or renamed the nodes since.
+     */
+    private final Map<String, Node>   areaNodes          = new HashMap<String, Node>();
+    private final Map<String, String> packageIdentifiers = new HashMap<String, String>();
+
+    /**
+     * Whether this session changed a package in a way the shared package
+     * summaries show, so that they are dropped once the change is saved (and
+     * not before, or another user could load them again from the old state).
+     */
+    private boolean                   packageSummariesChanged;
+
     /**
      * This requires a JCR session be setup, and the repository be configured.
      */
@@ -201,7 +218,11 @@ public class RulesRepository {
     }
 
     public Node getAreaNode(String areaName) throws RulesRepositoryException {
-        Node folderNode = null;
+        Node folderNode = areaNodes.get( areaName );
+        if ( folderNode != null && isValid( folderNode ) ) {
+            return folderNode;
+        }
+        folderNode = null;
         int tries = 0;
         while ( folderNode == null && tries < 2 ) {
             try {
@@ -230,9 +251,91 @@ public class RulesRepository {
             log.error( message );
             throw new RulesRepositoryException( message );
         }
+        areaNodes.put( areaName,
+                       folderNode );
         return folderNode;
     }
 
+    /**
+     * @return false if the node has been removed since it was loaded, by this
+     *         session or another one.
+     */
+    private static boolean isValid(Node node) {
+        try {
+            node.getIdentifier();
+            return true;
+        } catch ( RepositoryException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds a (top level) package node by name, by its identifier when it has
+     * been looked up before.
+     * 
+     * @return the node, or null if there is no such package.
+     */
+    private Node findPackageNode(String name) throws RepositoryException {
+        Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
+        String identifier = packageIdentifiers.get( name );
+        if ( identifier != null ) {
+            try {
+                Node node = this.session.getNodeByIdentifier( identifier );
+                if ( node.getName().equals( name ) && node.getParent().isSame( folderNode ) ) {
+                    return node;
+                }
+            } catch ( ItemNotFoundException e ) {
+                // removed by another session
+            }
+            packageIdentifiers.remove( name );
+        }
+        if ( !folderNode.hasNode( name ) ) {
+            return null;
+        }
+        Node node = folderNode.getNode( name );
+        packageIdentifiers.put( name,
+                                node.getIdentifier() );
+        return node;
+    }
+
+    private Node getPackageNode(String name) throws RepositoryException {
+        Node node = findPackageNode( name );
+        if ( node == null ) {
+            throw new PathNotFoundException( "Package [" + name + "] does not exist." );
+        }
+        return node;
+    }
+
+    /**
+     * Forgets where a package was found, when it is renamed or removed.
+     */
+    void forgetPackageNode(String name) {
+        packageIdentifiers.remove( name );
+    }
+
+    /**
+     * The shared package summaries are dropped on the next save of this
+     * session, see PackageSummaryCache.
+     */
+    void packageSummariesChanged() {
+        packageSummariesChanged = true;
+    }
+
+    /**
+     * Called once this session has been saved.
+     */
+    void saved() {
+        if ( packageSummariesChanged ) {
+            packageSummariesChanged = false;
+            PackageSummaryCache.getCache( this ).invalidate();
+        }
+    }
+
+    private void forgetNodes() {
+        areaNodes.clear();
+        packageIdentifiers.clear();
+    }
+
     private Node getMetaDataTypeNode(String metadataType)
                                                          throws RepositoryException {
         Node schemaNode = getAreaNode( SCHEMA_AREA );
@@ -407,6 +510,8 @@ public class RulesRepository {
                                    0 );
             dest.updateTitle( destinationName );
             dest.checkin( "Copied from " + source.getPackageName() + "/" + source.getName() );
+            AssetNameIndex.getIndex( this ).add( dest );
+            AssetLinkIndex.getIndex( this ).update( dest.getNode() );
             return dest.getUUID();
         } catch ( RepositoryException e ) {
             log.error( "Unable to copy asset.",
@@ -425,8 +530,7 @@ public class RulesRepository {
      */
     public PackageItem loadPackage(String name) throws RulesRepositoryException {
         try {
-            Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
-            Node rulePackageNode = folderNode.getNode( name );
+            Node rulePackageNode = getPackageNode( name );
 
             return new PackageItem( this,
                                     rulePackageNode );
@@ -460,20 +564,13 @@ public class RulesRepository {
     public PackageItem loadPackage(String name,
                                    long versionNumber) throws RulesRepositoryException {
         try {
-            Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
-            Node rulePackageNode = folderNode.getNode( name );
-
-            PackageItem item = new PackageItem( this,
-                                                rulePackageNode );
+            Node rulePackageNode = getPackageNode( name );
 
-            PackageHistoryIterator it = item.getHistory();
-
-            while ( it.hasNext() ) {
-                PackageItem historical = it.next();
-                long version = historical.getVersionNumber();
-                if ( version == versionNumber ) {
-                    return historical;
-                }
+            Version version = VersionableItem.findVersion( rulePackageNode,
+                                                           versionNumber );
+            if ( version != null ) {
+                return new PackageItem( this,
+                                        version );
             }
             throw new RulesRepositoryException(
                                                 "Unable to load a rule package with version: " + versionNumber );
@@ -515,9 +612,8 @@ public class RulesRepository {
      * This returns true if the repository contains the specified package name.
      */
     public boolean containsPackage(String name) {
-        Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
         try {
-            return folderNode.hasNode( name );
+            return findPackageNode( name ) != null;
         } catch ( RepositoryException e ) {
             throw new RulesRepositoryException( e );
         }
@@ -527,9 +623,8 @@ public class RulesRepository {
      * Check if package is archived.
      */
     public boolean isPackageArchived(String name) {
-        Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
         try {
-            Node node = folderNode.getNode( name );
+            Node node = getPackageNode( name );
 
             return node.getProperty( AssetItem.CONTENT_PROPERTY_ARCHIVE_FLAG ).getBoolean();
         } catch ( RepositoryException e ) {
@@ -584,8 +679,7 @@ public class RulesRepository {
 
             String newName = pkgSnaps.getPath() + "/" + snapshotName;
 
-            Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
-            Node rulePackageNode = folderNode.getNode( packageName );
+            Node rulePackageNode = getPackageNode( packageName );
 
             String source = rulePackageNode.getPath();
 
@@ -670,18 +764,12 @@ public class RulesRepository {
      * home yet.
      */
     public PackageItem loadDefaultPackage() throws RulesRepositoryException {
-        Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
-        try {
-            if ( folderNode.hasNode( DEFAULT_PACKAGE ) ) {
-                return loadPackage( DEFAULT_PACKAGE );
-            } else {
-                return createPackage( DEFAULT_PACKAGE,
-                                      "" );
-            }
-        } catch ( RepositoryException e ) {
-            throw new RulesRepositoryException( e );
+        if ( containsPackage( DEFAULT_PACKAGE ) ) {
+            return loadPackage( DEFAULT_PACKAGE );
+        } else {
+            return createPackage( DEFAULT_PACKAGE,
+                                  "" );
         }
-
     }
 
     /**
@@ -826,6 +914,10 @@ public class RulesRepository {
     public PackageItem createPackage(String name,
                                      String description,
                                      String[] workspace) throws RulesRepositoryException {
+        if ( PackageRename.isRenamedFrom( this,
+                                          name ) ) {
+            throw new RulesRepositoryException( "The package [" + name + "] is still being renamed, its name can't be used yet." );
+        }
         Node folderNode = this.getAreaNode( RULE_PACKAGE_AREA );
 
         try {
@@ -855,6 +947,8 @@ public class RulesRepository {
             PackageItem item = new PackageItem( this,
                                                 rulePackageNode );
             item.checkin( "Initial" );
+            forgetPackageNode( name );
+            PackageSummaryCache.getCache( this ).invalidate();
 
             if ( StorageEventManager.hasSaveEvent() ) {
                 StorageEventManager.getSaveEvent().onPackageCreate( item );
@@ -909,6 +1003,7 @@ public class RulesRepository {
             //            rulePackageNode.setProperty(PackageItem.LAST_MODIFIED_PROPERTY_NAME, lastModified);
 
             subPkg.checkin( "Initial" );
+            PackageSummaryCache.getCache( this ).invalidate();
 
             if ( StorageEventManager.hasSaveEvent() ) {
                 StorageEventManager.getSaveEvent().onPackageCreate( subPkg );
@@ -1180,39 +1275,58 @@ public class RulesRepository {
                                                  int numRowsToReturn,
                                                  Node n,
                                                  RepositoryFilter filter) throws RepositoryException {
-        int rows = 0;
-        boolean hasNext = false;
-        long currentPosition = 0;
+        AssetLinkIndex index = AssetLinkIndex.getIndex( this );
+        String linkUUID = n.getIdentifier();
         List<AssetItem> results = new ArrayList<AssetItem>();
 
-        PropertyIterator it = n.getReferences();
+        //Without a filter every indexed asset is a row, so go straight to the page.
+        //Otherwise the rows before the page have to be filtered too.
+        int position = (filter == null) ? skip : 0;
+        int rows = position;
+        boolean hasNext = false;
+        long currentPosition = 0;
+        int chunkSize = (numRowsToReturn == -1) ? -1 : numRowsToReturn + 1;
 
-        //Don't use PropertyIterator.skip as this doesn't consider filtered rows
         //Look ahead one extra row to ascertain whether there is an additional page of data
-        while ( it.hasNext() && (numRowsToReturn == -1 || rows < skip + numRowsToReturn + 1) ) {
-
-            Property ruleLink = (Property) it.next();
-            Node parentNode = ruleLink.getParent();
-            if ( isNotSnapshot( parentNode ) && parentNode.getPrimaryNodeType().getName().equals( AssetItem.RULE_NODE_TYPE_NAME ) ) {
-                if ( seekArchivedAsset || !parentNode.getProperty( AssetItem.CONTENT_PROPERTY_ARCHIVE_FLAG ).getBoolean() ) {
-                    AssetItem ai = new AssetItem( this,
-                                                  parentNode );
-                    if ( filter == null || filter.accept( ai,
-                                                          "package.readonly" ) ) {
-
-                        //If the current row returned by the iterator is greater than the number of rows 
-                        //being skipped add it to the results collection (but only if we have not already 
-                        //constructed a full "page" of data - we look ahead one additional row to check 
-                        //whether there is are additional pages of data)
-                        rows++;
-                        int numRowsInPage = rows - skip;
-                        if ( numRowsInPage > 0 ) {
-                            if ( numRowsInPage <= numRowsToReturn || numRowsToReturn == -1 ) {
-                                results.add( ai );
-                                currentPosition = rows;
-                            }
-                            hasNext = (numRowsInPage > numRowsToReturn && numRowsToReturn != -1);
+        while ( numRowsToReturn == -1 || rows < skip + numRowsToReturn + 1 ) {
+            List<String> uuids = index.getAssets( this,
+                                                  linkUUID,
+                                                  seekArchivedAsset,
+                                                  position,
+                                                  chunkSize );
+            if ( uuids.isEmpty() ) {
+                break;
+            }
+            position += uuids.size();
+
+            for ( String uuid : uuids ) {
+                if ( numRowsToReturn != -1 && rows >= skip + numRowsToReturn + 1 ) {
+                    break;
+                }
+                AssetItem ai = loadIndexedAsset( uuid );
+                if ( ai == null ) {
+                    //Not there for this session: either rolled back, or not saved yet by
+                    //the session that indexed it. Leave it in the index for the latter.
+                    continue;
+                }
+                if ( !seekArchivedAsset && ai.isArchived() ) {
+                    continue;
+                }
+                if ( filter == null || filter.accept( ai,
+                                                      "package.readonly" ) ) {
+
+                    //If the current row is greater than the number of rows being skipped add it
+                    //to the results collection (but only if we have not already constructed a
+                    //full "page" of data - we look ahead one additional row to check whether
+                    //there is are additional pages of data)
+                    rows++;
+                    int numRowsInPage = rows - skip;
+                    if ( numRowsInPage > 0 ) {
+                        if ( numRowsInPage <= numRowsToReturn || numRowsToReturn == -1 ) {
+                            results.add( ai );
+                            currentPosition = rows;
                         }
+                        hasNext = (numRowsInPage > numRowsToReturn && numRowsToReturn != -1);
                     }
                 }
             }
@@ -1223,6 +1337,51 @@ public class RulesRepository {
                                         hasNext );
     }
 
+    /**
+     * @return the asset, or null if it no longer exists (the index may be
+     *         ahead of a change that was rolled back).
+     */
+    private AssetItem loadIndexedAsset(String uuid) throws RepositoryException {
+        try {
+            return new AssetItem( this,
+                                  this.session.getNodeByIdentifier( uuid ) );
+        } catch ( ItemNotFoundException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of assets (in the package area, not snapshots) in a
+     *         category, without applying any filter.
+     */
+    public int countAssetsByCategory(String categoryTag,
+                                     boolean seekArchivedAsset) {
+        CategoryItem item = this.loadCategory( categoryTag );
+        try {
+            return AssetLinkIndex.getIndex( this ).count( this,
+                                                          item.getNode().getIdentifier(),
+                                                          seekArchivedAsset );
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
+    /**
+     * @return the number of assets (in the package area, not snapshots) in a
+     *         state, without applying any filter.
+     */
+    public int countAssetsByState(String stateName,
+                                  boolean seekArchivedAsset) {
+        StateItem item = this.getState( stateName );
+        try {
+            return AssetLinkIndex.getIndex( this ).count( this,
+                                                          item.getNode().getIdentifier(),
+                                                          seekArchivedAsset );
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
     public AssetItemPageResult findAssetsByCategory(String categoryTag,
                                                     int skip,
                                                     int numRowsToReturn) throws RulesRepositoryException {
@@ -1278,6 +1437,7 @@ public class RulesRepository {
      */
     public void importRepository(InputStream in) {
         new RulesRepositoryAdministrator( this.session ).clearRulesRepository();
+        forgetNodes();
         try {
             this.session.getWorkspace().importXML( "/",
                                                    in,
@@ -1297,10 +1457,14 @@ public class RulesRepository {
     public void importRulesRepositoryFromStream(InputStream instream) {
         try {
             new RulesRepositoryAdministrator( this.session ).clearRulesRepository();
+            forgetNodes();
             this.session.getWorkspace().importXML( "/",
                                                    instream,
                                                    ImportUUIDBehavior.IMPORT_UUID_CREATE_NEW );
             session.save();
+            AssetNameIndex.getIndex( this ).invalidate();
+            AssetLinkIndex.getIndex( this ).invalidate();
+            PackageSummaryCache.getCache( this ).invalidate();
             MigrateDroolsPackage mig = new MigrateDroolsPackage();
             if ( mig.needsMigration( this ) ) {
                 mig.migrate( this );
@@ -1338,6 +1502,10 @@ public class RulesRepository {
                                                        ImportUUIDBehavior.IMPORT_UUID_COLLISION_REPLACE_EXISTING );
             }
             session.save();
+            forgetNodes();
+            AssetNameIndex.getIndex( this ).invalidate();
+            AssetLinkIndex.getIndex( this ).invalidate();
+            PackageSummaryCache.getCache( this ).invalidate();
             MigrateDroolsPackage mig = new MigrateDroolsPackage();
             if ( mig.needsMigration( this ) ) {
                 mig.migrate( this );
@@ -1397,6 +1565,7 @@ public class RulesRepository {
     public void save() {
         try {
             this.session.save();
+            saved();
         } catch ( InvalidItemStateException e ) {
             String message = "Your operation was failed because it conflicts with a change made through another user. Please try again.";
             log.error( "Caught Exception",
@@ -1444,6 +1613,7 @@ public class RulesRepository {
                                    newPackage );
 
             item.checkin( explanation );
+            AssetNameIndex.getIndex( this ).update( item );
 
         } catch ( RepositoryException e ) {
             throw new RulesRepositoryException( e );
@@ -1521,41 +1691,44 @@ public class RulesRepository {
     }
 
     /**
-     * This will rename a package and apply the change immediately.
+     * This will rename a package and apply the change immediately. The
+     * package name kept on its assets is updated afterwards by
+     * {@link #resumePackageRenames()}, until then the assets answer to the new
+     * name. See {@link PackageRename}.
      * 
      * @return the UUID of the package
      */
     public String renamePackage(String uuid,
                                 String newPackageName) {
-        try {
-            PackageItem itemOriginal = loadPackageByUUID( uuid );
-            log.info( "Renaming package: " + itemOriginal.getNode().getPath() + " to " + newPackageName );
-            Node node = itemOriginal.getNode();
-            String sourcePath = node.getPath();
-            String destPath = node.getParent().getPath() + "/" + newPackageName;
-            this.session.move( sourcePath,
-                               destPath );
-
-            this.session.save();
-
-            itemOriginal.updateTitle( newPackageName );
-            itemOriginal.checkin( "Renamed package " + itemOriginal.getName() );
-
-            PackageItem newPkg = loadPackage( newPackageName );
-
-            for ( Iterator iter = newPkg.getAssets(); iter.hasNext(); ) {
-                AssetItem as = (AssetItem) iter.next();
-                as.updateStringProperty( newPackageName,
-                                         AssetItem.PACKAGE_NAME_PROPERTY );
-            }
+        PackageRename.start( this,
+                             uuid,
+                             newPackageName );
+        return uuid;
+    }
 
-            save();
+    /**
+     * Completes the package renames in progress, including those that were
+     * interrupted (by a failure or a shutdown). Until then their assets still
+     * answer to the new package name. The assets are updated and saved in
+     * batches, so this is to be called on a repository (session) of its own.
+     * 
+     * @return the number of renames completed
+     */
+    public int resumePackageRenames() {
+        return PackageRename.resumeAll( this );
+    }
 
-            return itemOriginal.getUUID();
-        } catch ( RepositoryException e ) {
-            log.error( e.getMessage(),
-                       e );
-            throw new RulesRepositoryException( e );
+    /**
+     * Runs a query, timing it as "jcr.query.[kind]" in the {@link Metrics}.
+     */
+    static QueryResult executeQuery(Query query,
+                                    String kind) throws RepositoryException {
+        Timer timer = Metrics.timer( "jcr.query." + kind );
+        long start = timer.start();
+        try {
+            return query.execute();
+        } finally {
+            timer.stop( start );
         }
     }
 
@@ -1592,7 +1765,8 @@ public class RulesRepository {
             Query q = this.session.getWorkspace().getQueryManager().createQuery( sql,
                                                                                  Query.SQL );
 
-            QueryResult res = q.execute();
+            QueryResult res = executeQuery( q,
+                                            "archived" );
 
             return new AssetItemIterator( res.getNodes(),
                                           this );
@@ -1667,7 +1841,8 @@ public class RulesRepository {
             Query q = this.session.getWorkspace().getQueryManager().createQuery( sb.toString(),
                                                                                  Query.SQL );
 
-            QueryResult res = q.execute();
+            QueryResult res = executeQuery( q,
+                                            "name" );
 
             return new AssetItemIterator( res.getNodes(),
                                           this );
@@ -1691,7 +1866,8 @@ public class RulesRepository {
             }
             Query q = this.session.getWorkspace().getQueryManager().createQuery( searchPath,
                                                                                  Query.XPATH );
-            QueryResult res = q.execute();
+            QueryResult res = executeQuery( q,
+                                            "fullText" );
             return new AssetItemIterator( res.getNodes(),
                                           this );
         } catch ( RepositoryException e ) {
@@ -1759,7 +1935,8 @@ public class RulesRepository {
             Query q = this.session.getWorkspace().getQueryManager().createQuery( sql.toString(),
                                                                                  Query.SQL );
 
-            QueryResult res = q.execute();
+            QueryResult res = executeQuery( q,
+                                            "metadata" );
 
             return new AssetItemIterator( res.getNodes(),
                                           this );
@@ -1906,7 +2083,7 @@ public class RulesRepository {
             sourcePath = source.getNode().getPath();
 
             String destPath = source.getNode().getParent().getPath() + "/" + destPackageName;
-            if ( this.getAreaNode( RULE_PACKAGE_AREA ).hasNode( destPackageName ) ) {
+            if ( containsPackage( destPackageName ) ) {
                 throw new RulesRepositoryException( "Destination already exists." );
             }
             this.session.getWorkspace().copy( sourcePath,
@@ -1922,6 +2099,9 @@ public class RulesRepository {
             }
 
             save();
+            AssetNameIndex.getIndex( this ).invalidate();
+            AssetLinkIndex.getIndex( this ).invalidate();
+            PackageSummaryCache.getCache( this ).invalidate();
 
             return newPkg.getUUID();
         } catch ( RepositoryException e ) {
@@ -22,6 +22,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Workspace;
 
+import org.drools.repository.migration.MigrateVersionLabels;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +83,10 @@ public class RulesRepositoryAdministrator {
                 Node node = session.getRootNode().getNode(RulesRepository.RULES_REPOSITORY_NAME);
                 node.remove();
                 session.save();
+                AssetNameIndex.getIndex( session.getRepository() ).invalidate();
+                AssetLinkIndex.getIndex( session.getRepository() ).invalidate();
+                PackageSummaryCache.getCache( session.getRepository() ).invalidate();
+                PackageRename.reset( session.getRepository() );
             } else {
                 System.out.println("Repo not setup, ergo not clearing it !");
             }
@@ -93,6 +98,20 @@ public class RulesRepositoryAdministrator {
             log.error( "Unable to clear rules repository.", e );
         }
     }
-    
-    
+
+    /**
+     * Labels the versions of all packages and assets which were checked in
+     * before versions were labelled, saving every batchSize items. This walks
+     * every version history, so it is only run when asked for; it does nothing
+     * once it has completed.
+     * @return the number of versions that were labelled.
+     */
+    public int labelVersions(int batchSize) {
+        try {
+            return new MigrateVersionLabels( batchSize ).migrate( new RulesRepository( session ) );
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
+        }
+    }
+
 }
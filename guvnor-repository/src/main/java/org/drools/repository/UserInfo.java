@@ -39,6 +39,13 @@ import javax.jcr.NodeIterator;
 public class UserInfo {
     private static final Logger log                   = LoggerFactory.getLogger( UserInfo.class );
 
+    // XStream is thread safe once configured, so the inboxes share one
+    private static final XStream inboxXStream = new XStream();
+    static {
+        inboxXStream.alias("inbox-entries", List.class);
+        inboxXStream.alias("entry", InboxEntry.class);
+    }
+
     Node userInfoNode;
 
     /**
@@ -127,10 +134,7 @@ public class UserInfo {
     }
 
     private XStream getXStream() {
-        XStream xs = new XStream();
-        xs.alias("inbox-entries", List.class);
-        xs.alias("entry", InboxEntry.class);
-        return xs;
+        return inboxXStream;
     }
     
     public void setProperty(String fileName, String propertyName, Val value) throws RepositoryException {
@@ -29,6 +29,9 @@ import javax.jcr.RepositoryException;
 import javax.jcr.UnsupportedRepositoryOperationException;
 import javax.jcr.Value;
 import javax.jcr.lock.LockException;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+import javax.jcr.version.VersionIterator;
 import javax.jcr.version.VersionManager;
 
 import org.drools.repository.events.StorageEventManager;
@@ -80,6 +83,12 @@ public abstract class VersionableItem extends Item {
      */
     public static final String DEFAULT_CONTENT_FORMAT         = "txt";
 
+    /**
+     * Each version is labelled with its version number (prefixed by this) in
+     * the version history, so that it can be found without walking the history.
+     */
+    public static final String VERSION_LABEL_PREFIX           = "drools:v";
+
     /** this is what is referred to when reading content from a versioned node */
     private Node               contentNode                    = null;
 
@@ -568,31 +577,55 @@ public abstract class VersionableItem extends Item {
      */
     public void checkin(String comment) {
         checkIsUpdateable();
-        checkInAssetIfNecessary(false);
         try {
+            List<AssetItem> assets = getAssetsNeverCheckedIn();
+            String assetComment = "Package[" + this.getTitle() + "] checked in";
+            for (AssetItem asset : assets) {
+                asset.checkout();
+                asset.updateCheckinProperties( assetComment );
+            }
+            long nextVersion = updateCheckinProperties( comment );
 
-            this.node.setProperty( LAST_MODIFIED_PROPERTY_NAME, Calendar.getInstance() );
-            this.node.setProperty( CHECKIN_COMMENT, comment );
-            this.node.setProperty( LAST_CONTRIBUTOR_PROPERTY_NAME, this.node.getSession().getUserID() );
-            long nextVersion = getVersionNumber() + 1;
-            this.node.setProperty( VERSION_NUMBER_PROPERTY_NAME,  nextVersion );
+            // One save for this item and the assets it checks in
             this.node.getSession().save();
-            
-            getVersionManager(this.node).checkin(this.node.getPath());
+            this.rulesRepository.saved();
 
-            if (StorageEventManager.hasSaveEvent()) {
-                if (this instanceof AssetItem) {
-                    StorageEventManager.getSaveEvent().onAssetCheckin((AssetItem) this);
-                }
+            for (AssetItem asset : assets) {
+                asset.checkinVersion( asset.getVersionNumber() );
             }
-            StorageEventManager.doCheckinEvents(this);
-
+            checkinVersion( nextVersion );
         } catch ( RepositoryException e ) {
             throw new RulesRepositoryException( "Unable to checkin.",
                                                 e );
         }
     }
 
+    protected long updateCheckinProperties(String comment) throws RepositoryException {
+        this.node.setProperty( LAST_MODIFIED_PROPERTY_NAME, Calendar.getInstance() );
+        this.node.setProperty( CHECKIN_COMMENT, comment );
+        this.node.setProperty( LAST_CONTRIBUTOR_PROPERTY_NAME, this.node.getSession().getUserID() );
+        long nextVersion = getVersionNumber() + 1;
+        this.node.setProperty( VERSION_NUMBER_PROPERTY_NAME,  nextVersion );
+        return nextVersion;
+    }
+
+    /**
+     * Makes the JCR version, once the properties are saved.
+     */
+    protected void checkinVersion(long versionNumber) throws RepositoryException {
+        Version version = getVersionManager(this.node).checkin(this.node.getPath());
+        version.getContainingHistory().addVersionLabel( version.getName(),
+                                                        getVersionLabel( versionNumber ),
+                                                        true );
+
+        if (StorageEventManager.hasSaveEvent()) {
+            if (this instanceof AssetItem) {
+                StorageEventManager.getSaveEvent().onAssetCheckin((AssetItem) this);
+            }
+        }
+        StorageEventManager.doCheckinEvents(this);
+    }
+
 	/*
 	 * When we make a version of package (check in the package), we need to know
 	 * the exact version number of child assets that this package contains. If
@@ -600,34 +633,35 @@ public abstract class VersionableItem extends Item {
 	 * but has never been checked in), we need to check in this asset so that we
 	 * have a version number that we can refer to from the versioned package.
 	 */
-    private void checkInAssetIfNecessary(boolean force) {
+    private List<AssetItem> getAssetsNeverCheckedIn() {
+        List<AssetItem> result = new ArrayList<AssetItem>();
     	if(!(this instanceof PackageItem)) {
-    		return;
+    		return result;
     	}
     	Iterator<AssetItem> assets = ((PackageItem)this).getAssets();
     	while(assets.hasNext()) {
     		AssetItem asset = assets.next();
-     		
-    		if(force || !assetHasHistory(asset)) {
-    			asset.checkout();
-    			asset.checkin("Package[" + this.getTitle() + "] checked in");
+    		if(!asset.hasBeenCheckedIn()) {
+    			result.add(asset);
     		}
     	}
+    	return result;
     }
-    
-    private boolean assetHasHistory(AssetItem asset) {
-		AssetHistoryIterator it = asset.getHistory();      
-		while ( it.hasNext() ) {
-            VersionableItem historical = (VersionableItem) it.next();
-            long versionNumber = historical.getVersionNumber();
-            if ( versionNumber != 0) {
-            	//Version 0 is not a real version. It is the root version
-                return true;
-            }
+
+    /**
+     * @return true if this item has a version other than the root version of
+     *         its history, without walking the history: the base version is
+     *         the root version until the first checkin.
+     */
+    public boolean hasBeenCheckedIn() {
+        try {
+            Node head = getHeadNode();
+            return !getVersionManager(head).getBaseVersion(head.getPath()).getName().equals("jcr:rootVersion");
+        } catch ( RepositoryException e ) {
+            throw new RulesRepositoryException( e );
         }
-		
-		return false;  	    	
     }
+
     /**
      * This will check to see if the node is the "head" and
      * so can be updated (you can't update historical nodes ).
@@ -682,6 +716,7 @@ public abstract class VersionableItem extends Item {
             checkout();
             this.node.setProperty( STATE_PROPERTY_NAME,
                                    stateItem.getNode() );
+            AssetLinkIndex.getIndex( this.rulesRepository ).update( this.node );
         } catch ( Exception e ) {
             log.error( "Caught exception",
                        e );
@@ -894,6 +929,7 @@ public abstract class VersionableItem extends Item {
 
         try {
             this.node.setProperty(CONTENT_PROPERTY_ARCHIVE_FLAG, data);
+            AssetLinkIndex.getIndex(this.rulesRepository).update(this.node);
             return this;
         } catch (RepositoryException e) {
             log.error("Unable to update this VersionableItem binary archive flag");
@@ -920,6 +956,78 @@ public abstract class VersionableItem extends Item {
         }
     }
     
+    public static String getVersionLabel(long versionNumber) {
+        return VERSION_LABEL_PREFIX + versionNumber;
+    }
+
+    /**
+     * @return the node (the head, not a version) this item is a version of, or
+     *         the node itself if it is the head.
+     */
+    protected Node getHeadNode() throws RepositoryException {
+        if ( !isHistoricalVersion() ) {
+            return this.node;
+        }
+        Node frozenNode = getVersionContentNode();
+        return frozenNode.getSession().getNodeByIdentifier( frozenNode.getProperty( "jcr:frozenUuid" ).getString() );
+    }
+
+    /**
+     * Finds a version of a node by its version number, from its label.
+     * Versions checked in before they were labelled are found by walking the
+     * history (see {@link #labelVersions(Node)}).
+     *
+     * @param head the head node, not a version.
+     * @return the version, or null if the node has no such version.
+     */
+    public static Version findVersion(Node head,
+                                      long versionNumber) throws RepositoryException {
+        VersionHistory history = getVersionManager( head ).getVersionHistory( head.getPath() );
+        String label = getVersionLabel( versionNumber );
+        if ( history.hasVersionLabel( label ) ) {
+            return history.getVersionByLabel( label );
+        }
+
+        VersionIterator it = history.getAllVersions();
+        while ( it.hasNext() ) {
+            Version version = it.nextVersion();
+            Node frozenNode = version.getFrozenNode();
+            if ( frozenNode.hasProperty( VERSION_NUMBER_PROPERTY_NAME )
+                 && frozenNode.getProperty( VERSION_NUMBER_PROPERTY_NAME ).getLong() == versionNumber ) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Labels the versions of a node with their version number, for the versions
+     * checked in before labels were added.
+     *
+     * @param head the head node, not a version.
+     * @return the number of versions that were labelled.
+     */
+    public static int labelVersions(Node head) throws RepositoryException {
+        VersionHistory history = getVersionManager( head ).getVersionHistory( head.getPath() );
+        int labelled = 0;
+        VersionIterator it = history.getAllVersions();
+        while ( it.hasNext() ) {
+            Version version = it.nextVersion();
+            Node frozenNode = version.getFrozenNode();
+            if ( !frozenNode.hasProperty( VERSION_NUMBER_PROPERTY_NAME ) ) {
+                continue;
+            }
+            String label = getVersionLabel( frozenNode.getProperty( VERSION_NUMBER_PROPERTY_NAME ).getLong() );
+            if ( !history.hasVersionLabel( label ) ) {
+                history.addVersionLabel( version.getName(),
+                                         label,
+                                         true );
+                labelled++;
+            }
+        }
+        return labelled;
+    }
+
     public static VersionManager getVersionManager(Node targetNode) throws RepositoryException {
         return targetNode.getSession().getWorkspace().getVersionManager();
     }
@@ -19,12 +19,7 @@ package org.drools.repository;
 import java.util.HashMap;
 import java.util.Map;
 
-import javax.jcr.ItemNotFoundException;
-import javax.jcr.Node;
 import javax.jcr.NodeIterator;
-import javax.jcr.PathNotFoundException;
-import javax.jcr.RepositoryException;
-import javax.jcr.ValueFormatException;
 
 
 /**
@@ -38,6 +33,7 @@ import javax.jcr.ValueFormatException;
 public class VersionedAssetItemIterator extends AssetItemIterator {
     Map<String, String> dependencyVersionMap = new HashMap<String, String>();
     private boolean returnAssetsWithVersionsSpecifiedByDependencies = false;
+    private PackageItem pkg;
            
     public VersionedAssetItemIterator(NodeIterator nodes,
                             RulesRepository repo,
@@ -52,6 +48,17 @@ public class VersionedAssetItemIterator extends AssetItemIterator {
         }        
     }
 
+    /**
+     * The versions are taken from the package only if they are asked for (see
+     * {@link #setReturnAssetsWithVersionsSpecifiedByDependencies(boolean)}).
+     */
+    public VersionedAssetItemIterator(NodeIterator nodes,
+                            RulesRepository repo,
+                            PackageItem pkg) {
+        super(nodes, repo);
+        this.pkg = pkg;
+    }
+
     public AssetItem next() {
         AssetItem ai = super.next();
         if(returnAssetsWithVersionsSpecifiedByDependencies && dependencyVersionMap.get(ai.getName()) != null) {
@@ -63,43 +70,17 @@ public class VersionedAssetItemIterator extends AssetItemIterator {
     
     public void setReturnAssetsWithVersionsSpecifiedByDependencies(boolean flag) {
         this.returnAssetsWithVersionsSpecifiedByDependencies = flag;
+        if (flag && pkg != null) {
+            dependencyVersionMap = pkg.getPinnedVersions();
+        }
     }
     
     protected AssetItem loadAssetWithVersion(final AssetItem assetItem,
             String version) {
-    	long requiredVersion = Long.parseLong(version);
-		if (assetItem.isHistoricalVersion()) {			
-			long currentVersion = assetItem.getVersionNumber();
-			if(requiredVersion == currentVersion) {
-				return assetItem;
-			} else {
-				Node frozenNode = assetItem.getNode();
-				try {
-					Node headNode = frozenNode.getSession().getNodeByIdentifier(
-							frozenNode.getProperty("jcr:frozenUuid")
-									.getString());
-					AssetHistoryIterator historyIterator = new AssetHistoryIterator(
-							assetItem.getRulesRepository(), headNode);
-					while (historyIterator.hasNext()) {
-						AssetItem historical = historyIterator.next();
-						if (requiredVersion == historical.getVersionNumber()) {
-							return historical;
-						}
-					}
-				} catch (RepositoryException e) {
-					throw new RulesRepositoryException("Unable to load AssetItem[" + assetItem.getName() + "] with specificed version[" + version + "]", e);
-				}
-			}	
-		} else {
-			AssetHistoryIterator it = assetItem.getHistory();
-			while (it.hasNext()) {
-				AssetItem historical = (AssetItem) it.next();
-				if (requiredVersion == historical.getVersionNumber()) {
-					return historical;
-				}
-			}
-		}
-		
-		throw new RulesRepositoryException("Unable to load AssetItem[" + assetItem.getName() + "] with specificed version[" + version + "]");
+        long requiredVersion = Long.parseLong(version);
+        if (assetItem.isHistoricalVersion() && requiredVersion == assetItem.getVersionNumber()) {
+            return assetItem;
+        }
+        return assetItem.getVersion(requiredVersion);
     }
 }
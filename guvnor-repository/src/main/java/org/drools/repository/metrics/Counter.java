@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count that goes up, and down for things that are released (such as open
+ * sessions).
+ */
+public class Counter {
+
+    private final AtomicLong count = new AtomicLong();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    public void decrement() {
+        count.decrementAndGet();
+    }
+
+    public void add(long n) {
+        count.addAndGet( n );
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+}
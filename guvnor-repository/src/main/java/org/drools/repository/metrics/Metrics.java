@@ -0,0 +1,267 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metrics of the repository and of what is built on it: timers (JCR
+ * queries, package builds, RPC calls...), counters, cache hit ratios and
+ * gauges, by name. Names are dotted, from the general to the particular (for
+ * example "jcr.query.name").
+ * <p>
+ * They are reported through JMX under {@link #OBJECT_NAME}, once
+ * {@link #registerMBean()} is called, and as JSON by {@link #toJSON()}.
+ */
+public final class Metrics {
+
+    private static final Logger                          log         = LoggerFactory.getLogger( Metrics.class );
+
+    public static final String                           OBJECT_NAME = "org.drools.guvnor:type=Metrics";
+
+    private static final ConcurrentMap<String, Timer>    timers      = new ConcurrentHashMap<String, Timer>();
+    private static final ConcurrentMap<String, Counter>  counters    = new ConcurrentHashMap<String, Counter>();
+    private static final ConcurrentMap<String, HitRatio> hitRatios   = new ConcurrentHashMap<String, HitRatio>();
+    private static final ConcurrentMap<String, Gauge>    gauges      = new ConcurrentHashMap<String, Gauge>();
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        Timer timer = timers.get( name );
+        if ( timer == null ) {
+            Timer created = new Timer();
+            timer = timers.putIfAbsent( name,
+                                        created );
+            if ( timer == null ) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+    public static Counter counter(String name) {
+        Counter counter = counters.get( name );
+        if ( counter == null ) {
+            Counter created = new Counter();
+            counter = counters.putIfAbsent( name,
+                                            created );
+            if ( counter == null ) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public static HitRatio hitRatio(String name) {
+        HitRatio hitRatio = hitRatios.get( name );
+        if ( hitRatio == null ) {
+            HitRatio created = new HitRatio();
+            hitRatio = hitRatios.putIfAbsent( name,
+                                              created );
+            if ( hitRatio == null ) {
+                hitRatio = created;
+            }
+        }
+        return hitRatio;
+    }
+
+    /**
+     * Registers a gauge, in place of any other with the same name.
+     */
+    public static void register(String name,
+                                Gauge gauge) {
+        gauges.put( name,
+                    gauge );
+    }
+
+    public static void unregister(String name) {
+        gauges.remove( name );
+    }
+
+    public static Map<String, Timer> getTimers() {
+        return new TreeMap<String, Timer>( timers );
+    }
+
+    public static Map<String, Counter> getCounters() {
+        return new TreeMap<String, Counter>( counters );
+    }
+
+    public static Map<String, HitRatio> getHitRatios() {
+        return new TreeMap<String, HitRatio>( hitRatios );
+    }
+
+    public static Map<String, Gauge> getGauges() {
+        return new TreeMap<String, Gauge>( gauges );
+    }
+
+    /**
+     * Starts the timers and hit ratios over. Counters and gauges are kept, as
+     * they count things that are still there (such as open sessions).
+     */
+    public static void reset() {
+        for ( Timer timer : timers.values() ) {
+            timer.reset();
+        }
+        for ( HitRatio hitRatio : hitRatios.values() ) {
+            hitRatio.reset();
+        }
+    }
+
+    /**
+     * @return all the metrics, with the histogram of each timer (leaving out
+     *         the empty buckets).
+     */
+    public static String toJSON() {
+        StringBuilder json = new StringBuilder( "{\"timers\":{" );
+        boolean first = true;
+        for ( Map.Entry<String, Timer> entry : getTimers().entrySet() ) {
+            Timer timer = entry.getValue();
+            first = name( json,
+                          entry.getKey(),
+                          first );
+            json.append( "{\"count\":" ).append( timer.getCount() );
+            json.append( ",\"totalMillis\":" ).append( timer.getTotalMillis() );
+            json.append( ",\"meanMillis\":" ).append( timer.getMeanMillis() );
+            json.append( ",\"maxMillis\":" ).append( timer.getMaxMillis() );
+            json.append( ",\"p50Millis\":" ).append( timer.getPercentileMillis( 0.5 ) );
+            json.append( ",\"p95Millis\":" ).append( timer.getPercentileMillis( 0.95 ) );
+            json.append( ",\"p99Millis\":" ).append( timer.getPercentileMillis( 0.99 ) );
+            json.append( ",\"histogram\":[" );
+            long[] buckets = timer.getBuckets();
+            boolean firstBucket = true;
+            for ( int i = 0; i < buckets.length; i++ ) {
+                if ( buckets[i] == 0 ) {
+                    continue;
+                }
+                if ( !firstBucket ) {
+                    json.append( ',' );
+                }
+                firstBucket = false;
+                json.append( "{\"upToMillis\":" ).append( Timer.getBucketLimitMillis( i ) );
+                json.append( ",\"count\":" ).append( buckets[i] ).append( '}' );
+            }
+            json.append( "]}" );
+        }
+
+        json.append( "},\"counters\":{" );
+        first = true;
+        for ( Map.Entry<String, Counter> entry : getCounters().entrySet() ) {
+            first = name( json,
+                          entry.getKey(),
+                          first );
+            json.append( entry.getValue().getCount() );
+        }
+
+        json.append( "},\"caches\":{" );
+        first = true;
+        for ( Map.Entry<String, HitRatio> entry : getHitRatios().entrySet() ) {
+            HitRatio hitRatio = entry.getValue();
+            first = name( json,
+                          entry.getKey(),
+                          first );
+            json.append( "{\"hits\":" ).append( hitRatio.getHits() );
+            json.append( ",\"misses\":" ).append( hitRatio.getMisses() );
+            json.append( ",\"ratio\":" ).append( hitRatio.getRatio() ).append( '}' );
+        }
+
+        json.append( "},\"gauges\":{" );
+        first = true;
+        for ( Map.Entry<String, Gauge> entry : getGauges().entrySet() ) {
+            first = name( json,
+                          entry.getKey(),
+                          first );
+            json.append( getValue( entry.getValue() ) );
+        }
+        return json.append( "}}" ).toString();
+    }
+
+    /**
+     * @return the value of a gauge, or -1 if it can't be read (for example
+     *         because what it measures was shut down).
+     */
+    static long getValue(Gauge gauge) {
+        try {
+            return gauge.getValue();
+        } catch ( RuntimeException e ) {
+            log.debug( "Unable to read a gauge: " + e.getMessage() );
+            return -1;
+        }
+    }
+
+    private static boolean name(StringBuilder json,
+                                String name,
+                                boolean first) {
+        if ( !first ) {
+            json.append( ',' );
+        }
+        json.append( '"' );
+        for ( int i = 0; i < name.length(); i++ ) {
+            char c = name.charAt( i );
+            if ( c == '"' || c == '\\' ) {
+                json.append( '\\' ).append( c );
+            } else if ( c < ' ' ) {
+                json.append( ' ' );
+            } else {
+                json.append( c );
+            }
+        }
+        json.append( "\":" );
+        return false;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, in place of any
+     * that were registered before (by an earlier deployment).
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( server.isRegistered( name ) ) {
+                server.unregisterMBean( name );
+            }
+            server.registerMBean( new MetricsMBean(),
+                                  name );
+        } catch ( Exception e ) {
+            log.warn( "Unable to register the metrics with JMX: " + e.getMessage() );
+        }
+    }
+
+    public static void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( server.isRegistered( name ) ) {
+                server.unregisterMBean( name );
+            }
+        } catch ( Exception e ) {
+            log.warn( "Unable to unregister the metrics from JMX: " + e.getMessage() );
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Shows the {@link Metrics} as read only JMX attributes. As metrics are added
+ * while the application runs, the attributes are listed again each time:
+ * "[timer].count", "[timer].meanMillis", "[timer].maxMillis",
+ * "[timer].p95Millis", "[timer].p99Millis", "[cache].hits", "[cache].misses",
+ * "[cache].ratio", and the counters and gauges by their names.
+ */
+public class MetricsMBean
+    implements
+    DynamicMBean {
+
+    private static final String RESET = "reset";
+
+    MetricsMBean() {
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Map<String, Object> values = getValues();
+        if ( !values.containsKey( attribute ) ) {
+            throw new AttributeNotFoundException( attribute );
+        }
+        return values.get( attribute );
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = getValues();
+        AttributeList result = new AttributeList();
+        for ( String attribute : attributes ) {
+            if ( values.containsKey( attribute ) ) {
+                result.add( new Attribute( attribute,
+                                           values.get( attribute ) ) );
+            }
+        }
+        return result;
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException( "The metrics are read only: " + attribute.getName() );
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    public Object invoke(String actionName,
+                         Object[] params,
+                         String[] signature) throws ReflectionException {
+        if ( RESET.equals( actionName ) ) {
+            Metrics.reset();
+            return null;
+        }
+        throw new ReflectionException( new NoSuchMethodException( actionName ) );
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Object> values = getValues();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+        int i = 0;
+        for ( Map.Entry<String, Object> entry : values.entrySet() ) {
+            attributes[i++] = new MBeanAttributeInfo( entry.getKey(),
+                                                      entry.getValue().getClass().getName(),
+                                                      entry.getKey(),
+                                                      true,
+                                                      false,
+                                                      false );
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo( RESET,
+                                                           "Starts the timers and cache hit ratios over.",
+                                                           new MBeanParameterInfo[0],
+                                                           "void",
+                                                           MBeanOperationInfo.ACTION );
+        return new MBeanInfo( getClass().getName(),
+                              "Guvnor metrics",
+                              attributes,
+                              null,
+                              new MBeanOperationInfo[]{reset},
+                              null );
+    }
+
+    private static Map<String, Object> getValues() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for ( Map.Entry<String, Timer> entry : Metrics.getTimers().entrySet() ) {
+            Timer timer = entry.getValue();
+            values.put( entry.getKey() + ".count",
+                        timer.getCount() );
+            values.put( entry.getKey() + ".meanMillis",
+                        timer.getMeanMillis() );
+            values.put( entry.getKey() + ".maxMillis",
+                        timer.getMaxMillis() );
+            values.put( entry.getKey() + ".p95Millis",
+                        timer.getPercentileMillis( 0.95 ) );
+            values.put( entry.getKey() + ".p99Millis",
+                        timer.getPercentileMillis( 0.99 ) );
+        }
+        for ( Map.Entry<String, HitRatio> entry : Metrics.getHitRatios().entrySet() ) {
+            HitRatio hitRatio = entry.getValue();
+            values.put( entry.getKey() + ".hits",
+                        hitRatio.getHits() );
+            values.put( entry.getKey() + ".misses",
+                        hitRatio.getMisses() );
+            values.put( entry.getKey() + ".ratio",
+                        hitRatio.getRatio() );
+        }
+        for ( Map.Entry<String, Counter> entry : Metrics.getCounters().entrySet() ) {
+            values.put( entry.getKey(),
+                        entry.getValue().getCount() );
+        }
+        for ( Map.Entry<String, Gauge> entry : Metrics.getGauges().entrySet() ) {
+            values.put( entry.getKey(),
+                        Metrics.getValue( entry.getValue() ) );
+        }
+        return values;
+    }
+
+}
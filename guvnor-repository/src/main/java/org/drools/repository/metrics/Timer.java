@@ -0,0 +1,154 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The durations of an operation, with a histogram to estimate percentiles.
+ * Bucket i counts the durations from 2^i to 2^(i+1) microseconds (the first
+ * one from 0, the last one everything above), so recording a duration is a
+ * few atomic increments and the histogram has a fixed size. Used as:
+ * 
+ * <pre>
+ * long start = timer.start();
+ * try {
+ *     ...
+ * } finally {
+ *     timer.stop( start );
+ * }
+ * </pre>
+ */
+public class Timer {
+
+    static final int              BUCKETS    = 32;
+
+    private final AtomicLong      count      = new AtomicLong();
+    private final AtomicLong      totalNanos = new AtomicLong();
+    private final AtomicLong      maxNanos   = new AtomicLong();
+    private final AtomicLongArray buckets    = new AtomicLongArray( BUCKETS );
+
+    Timer() {
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long start) {
+        update( System.nanoTime() - start );
+    }
+
+    public void update(long nanos) {
+        if ( nanos < 0 ) {
+            nanos = 0;
+        }
+        count.incrementAndGet();
+        totalNanos.addAndGet( nanos );
+        buckets.incrementAndGet( bucket( nanos ) );
+        long max;
+        while ( nanos > (max = maxNanos.get()) ) {
+            if ( maxNanos.compareAndSet( max,
+                                         nanos ) ) {
+                break;
+            }
+        }
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        if ( micros <= 1 ) {
+            return 0;
+        }
+        return Math.min( 63 - Long.numberOfLeadingZeros( micros ),
+                         BUCKETS - 1 );
+    }
+
+    /**
+     * @return the upper bound of a bucket, in milliseconds.
+     */
+    static double getBucketLimitMillis(int bucket) {
+        return (1L << (bucket + 1)) / 1000.0;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.get() / 1000000.0;
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / 1000000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1000000.0;
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 1.
+     * @return an upper bound of the given percentile of the durations (the
+     *         limit of the bucket it falls in), 0 if there are none.
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] counts = getBuckets();
+        long total = 0;
+        for ( long c : counts ) {
+            total += c;
+        }
+        if ( total == 0 ) {
+            return 0;
+        }
+        long rank = (long) Math.ceil( percentile * total );
+        long seen = 0;
+        for ( int i = 0; i < counts.length; i++ ) {
+            seen += counts[i];
+            if ( seen >= rank && counts[i] > 0 ) {
+                return Math.min( getBucketLimitMillis( i ),
+                                 getMaxMillis() );
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return the count of each bucket.
+     */
+    public long[] getBuckets() {
+        long[] result = new long[BUCKETS];
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            result[i] = buckets.get( i );
+        }
+        return result;
+    }
+
+    void reset() {
+        count.set( 0 );
+        totalNanos.set( 0 );
+        maxNanos.set( 0 );
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            buckets.set( i,
+                         0 );
+        }
+    }
+
+}
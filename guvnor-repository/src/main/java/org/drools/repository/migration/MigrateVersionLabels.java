@@ -0,0 +1,137 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository.migration;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+
+import org.drools.repository.AssetItem;
+import org.drools.repository.PackageItem;
+import org.drools.repository.RulesRepository;
+import org.drools.repository.VersionableItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This is a one time tool which labels the versions of packages and assets
+ * with their version number, for the versions checked in before they were
+ * labelled on checkin. Without the labels, finding a version walks the whole
+ * history of the item.
+ *
+ * It is not run on startup, as it walks every version history: an
+ * administrator runs it (see RulesRepositoryAdministrator.labelVersions). Only
+ * one run at a time is allowed per JCR repository, and the work is saved every
+ * batch of items, so a run that is stopped can be started again: the items
+ * that are already labelled are skipped.
+ */
+public class MigrateVersionLabels {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    static final String MIGRATED_NODE = "drools.versionlabels.migrated";
+
+    private static final Map<Repository, Object> LOCKS = new WeakHashMap<Repository, Object>();
+
+    private final int batchSize;
+    private int inBatch;
+    private int items;
+    private int labelled;
+
+    public MigrateVersionLabels(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    private static Object getLock(Repository repository) {
+        synchronized (LOCKS) {
+            Object lock = LOCKS.get(repository);
+            if (lock == null) {
+                lock = new Object();
+                LOCKS.put(repository, lock);
+            }
+            return lock;
+        }
+    }
+
+    public boolean needsMigration(RulesRepository repo) throws RepositoryException {
+        Node root = repo.getSession().getRootNode().getNode(RulesRepository.RULES_REPOSITORY_NAME);
+        return !root.hasNode(MIGRATED_NODE);
+    }
+
+    /**
+     * Labels the versions, unless it has been done already.
+     * @return the number of versions that were labelled.
+     */
+    public int migrate(RulesRepository repo) throws RepositoryException {
+        synchronized (getLock(repo.getSession().getRepository())) {
+            repo.getSession().refresh(true);
+            if (!needsMigration(repo)) {
+                return 0;
+            }
+            log.info("MIGRATION: Performing version label migration, in batches of " + batchSize + " items...");
+            inBatch = 0;
+            items = 0;
+            labelled = 0;
+            migratePackages(repo, repo.getAreaNode(RulesRepository.RULE_PACKAGE_AREA));
+
+            repo.getSession().getRootNode().getNode(RulesRepository.RULES_REPOSITORY_NAME).addNode(MIGRATED_NODE, "nt:folder");
+            repo.save();
+            log.info("MIGRATION: version label migration completed, " + labelled + " versions of " + items + " items labelled.");
+            return labelled;
+        }
+    }
+
+    private void migratePackages(RulesRepository repo, Node packageArea) throws RepositoryException {
+        NodeIterator packages = packageArea.getNodes();
+        while (packages.hasNext()) {
+            Node pkg = packages.nextNode();
+            if (!pkg.getPrimaryNodeType().getName().equals(PackageItem.RULE_PACKAGE_TYPE_NAME)) {
+                continue;
+            }
+            label(repo, pkg);
+
+            if (pkg.hasNode(PackageItem.ASSET_FOLDER_NAME)) {
+                NodeIterator assets = pkg.getNode(PackageItem.ASSET_FOLDER_NAME).getNodes();
+                while (assets.hasNext()) {
+                    Node asset = assets.nextNode();
+                    if (asset.getPrimaryNodeType().getName().equals(AssetItem.RULE_NODE_TYPE_NAME)) {
+                        label(repo, asset);
+                    }
+                }
+            }
+
+            if (pkg.hasNode(RulesRepository.RULE_PACKAGE_AREA)) {
+                migratePackages(repo, pkg.getNode(RulesRepository.RULE_PACKAGE_AREA));
+            }
+        }
+    }
+
+    private void label(RulesRepository repo, Node node) throws RepositoryException {
+        labelled += VersionableItem.labelVersions(node);
+        items++;
+        if (++inBatch >= batchSize) {
+            repo.save();
+            inBatch = 0;
+            log.info("MIGRATION: " + labelled + " versions of " + items + " items labelled so far.");
+        }
+    }
+
+}
@@ -22,7 +22,10 @@ import java.util.Calendar;
 import java.util.Iterator;
 import java.util.List;
 
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
 import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
 import javax.jcr.version.VersionIterator;
 
 import org.junit.Test;
@@ -935,4 +938,64 @@ public class AssetItemTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testGetVersionByNumber() throws Exception {
+        AssetItem asset = getDefaultPackage().addAsset("testGetVersionByNumber", "");
+        for (int i = 1; i <= 3; i++) {
+            asset.updateContent("content " + i);
+            asset.checkin("version " + i);
+        }
+        long first = asset.getVersionNumber() - 2;
+
+        AssetItem historical = asset.getVersion(first);
+        assertTrue(historical.isHistoricalVersion());
+        assertEquals("content 1", historical.getContent());
+        // From a version too
+        assertEquals("content 3", historical.getVersion(first + 2).getContent());
+
+        try {
+            asset.getVersion(first + 10);
+            fail("There is no such version");
+        } catch (RulesRepositoryException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        // Versions checked in before they were labelled are still found, and can be labelled
+        VersionHistory history = VersionableItem.getVersionManager(asset.getNode()).getVersionHistory(asset.getNode().getPath());
+        history.removeVersionLabel(VersionableItem.getVersionLabel(first));
+        assertFalse(history.hasVersionLabel(VersionableItem.getVersionLabel(first)));
+        assertEquals("content 1", asset.getVersion(first).getContent());
+
+        assertEquals(1, VersionableItem.labelVersions(asset.getNode()));
+        assertTrue(history.hasVersionLabel(VersionableItem.getVersionLabel(first)));
+        assertEquals(0, VersionableItem.labelVersions(asset.getNode()));
+    }
+
+    @Test
+    public void testDiscussionAppendsFromTwoSessions() throws Exception {
+        RulesRepository repo = getRepo();
+        AssetItem asset = getDefaultPackage().addAsset("testDiscussionAppendsFromTwoSessions", "");
+        AssetDiscussion discussion = new AssetDiscussion(repo, asset.getUUID());
+        discussion.append(new AssetDiscussion.Entry("alan_parsons", "first", 1));
+        repo.save();
+
+        Session other = repo.getSession().getRepository().login(new SimpleCredentials("alan_parsons", "password".toCharArray()));
+        try {
+            RulesRepository otherRepo = new RulesRepository(other);
+            // Both append before either saves
+            discussion.append(new AssetDiscussion.Entry("alan_parsons", "second", 2));
+            new AssetDiscussion(otherRepo, asset.getUUID()).append(new AssetDiscussion.Entry("alan_parsons", "third", 3));
+            repo.save();
+            otherRepo.save();
+        } finally {
+            other.logout();
+        }
+
+        assertEquals(3, discussion.size());
+        List<AssetDiscussion.Entry> latest = discussion.loadLatest(2);
+        assertEquals(2, latest.size());
+        assertEquals("second", latest.get(0).getNote());
+        assertEquals("third", latest.get(1).getNote());
+        assertEquals("first", discussion.load(0, 1).get(0).getNote());
+    }
 }
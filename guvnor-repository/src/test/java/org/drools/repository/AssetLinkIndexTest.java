@@ -0,0 +1,152 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AssetLinkIndexTest extends RepositoryTestCase {
+
+    @Test
+    public void testPagesKeptUpToDate() throws Exception {
+        RulesRepository repo = getRepo();
+        repo.loadCategory( "/" ).addCategory( "testAssetLinkIndexCat",
+                                              "" );
+        PackageItem pkg = repo.createPackage( "testAssetLinkIndex",
+                                              "" );
+        AssetItem first = pkg.addAsset( "testAssetLinkIndex1",
+                                        "",
+                                        "testAssetLinkIndexCat",
+                                        "drl" );
+        for ( int i = 2; i <= 5; i++ ) {
+            pkg.addAsset( "testAssetLinkIndex" + i,
+                          "",
+                          "testAssetLinkIndexCat",
+                          "drl" );
+        }
+        repo.save();
+
+        assertEquals( 5,
+                      repo.countAssetsByCategory( "testAssetLinkIndexCat",
+                                                  false ) );
+        AssetItemPageResult page = repo.findAssetsByCategory( "testAssetLinkIndexCat",
+                                                              false,
+                                                              3,
+                                                              2 );
+        assertEquals( 2,
+                      page.assets.size() );
+        assertEquals( 5,
+                      page.currentPosition );
+        assertFalse( page.hasNext );
+        page = repo.findAssetsByCategory( "testAssetLinkIndexCat",
+                                          false,
+                                          0,
+                                          2 );
+        assertTrue( page.hasNext );
+
+        // Added once the index is built, and snapshots are left out
+        pkg.addAsset( "testAssetLinkIndex6",
+                      "",
+                      "testAssetLinkIndexCat",
+                      "drl" );
+        repo.save();
+        repo.createPackageSnapshot( "testAssetLinkIndex",
+                                    "SNAP" );
+        assertEquals( 6,
+                      repo.countAssetsByCategory( "testAssetLinkIndexCat",
+                                                  false ) );
+
+        // Archived
+        first.archiveItem( true );
+        repo.save();
+        assertEquals( 5,
+                      repo.countAssetsByCategory( "testAssetLinkIndexCat",
+                                                  false ) );
+        assertEquals( 6,
+                      repo.countAssetsByCategory( "testAssetLinkIndexCat",
+                                                  true ) );
+        List<AssetItem> all = repo.findAssetsByCategory( "testAssetLinkIndexCat",
+                                                         true,
+                                                         0,
+                                                         -1 ).assets;
+        assertEquals( 6,
+                      all.size() );
+
+        // Category removed, and state changed
+        repo.createState( "testAssetLinkIndexState" );
+        first.removeCategory( "testAssetLinkIndexCat" );
+        first.updateState( "testAssetLinkIndexState" );
+        repo.save();
+        assertEquals( 5,
+                      repo.countAssetsByCategory( "testAssetLinkIndexCat",
+                                                  true ) );
+        AssetItemPageResult deployed = repo.findAssetsByState( "testAssetLinkIndexState",
+                                                               true,
+                                                               0,
+                                                               -1 );
+        assertEquals( 1,
+                      deployed.assets.size() );
+        assertEquals( first.getUUID(),
+                      deployed.assets.get( 0 ).getUUID() );
+
+        // Removed
+        pkg.loadAsset( "testAssetLinkIndex2" ).remove();
+        repo.save();
+        assertEquals( 4,
+                      repo.countAssetsByCategory( "testAssetLinkIndexCat",
+                                                  true ) );
+    }
+
+    @Test
+    public void testAssetsGoneAreSkipped() throws Exception {
+        RulesRepository repo = getRepo();
+        repo.loadCategory( "/" ).addCategory( "testAssetLinkIndexPruned",
+                                              "" );
+        PackageItem pkg = repo.createPackage( "testAssetLinkIndexPruned",
+                                              "" );
+        for ( int i = 1; i <= 3; i++ ) {
+            pkg.addAsset( "testAssetLinkIndexPruned" + i,
+                          "",
+                          "testAssetLinkIndexPruned",
+                          "drl" );
+        }
+        repo.save();
+        assertEquals( 3,
+                      repo.countAssetsByCategory( "testAssetLinkIndexPruned",
+                                                  false ) );
+
+        // Removed behind the index's back
+        pkg.loadAsset( "testAssetLinkIndexPruned2" ).getNode().remove();
+        repo.save();
+
+        AssetItemPageResult page = repo.findAssetsByCategory( "testAssetLinkIndexPruned",
+                                                              false,
+                                                              0,
+                                                              -1 );
+        assertEquals( 2,
+                      page.assets.size() );
+        // Left in the index, as it may be an asset another session is yet to save
+        assertEquals( 3,
+                      repo.countAssetsByCategory( "testAssetLinkIndexPruned",
+                                                  false ) );
+    }
+
+}
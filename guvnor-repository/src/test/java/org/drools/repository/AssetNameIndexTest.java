@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AssetNameIndexTest extends RepositoryTestCase {
+
+    @Test
+    public void testFindKeptUpToDate() throws Exception {
+        RulesRepository repo = getRepo();
+        AssetNameIndex index = AssetNameIndex.getIndex( repo );
+
+        PackageItem pkg = repo.createPackage( "testAssetNameIndex",
+                                              "" );
+        AssetItem first = pkg.addAsset( "testAssetNameIndexB",
+                                        "" );
+        pkg.addAsset( "testAssetNameIndexA",
+                      "" );
+        repo.save();
+
+        List<AssetNameIndex.Entry> found = index.find( repo,
+                                                       "%AssetNameIndex%",
+                                                       false,
+                                                       true );
+        assertEquals( 2,
+                      found.size() );
+        assertEquals( "testAssetNameIndexA",
+                      found.get( 0 ).getTitle() );
+        assertEquals( "testAssetNameIndex",
+                      found.get( 0 ).getPackageName() );
+
+        // Added once the index is built
+        pkg.addAsset( "testAssetNameIndexC",
+                      "" );
+        repo.save();
+        assertEquals( 3,
+                      index.find( repo,
+                                  "%assetnameindex%",
+                                  false,
+                                  false ).size() );
+        assertEquals( 0,
+                      index.find( repo,
+                                  "%assetnameindex%",
+                                  false,
+                                  true ).size() );
+        assertEquals( 3,
+                      index.find( repo,
+                                  "testAssetNameIndex_",
+                                  false,
+                                  true ).size() );
+
+        // Renamed
+        repo.renameAsset( first.getUUID(),
+                          "testRenamedIndexB" );
+        found = index.find( repo,
+                            "%RenamedIndex%",
+                            false,
+                            true );
+        assertEquals( 1,
+                      found.size() );
+        assertEquals( first.getUUID(),
+                      found.get( 0 ).getUUID() );
+
+        // Title changed (as by the REST API)
+        first = repo.loadAssetByUUID( first.getUUID() );
+        first.updateTitle( "testRetitledIndexB" );
+        first.checkin( "retitled" );
+        assertEquals( 0,
+                      index.find( repo,
+                                  "%RenamedIndex%",
+                                  false,
+                                  true ).size() );
+        assertEquals( 1,
+                      index.find( repo,
+                                  "%RetitledIndex%",
+                                  false,
+                                  true ).size() );
+        first.updateTitle( "testRenamedIndexB" );
+        first.checkin( "renamed back" );
+
+        // Archived
+        first = repo.loadAssetByUUID( first.getUUID() );
+        first.archiveItem( true );
+        first.checkin( "archived" );
+        assertEquals( 0,
+                      index.find( repo,
+                                  "%RenamedIndex%",
+                                  false,
+                                  true ).size() );
+        found = index.find( repo,
+                            "%RenamedIndex%",
+                            true,
+                            true );
+        assertEquals( 1,
+                      found.size() );
+        assertTrue( found.get( 0 ).isArchived() );
+
+        // Removed
+        first.remove();
+        repo.save();
+        assertEquals( 0,
+                      index.find( repo,
+                                  "%RenamedIndex%",
+                                  true,
+                                  true ).size() );
+    }
+
+    @Test
+    public void testToRegex() {
+        assertTrue( AssetNameIndex.toRegex( "%a.b_" ).matcher( "xxa.bc" ).matches() );
+        assertFalse( AssetNameIndex.toRegex( "%a.b_" ).matcher( "xxaxbc" ).matches() );
+        assertFalse( AssetNameIndex.toRegex( "a%" ).matcher( "ba" ).matches() );
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package org.drools.repository;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -557,6 +558,35 @@ public class PackageItemTest extends RepositoryTestCase {
         assertNotNull(rulePackageItem1.toString());
     }
 
+    @Test
+    public void testRemoveRemovesDiscussions() {
+        PackageItem pkg = getRepo().createPackage("testRemoveRemovesDiscussions", "desc");
+        AssetItem asset = pkg.addAsset("testRemoveRemovesDiscussions", "");
+        AssetDiscussion discussion = new AssetDiscussion(getRepo(), asset.getUUID());
+        discussion.append(new AssetDiscussion.Entry("alan_parsons", "note", 1));
+        getRepo().save();
+        assertTrue(discussion.exists());
+
+        pkg.remove();
+        getRepo().save();
+        assertFalse(discussion.exists());
+    }
+
+    @Test
+    public void testBinaryVersionIdIsClearedByNewBinary() {
+        PackageItem pkg = getRepo().createPackage("testBinaryVersionId", "desc");
+        assertNull(pkg.getBinaryVersionId());
+
+        pkg.updateCompiledPackage(new ByteArrayInputStream(new byte[]{1}));
+        pkg.updateBinaryVersionId("abc");
+        getRepo().save();
+        assertEquals("abc", getRepo().loadPackage("testBinaryVersionId").getBinaryVersionId());
+
+        pkg.updateCompiledPackage(new ByteArrayInputStream(new byte[]{2}));
+        getRepo().save();
+        assertNull(getRepo().loadPackage("testBinaryVersionId").getBinaryVersionId());
+    }
+
     @Test
     public void testRemoveRule() {
         PackageItem rulePackageItem1 = getRepo().createPackage("testRemoveRule", "desc");
@@ -943,6 +973,53 @@ public class PackageItemTest extends RepositoryTestCase {
                 dependencies[0]);
      }
 
+    @Test
+    public void testCheckinChecksInNewAssets() throws Exception {
+        PackageItem pkg = getRepo().createPackage("testCheckinChecksInNewAssets", "");
+        AssetItem checkedIn = pkg.addAsset("checkedIn", "");
+        checkedIn.checkin("mine");
+        AssetItem notCheckedIn = pkg.addAsset("notCheckedIn", "");
+        getRepo().save();
+
+        assertTrue(checkedIn.hasBeenCheckedIn());
+        assertFalse(notCheckedIn.hasBeenCheckedIn());
+        long checkedInVersion = checkedIn.getVersionNumber();
+
+        pkg.checkin("package version");
+
+        checkedIn = getRepo().loadAssetByUUID(checkedIn.getUUID());
+        assertEquals(checkedInVersion, checkedIn.getVersionNumber());
+        assertEquals("mine", checkedIn.getCheckinComment());
+
+        notCheckedIn = getRepo().loadAssetByUUID(notCheckedIn.getUUID());
+        assertTrue(notCheckedIn.hasBeenCheckedIn());
+        assertEquals("Package[testCheckinChecksInNewAssets] checked in", notCheckedIn.getCheckinComment());
+        assertEquals("Package[testCheckinChecksInNewAssets] checked in",
+                notCheckedIn.getVersion(notCheckedIn.getVersionNumber()).getCheckinComment());
+        assertEquals("package version", getRepo().loadPackage("testCheckinChecksInNewAssets").getCheckinComment());
+    }
+
+    @Test
+    public void testPinnedVersionsFollowUpdateDependency() throws Exception {
+        PackageItem pkg = getRepo().createPackage("testPinnedVersionsFollowUpdateDependency", "");
+        AssetItem item = pkg.addAsset("testPinnedVersionsAsset", "");
+        item.updateFormat("xyz");
+        item.checkin("version 1");
+        item.checkout();
+        item.checkin("version 2");
+
+        assertTrue(pkg.getPinnedVersions().isEmpty());
+
+        pkg.updateDependency("testPinnedVersionsAsset?version=1");
+        AssetItemIterator it = pkg.listAssetsWithVersionsSpecifiedByDependenciesByFormat("xyz");
+        assertEquals("version 1", it.next().getCheckinComment());
+
+        pkg.updateDependency("testPinnedVersionsAsset?version=LATEST");
+        assertTrue(pkg.getPinnedVersions().isEmpty());
+        it = pkg.listAssetsWithVersionsSpecifiedByDependenciesByFormat("xyz");
+        assertEquals("version 2", it.next().getCheckinComment());
+    }
+
     @Test
     public void testListAssetsByFormatForHistoricalPackage() throws Exception {
     	//Package version 1(Initial version)
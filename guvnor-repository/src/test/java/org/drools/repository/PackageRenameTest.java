@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PackageRenameTest extends RepositoryTestCase {
+
+    @Test
+    public void testRenameInBatches() throws Exception {
+        RulesRepository repo = getRepo();
+        PackageItem pkg = repo.createPackage( "testRenameInBatches",
+                                              "" );
+        for ( int i = 0; i < 5; i++ ) {
+            pkg.addAsset( "testRenameInBatches" + i,
+                          "" );
+        }
+        repo.save();
+
+        final List<Long> progress = new ArrayList<Long>();
+        PackageRename rename = PackageRename.start( repo,
+                                                    pkg.getUUID(),
+                                                    "testRenameInBatches2" );
+        rename.run( 2,
+                    new PackageRename.Listener() {
+                        public void progress(PackageRename rename,
+                                             long done,
+                                             long total) {
+                            assertEquals( 5,
+                                          total );
+                            progress.add( done );
+                        }
+                    } );
+        assertEquals( 3,
+                      progress.size() );
+        assertEquals( 5,
+                      progress.get( 2 ).longValue() );
+
+        for ( Iterator it = repo.loadPackage( "testRenameInBatches2" ).getAssets(); it.hasNext(); ) {
+            AssetItem asset = (AssetItem) it.next();
+            assertEquals( "testRenameInBatches2",
+                          asset.getStringProperty( AssetItem.PACKAGE_NAME_PROPERTY ) );
+        }
+        assertFalse( PackageRename.isRenamedFrom( repo,
+                                                  "testRenameInBatches" ) );
+    }
+
+    @Test
+    public void testAliasUntilResumed() throws Exception {
+        RulesRepository repo = getRepo();
+        PackageItem pkg = repo.createPackage( "testRenameAlias",
+                                              "" );
+        for ( int i = 0; i < 4; i++ ) {
+            pkg.addAsset( "testRenameAlias" + i,
+                          "" );
+        }
+        repo.save();
+
+        // Interrupted after the first batch
+        PackageRename rename = PackageRename.start( repo,
+                                                    pkg.getUUID(),
+                                                    "testRenameAlias2" );
+        assertTrue( rename.step( 1 ) );
+        assertTrue( PackageRename.isRenamedFrom( repo,
+                                                 "testRenameAlias" ) );
+
+        int notYetRenamed = 0;
+        for ( Iterator it = repo.loadPackage( "testRenameAlias2" ).getAssets(); it.hasNext(); ) {
+            AssetItem asset = (AssetItem) it.next();
+            if ( "testRenameAlias".equals( asset.getStringProperty( AssetItem.PACKAGE_NAME_PROPERTY ) ) ) {
+                notYetRenamed++;
+            }
+            assertEquals( "testRenameAlias2",
+                          asset.getPackageName() );
+        }
+        assertEquals( 3,
+                      notYetRenamed );
+
+        try {
+            repo.createPackage( "testRenameAlias",
+                                "" );
+            fail( "The old name is still in use." );
+        } catch ( RulesRepositoryException e ) {
+            assertNotNull( e.getMessage() );
+        }
+
+        assertEquals( 1,
+                      repo.resumePackageRenames() );
+        assertEquals( "testRenameAlias2",
+                      repo.loadPackage( "testRenameAlias2" ).loadAsset( "testRenameAlias3" ).getStringProperty( AssetItem.PACKAGE_NAME_PROPERTY ) );
+        assertFalse( PackageRename.isRenamedFrom( repo,
+                                                  "testRenameAlias" ) );
+        assertEquals( 0,
+                      repo.resumePackageRenames() );
+
+        repo.createPackage( "testRenameAlias",
+                            "" );
+    }
+
+    @Test
+    public void testRenameLeavesAssetsToBeResumed() throws Exception {
+        RulesRepository repo = getRepo();
+        PackageItem pkg = repo.createPackage( "testRenameResumed",
+                                              "" );
+        pkg.addAsset( "testRenameResumed",
+                      "" );
+        repo.save();
+
+        repo.renamePackage( pkg.getUUID(),
+                            "testRenameResumed2" );
+        AssetItem asset = repo.loadPackage( "testRenameResumed2" ).loadAsset( "testRenameResumed" );
+        assertEquals( "testRenameResumed2",
+                      asset.getPackageName() );
+
+        // Not on a session with changes of its own, which a retry would discard
+        asset.updateDescription( "unsaved" );
+        try {
+            repo.resumePackageRenames();
+            fail( "The session has unsaved changes." );
+        } catch ( RulesRepositoryException e ) {
+            assertNotNull( e.getMessage() );
+        }
+        assertEquals( "unsaved",
+                      asset.getDescription() );
+        repo.save();
+
+        assertEquals( 1,
+                      repo.resumePackageRenames() );
+        assertEquals( "testRenameResumed2",
+                      repo.loadPackage( "testRenameResumed2" ).loadAsset( "testRenameResumed" ).getStringProperty( AssetItem.PACKAGE_NAME_PROPERTY ) );
+    }
+
+    @Test
+    public void testRemoveCancelsRename() throws Exception {
+        RulesRepository repo = getRepo();
+        PackageItem pkg = repo.createPackage( "testRemoveCancelsRename",
+                                              "" );
+        pkg.addAsset( "testRemoveCancelsRename",
+                      "" );
+        repo.save();
+
+        repo.renamePackage( pkg.getUUID(),
+                            "testRemoveCancelsRename2" );
+        repo.loadPackage( "testRemoveCancelsRename2" ).remove();
+        repo.save();
+
+        assertFalse( PackageRename.isRenamedFrom( repo,
+                                                  "testRemoveCancelsRename" ) );
+        assertEquals( 0,
+                      repo.resumePackageRenames() );
+    }
+
+}
@@ -969,6 +969,41 @@ public class RulesRepositoryTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testPackageLookupFollowsChanges() throws Exception {
+        RulesRepository repo = getRepo();
+        repo.createPackage( "testPackageLookup",
+                            "" );
+        assertTrue( repo.containsPackage( "testPackageLookup" ) );
+        String uuid = repo.loadPackage( "testPackageLookup" ).getUUID();
+
+        repo.renamePackage( uuid,
+                            "testPackageLookup2" );
+        assertFalse( repo.containsPackage( "testPackageLookup" ) );
+        assertEquals( uuid,
+                      repo.loadPackage( "testPackageLookup2" ).getUUID() );
+
+        // Removed through another session
+        Session s2 = repo.getSession().getRepository().login( new SimpleCredentials( "fdd",
+                                                                                     "password".toCharArray() ) );
+        RulesRepository repo2 = new RulesRepository( s2 );
+        repo2.loadPackage( "testPackageLookup2" ).remove();
+        repo2.save();
+        s2.logout();
+
+        assertFalse( repo.containsPackage( "testPackageLookup2" ) );
+        try {
+            repo.loadPackage( "testPackageLookup2" );
+            fail( "The package was removed." );
+        } catch ( RulesRepositoryException e ) {
+            assertNotNull( e.getMessage() );
+        }
+
+        repo.createPackage( "testPackageLookup2",
+                            "" );
+        assertFalse( uuid.equals( repo.loadPackage( "testPackageLookup2" ).getUUID() ) );
+    }
+
     @Test
     public void testCopyPackage() throws Exception {
         RulesRepository repo = getRepo();
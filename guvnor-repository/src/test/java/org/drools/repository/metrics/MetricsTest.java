@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    @Test
+    public void testTimer() throws Exception {
+        Timer timer = Metrics.timer( "test.timer" );
+        assertTrue( timer == Metrics.timer( "test.timer" ) );
+        timer.reset();
+
+        for ( int i = 0; i < 99; i++ ) {
+            timer.update( 1000000 ); // 1ms
+        }
+        timer.update( 1000000000 ); // 1s
+
+        assertEquals( 100,
+                      timer.getCount() );
+        assertEquals( 1000.0,
+                      timer.getMaxMillis(),
+                      0.001 );
+        assertEquals( 10.99,
+                      timer.getMeanMillis(),
+                      0.001 );
+        // 1ms falls in the bucket up to 1.024ms
+        assertEquals( 1.024,
+                      timer.getPercentileMillis( 0.5 ),
+                      0.001 );
+        assertEquals( 1000.0,
+                      timer.getPercentileMillis( 1 ),
+                      0.001 );
+        assertEquals( 0,
+                      Timer.bucket( 0 ) );
+        assertEquals( Timer.BUCKETS - 1,
+                      Timer.bucket( Long.MAX_VALUE ) );
+    }
+
+    @Test
+    public void testReporting() throws Exception {
+        HitRatio hitRatio = Metrics.hitRatio( "test.cache" );
+        hitRatio.reset();
+        hitRatio.hit();
+        hitRatio.hit();
+        hitRatio.hit();
+        hitRatio.miss();
+        Metrics.counter( "test.counter" ).increment();
+        Metrics.register( "test.gauge",
+                          new Gauge() {
+                              public long getValue() {
+                                  return 42;
+                              }
+                          } );
+        Metrics.timer( "test.reported" ).update( 3000 );
+
+        String json = Metrics.toJSON();
+        assertTrue( json,
+                    json.contains( "\"test.cache\":{\"hits\":3,\"misses\":1,\"ratio\":0.75}" ) );
+        assertTrue( json,
+                    json.contains( "\"test.gauge\":42" ) );
+        assertTrue( json,
+                    json.contains( "\"upToMillis\":0.004,\"count\":" ) );
+
+        Metrics.registerMBean();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( Metrics.OBJECT_NAME );
+            assertEquals( 0.75,
+                          server.getAttribute( name,
+                                               "test.cache.ratio" ) );
+            assertEquals( 42L,
+                          server.getAttribute( name,
+                                               "test.gauge" ) );
+            server.invoke( name,
+                           "reset",
+                           null,
+                           null );
+            assertEquals( 0L,
+                          server.getAttribute( name,
+                                               "test.cache.hits" ) );
+        } finally {
+            Metrics.unregisterMBean();
+            Metrics.unregister( "test.gauge" );
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.repository.migration;
+
+import javax.jcr.Node;
+import javax.jcr.version.VersionHistory;
+
+import org.drools.repository.AssetItem;
+import org.drools.repository.RepositoryTestCase;
+import org.drools.repository.RulesRepository;
+import org.drools.repository.RulesRepositoryAdministrator;
+import org.drools.repository.VersionableItem;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+
+public class MigrateVersionLabelsTest extends RepositoryTestCase {
+
+    @Test
+    public void testMigrateInBatches() throws Exception {
+        RulesRepository repo = getRepo();
+        Node root = repo.getSession().getRootNode().getNode(RulesRepository.RULES_REPOSITORY_NAME);
+        if (root.hasNode(MigrateVersionLabels.MIGRATED_NODE)) {
+            root.getNode(MigrateVersionLabels.MIGRATED_NODE).remove();
+            repo.save();
+        }
+
+        AssetItem asset = repo.loadDefaultPackage().addAsset("testMigrateVersionLabels", "");
+        asset.updateContent("content 1");
+        asset.checkin("version 1");
+        asset.updateContent("content 2");
+        asset.checkin("version 2");
+
+        VersionHistory history = VersionableItem.getVersionManager(asset.getNode()).getVersionHistory(asset.getNode().getPath());
+        String label = VersionableItem.getVersionLabel(asset.getVersionNumber() - 1);
+        history.removeVersionLabel(label);
+
+        MigrateVersionLabels mig = new MigrateVersionLabels(1);
+        assertTrue(mig.needsMigration(repo));
+
+        // Nothing is labelled when a repository is opened, only when asked for
+        new RulesRepository(repo.getSession());
+        assertFalse(history.hasVersionLabel(label));
+
+        RulesRepositoryAdministrator admin = new RulesRepositoryAdministrator(repo.getSession());
+        assertTrue(admin.labelVersions(1) >= 1);
+        assertTrue(history.hasVersionLabel(label));
+        assertFalse(repo.getSession().hasPendingChanges());
+        assertFalse(mig.needsMigration(repo));
+
+        // Once done, it is not done again
+        history.removeVersionLabel(label);
+        assertEquals(0, admin.labelVersions(1));
+        assertFalse(history.hasVersionLabel(label));
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.drools.guvnor.client.rpc;
 
+import java.util.Date;
 import java.util.List;
 
 import com.google.gwt.user.client.rpc.RemoteService;
@@ -141,6 +142,34 @@ public interface AssetService extends RemoteService{
      */
     public String checkinVersion(RuleAsset asset) throws SerializationException;
 
+    /**
+     * Loads a guided decision table without its rows: the meta data and the
+     * column definitions. The rows are then fetched a page at a time with
+     * {@link #loadGuidedDecisionTableRows(String, PageRequest)}.
+     */
+    public RuleAsset loadGuidedDecisionTableColumns(String uuid) throws SerializationException;
+
+    /**
+     * Loads a range of rows of a guided decision table (latest version).
+     */
+    public PageResponse<GuidedDTRowPageRow> loadGuidedDecisionTableRows(String uuid,
+                                                                        PageRequest request) throws SerializationException;
+
+    /**
+     * Checks in a new version of a guided decision table, by applying the
+     * given row changes to the latest version instead of sending the whole
+     * table.
+     * 
+     * @param lastModified
+     *            when the table was loaded, to detect concurrent changes.
+     * @return the UUID of the asset, or an error message starting with "ERR"
+     *         if the table has been updated by someone else in the meantime.
+     */
+    public String checkinGuidedDecisionTableRows(String uuid,
+                                                 Date lastModified,
+                                                 List<GuidedDTRowChange> changes,
+                                                 String comment) throws SerializationException;
+
     /**
      * This will restore the specified version in the repository, saving, and
      * creating a new version (with all the restored content).
@@ -267,8 +296,15 @@ public interface AssetService extends RemoteService{
      */
     public List<DiscussionRecord> loadDiscussionForAsset(String assetId);
 
+    /**
+     * Return the latest discussion items for a given asset, oldest first.
+     */
+    public List<DiscussionRecord> loadLatestDiscussionForAsset(String assetId,
+                                                               int maxRecords);
+
     /**
      * Append a discussion item for the current user.
+     * @return the item that was added only.
      */
     public List<DiscussionRecord> addToDiscussionForAsset(String assetId,
                                                           String comment);
@@ -39,6 +39,9 @@ public interface AssetServiceAsync {
     public void loadRuleAsset(java.lang.String p0, AsyncCallback<org.drools.guvnor.client.rpc.RuleAsset> cb);
     public void loadRuleAssets(java.lang.String[] p0, AsyncCallback<org.drools.guvnor.client.rpc.RuleAsset[]> cb);
     public void checkinVersion(RuleAsset asset, AsyncCallback<java.lang.String> cb);
+    public void loadGuidedDecisionTableColumns(java.lang.String p0, AsyncCallback<org.drools.guvnor.client.rpc.RuleAsset> cb);
+    public void loadGuidedDecisionTableRows(java.lang.String p0, org.drools.guvnor.client.rpc.PageRequest p1, AsyncCallback<org.drools.guvnor.client.rpc.PageResponse<org.drools.guvnor.client.rpc.GuidedDTRowPageRow>> cb);
+    public void checkinGuidedDecisionTableRows(java.lang.String p0, java.util.Date p1, java.util.List<org.drools.guvnor.client.rpc.GuidedDTRowChange> p2, java.lang.String p3, AsyncCallback<java.lang.String> cb);
     public void restoreVersion(String versionUUID, String assetUUID, String comment, AsyncCallback<Void> callback);
     public void loadItemHistory(java.lang.String p0, AsyncCallback<org.drools.guvnor.client.rpc.TableDataResult> cb);
     public void loadAssetHistory(java.lang.String p0, java.lang.String p1, AsyncCallback<org.drools.guvnor.client.rpc.TableDataResult> cb);
@@ -51,6 +54,7 @@ public interface AssetServiceAsync {
     public void promoteAssetToGlobalArea(java.lang.String p0, AsyncCallback cb);
     public void changeAssetPackage(String uuid, String newPackage, String comment, AsyncCallback<Void> callback);
     public void loadDiscussionForAsset(java.lang.String p0, AsyncCallback cb);
+    public void loadLatestDiscussionForAsset(java.lang.String p0, int p1, AsyncCallback cb);
     public void addToDiscussionForAsset(java.lang.String p0, java.lang.String p1, AsyncCallback cb);
     public void clearAllDiscussionsForAsset(java.lang.String p0, AsyncCallback cb);
     public void changeState(java.lang.String p0, java.lang.String p1, AsyncCallback cb);
@@ -21,8 +21,9 @@ import com.google.gwt.user.client.rpc.IsSerializable;
 import java.util.Date;
 
 /**
- * This is a discussion record item - persisted via Discussion.java (xstream) to XML, as a
- * a property on an AssetItem.
+ * This is a discussion record item - persisted via Discussion.java, one record
+ * per comment (older discussions were stored as XML, in a property of the
+ * AssetItem).
  */
 public class DiscussionRecord implements IsSerializable {
 
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011 JBoss Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.drools.guvnor.client.rpc;
+
+import java.util.List;
+
+import org.drools.ide.common.client.modeldriven.dt52.DTCellValue52;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+
+/**
+ * A change to a single row of a guided decision table. Changes are applied in
+ * order, so the row index of each change refers to the table as left by the
+ * changes before it.
+ */
+public class GuidedDTRowChange
+    implements
+    IsSerializable {
+
+    public enum ChangeType {
+        UPDATE, INSERT, DELETE
+    }
+
+    private ChangeType          type;
+    private int                 rowIndex;
+    private List<DTCellValue52> cells;
+
+    // For GWT serialisation
+    public GuidedDTRowChange() {
+    }
+
+    public GuidedDTRowChange(ChangeType type,
+                             int rowIndex,
+                             List<DTCellValue52> cells) {
+        this.type = type;
+        this.rowIndex = rowIndex;
+        this.cells = cells;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    /**
+     * @return the new cells of the row, null for a delete.
+     */
+    public List<DTCellValue52> getCells() {
+        return cells;
+    }
+
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public void setCells(List<DTCellValue52> cells) {
+        this.cells = cells;
+    }
+
+    public void setRowIndex(int rowIndex) {
+        this.rowIndex = rowIndex;
+    }
+
+    public void setType(ChangeType type) {
+        this.type = type;
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011 JBoss Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.drools.guvnor.client.rpc;
+
+import java.util.List;
+
+import org.drools.ide.common.client.modeldriven.dt52.DTCellValue52;
+
+/**
+ * A single row of a guided decision table, for loading large tables a page at
+ * a time.
+ */
+public class GuidedDTRowPageRow extends AbstractPageRow {
+
+    private int                 rowIndex;
+    private List<DTCellValue52> cells;
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public List<DTCellValue52> getCells() {
+        return cells;
+    }
+
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    public void setCells(List<DTCellValue52> cells) {
+        this.cells = cells;
+    }
+
+    public void setRowIndex(int rowIndex) {
+        this.rowIndex = rowIndex;
+    }
+
+}
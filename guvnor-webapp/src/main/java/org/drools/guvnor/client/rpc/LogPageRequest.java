@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 JBoss Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.drools.guvnor.client.rpc;
+
+import java.util.Date;
+
+/**
+ * A Log request, filtering the messages on the server.
+ */
+public class LogPageRequest extends PageRequest {
+
+    private Integer severity; // null for all
+    private String  text;
+    private Date    from;
+    private Date    to;
+
+    // For GWT serialisation
+    public LogPageRequest() {
+    }
+
+    public LogPageRequest(int startRowIndex,
+                          Integer pageSize) {
+        super( startRowIndex,
+               pageSize );
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public Integer getSeverity() {
+        return severity;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public void setSeverity(Integer severity) {
+        this.severity = severity;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+}
@@ -34,6 +34,7 @@ public class PackageConfigData extends Artifact {
     public String[] dependencies;
     
     public PackageConfigData[] subPackages;
+    public int subPackageCount;
 
     public PackageConfigData() {
     }
@@ -123,6 +124,19 @@ public class PackageConfigData extends Artifact {
         return this;
     }
 
+    /**
+     * The number of sub packages, set when the packages are listed one level
+     * at a time (when the sub packages themselves are not loaded).
+     */
+    public int getSubPackageCount() {
+        return subPackageCount;
+    }
+
+    public PackageConfigData setSubPackageCount(int subPackageCount) {
+        this.subPackageCount = subPackageCount;
+        return this;
+    }
+
     
 
     public boolean isGlobal() {
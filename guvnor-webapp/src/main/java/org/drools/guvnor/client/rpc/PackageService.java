@@ -41,6 +41,21 @@ public interface PackageService
      */
     public PackageConfigData[] listArchivedPackages();
 
+    /**
+     * This returns one level of the package tree: the packages directly under
+     * the given package, or the top level packages if the parent is null.
+     * Their sub packages are not loaded, only counted.
+     * 
+     * @param workspace
+     *            only applies to the top level packages, may be null.
+     * @param archived
+     *            whether to return the archived packages rather than the
+     *            others.
+     */
+    public PackageConfigData[] listPackageLevel(String parentUUID,
+                                                String workspace,
+                                                boolean archived);
+
     /**
      * This returns the global packages.
      */
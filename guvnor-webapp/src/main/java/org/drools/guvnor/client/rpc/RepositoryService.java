@@ -95,6 +95,14 @@ public interface RepositoryService
      */
     public void clearRulesRepository();
 
+    /**
+     * Labels the versions checked in before versions were labelled with their
+     * version number. This walks every version history, so it is a one-off
+     * admin task: it does nothing once it has completed.
+     * @return the number of versions that were labelled.
+     */
+    public int labelVersions();
+
     /**
      * This returns a list of workspaces
      */
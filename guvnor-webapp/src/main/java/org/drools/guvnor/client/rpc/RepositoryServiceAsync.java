@@ -40,6 +40,7 @@ public interface RepositoryServiceAsync {
     public void createNewImportedRule(java.lang.String p0, java.lang.String p1, AsyncCallback<java.lang.String> cb);
     public void deleteUncheckedRule(java.lang.String p0, AsyncCallback cb);
     public void clearRulesRepository(AsyncCallback cb);
+    public void labelVersions(AsyncCallback<java.lang.Integer> cb);
     public void listWorkspaces(AsyncCallback<java.lang.String[]> cb);
     public void createWorkspace(java.lang.String p0, AsyncCallback cb);
     public void removeWorkspace(java.lang.String p0, AsyncCallback cb);
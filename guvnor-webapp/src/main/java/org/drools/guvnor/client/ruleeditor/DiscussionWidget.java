@@ -58,6 +58,12 @@ import com.google.gwt.user.client.ui.Widget;
  */
 public class DiscussionWidget extends Composite {
 
+    /**
+     * Only the latest comments are shown, long discussions are not loaded
+     * whole.
+     */
+    private static final int       MAX_COMMENTS     = 50;
+
     private static Constants       constants        = GWT.create( Constants.class );
     private static Images          images           = GWT.create( Images.class );
 
@@ -66,6 +72,7 @@ public class DiscussionWidget extends Composite {
     private Artifact               artifact;
     private ServerPushNotification pushNotify;
     private int                    lastCount        = 0;
+    private long                   lastTimestamp    = 0;
     private boolean         readOnly;
 
     @Override
@@ -109,21 +116,24 @@ public class DiscussionWidget extends Composite {
 
     /** Hit up the server */
     public void refreshDiscussion() {
-        RepositoryServiceFactory.getAssetService().loadDiscussionForAsset( artifact.getUuid(),
-                                                                      new GenericCallback<List<DiscussionRecord>>() {
-                                                                          public void onSuccess(List<DiscussionRecord> result) {
-                                                                              updateCommentList( result );
-                                                                          }
-                                                                      } );
+        RepositoryServiceFactory.getAssetService().loadLatestDiscussionForAsset( artifact.getUuid(),
+                                                                            MAX_COMMENTS,
+                                                                            new GenericCallback<List<DiscussionRecord>>() {
+                                                                                public void onSuccess(List<DiscussionRecord> result) {
+                                                                                    updateCommentList( result );
+                                                                                }
+                                                                            } );
     }
 
     private void updateCommentList(List<DiscussionRecord> ls) {
-        if ( ls.size() == lastCount ) return; //don't want to over do it boys...
+        long timestamp = ls.isEmpty() ? 0 : ls.get( ls.size() - 1 ).timestamp;
+        if ( ls.size() == lastCount && timestamp == lastTimestamp ) return; //don't want to over do it boys...
         commentList.clear();
         for ( DiscussionRecord dr : ls ) {
             appendComment( dr );
         }
         lastCount = ls.size();
+        lastTimestamp = timestamp;
     }
 
     private Widget appendComment(DiscussionRecord r) {
@@ -236,7 +246,7 @@ public class DiscussionWidget extends Composite {
                                                                        new GenericCallback<List<DiscussionRecord>>() {
                                                                            public void onSuccess(List<DiscussionRecord> result) {
                                                                                showNewCommentButton();
-                                                                               updateCommentList( result );
+                                                                               refreshDiscussion();
                                                                            }
                                                                        } );
     }
@@ -26,6 +26,7 @@ import org.drools.guvnor.client.widgets.decoratedgrid.data.DynamicDataRow;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.event.dom.client.ScrollEvent;
 import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.event.logical.shared.ResizeEvent;
 import com.google.gwt.event.logical.shared.ResizeHandler;
@@ -82,6 +83,13 @@ public abstract class DecoratedGridWidget<T> extends Composite {
         scrollPanel = new ScrollPanel();
         scrollPanel.add( gridWidget );
         scrollPanel.addScrollHandler( getScrollHandler() );
+        scrollPanel.addScrollHandler( new ScrollHandler() {
+
+            public void onScroll(ScrollEvent event) {
+                assertViewport();
+            }
+
+        } );
 
         initWidget( mainPanel );
 
@@ -122,6 +130,15 @@ public abstract class DecoratedGridWidget<T> extends Composite {
                                + "px" );
         sidebarWidget.setHeight( scrollPanel.getElement().getClientHeight()
                                  + "px" );
+        assertViewport();
+    }
+
+    /**
+     * Tell the grid which of its rows are visible in the ScrollPanel
+     */
+    public void assertViewport() {
+        gridWidget.setViewport( scrollPanel.getScrollPosition(),
+                                scrollPanel.getElement().getClientHeight() );
     }
 
     /**
@@ -465,6 +465,21 @@ public abstract class MergableGridWidget<T> extends Widget
      */
     public abstract void redraw();
 
+    /**
+     * Inform the grid which part of it is in view (for example when the
+     * containing ScrollPanel is scrolled or resized). Implementations that only
+     * render the rows in view should override this to render more rows as
+     * required.
+     * 
+     * @param scrollTop
+     *            Vertical scroll position, in pixels
+     * @param height
+     *            Height of the visible area, in pixels
+     */
+    public void setViewport(int scrollTop,
+                            int height) {
+    }
+
     /**
      * Redraw table column. Partial redraw
      * 
@@ -842,6 +857,25 @@ public abstract class MergableGridWidget<T> extends Widget
 
     protected abstract void deleteRowElement(int index);
 
+    /**
+     * Offset, in pixels, of the first rendered row from the top of the grid.
+     * This is zero unless an implementation only renders some of the rows.
+     */
+    protected int getRenderedRowsOffsetTop() {
+        return 0;
+    }
+
+    /**
+     * Return the HTML element of the given row
+     * 
+     * @param index
+     *            Row index
+     * @return The row element, or null if the row has not been rendered
+     */
+    protected TableRowElement getRowElement(int index) {
+        return tbody.getRows().getItem( index );
+    }
+
     //Check whether "Grouping" widget has been clicked
     protected boolean isGroupWidgetClicked(Event event,
                                            Element target) {
@@ -941,12 +975,14 @@ public abstract class MergableGridWidget<T> extends Widget
         }
 
         Coordinate hc = cv.getHtmlCoordinate();
-        TableRowElement tre = tbody.getRows().getItem( hc.getRow() )
-                .<TableRowElement> cast();
+        TableRowElement tre = getRowElement( hc.getRow() );
+        if ( tre == null ) {
+            return getEstimatedCellExtents( cv );
+        }
         TableCellElement tce = tre.getCells().getItem( hc.getCol() )
                 .<TableCellElement> cast();
         int offsetX = tce.getOffsetLeft();
-        int offsetY = tce.getOffsetTop();
+        int offsetY = tce.getOffsetTop() + getRenderedRowsOffsetTop();
         int w = tce.getOffsetWidth();
         int h = tce.getOffsetHeight();
         CellSelectionDetail e = new CellSelectionDetail( cv.getCoordinate(),
@@ -957,6 +993,28 @@ public abstract class MergableGridWidget<T> extends Widget
         return e;
     }
 
+    // Extents of a cell whose row has not been rendered, calculated from the
+    // row height and column widths
+    private CellSelectionDetail getEstimatedCellExtents(CellValue< ? extends Comparable< ? >> cv) {
+        Coordinate c = cv.getCoordinate();
+        Coordinate hc = cv.getHtmlCoordinate();
+        int offsetX = 0;
+        for ( int iCol = 0; iCol < c.getCol(); iCol++ ) {
+            DynamicColumn<T> column = columns.get( iCol );
+            if ( column.isVisible() ) {
+                offsetX = offsetX + column.getWidth() + style.borderWidth();
+            }
+        }
+        int rowSpan = Math.max( data.get( hc.getRow() ).get( c.getCol() ).getRowSpan(),
+                                1 );
+        CellSelectionDetail e = new CellSelectionDetail( c,
+                                                         offsetX,
+                                                         hc.getRow() * style.rowHeight(),
+                                                         rowSpan * style.rowHeight(),
+                                                         columns.get( c.getCol() ).getWidth() + style.borderWidth() );
+        return e;
+    }
+
     /**
      * Group a merged cell. If the cell is not merged across at least two rows
      * or the cell is not the top of the merged range no action is taken.
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.drools.guvnor.client.widgets.decoratedgrid;
+
+import org.drools.guvnor.client.widgets.decoratedgrid.data.DynamicData;
+import org.drools.guvnor.client.widgets.decoratedgrid.data.DynamicDataRow;
+
+/**
+ * The range of rows (inclusive) rendered by VerticalMergableGridWidget. This
+ * is every row, unless virtual scrolling, in which case it is the rows in view
+ * plus a buffer either side. The range is extended so that it does not start
+ * or end part way through merged cells.
+ */
+abstract class RowWindow {
+
+    // Rows rendered either side of those in view
+    static final int          BUFFER_ROWS = 30;
+
+    private final DynamicData data;
+    private int               start       = 0;
+    private int               end         = -1;
+
+    RowWindow(DynamicData data) {
+        this.data = data;
+    }
+
+    /**
+     * Whether a column is rendered; merged cells only matter in those that are
+     *
+     * @param iCol
+     * @return
+     */
+    abstract boolean isColumnVisible(int iCol);
+
+    int getStart() {
+        return start;
+    }
+
+    int getEnd() {
+        return end;
+    }
+
+    boolean contains(int iRow) {
+        return iRow >= start
+               && iRow <= end;
+    }
+
+    /**
+     * Set the window to every row
+     */
+    void setAll() {
+        start = 0;
+        end = data.size() - 1;
+    }
+
+    /**
+     * Set the window to the rows in view plus a buffer either side
+     *
+     * @param firstRow
+     *            The first row in view
+     * @param rows
+     *            The number of rows in view
+     */
+    void setViewport(int firstRow,
+                     int rows) {
+        start = alignStart( Math.max( firstRow - BUFFER_ROWS,
+                                      0 ) );
+        end = alignEnd( Math.min( firstRow + rows + BUFFER_ROWS,
+                                  data.size() - 1 ) );
+    }
+
+    /**
+     * Whether all of the rows in view are within the window
+     *
+     * @param firstRow
+     *            The first row in view
+     * @param rows
+     *            The number of rows in view
+     * @return
+     */
+    boolean containsViewport(int firstRow,
+                             int rows) {
+        int lastRow = Math.min( firstRow + rows,
+                                data.size() - 1 );
+        return firstRow >= start
+               && lastRow <= end;
+    }
+
+    /**
+     * A row has been added to the data. The window moves down with the rows
+     * if it was added above the window, or grows if it was added within (or
+     * directly below) it.
+     *
+     * @param index
+     * @return true if the row is within the window, and so needs rendering
+     */
+    boolean insertRow(int index) {
+        if ( index < start ) {
+            start++;
+            end++;
+            return false;
+        }
+        if ( index <= end + 1 ) {
+            end++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A row has been removed from the data. The window moves up with the rows
+     * if it was removed above the window, or shrinks if it was removed from
+     * within it.
+     *
+     * @param index
+     * @return true if the row was within the window, and so was rendered
+     */
+    boolean deleteRow(int index) {
+        if ( index < start ) {
+            start--;
+            end--;
+            return false;
+        }
+        if ( index <= end ) {
+            end--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the window is every row
+     *
+     * @return
+     */
+    boolean isAll() {
+        return start == 0
+               && end == data.size() - 1;
+    }
+
+    /**
+     * Whether the window is within the data and starts and ends on the
+     * boundaries of merged cells
+     *
+     * @return
+     */
+    boolean isAligned() {
+        return end >= start
+               && end <= data.size() - 1
+               && alignStart( start ) == start
+               && alignEnd( end ) == end;
+    }
+
+    // Move the start of the window up to the top of any merged cells
+    private int alignStart(int iRow) {
+        while ( iRow > 0
+                && isMergedWithRowAbove( iRow ) ) {
+            iRow--;
+        }
+        return iRow;
+    }
+
+    // Move the end of the window down to the bottom of any merged cells
+    private int alignEnd(int iRow) {
+        while ( iRow < data.size() - 1
+                && isMergedWithRowAbove( iRow + 1 ) ) {
+            iRow++;
+        }
+        return iRow;
+    }
+
+    // Whether any visible cell in the row is part of a merged cell above
+    private boolean isMergedWithRowAbove(int iRow) {
+        DynamicDataRow rowData = data.get( iRow );
+        for ( int iCol = 0; iCol < rowData.size(); iCol++ ) {
+            if ( isColumnVisible( iCol )
+                 && rowData.get( iCol ).getRowSpan() == 0 ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
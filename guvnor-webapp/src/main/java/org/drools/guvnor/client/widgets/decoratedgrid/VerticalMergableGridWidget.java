@@ -30,7 +30,6 @@ import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.EventTarget;
 import com.google.gwt.dom.client.NativeEvent;
-import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.dom.client.TableCellElement;
 import com.google.gwt.dom.client.TableRowElement;
@@ -43,11 +42,73 @@ import com.google.gwt.user.client.Event;
 /**
  * A Vertical implementation of MergableGridWidget, that renders columns as erm,
  * columns and rows as rows. Supports merging of cells between rows.
+ * <p>
+ * Large tables are rendered with "virtual scrolling": only a window of rows
+ * around those in view is rendered, with the space for the remaining rows
+ * reserved by the table's top and bottom margins. The window is extended so
+ * that it never splits merged cells, which keeps the HTML coordinates of the
+ * model valid within the window (offset by the window start).
  */
 public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
 
+    /**
+     * Tables with more rows than this only render the rows in view, when
+     * virtual scrolling is enabled
+     */
+    public static final int          VIRTUAL_SCROLLING_THRESHOLD = 500;
+
+    // Rows assumed to be in view until the size of the viewport is known
+    static final int                 DEFAULT_VIEWPORT_ROWS       = 50;
+
     //Deferred binding creates an appropriate class depending on browser
-    private CellHeightCalculatorImpl cellHeightCalculator = GWT.create( CellHeightCalculatorImpl.class );
+    private CellHeightCalculatorImpl cellHeightCalculator        = GWT.create( CellHeightCalculatorImpl.class );
+
+    private boolean                  isVirtualScrollingEnabled   = true;
+    private int                      viewportTop                 = 0;
+    private int                      viewportHeight              = -1;
+
+    // Range of rows rendered in tbody
+    private final RowWindow          window                      = new ColumnsRowWindow();
+
+    // Cell selected while its row was not rendered, to be focused once it is
+    private CellValue< ? >           pendingFocusCell;
+
+    /**
+     * Enable or disable virtual scrolling (enabled by default). Redraws the
+     * grid.
+     * 
+     * @param isVirtualScrollingEnabled
+     */
+    public void setVirtualScrollingEnabled(boolean isVirtualScrollingEnabled) {
+        this.isVirtualScrollingEnabled = isVirtualScrollingEnabled;
+        redraw();
+    }
+
+    /**
+     * Return whether only the rows in view are rendered
+     * 
+     * @return
+     */
+    public boolean isVirtualScrolling() {
+        return isVirtualScrollingEnabled
+               && data.size() > VIRTUAL_SCROLLING_THRESHOLD;
+    }
+
+    @Override
+    public void setViewport(int scrollTop,
+                            int height) {
+        this.viewportTop = scrollTop;
+        this.viewportHeight = height;
+        if ( !isVirtualScrolling() ) {
+            return;
+        }
+
+        // Only redraw when rows in view have not been rendered
+        if ( !window.containsViewport( getFirstViewportRow(),
+                                       getViewportRows() ) ) {
+            redraw();
+        }
+    }
 
     @Override
     public void onBrowserEvent(Event event) {
@@ -77,7 +138,7 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             return;
         }
         TableRowElement tr = TableRowElement.as( trElem );
-        int htmlRow = tr.getSectionRowIndex();
+        int htmlRow = tr.getSectionRowIndex() + window.getStart();
 
         // Convert HTML coordinates to physical coordinates
         CellValue< ? > htmlCell = data.get( htmlRow ).get( htmlCol );
@@ -119,7 +180,11 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
                         break;
                 }
                 eventPhysicalCoordinate = eventPhysicalCell.getCoordinate();
-                eventTableCell = tbody.getRows().getItem( eventPhysicalCell.getHtmlCoordinate().getRow() ).getCells().getItem( eventPhysicalCell.getHtmlCoordinate().getCol() );
+                TableRowElement eventTableRow = getRowElement( eventPhysicalCell.getHtmlCoordinate().getRow() );
+                if ( eventTableRow == null ) {
+                    return;
+                }
+                eventTableCell = eventTableRow.getCells().getItem( eventPhysicalCell.getHtmlCoordinate().getCol() );
             }
         }
 
@@ -146,9 +211,11 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
     @Override
     public void redraw() {
 
+        calculateWindow();
+
         TableSectionElement nbody = Document.get().createTBodyElement();
 
-        for ( int iRow = 0; iRow < data.size(); iRow++ ) {
+        for ( int iRow = window.getStart(); iRow <= window.getEnd(); iRow++ ) {
 
             DynamicDataRow rowData = data.get( iRow );
 
@@ -163,6 +230,8 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
         table.replaceChild( nbody,
                             tbody );
         tbody = nbody;
+        setWindowMargins();
+        focusPendingCell();
 
     }
 
@@ -175,8 +244,8 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             throw new IllegalArgumentException( "index cannot be greater than the number of defined columns." );
         }
 
-        for ( int iRow = 0; iRow < data.size(); iRow++ ) {
-            TableRowElement tre = tbody.getRows().getItem( iRow );
+        for ( int iRow = window.getStart(); iRow <= window.getEnd(); iRow++ ) {
+            TableRowElement tre = getRowElement( iRow );
             DynamicDataRow rowData = data.get( iRow );
             redrawTableRowElement( rowData,
                                    tre,
@@ -205,8 +274,8 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             throw new IllegalArgumentException( "startRedrawIndex cannot be greater than endRedrawIndex." );
         }
 
-        for ( int iRow = 0; iRow < data.size(); iRow++ ) {
-            TableRowElement tre = tbody.getRows().getItem( iRow );
+        for ( int iRow = window.getStart(); iRow <= window.getEnd(); iRow++ ) {
+            TableRowElement tre = getRowElement( iRow );
             DynamicDataRow rowData = data.get( iRow );
             redrawTableRowElement( rowData,
                                    tre,
@@ -227,11 +296,14 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
 
         col.setWidth( width );
         int iCol = col.getColumnIndex();
-        for ( DynamicDataRow row : data ) {
-            CellValue< ? extends Comparable< ? >> cell = row
+        for ( int iRow = window.getStart(); iRow <= window.getEnd(); iRow++ ) {
+            CellValue< ? extends Comparable< ? >> cell = data.get( iRow )
                     .get( iCol );
             Coordinate c = cell.getHtmlCoordinate();
-            TableRowElement tre = tbody.getRows().getItem( c.getRow() );
+            TableRowElement tre = getRowElement( c.getRow() );
+            if ( tre == null ) {
+                continue;
+            }
             TableCellElement tce = tre.getCells().getItem( c.getCol() );
             DivElement div = tce.getFirstChild().<DivElement> cast();
             DivElement divText = tce.getFirstChild().getFirstChild().<DivElement> cast();
@@ -264,14 +336,76 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
 
     // Row styles need to be re-applied after inserting and deleting rows
     private void fixRowStyles(int iRow) {
-        while ( iRow < tbody.getChildCount() ) {
-            Element e = Element.as( tbody.getChild( iRow ) );
-            TableRowElement tre = TableRowElement.as( e );
+        iRow = Math.max( iRow,
+                         window.getStart() );
+        while ( iRow <= window.getEnd() ) {
+            TableRowElement tre = getRowElement( iRow );
             tre.setClassName( getRowStyle( iRow ) );
             iRow++;
         }
     }
 
+    // Set the range of rows to render; all rows unless virtual scrolling, in
+    // which case the rows in view plus a buffer either side
+    private void calculateWindow() {
+        if ( !isVirtualScrolling() ) {
+            window.setAll();
+            return;
+        }
+        window.setViewport( getFirstViewportRow(),
+                            getViewportRows() );
+    }
+
+    private int getFirstViewportRow() {
+        return Math.max( Math.min( viewportTop / style.rowHeight(),
+                                   data.size() - 1 ),
+                         0 );
+    }
+
+    private int getViewportRows() {
+        if ( viewportHeight <= 0 ) {
+            return DEFAULT_VIEWPORT_ROWS;
+        }
+        return viewportHeight / style.rowHeight() + 1;
+    }
+
+    // Whether the rendered rows need to be redrawn from scratch, as they are
+    // not all rows when virtual scrolling is not (or no longer) needed or the
+    // window no longer starts and ends on the boundaries of merged cells
+    private boolean isWindowInvalid() {
+        if ( !isVirtualScrolling() ) {
+            return !window.isAll();
+        }
+        return !window.isAligned();
+    }
+
+    // Reserve the space of the rows above and below the window
+    private void setWindowMargins() {
+        int rowHeight = style.rowHeight();
+        table.getStyle().setMarginTop( window.getStart() * rowHeight,
+                                       Unit.PX );
+        table.getStyle().setMarginBottom( Math.max( data.size() - 1 - window.getEnd(),
+                                                    0 ) * rowHeight,
+                                          Unit.PX );
+    }
+
+    // Focus a cell that was selected before its row was rendered
+    private void focusPendingCell() {
+        if ( pendingFocusCell == null ) {
+            return;
+        }
+        CellValue< ? extends Comparable< ? >> cell = pendingFocusCell;
+        if ( !cell.isSelected() ) {
+            pendingFocusCell = null;
+            return;
+        }
+        TableRowElement tre = getRowElement( cell.getHtmlCoordinate().getRow() );
+        if ( tre != null ) {
+            pendingFocusCell = null;
+            tre.getCells().getItem( cell.getHtmlCoordinate().getCol() ).focus();
+        }
+    }
+
     // Get style applicable to row
     private String getRowStyle(int iRow) {
         String evenRowStyle = style.cellTableEvenRow();
@@ -531,23 +665,60 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
 
     @Override
     protected void createEmptyRowElement(int index) {
-        tbody.insertRow( index );
-        fixRowStyles( index );
+        insertRowIntoWindow( index );
     }
 
     @Override
     protected void createRowElement(int index,
                                     DynamicDataRow rowData) {
-        TableRowElement tre = tbody.insertRow( index );
-        populateTableRowElement( tre,
-                                 rowData );
-        fixRowStyles( index );
+        TableRowElement tre = insertRowIntoWindow( index );
+        if ( tre != null ) {
+            populateTableRowElement( tre,
+                                     rowData );
+        }
+        if ( isWindowInvalid() ) {
+            redraw();
+        }
     }
 
     @Override
     protected void deleteRowElement(int index) {
-        Node tre = tbody.getChild( index );
-        tbody.removeChild( tre );
+        deleteRowFromWindow( index );
+    }
+
+    @Override
+    protected int getRenderedRowsOffsetTop() {
+        return window.getStart() * style.rowHeight();
+    }
+
+    @Override
+    protected TableRowElement getRowElement(int index) {
+        if ( !window.contains( index ) ) {
+            return null;
+        }
+        return tbody.getRows().getItem( index - window.getStart() );
+    }
+
+    // A row has been added to the data. Insert an empty row element if it is
+    // within the rendered rows, otherwise move the window with the rows.
+    private TableRowElement insertRowIntoWindow(int index) {
+        TableRowElement tre = null;
+        if ( window.insertRow( index ) ) {
+            tre = tbody.insertRow( index - window.getStart() );
+            fixRowStyles( index );
+        }
+        setWindowMargins();
+        return tre;
+    }
+
+    // A row has been removed from the data. Remove its row element if it is
+    // within the rendered rows, otherwise move the window with the rows.
+    private void deleteRowFromWindow(int index) {
+        if ( window.deleteRow( index ) ) {
+            tbody.deleteRow( index - window.getStart() );
+            fixRowStyles( index );
+        }
+        setWindowMargins();
     }
 
     @Override
@@ -569,7 +740,16 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             throw new IllegalArgumentException( "startRedrawIndex cannot be greater than endRedrawIndex." );
         }
 
-        //Redraw replacement rows
+        if ( isWindowInvalid() ) {
+            redraw();
+            return;
+        }
+
+        //Redraw replacement rows, that have been rendered
+        startRedrawIndex = Math.max( startRedrawIndex,
+                                     window.getStart() );
+        endRedrawIndex = Math.min( endRedrawIndex,
+                                   window.getEnd() );
         for ( int iRow = startRedrawIndex; iRow <= endRedrawIndex; iRow++ ) {
 
             DynamicDataRow rowData = data.get( iRow );
@@ -578,7 +758,7 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             populateTableRowElement( tre,
                                      rowData );
             tbody.replaceChild( tre,
-                                tbody.getChild( iRow ) );
+                                getRowElement( iRow ) );
         }
 
         fixRowStyles( startRedrawIndex );
@@ -592,8 +772,10 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
         if ( index > data.size() ) {
             throw new IllegalArgumentException( "Index cannot be greater than the number of rows." );
         }
-        tbody.deleteRow( index );
-        fixRowStyles( index );
+        deleteRowFromWindow( index );
+        if ( isWindowInvalid() ) {
+            redraw();
+        }
     }
 
     @Override
@@ -603,9 +785,16 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             throw new IllegalArgumentException( "cell cannot be null" );
         }
 
+        if ( cell == pendingFocusCell ) {
+            pendingFocusCell = null;
+        }
+
+        //Rows outside of the virtual scrolling window are not rendered
         Coordinate hc = cell.getHtmlCoordinate();
-        TableRowElement tre = tbody.getRows().getItem( hc.getRow() )
-                .<TableRowElement> cast();
+        TableRowElement tre = getRowElement( hc.getRow() );
+        if ( tre == null ) {
+            return;
+        }
         TableCellElement tce = tre.getCells().getItem( hc.getCol() )
                 .<TableCellElement> cast();
 
@@ -638,13 +827,13 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             throw new IllegalArgumentException( "index cannot be greater than the number of rows" );
         }
 
-        for ( int iRow = 0; iRow < data.size(); iRow++ ) {
+        for ( int iRow = window.getStart(); iRow <= window.getEnd(); iRow++ ) {
             DynamicDataRow rowData = data.get( iRow );
             CellValue< ? extends Comparable< ? >> cell = rowData.get( index );
 
             if ( cell.getRowSpan() > 0 ) {
                 Coordinate hc = cell.getHtmlCoordinate();
-                TableRowElement tre = tbody.getRows().getItem( hc.getRow() );
+                TableRowElement tre = getRowElement( hc.getRow() );
                 TableCellElement tce = tre.getCells().getItem( hc.getCol() );
                 tre.removeChild( tce );
             }
@@ -657,9 +846,14 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             throw new IllegalArgumentException( "cell cannot be null" );
         }
 
+        //Rows outside of the virtual scrolling window are not rendered; the
+        //cell is focused once its row is rendered
         Coordinate hc = cell.getHtmlCoordinate();
-        TableRowElement tre = tbody.getRows().getItem( hc.getRow() )
-                .<TableRowElement> cast();
+        TableRowElement tre = getRowElement( hc.getRow() );
+        if ( tre == null ) {
+            pendingFocusCell = cell;
+            return;
+        }
         TableCellElement tce = tre.getCells().getItem( hc.getCol() )
                 .<TableCellElement> cast();
 
@@ -683,7 +877,11 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
             throw new IllegalArgumentException( "index cannot be greater than the number of rows" );
         }
 
-        for ( int iRow = 0; iRow < data.size(); iRow++ ) {
+        if ( isWindowInvalid() ) {
+            redraw();
+            return;
+        }
+        for ( int iRow = window.getStart(); iRow <= window.getEnd(); iRow++ ) {
             DynamicDataRow rowData = data.get( iRow );
             TableCellElement tce = makeTableCellElement( index,
                                                          rowData );
@@ -692,7 +890,7 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
                 CellValue< ? extends Comparable< ? >> cell = rowData.get( index );
                 Coordinate hc = cell.getHtmlCoordinate();
 
-                TableRowElement tre = tbody.getRows().getItem( hc.getRow() );
+                TableRowElement tre = getRowElement( hc.getRow() );
                 TableCellElement ntce = tre.insertCell( hc.getCol() );
                 tre.replaceChild( tce,
                                   ntce );
@@ -700,4 +898,18 @@ public class VerticalMergableGridWidget<T> extends MergableGridWidget<T> {
         }
     }
 
+    // Only merged cells in visible columns are rendered
+    private class ColumnsRowWindow extends RowWindow {
+
+        ColumnsRowWindow() {
+            super( data );
+        }
+
+        @Override
+        boolean isColumnVisible(int iCol) {
+            return columns.get( iCol ).isVisible();
+        }
+
+    }
+
 }
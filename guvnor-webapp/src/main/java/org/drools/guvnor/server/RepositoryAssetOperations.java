@@ -19,8 +19,10 @@ import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.drools.guvnor.client.common.AssetFormats;
@@ -29,7 +31,9 @@ import org.drools.guvnor.client.rpc.AssetPageRequest;
 import org.drools.guvnor.client.rpc.AssetPageRow;
 import org.drools.guvnor.client.rpc.BuilderResult;
 import org.drools.guvnor.client.rpc.BuilderResultLine;
+import org.drools.guvnor.client.rpc.DetailedSerializationException;
 import org.drools.guvnor.client.rpc.DiscussionRecord;
+import org.drools.guvnor.client.rpc.GuidedDTRowChange;
 import org.drools.guvnor.client.rpc.MetaData;
 import org.drools.guvnor.client.rpc.PackageConfigData;
 import org.drools.guvnor.client.rpc.PageRequest;
@@ -52,9 +56,11 @@ import org.drools.guvnor.server.contenthandler.BPMN2ProcessHandler;
 import org.drools.guvnor.server.contenthandler.ContentHandler;
 import org.drools.guvnor.server.contenthandler.ContentManager;
 import org.drools.guvnor.server.contenthandler.FactModelContentHandler;
+import org.drools.guvnor.server.contenthandler.GuidedDTContentHandler;
 import org.drools.guvnor.server.contenthandler.ICanRenderSource;
 import org.drools.guvnor.server.contenthandler.IRuleAsset;
 import org.drools.guvnor.server.repository.MailboxService;
+import org.drools.guvnor.server.security.PackageNameType;
 import org.drools.guvnor.server.security.RoleType;
 import org.drools.guvnor.server.util.AssetFormatHelper;
 import org.drools.guvnor.server.util.AssetLockManager;
@@ -62,8 +68,10 @@ import org.drools.guvnor.server.util.Discussion;
 import org.drools.guvnor.server.util.LoggingHelper;
 import org.drools.guvnor.server.util.MetaDataMapper;
 import org.drools.guvnor.server.util.TableDisplayHandler;
+import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
 import org.drools.repository.AssetItem;
 import org.drools.repository.AssetItemIterator;
+import org.drools.repository.AssetNameIndex;
 import org.drools.repository.CategoryItem;
 import org.drools.repository.PackageItem;
 import org.drools.repository.RepositoryFilter;
@@ -108,8 +116,9 @@ public class RepositoryAssetOperations {
                     .getHandler( asset.metaData.format );
             AssetItem item = getRulesRepository().loadAssetByUUID( asset.uuid );
 
-            handler.storeAssetContent( asset,
-                                       item );
+            ContentManager.storeAssetContent( handler,
+                                              asset,
+                                              item );
 
             AssetItemValidator assetItemValidator = new AssetItemValidator( handler,
                                                                             item );
@@ -151,8 +160,9 @@ public class RepositoryAssetOperations {
         repoAsset.updateDescription( asset.getDescription() );
 
         ContentHandler handler = ContentManager.getHandler( repoAsset.getFormat() );
-        handler.storeAssetContent( asset,
-                                   repoAsset );
+        ContentManager.storeAssetContent( handler,
+                                          asset,
+                                          repoAsset );
 
         if ( !(asset.getMetaData().getFormat().equals( AssetFormats.TEST_SCENARIO )) || asset.getMetaData().getFormat().equals( AssetFormats.ENUMERATION ) ) {
             PackageItem pkg = repoAsset.getPackage();
@@ -164,6 +174,33 @@ public class RepositoryAssetOperations {
         return repoAsset.getUUID();
     }
 
+    /**
+     * Checks in a guided decision table by applying row changes to its latest
+     * content, rather than storing a whole table sent by the client.
+     */
+    public String checkinGuidedDecisionTableRows(AssetItem repoAsset,
+                                                 GuidedDTContentHandler handler,
+                                                 Date lastModified,
+                                                 List<GuidedDTRowChange> changes,
+                                                 String comment) throws DetailedSerializationException {
+        if ( lastModified.before( repoAsset.getLastModified().getTime() ) ) {
+            return "ERR: Unable to save this asset, as it has been recently updated by [" + repoAsset.getLastContributor() + "]";
+        }
+
+        GuidedDecisionTable52 model = handler.storeRowChanges( changes,
+                                                               repoAsset );
+
+        PackageItem pkg = repoAsset.getPackage();
+        pkg.updateBinaryUpToDate( false );
+        RuleBaseCache.getInstance().remove( pkg.getUUID() );
+
+        repoAsset.checkin( comment );
+        handler.cacheModel( repoAsset,
+                            model );
+
+        return repoAsset.getUUID();
+    }
+
     private Calendar dateToCalendar(Date date) {
         if ( date == null ) {
             return null;
@@ -453,8 +490,9 @@ public class RepositoryAssetOperations {
                 AssetItem item = getRulesRepository().loadAssetByUUID(
                                                                        asset.getUuid() );
 
-                handler.storeAssetContent( asset,
-                                           item );
+                ContentManager.storeAssetContent( handler,
+                                                  asset,
+                                                  item );
                 ((IRuleAsset) handler).assembleDRL( builder,
                                                     item,
                                                     stringBuilder );
@@ -527,23 +565,45 @@ public class RepositoryAssetOperations {
 
         // Do query
         long start = System.currentTimeMillis();
-        AssetItemIterator iterator = getRulesRepository().findAssetsByName( search,
-                                                                            request.isSearchArchived(),
-                                                                            request.isCaseSensitive() );
+        List<AssetNameIndex.Entry> entries = AssetNameIndex.getIndex( getRulesRepository() ).find( getRulesRepository(),
+                                                                                                   search,
+                                                                                                   request.isSearchArchived(),
+                                                                                                   request.isCaseSensitive() );
         log.debug( "Search time: " + (System.currentTimeMillis() - start) );
 
+        // Filter surplus assets, checking each package once
+        List<AssetNameIndex.Entry> readableEntries = new ArrayList<AssetNameIndex.Entry>();
+        Map<String, Boolean> readablePackages = new HashMap<String, Boolean>();
+        for ( AssetNameIndex.Entry entry : entries ) {
+            Boolean readable = readablePackages.get( entry.getPackageName() );
+            if ( readable == null ) {
+                readable = !Contexts.isSessionContextActive()
+                           || Identity.instance().hasPermission( new PackageNameType( entry.getPackageName() ),
+                                                                 RoleType.PACKAGE_READONLY.getName() );
+                readablePackages.put( entry.getPackageName(),
+                                      readable );
+            }
+            if ( readable ) {
+                readableEntries.add( entry );
+            }
+        }
+
         // Populate response
-        long totalRowsCount = iterator.getSize();
+        long totalRowsCount = readableEntries.size();
 
         List<QueryPageRow> rowList = new QuickFindPageRowBuilder()
                 .withPageRequest( request )
-                .withContent( iterator )
+                .withContent( readableEntries )
+                .withRulesRepository( getRulesRepository() )
                 .build();
 
+        Integer pageSize = request.getPageSize();
+        boolean lastPage = pageSize == null || request.getStartRowIndex() + pageSize >= totalRowsCount;
+
         PageResponse<QueryPageRow> response = new PageResponseBuilder<QueryPageRow>()
                 .withStartRowIndex( request.getStartRowIndex() )
                 .withPageRowList( rowList )
-                .withLastPage( !iterator.hasNext() )
+                .withLastPage( lastPage )
                 .buildWithTotalRowCount( totalRowsCount );
 
         long methodDuration = System.currentTimeMillis() - start;
@@ -598,8 +658,9 @@ public class RepositoryAssetOperations {
 
         asset.setMetaData( populateMetaData( item ) );
         ContentHandler handler = ContentManager.getHandler( asset.getMetaData().getFormat() );
-        handler.retrieveAssetContent( asset,
-                                      item );
+        ContentManager.retrieveAssetContent( handler,
+                                             asset,
+                                             item );
 
         return asset;
     }
@@ -657,8 +718,7 @@ public class RepositoryAssetOperations {
     protected void clearAllDiscussionsForAsset(final String assetId) {
         RulesRepository repo = getRulesRepository();
         AssetItem asset = repo.loadAssetByUUID( assetId );
-        asset.updateStringProperty( "",
-                                    "discussion" );
+        new Discussion().clearDiscussion( asset );
         repo.save();
 
         push( "discussion",
@@ -670,12 +730,10 @@ public class RepositoryAssetOperations {
         RulesRepository repository = getRulesRepository();
         AssetItem asset = repository.loadAssetByUUID( assetId );
         Discussion dp = new Discussion();
-        List<DiscussionRecord> discussion = dp.fromString( asset.getStringProperty( Discussion.DISCUSSION_PROPERTY_KEY ) );
-        discussion.add( new DiscussionRecord( repository.getSession().getUserID(),
-                                              StringEscapeUtils.escapeXml( comment ) ) );
-        asset.updateStringProperty( dp.toString( discussion ),
-                                    Discussion.DISCUSSION_PROPERTY_KEY,
-                                    false );
+        DiscussionRecord record = new DiscussionRecord( repository.getSession().getUserID(),
+                                                        StringEscapeUtils.escapeXml( comment ) );
+        dp.addToDiscussion( asset,
+                            record );
         repository.save();
 
         push( "discussion",
@@ -683,7 +741,10 @@ public class RepositoryAssetOperations {
 
         MailboxService.getInstance().recordItemUpdated( asset );
 
-        return discussion;
+        //Not the whole thread again, the discussion is reloaded by the page anyway
+        List<DiscussionRecord> added = new ArrayList<DiscussionRecord>();
+        added.add( record );
+        return added;
     }
 
     private void push(String messageType,
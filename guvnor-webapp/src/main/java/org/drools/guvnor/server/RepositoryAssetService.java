@@ -20,6 +20,7 @@ import org.drools.guvnor.client.rpc.*;
 import org.drools.guvnor.server.cache.RuleBaseCache;
 import org.drools.guvnor.server.contenthandler.ContentHandler;
 import org.drools.guvnor.server.contenthandler.ContentManager;
+import org.drools.guvnor.server.contenthandler.GuidedDTContentHandler;
 import org.drools.guvnor.server.contenthandler.ICanHasAttachment;
 import org.drools.guvnor.server.repository.UserInbox;
 import org.drools.guvnor.server.security.CategoryPathType;
@@ -40,10 +41,15 @@ import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.security.Identity;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 @Name("org.drools.guvnor.client.rpc.AssetService")
 @AutoCreate
@@ -95,6 +101,18 @@ public class RepositoryAssetService
         long time = System.currentTimeMillis();
 
         AssetItem item = getRulesRepository().loadAssetByUUID(uuid);
+        RuleAsset asset = populateReadableAsset(item);
+
+        PackageItem pkgItem = handlePackageItem(item,
+                asset);
+
+        log.debug("Package: " + pkgItem.getName() + ", asset: " + item.getName() + ". Load time taken for asset: " + (System.currentTimeMillis() - time));
+        UserInbox.recordOpeningEvent(item);
+        return asset;
+
+    }
+
+    private RuleAsset populateReadableAsset(AssetItem item) {
         RuleAsset asset = new RuleAssetPopulator().populateFrom(item);
 
         asset.setMetaData(repositoryAssetOperations.populateMetaData(item));
@@ -107,14 +125,83 @@ public class RepositoryAssetService
                 handleExceptionAndVerifyCategoryBasedPermission(asset);
             }
         }
+        return asset;
+    }
 
-        PackageItem pkgItem = handlePackageItem(item,
-                asset);
+    /**
+     * Loads a guided decision table without its rows. Same permissions as
+     * {@link #loadRuleAsset(String)}.
+     */
+    @WebRemote
+    @Restrict("#{identity.loggedIn}")
+    public RuleAsset loadGuidedDecisionTableColumns(String uuid) throws SerializationException {
+        AssetItem item = getRulesRepository().loadAssetByUUID(uuid);
+        RuleAsset asset = populateReadableAsset(item);
+
+        getGuidedDTContentHandler(item).retrieveAssetColumns(asset,
+                item);
+
+        asset.setReadonly(asset.getMetaData().isHasSucceedingVersion() || item.getPackage().isSnapshot());
 
-        log.debug("Package: " + pkgItem.getName() + ", asset: " + item.getName() + ". Load time taken for asset: " + (System.currentTimeMillis() - time));
         UserInbox.recordOpeningEvent(item);
         return asset;
+    }
+
+    /**
+     * Loads a page of rows of a guided decision table. Same permissions as
+     * {@link #loadRuleAsset(String)}.
+     */
+    @WebRemote
+    @Restrict("#{identity.loggedIn}")
+    public PageResponse<GuidedDTRowPageRow> loadGuidedDecisionTableRows(String uuid,
+                                                                        PageRequest request) throws SerializationException {
+        if (request == null) {
+            throw new IllegalArgumentException("request cannot be null");
+        }
+        if (request.getPageSize() != null && request.getPageSize() < 0) {
+            throw new IllegalArgumentException("pageSize cannot be less than zero.");
+        }
+
+        AssetItem item = getRulesRepository().loadAssetByUUID(uuid);
+        populateReadableAsset(item);
 
+        return getGuidedDTContentHandler(item).loadRows(item,
+                request);
+    }
+
+    /**
+     * Checks in a guided decision table by applying row changes. Same
+     * permissions as {@link #checkinVersion(RuleAsset)}.
+     */
+    @WebRemote
+    @Restrict("#{identity.loggedIn}")
+    public String checkinGuidedDecisionTableRows(String uuid,
+                                                 Date lastModified,
+                                                 List<GuidedDTRowChange> changes,
+                                                 String comment) throws SerializationException {
+        AssetItem item = getRulesRepository().loadAssetByUUID(uuid);
+        List<CategoryItem> categoryItems = item.getCategories();
+        String[] categories = new String[categoryItems.size()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = categoryItems.get(i).getFullPath();
+        }
+        checkSecurityCanCheckin(item.getPackageName(),
+                categories);
+
+        log.info("USER:" + getCurrentUserName() + " CHECKING IN asset: [" + item.getName() + "] UUID: [" + item.getUUID() + "] (" + changes.size() + " row changes)");
+        return repositoryAssetOperations.checkinGuidedDecisionTableRows(item,
+                getGuidedDTContentHandler(item),
+                lastModified,
+                changes,
+                comment);
+    }
+
+    private GuidedDTContentHandler getGuidedDTContentHandler(AssetItem item) {
+        ContentHandler handler = ContentManager.getHandler(item.getFormat());
+        if (!(handler instanceof GuidedDTContentHandler)) {
+            throw new RulesRepositoryException("The asset [" + item.getName() + "] is not a guided decision table.");
+        }
+        return (GuidedDTContentHandler) handler;
     }
 
     private PackageItem handlePackageItem(AssetItem item,
@@ -122,7 +209,8 @@ public class RepositoryAssetService
         PackageItem packageItem = item.getPackage();
 
         ContentHandler handler = ContentManager.getHandler(asset.getMetaData().getFormat());
-        handler.retrieveAssetContent(asset,
+        ContentManager.retrieveAssetContent(handler,
+                asset,
                 item);
 
         asset.setReadonly(asset.getMetaData().isHasSucceedingVersion());
@@ -153,6 +241,15 @@ public class RepositoryAssetService
      */
     public String checkinVersion(RuleAsset asset) throws SerializationException {
 
+        checkSecurityCanCheckin(asset.getMetaData().getPackageName(),
+                asset.getMetaData().getCategories());
+
+        log.info("USER:" + getCurrentUserName() + " CHECKING IN asset: [" + asset.getName() + "] UUID: [" + asset.getUuid() + "] ");
+        return repositoryAssetOperations.checkinVersion(asset);
+    }
+
+    private void checkSecurityCanCheckin(String packageName,
+                                         String[] categories) {
         // Verify if the user has permission to access the asset through package
         // based permission.
         // If failed, then verify if the user has permission to access the asset
@@ -162,16 +259,16 @@ public class RepositoryAssetService
             boolean passed = false;
 
             try {
-                Identity.instance().checkPermission(new PackageNameType(asset.getMetaData().getPackageName()),
+                Identity.instance().checkPermission(new PackageNameType(packageName),
                         RoleType.PACKAGE_DEVELOPER.getName());
             } catch (RuntimeException e) {
-                if (asset.getMetaData().getCategories().length == 0) {
+                if (categories.length == 0) {
                     Identity.instance().checkPermission(new CategoryPathType(null),
                             RoleType.ANALYST.getName());
                 } else {
                     RuntimeException exception = null;
 
-                    for (String cat : asset.getMetaData().getCategories()) {
+                    for (String cat : categories) {
                         try {
                             Identity.instance().checkPermission(new CategoryPathType(cat),
                                     RoleType.ANALYST.getName());
@@ -186,9 +283,6 @@ public class RepositoryAssetService
                 }
             }
         }
-
-        log.info("USER:" + getCurrentUserName() + " CHECKING IN asset: [" + asset.getName() + "] UUID: [" + asset.getUuid() + "] ");
-        return repositoryAssetOperations.checkinVersion(asset);
     }
 
     @WebRemote
@@ -502,17 +596,88 @@ public class RepositoryAssetService
         }
     }
 
+    /**
+     * Loads several assets at once, with the same permissions as
+     * {@link #loadRuleAsset(String)}. Rather than repeating everything per
+     * asset, the package permission is checked once per package, content
+     * handlers are looked up once per format, and the opening events go to
+     * the inbox in a single update.
+     */
     RuleAsset[] loadRuleAssets(Collection<String> uuids) throws SerializationException {
         if (uuids == null) {
             return null;
         }
-        Collection<RuleAsset> assets = new HashSet<RuleAsset>();
+        long time = System.currentTimeMillis();
 
-        for (String uuid : uuids) {
-            assets.add(loadRuleAsset(uuid));
+        List<AssetItem> items = new ArrayList<AssetItem>();
+        for (String uuid : new LinkedHashSet<String>(uuids)) {
+            items.add(getRulesRepository().loadAssetByUUID(uuid));
         }
 
-        return assets.toArray(new RuleAsset[assets.size()]);
+        RuleAssetPopulator populator = new RuleAssetPopulator();
+        Map<String, Boolean> packageReadable = new HashMap<String, Boolean>();
+        Map<String, List<Integer>> indexesByFormat = new LinkedHashMap<String, List<Integer>>();
+        RuleAsset[] assets = new RuleAsset[items.size()];
+        for (int i = 0; i < assets.length; i++) {
+            AssetItem item = items.get(i);
+            RuleAsset asset = populator.populateFrom(item);
+            asset.setMetaData(repositoryAssetOperations.populateMetaData(item));
+            if (Contexts.isSessionContextActive()) {
+                checkSecurityIsPackageReadOnly(asset,
+                        packageReadable);
+            }
+            assets[i] = asset;
+
+            String format = asset.getMetaData().getFormat();
+            List<Integer> indexes = indexesByFormat.get(format);
+            if (indexes == null) {
+                indexes = new ArrayList<Integer>();
+                indexesByFormat.put(format,
+                        indexes);
+            }
+            indexes.add(i);
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : indexesByFormat.entrySet()) {
+            ContentHandler handler = ContentManager.getHandler(entry.getKey());
+            for (int i : entry.getValue()) {
+                RuleAsset asset = assets[i];
+                AssetItem item = items.get(i);
+                ContentManager.retrieveAssetContent(handler,
+                        asset,
+                        item);
+                asset.setReadonly(asset.getMetaData().isHasSucceedingVersion() || item.getPackage().isSnapshot());
+            }
+        }
+
+        UserInbox.recordOpeningEvents(items);
+
+        log.debug("Load time taken for " + assets.length + " assets: " + (System.currentTimeMillis() - time));
+        return assets;
+    }
+
+    /**
+     * The package part of the permission check of loadRuleAsset, remembering
+     * the outcome per package; the category based check depends on the asset
+     * so is still done for each one.
+     */
+    private void checkSecurityIsPackageReadOnly(RuleAsset asset,
+                                                Map<String, Boolean> packageReadable) {
+        String packageName = asset.getMetaData().getPackageName();
+        Boolean readable = packageReadable.get(packageName);
+        if (readable == null) {
+            try {
+                serviceSecurity.checkSecurityIsPackageReadOnlyWithPackageName(packageName);
+                readable = Boolean.TRUE;
+            } catch (RuntimeException e) {
+                readable = Boolean.FALSE;
+            }
+            packageReadable.put(packageName,
+                    readable);
+        }
+        if (!readable) {
+            handleExceptionAndVerifyCategoryBasedPermission(asset);
+        }
     }
 
     private void archiveOrUnarchiveAsset(String uuid,
@@ -573,7 +738,14 @@ public class RepositoryAssetService
 
     @Restrict("#{identity.loggedIn}")
     public List<DiscussionRecord> loadDiscussionForAsset(String assetId) {
-        return new Discussion().fromString(getRulesRepository().loadAssetByUUID(assetId).getStringProperty(Discussion.DISCUSSION_PROPERTY_KEY));
+        return new Discussion().loadDiscussion(getRulesRepository().loadAssetByUUID(assetId));
+    }
+
+    @Restrict("#{identity.loggedIn}")
+    public List<DiscussionRecord> loadLatestDiscussionForAsset(String assetId,
+                                                               int maxRecords) {
+        return new Discussion().loadLatestDiscussion(getRulesRepository().loadAssetByUUID(assetId),
+                maxRecords);
     }
 
     /**
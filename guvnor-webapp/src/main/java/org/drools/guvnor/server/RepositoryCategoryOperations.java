@@ -136,11 +136,20 @@ public class RepositoryCategoryOperations {
                 .withContent(result.assets.iterator())
                 .build();
 
+        // The index count may still include assets that are gone, it has to
+        // agree with the rows found
+        int totalRowCount = request.getStartRowIndex() + rowList.size();
+        if (hasMoreRows) {
+            totalRowCount = Math.max(totalRowCount + 1,
+                    getRulesRepository().countAssetsByCategory(request.getCategoryPath(),
+                            false));
+        }
+
         PageResponse<CategoryPageRow> pageResponse = new PageResponseBuilder<CategoryPageRow>()
                 .withStartRowIndex(request.getStartRowIndex())
                 .withPageRowList(rowList)
                 .withLastPage(!hasMoreRows)
-                .buildWithTotalRowCount(-1);
+                .buildWithTotalRowCount(totalRowCount);
 
         long methodDuration = System.currentTimeMillis() - start;
         log.debug("Searched for Assest with Category (" + request.getCategoryPath() + ") in " + methodDuration + " ms.");
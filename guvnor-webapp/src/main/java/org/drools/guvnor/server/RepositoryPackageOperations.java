@@ -27,7 +27,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -53,7 +52,10 @@ import org.drools.guvnor.server.builder.PackageAssembler;
 import org.drools.guvnor.server.builder.PackageAssemblerConfiguration;
 import org.drools.guvnor.server.builder.PackageDRLAssembler;
 import org.drools.guvnor.server.builder.pagerow.SnapshotComparisonPageRowBuilder;
+import org.drools.guvnor.server.cache.PackageBinaryHistory;
+import org.drools.guvnor.server.cache.PackageNameCache;
 import org.drools.guvnor.server.cache.RuleBaseCache;
+import org.drools.guvnor.server.repository.PackageRenameService;
 import org.drools.guvnor.server.security.RoleType;
 import org.drools.guvnor.server.util.BRMSSuggestionCompletionLoader;
 import org.drools.guvnor.server.util.BuilderResultHelper;
@@ -62,10 +64,13 @@ import org.drools.guvnor.server.util.LoggingHelper;
 import org.drools.guvnor.server.util.PackageConfigDataFactory;
 import org.drools.repository.AssetItem;
 import org.drools.repository.PackageItem;
-import org.drools.repository.PackageIterator;
+import org.drools.repository.PackageSummaryCache;
+import org.drools.repository.PackageSummaryCache.PackageSummary;
 import org.drools.repository.RepositoryFilter;
 import org.drools.repository.RulesRepository;
 import org.drools.repository.RulesRepositoryException;
+import org.drools.repository.metrics.Metrics;
+import org.drools.repository.metrics.Timer;
 import org.jboss.seam.annotations.AutoCreate;
 import org.jboss.seam.annotations.Name;
 
@@ -88,6 +93,8 @@ public class RepositoryPackageOperations {
     private static final LoggingHelper log = LoggingHelper
             .getLogger(RepositoryPackageOperations.class);
 
+    private static final Timer serialisationTimer = Metrics.timer("build.serialisation");
+
     public void setRulesRepository(RulesRepository repository) {
         this.repository = repository;
     }
@@ -99,60 +106,70 @@ public class RepositoryPackageOperations {
     protected PackageConfigData[] listPackages(boolean archive,
                                                String workspace,
                                                RepositoryFilter filter) {
-        List<PackageConfigData> result = new ArrayList<PackageConfigData>();
-        PackageIterator pkgs = getRulesRepository().listPackages();
-        handleIteratePackages(archive,
+        List<PackageConfigData> result = listPackageLevel(null,
+                archive,
                 workspace,
                 filter,
-                result,
-                pkgs);
+                true);
+        return result.toArray(new PackageConfigData[result.size()]);
+    }
 
-        sortPackages(result);
+    /**
+     * Lists the packages directly under the given package (or the top level
+     * ones if the parent is null), without their sub packages.
+     */
+    protected PackageConfigData[] listPackageLevel(String parentUUID,
+                                                   boolean archive,
+                                                   String workspace,
+                                                   RepositoryFilter filter) {
+        List<PackageConfigData> result = listPackageLevel(parentUUID,
+                archive,
+                (parentUUID == null) ? workspace : null,
+                filter,
+                false);
         return result.toArray(new PackageConfigData[result.size()]);
     }
 
-    private void handleIteratePackages(boolean archive,
-                                       String workspace,
-                                       RepositoryFilter filter,
-                                       List<PackageConfigData> result,
-                                       PackageIterator pkgs) {
-        pkgs.setArchivedIterator(archive);
-        while (pkgs.hasNext()) {
-            PackageItem packageItem = pkgs.next();
+    /**
+     * The package summaries are shared by all users, the filter applies the
+     * current user's permissions on top of them.
+     */
+    private List<PackageConfigData> listPackageLevel(String parentUUID,
+                                                     boolean archive,
+                                                     String workspace,
+                                                     RepositoryFilter filter,
+                                                     boolean withSubPackages) {
+        List<PackageConfigData> result = new ArrayList<PackageConfigData>();
+        List<PackageSummary> summaries = PackageSummaryCache.getCache(getRulesRepository()).getPackages(getRulesRepository(),
+                parentUUID);
+        for (PackageSummary summary : summaries) {
+            if (summary.isArchived() != archive) {
+                continue;
+            }
 
             PackageConfigData data = new PackageConfigData();
-            data.setUuid(packageItem.getUUID());
-            data.setName(packageItem.getName());
-            data.setArchived(packageItem.isArchived());
-            data.setWorkspaces(packageItem.getWorkspaces());
-            handleIsPackagesListed(archive,
-                    workspace,
+            data.setUuid(summary.getUUID());
+            data.setName(summary.getName());
+            data.setArchived(summary.isArchived());
+            data.setWorkspaces(summary.getWorkspaces());
+            data.setSubPackageCount(summary.getSubPackageCount(archive));
+            if (!isPackageListed(workspace,
                     filter,
-                    result,
-                    data);
-
-            data.subPackages = listSubPackages(packageItem,
-                    archive,
-                    null,
-                    filter);
+                    data)) {
+                continue;
+            }
+            result.add(data);
 
+            if (withSubPackages) {
+                List<PackageConfigData> children = listPackageLevel(summary.getUUID(),
+                        archive,
+                        null,
+                        filter,
+                        true);
+                data.subPackages = children.toArray(new PackageConfigData[children.size()]);
+            }
         }
-    }
-
-    private PackageConfigData[] listSubPackages(PackageItem parentPkg,
-                                                boolean archive,
-                                                String workspace,
-                                                RepositoryFilter filter) {
-        List<PackageConfigData> children = new LinkedList<PackageConfigData>();
-
-        handleIteratePackages(archive,
-                workspace,
-                filter,
-                children,
-                parentPkg.listSubPackages());
-
-        sortPackages(children);
-        return children.toArray(new PackageConfigData[children.size()]);
+        return result;
     }
 
     void sortPackages(List<PackageConfigData> result) {
@@ -167,20 +184,12 @@ public class RepositoryPackageOperations {
                 });
     }
 
-    private void handleIsPackagesListed(boolean archive,
-                                        String workspace,
-                                        RepositoryFilter filter,
-                                        List<PackageConfigData> result,
-                                        PackageConfigData data) {
-        if (!archive && (filter == null || filter.accept(data,
-                RoleType.PACKAGE_READONLY.getName())) && (workspace == null || isWorkspace(workspace,
-                data.getWorkspaces()))) {
-            result.add(data);
-        } else if (archive && data.isArchived() && (filter == null || filter.accept(data,
+    private boolean isPackageListed(String workspace,
+                                    RepositoryFilter filter,
+                                    PackageConfigData data) {
+        return (filter == null || filter.accept(data,
                 RoleType.PACKAGE_READONLY.getName())) && (workspace == null || isWorkspace(workspace,
-                data.getWorkspaces()))) {
-            result.add(data);
-        }
+                data.getWorkspaces()));
     }
 
     private boolean isWorkspace(String workspace,
@@ -228,6 +237,7 @@ public class RepositoryPackageOperations {
             log.info("USER:" + getCurrentUserName() + " REMOVEING package [" + item.getName() + "]");
             item.remove();
             getRulesRepository().save();
+            PackageNameCache.getInstance().remove(uuid);
         } catch (RulesRepositoryException e) {
             log.error("Unable to remove package.",
                     e);
@@ -239,8 +249,12 @@ public class RepositoryPackageOperations {
                                    String newName) {
         log.info("USER:" + getCurrentUserName() + " RENAMING package [UUID: " + uuid + "] to package [" + newName + "]");
 
-        return getRulesRepository().renamePackage(uuid,
+        String newUUID = getRulesRepository().renamePackage(uuid,
                 newName);
+        PackageNameCache.getInstance().remove(uuid);
+        // The package name kept on its assets is updated in the background
+        PackageRenameService.getInstance().wakeUp();
+        return newUUID;
     }
 
     protected byte[] exportPackages(String packageName) {
@@ -529,16 +543,23 @@ public class RepositoryPackageOperations {
 
     private void updatePackageBinaries(PackageItem item, PackageAssembler packageAssembler) throws DetailedSerializationException {
         try {
+            long start = serialisationTimer.start();
             ByteArrayOutputStream bout = new ByteArrayOutputStream();
             ObjectOutput out = new DroolsObjectOutputStream(bout);
             out.writeObject(packageAssembler.getBinaryPackage());
 
-            item.updateCompiledPackage(new ByteArrayInputStream(bout.toByteArray()));
+            byte[] binary = bout.toByteArray();
+            serialisationTimer.stop(start);
+            item.updateCompiledPackage(new ByteArrayInputStream(binary));
             out.flush();
             out.close();
 
             item.updateBinaryUpToDate(true);
 
+            String versionId = PackageBinaryHistory.getVersionId(binary);
+            item.updateBinaryVersionId(versionId);
+            recordBinaryHistory(item, versionId, packageAssembler);
+
             RuleBase ruleBase = RuleBaseFactory.newRuleBase(
                     new RuleBaseConfiguration(getClassLoaders(packageAssembler))
             );
@@ -553,6 +574,24 @@ public class RepositoryPackageOperations {
         }
     }
 
+    /**
+     * So that agents holding an earlier binary can be sent only what changed.
+     * The build itself doesn't depend on it.
+     */
+    private void recordBinaryHistory(PackageItem item, String versionId, PackageAssembler packageAssembler) {
+        try {
+            PackageBinaryHistory.getInstance().record(item.getName(),
+                    versionId,
+                    packageAssembler.getCompiledSource(),
+                    packageAssembler.getProcessSource(),
+                    packageAssembler.getModelInputs(),
+                    packageAssembler.getBinaryPackage());
+        } catch (RuntimeException e) {
+            log.warn("Unable to record the binary of package [" + item.getName() + "]: " + e.getMessage());
+            PackageBinaryHistory.getInstance().remove(item.getName());
+        }
+    }
+
     private PackageAssemblerConfiguration createConfiguration(String buildMode, String statusOperator, String statusDescriptionValue, boolean enableStatusSelector, String categoryOperator, String category, boolean enableCategorySelector, String selectorConfigName) {
         PackageAssemblerConfiguration packageAssemblerConfiguration = new PackageAssemblerConfiguration();
         packageAssemblerConfiguration.setBuildMode(buildMode);
@@ -38,6 +38,9 @@ import org.drools.ide.common.client.modeldriven.testing.Scenario;
 import org.drools.lang.descr.PackageDescr;
 import org.drools.lang.descr.TypeDeclarationDescr;
 import org.drools.repository.*;
+import org.drools.repository.metrics.HitRatio;
+import org.drools.repository.metrics.Metrics;
+import org.drools.repository.metrics.Timer;
 import org.drools.rule.Package;
 import org.drools.runtime.rule.ConsequenceException;
 import org.drools.testframework.RuleCoverageListener;
@@ -68,6 +71,9 @@ public class RepositoryPackageService
 
     private static final LoggingHelper log = LoggingHelper.getLogger(RepositoryAssetService.class);
 
+    private static final Timer scenarioTimer = Metrics.timer("scenario.run");
+    private static final HitRatio ruleBaseCacheHitRatio = Metrics.hitRatio("cache.ruleBase");
+
     private final ServiceSecurity serviceSecurity = new ServiceSecurity();
 
     private final RepositoryPackageOperations repositoryPackageOperations = new RepositoryPackageOperations();
@@ -125,6 +131,18 @@ public class RepositoryPackageService
                 pf);
     }
 
+    @WebRemote
+    @Restrict("#{identity.loggedIn}")
+    public PackageConfigData[] listPackageLevel(String parentUUID,
+                                                String workspace,
+                                                boolean archived) {
+        RepositoryFilter pf = new PackageFilter();
+        return repositoryPackageOperations.listPackageLevel(parentUUID,
+                archived,
+                workspace,
+                pf);
+    }
+
     public PackageConfigData loadGlobalPackage() {
         return repositoryPackageOperations.loadGlobalPackage();
     }
@@ -557,8 +575,10 @@ public class RepositoryPackageService
     private RuleBase loadCacheRuleBase(PackageItem packageItem) throws DetailedSerializationException {
         RuleBase rb = null;
         if (packageItem.isBinaryUpToDate() && RuleBaseCache.getInstance().contains(packageItem.getUUID())) {
+            ruleBaseCacheHitRatio.hit();
             rb = RuleBaseCache.getInstance().get(packageItem.getUUID());
         } else {
+            ruleBaseCacheHitRatio.miss();
             // load up the classloader we are going to use
             ClassLoaderBuilder classLoaderBuilder = new ClassLoaderBuilder(packageItem.listAssetsWithVersionsSpecifiedByDependenciesByFormat(AssetFormats.MODEL));
             ClassLoader buildCl = classLoaderBuilder.buildClassLoader();
@@ -663,9 +683,14 @@ public class RepositoryPackageService
         if (coverage != null) workingMemory.addEventListener(coverage);
         try {
             AuditLogReporter logger = new AuditLogReporter(workingMemory);
-            new ScenarioRunner(scenario,
-                    classTypeResolver,
-                    workingMemory);
+            long start = scenarioTimer.start();
+            try {
+                new ScenarioRunner(scenario,
+                        classTypeResolver,
+                        workingMemory);
+            } finally {
+                scenarioTimer.stop(start);
+            }
             SingleScenarioResult singleScenarioresult = new SingleScenarioResult();
             singleScenarioresult.auditLog = logger.buildReport();
             singleScenarioresult.result = new ScenarioRunResult(null,
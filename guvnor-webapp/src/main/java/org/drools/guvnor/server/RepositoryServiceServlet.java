@@ -32,10 +32,13 @@ import org.drools.guvnor.server.util.LoggingHelper;
 import org.drools.guvnor.server.util.TestEnvironmentSessionHelper;
 import org.drools.repository.RulesRepository;
 import org.drools.repository.RulesRepositoryException;
+import org.drools.repository.metrics.Metrics;
 import org.jboss.seam.Component;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.security.AuthorizationException;
 
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.server.rpc.RPCRequest;
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 
 /**
@@ -55,6 +58,9 @@ public class RepositoryServiceServlet extends RemoteServiceServlet
     private static final LoggingHelper log              = LoggingHelper.getLogger( RepositoryServiceServlet.class );
     private static boolean             testListenerInit = false;
 
+    // The method of the call being processed, to time it by method
+    private static final ThreadLocal<String> rpcMethod = new ThreadLocal<String>();
+
     /**
      * This is used by the pass through methods below.
      * Michael got tired of trying to read other peoples overly abstracted code, so its just generated dumb code to
@@ -125,6 +131,29 @@ public class RepositoryServiceServlet extends RemoteServiceServlet
         }
     }
 
+    @Override
+    protected void onAfterRequestDeserialized(RPCRequest rpcRequest) {
+        super.onAfterRequestDeserialized( rpcRequest );
+        rpcMethod.set( rpcRequest.getMethod().getName() );
+    }
+
+    /**
+     * Times each call in the metrics, as "rpc.[method name]".
+     */
+    @Override
+    public String processCall(String payload) throws SerializationException {
+        long start = System.nanoTime();
+        try {
+            return super.processCall( payload );
+        } finally {
+            String method = rpcMethod.get();
+            rpcMethod.remove();
+            if ( method != null ) {
+                Metrics.timer( "rpc." + method ).stop( start );
+            }
+        }
+    }
+
     @Override
     protected void doUnexpectedFailure(Throwable e) {
         if ( e.getCause() instanceof AuthorizationException ) {
@@ -220,6 +249,10 @@ public class RepositoryServiceServlet extends RemoteServiceServlet
         return getPackageService().listArchivedPackages();
     }
 
+    public org.drools.guvnor.client.rpc.PackageConfigData[] listPackageLevel(java.lang.String p0, java.lang.String p1, boolean p2) {
+        return getPackageService().listPackageLevel( p0, p1, p2 );
+    }
+
     public org.drools.guvnor.client.rpc.PackageConfigData loadGlobalPackage() {
         return getPackageService().loadGlobalPackage();
     }
@@ -530,6 +563,12 @@ public class RepositoryServiceServlet extends RemoteServiceServlet
         return getAssetService().loadDiscussionForAsset( p0 );
     }
 
+    public java.util.List loadLatestDiscussionForAsset(java.lang.String p0,
+                                                       int p1) {
+        return getAssetService().loadLatestDiscussionForAsset( p0,
+                                                          p1 );
+    }
+
     public java.util.List addToDiscussionForAsset(java.lang.String p0,
                                                   java.lang.String p1) {
         return getAssetService().addToDiscussionForAsset( p0,
@@ -589,6 +628,10 @@ public class RepositoryServiceServlet extends RemoteServiceServlet
         getService().clearRulesRepository();
     }
 
+    public int labelVersions() {
+        return getService().labelVersions();
+    }
+
     public java.lang.String[] listWorkspaces() {
         return getService().listWorkspaces();
     }
@@ -623,6 +666,26 @@ public class RepositoryServiceServlet extends RemoteServiceServlet
         return getAssetService().checkinVersion( p0 );
     }
 
+    public org.drools.guvnor.client.rpc.RuleAsset loadGuidedDecisionTableColumns(java.lang.String p0) throws com.google.gwt.user.client.rpc.SerializationException {
+        return getAssetService().loadGuidedDecisionTableColumns( p0 );
+    }
+
+    public org.drools.guvnor.client.rpc.PageResponse<org.drools.guvnor.client.rpc.GuidedDTRowPageRow> loadGuidedDecisionTableRows(java.lang.String p0,
+                                                                                                                                 org.drools.guvnor.client.rpc.PageRequest p1) throws com.google.gwt.user.client.rpc.SerializationException {
+        return getAssetService().loadGuidedDecisionTableRows( p0,
+                                                              p1 );
+    }
+
+    public java.lang.String checkinGuidedDecisionTableRows(java.lang.String p0,
+                                                           java.util.Date p1,
+                                                           java.util.List<org.drools.guvnor.client.rpc.GuidedDTRowChange> p2,
+                                                           java.lang.String p3) throws com.google.gwt.user.client.rpc.SerializationException {
+        return getAssetService().checkinGuidedDecisionTableRows( p0,
+                                                                 p1,
+                                                                 p2,
+                                                                 p3 );
+    }
+
     public void restoreVersion(java.lang.String p0,
                                java.lang.String p1,
                                java.lang.String p2) {
@@ -35,6 +35,7 @@ import org.drools.guvnor.client.rpc.DetailedSerializationException;
 import org.drools.guvnor.client.rpc.InboxPageRequest;
 import org.drools.guvnor.client.rpc.InboxPageRow;
 import org.drools.guvnor.client.rpc.LogEntry;
+import org.drools.guvnor.client.rpc.LogPageRequest;
 import org.drools.guvnor.client.rpc.LogPageRow;
 import org.drools.guvnor.client.rpc.MetaDataQuery;
 import org.drools.guvnor.client.rpc.PackageConfigData;
@@ -58,10 +59,12 @@ import org.drools.guvnor.server.builder.pagerow.PermissionPageRowBuilder;
 import org.drools.guvnor.server.builder.pagerow.QueryFullTextPageRowBuilder;
 import org.drools.guvnor.server.builder.pagerow.QueryMetadataPageRowBuilder;
 import org.drools.guvnor.server.builder.pagerow.StatePageRowBuilder;
+import org.drools.guvnor.server.cache.DropDownExpressionCache;
 import org.drools.guvnor.server.repository.UserInbox;
 import org.drools.guvnor.server.ruleeditor.springcontext.SpringContextElementsManager;
 import org.drools.guvnor.server.ruleeditor.workitem.WorkitemDefinitionElementsManager;
 import org.drools.guvnor.server.security.AdminType;
+import org.drools.guvnor.server.security.RoleBasedPermissionManager;
 import org.drools.guvnor.server.security.RoleType;
 import org.drools.guvnor.server.security.RoleTypes;
 import org.drools.guvnor.server.selector.SelectorManager;
@@ -70,6 +73,7 @@ import org.drools.guvnor.server.util.HtmlCleaner;
 import org.drools.guvnor.server.util.LoggingHelper;
 import org.drools.guvnor.server.util.TableDisplayHandler;
 import org.drools.ide.common.client.modeldriven.SuggestionCompletionEngine;
+import org.drools.ide.common.server.util.CompiledExpressionCache;
 import org.drools.repository.AssetItem;
 import org.drools.repository.AssetItemIterator;
 import org.drools.repository.AssetItemPageResult;
@@ -90,8 +94,6 @@ import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.remoting.WebRemote;
 import org.jboss.seam.annotations.security.Restrict;
 import org.jboss.seam.contexts.Contexts;
-import org.mvel2.MVEL;
-import org.mvel2.templates.TemplateRuntime;
 
 import com.google.gwt.user.client.rpc.SerializationException;
 
@@ -117,6 +119,8 @@ public class ServiceImplementation
 
     private static final LoggingHelper        log                         = LoggingHelper.getLogger( ServiceImplementation.class );
 
+    private static final int                  VERSION_LABEL_BATCH_SIZE    = 100;
+
     private final ServiceSecurity             serviceSecurity             = new ServiceSecurity();
 
     private final RepositoryAssetOperations   repositoryAssetOperations   = new RepositoryAssetOperations();
@@ -435,6 +439,14 @@ public class ServiceImplementation
         admin.clearRulesRepository();
     }
 
+    @WebRemote
+    public int labelVersions() {
+        serviceSecurity.checkSecurityIsAdmin();
+
+        RulesRepositoryAdministrator admin = new RulesRepositoryAdministrator( getRulesRepository().getSession() );
+        return admin.labelVersions( VERSION_LABEL_BATCH_SIZE );
+    }
+
     @WebRemote
     @Restrict("#{identity.loggedIn}")
     public SuggestionCompletionEngine loadSuggestionCompletionEngine(String packageName) throws SerializationException {
@@ -492,7 +504,20 @@ public class ServiceImplementation
         serviceSecurity.checkSecurityIsAdmin();
 
         long start = System.currentTimeMillis();
-        LogEntry[] logEntries = LoggingHelper.getMessages();
+        List<LogEntry> found;
+        if ( request instanceof LogPageRequest ) {
+            LogPageRequest logRequest = (LogPageRequest) request;
+            found = LoggingHelper.findMessages( logRequest.getSeverity(),
+                                                logRequest.getText(),
+                                                logRequest.getFrom(),
+                                                logRequest.getTo() );
+        } else {
+            found = LoggingHelper.findMessages( null,
+                                                null,
+                                                null,
+                                                null );
+        }
+        LogEntry[] logEntries = found.toArray( new LogEntry[found.size()] );
         log.debug( "Search time: " + (System.currentTimeMillis() - start) );
 
         List<LogPageRow> rowList = new LogPageRowBuilder()
@@ -533,25 +558,36 @@ public class ServiceImplementation
             context.put( pair[0],
                          pair[1] );
         }
-        // first interpolate the pairs
-        expression = (String) TemplateRuntime.eval( expression,
-                                                    context );
+        DropDownExpressionCache resultCache = DropDownExpressionCache.getInstance();
+        String key = DropDownExpressionCache.key( expression,
+                                                  context );
+        String[] cached = resultCache.get( key );
+        if ( cached != null ) {
+            return cached;
+        }
 
-        // now we can eval it for real...
-        Object result = MVEL.eval( expression );
+        // the pairs are passed in as variables, so the expression is only compiled once
+        Object result = CompiledExpressionCache.getInstance().evalParameterized( expression,
+                                                                                context );
+        String[] xs;
         if ( result instanceof String[] ) {
-            return (String[]) result;
+            xs = (String[]) result;
         } else if ( result instanceof List ) {
             List l = (List) result;
-            String[] xs = new String[l.size()];
+            xs = new String[l.size()];
             for ( int i = 0; i < xs.length; i++ ) {
                 Object el = l.get( i );
                 xs[i] = el.toString();
             }
-            return xs;
         } else {
             return null;
         }
+        if ( DropDownExpressionCache.isSideEffectFree( expression,
+                                                       context ) ) {
+            resultCache.put( key,
+                             xs );
+        }
+        return xs;
     }
 
     /**
@@ -615,6 +651,7 @@ public class ServiceImplementation
         pm.updateUserPermissions( userName,
                                   perms );
         getRulesRepository().save();
+        RoleBasedPermissionManager.invalidate( userName );
     }
 
     @Deprecated
@@ -641,6 +678,7 @@ public class ServiceImplementation
         PermissionManager pm = new PermissionManager( getRulesRepository() );
         pm.removeUserPermissions( userName );
         getRulesRepository().save();
+        RoleBasedPermissionManager.invalidate( userName );
     }
 
     @Restrict("#{identity.loggedIn}")
@@ -118,7 +118,7 @@ public class VerificationServiceImplementation extends RemoteServiceServlet impl
     private AssetItem getAssetItem(RuleAsset asset) throws SerializationException {
         AssetItem assetItem = getAssetService().getRulesRepository().loadAssetByUUID(asset.uuid);
         ContentHandler contentHandler = ContentManager.getHandler(asset.metaData.format);
-        contentHandler.storeAssetContent(asset, assetItem);
+        ContentManager.storeAssetContent(contentHandler, asset, assetItem);
         return assetItem;
     }
 
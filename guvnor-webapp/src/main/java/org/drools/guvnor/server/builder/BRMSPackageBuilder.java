@@ -16,7 +16,9 @@
 
 package org.drools.guvnor.server.builder;
 
+import org.apache.commons.io.IOUtils;
 import org.drools.builder.conf.DefaultPackageNameOption;
+import org.drools.compiler.DroolsParserException;
 import org.drools.compiler.PackageBuilder;
 import org.drools.compiler.PackageBuilderConfiguration;
 import org.drools.guvnor.client.common.AssetFormats;
@@ -32,6 +34,8 @@ import org.jbpm.bpmn2.xml.BPMNDISemanticModule;
 import org.jbpm.bpmn2.xml.BPMNSemanticModule;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
@@ -45,6 +49,8 @@ public class BRMSPackageBuilder extends PackageBuilder {
 
     private List<DSLTokenizedMappingFile> dslFiles;
     private DefaultExpander expander;
+    private StringBuilder compiledSource;
+    private StringBuilder processSource;
 
     /**
      * In the BRMS you should not need to use this, use the getInstance factory method instead.
@@ -76,6 +82,69 @@ public class BRMSPackageBuilder extends PackageBuilder {
         super.resetErrors();
     }
 
+    /**
+     * Keeps the DRL and the processes given to this builder from now on, see
+     * getCompiledSource and getProcessSource.
+     */
+    public void keepCompiledSource() {
+        this.compiledSource = new StringBuilder();
+        this.processSource = new StringBuilder();
+    }
+
+    /**
+     * @return the DRL this builder was given (DSLs expanded) since
+     *         keepCompiledSource was called, or null if it wasn't.
+     */
+    public String getCompiledSource() {
+        return (compiledSource == null) ? null : compiledSource.toString();
+    }
+
+    @Override
+    public void addPackageFromDrl(Reader reader) throws DroolsParserException, IOException {
+        if (compiledSource == null) {
+            super.addPackageFromDrl(reader);
+            return;
+        }
+        String drl = IOUtils.toString(reader);
+        compiledSource.append(drl).append("\n\n");
+        super.addPackageFromDrl(new StringReader(drl));
+    }
+
+    /**
+     * @return the rule flows and processes this builder was given since
+     *         keepCompiledSource was called, or null if it wasn't.
+     */
+    public String getProcessSource() {
+        return (processSource == null) ? null : processSource.toString();
+    }
+
+    @Override
+    public void addRuleFlow(Reader processSource) {
+        super.addRuleFlow(keepProcessSource(processSource));
+    }
+
+    @Override
+    public void addProcessFromXml(Reader processSource) {
+        super.addProcessFromXml(keepProcessSource(processSource));
+    }
+
+    /*
+     * addRuleFlow may hand the process on to addProcessFromXml, keeping it
+     * twice. That is fine, the same processes are always kept the same way.
+     */
+    private Reader keepProcessSource(Reader reader) {
+        if (processSource == null) {
+            return reader;
+        }
+        try {
+            String xml = IOUtils.toString(reader);
+            processSource.append(xml).append("\n\n");
+            return new StringReader(xml);
+        } catch (IOException e) {
+            throw new RulesRepositoryException("Unable to read the process.", e);
+        }
+    }
+
     public void setDSLFiles(List<DSLTokenizedMappingFile> files) {
         this.dslFiles = files;
     }
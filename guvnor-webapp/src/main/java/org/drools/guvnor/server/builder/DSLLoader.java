@@ -1,6 +1,7 @@
 package org.drools.guvnor.server.builder;
 
 import org.drools.guvnor.client.common.AssetFormats;
+import org.drools.guvnor.server.cache.DSLMappingFileCache;
 import org.drools.lang.dsl.DSLMappingParseException;
 import org.drools.lang.dsl.DSLTokenizedMappingFile;
 import org.drools.repository.AssetItem;
@@ -43,18 +44,28 @@ public class DSLLoader {
                                  List<DSLTokenizedMappingFile> result,
                                  AssetItem assetItem) {
         if (!assetItem.getDisabled()) {
+            DSLMappingFileCache.CachedDSL cached = getParsedDSL(assetItem);
+            if (cached.isParsed()) {
+                result.add(cached.getFile());
+            } else {
+                logErrors(dslErrorEvent, assetItem, cached.getFile());
+            }
+        }
+    }
+
+    private static DSLMappingFileCache.CachedDSL getParsedDSL(AssetItem assetItem) {
+        String key = DSLMappingFileCache.key(assetItem);
+        String source = assetItem.getContent();
+        DSLMappingFileCache.CachedDSL cached = DSLMappingFileCache.getInstance().get(key, source);
+        if (cached == null) {
             DSLTokenizedMappingFile file = new DSLTokenizedMappingFile();
             try {
-                if (file.parseAndLoad(new StringReader(assetItem.getContent()))) {
-                    result.add(file);
-                } else {
-                    logErrors(dslErrorEvent, assetItem, file);
-                }
-
+                cached = DSLMappingFileCache.getInstance().put(key, source, file, file.parseAndLoad(new StringReader(source)));
             } catch (IOException e) {
                 throw new RulesRepositoryException(e);
             }
         }
+        return cached;
     }
 
     private static void logErrors(BRMSPackageBuilder.DSLErrorEvent dslErrorEvent, AssetItem assetItem, DSLTokenizedMappingFile file) {
@@ -18,14 +18,20 @@ package org.drools.guvnor.server.builder;
 
 import org.drools.guvnor.client.common.AssetFormats;
 import org.drools.guvnor.server.selector.AssetSelector;
+import org.drools.guvnor.server.selector.BatchAssetSelector;
 import org.drools.guvnor.server.selector.BuiltInSelector;
 import org.drools.guvnor.server.selector.SelectorManager;
 import org.drools.guvnor.server.util.LoggingHelper;
 import org.drools.repository.AssetItem;
 import org.drools.repository.PackageItem;
+import org.drools.repository.metrics.Metrics;
+import org.drools.repository.metrics.Timer;
 import org.drools.rule.Package;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This assembles packages in the BRMS into binary package objects, and deals
@@ -35,6 +41,7 @@ import java.util.Iterator;
 public class PackageAssembler extends PackageAssemblerBase {
 
     private static final LoggingHelper log = LoggingHelper.getLogger(PackageAssembler.class);
+    private static final Timer compileTimer = Metrics.timer("build.compile");
 
     private final PackageAssemblerConfiguration configuration;
     private AssetSelector selector;
@@ -51,8 +58,14 @@ public class PackageAssembler extends PackageAssemblerBase {
     }
 
     public void compile() {
-        if (setUpPackage()) {
-            buildPackage();
+        long start = compileTimer.start();
+        try {
+            builder.keepCompiledSource();
+            if (setUpPackage()) {
+                buildPackage();
+            }
+        } finally {
+            compileTimer.stop(start);
         }
     }
 
@@ -77,20 +90,45 @@ public class PackageAssembler extends PackageAssemblerBase {
 
     private void loadAllButDRLAssets(StringBuilder includedAssets) {
         Iterator<AssetItem> iterator = getAllAssets();
+        List<AssetItem> candidates = new ArrayList<AssetItem>();
         while (iterator.hasNext()) {
             AssetItem asset = iterator.next();
-            if (!asset.getFormat().equals(AssetFormats.DRL) && assetCanBeAdded(asset)) {
-                addAsset(includedAssets, asset);
+            if (!asset.getFormat().equals(AssetFormats.DRL) && !asset.isArchived()) {
+                candidates.add(asset);
             }
         }
+        addAllowedAssets(includedAssets, candidates);
     }
 
     private void loadDRLAssets(StringBuilder includedAssets) {
         Iterator<AssetItem> drlAssetItemIterator = getAssetItemIterator(AssetFormats.DRL);
+        List<AssetItem> candidates = new ArrayList<AssetItem>();
         while (drlAssetItemIterator.hasNext()) {
             AssetItem asset = drlAssetItemIterator.next();
-            if (assetCanBeAdded(asset)) {
-                addAsset(includedAssets, asset);
+            if (!asset.isArchived()) {
+                candidates.add(asset);
+            }
+        }
+        addAllowedAssets(includedAssets, candidates);
+    }
+
+    /**
+     * Batch selectors decide on all the candidates at once, other selectors
+     * are asked asset by asset.
+     */
+    private void addAllowedAssets(StringBuilder includedAssets, List<AssetItem> candidates) {
+        if (selector instanceof BatchAssetSelector) {
+            Set<String> allowedUUIDs = ((BatchAssetSelector) selector).getAllowedAssetUUIDs(candidates);
+            for (AssetItem asset : candidates) {
+                if (allowedUUIDs.contains(asset.getUUID())) {
+                    addAsset(includedAssets, asset);
+                }
+            }
+        } else {
+            for (AssetItem asset : candidates) {
+                if (selector.isAssetAllowed(asset)) {
+                    addAsset(includedAssets, asset);
+                }
             }
         }
     }
@@ -100,10 +138,6 @@ public class PackageAssembler extends PackageAssemblerBase {
         includedAssets.append(asset.getName()).append(", ");
     }
 
-    private boolean assetCanBeAdded(AssetItem asset) {
-        return !asset.isArchived() && (selector.isAssetAllowed(asset));
-    }
-
     private boolean setUpSelector() {
         if (SelectorManager.CUSTOM_SELECTOR.equals(configuration.getBuildMode())) {
             selector = SelectorManager.getInstance().getSelector(configuration.getCustomSelectorConfigName());
@@ -157,6 +191,38 @@ public class PackageAssembler extends PackageAssemblerBase {
         return builder.getPackage();
     }
 
+    /**
+     * @return the DRL that went into the binary package, as it was compiled.
+     */
+    public String getCompiledSource() {
+        return "package " + packageItem.getName() + "\n" + builder.getCompiledSource();
+    }
+
+    /**
+     * @return the rule flows and processes that went into the binary package.
+     */
+    public String getProcessSource() {
+        return builder.getProcessSource();
+    }
+
+    /**
+     * @return the versions of the model jars and configuration the package was
+     *         built with, one per line.
+     */
+    public String getModelInputs() {
+        StringBuilder inputs = new StringBuilder();
+        Iterator<AssetItem> it = getAssetItemIterator(AssetFormats.MODEL,
+                AssetFormats.PROPERTIES,
+                AssetFormats.CONFIGURATION);
+        while (it.hasNext()) {
+            AssetItem asset = it.next();
+            inputs.append(asset.getName()).append(':')
+                    .append(asset.getVersionNumber()).append(':')
+                    .append(asset.getLastModified().getTimeInMillis()).append('\n');
+        }
+        return inputs.toString();
+    }
+
     public BRMSPackageBuilder getBuilder() {
         return builder;
     }
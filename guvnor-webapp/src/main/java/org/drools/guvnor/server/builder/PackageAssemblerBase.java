@@ -31,6 +31,8 @@ import org.drools.lang.descr.PackageDescr;
 import org.drools.repository.AssetItem;
 import org.drools.repository.PackageItem;
 import org.drools.repository.RulesRepositoryException;
+import org.drools.repository.metrics.Metrics;
+import org.drools.repository.metrics.Timer;
 
 /**
  * This assembles packages in the BRMS into binary package objects, and deals
@@ -39,6 +41,11 @@ import org.drools.repository.RulesRepositoryException;
  */
 abstract class PackageAssemblerBase extends AssemblerBase {
 
+    private static final Timer headerTimer        = Metrics.timer( "build.header" );
+    private static final Timer declaredTypesTimer = Metrics.timer( "build.declaredTypes" );
+    private static final Timer dslTimer           = Metrics.timer( "build.dsl" );
+    private static final Timer functionsTimer     = Metrics.timer( "build.functions" );
+
     protected PackageAssemblerBase(PackageItem packageItem) {
         super( packageItem );
     }
@@ -51,6 +58,8 @@ abstract class PackageAssemblerBase extends AssemblerBase {
         ContentHandler contentHandler = ContentManager.getHandler( asset.getFormat() );
 
         if ( contentHandler instanceof ICompilable && !asset.getDisabled() ) {
+            Timer timer = Metrics.timer( "build.asset." + ContentManager.getMetricsFormat( asset.getFormat() ) );
+            long start = timer.start();
             try {
                 compile( asset,
                          (ICompilable) contentHandler );
@@ -61,6 +70,8 @@ abstract class PackageAssemblerBase extends AssemblerBase {
             } catch ( IOException e ) {
                 errorLogger.addError( asset,
                                       e.getMessage() );
+            } finally {
+                timer.stop( start );
             }
         }
     }
@@ -89,15 +100,25 @@ abstract class PackageAssemblerBase extends AssemblerBase {
         builder.addPackage( new PackageDescr( packageItem.getName() ) );
 
         //Add package header first as declared types may depend on an import (see https://issues.jboss.org/browse/JBRULES-3133)
+        long start = headerTimer.start();
         loadPackageHeader();
+        headerTimer.stop( start );
+
+        start = declaredTypesTimer.start();
         loadDeclaredTypes();
+        declaredTypesTimer.stop( start );
 
         if ( doesPackageBuilderHaveAnyErrors() ) {
             return false;
         }
 
+        start = dslTimer.start();
         loadDSLFiles();
+        dslTimer.stop( start );
+
+        start = functionsTimer.start();
         loadFunctions();
+        functionsTimer.stop( start );
 
         return !errorLogger.hasErrors();
     }
@@ -16,59 +16,59 @@
 package org.drools.guvnor.server.builder.pagerow;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.drools.guvnor.client.rpc.PageRequest;
 import org.drools.guvnor.client.rpc.QueryPageRow;
-import org.drools.guvnor.server.AssetItemFilter;
-import org.drools.guvnor.server.security.RoleType;
-import org.drools.guvnor.server.security.RoleTypes;
 import org.drools.guvnor.server.util.QueryPageRowCreator;
 import org.drools.repository.AssetItem;
-import org.drools.repository.RepositoryFilter;
+import org.drools.repository.AssetNameIndex;
+import org.drools.repository.RulesRepository;
+import org.drools.repository.RulesRepositoryException;
 
-public class QuickFindPageRowBuilder implements PageRowBuilder<PageRequest, Iterator<AssetItem>>{
+/**
+ * Builds the rows of a page of quick find results, from the (already filtered)
+ * entries of the asset name index. Only the assets on the page are loaded.
+ */
+public class QuickFindPageRowBuilder implements PageRowBuilder<PageRequest, List<AssetNameIndex.Entry>> {
 
-    private PageRequest pageRequest;
-    private Iterator<AssetItem> iterator;
+    private PageRequest                pageRequest;
+    private List<AssetNameIndex.Entry> entries;
+    private RulesRepository            repository;
 
     public List<QueryPageRow> build() {
         validate();
-        int skipped = 0;
         Integer pageSize = pageRequest.getPageSize();
         int startRowIndex = pageRequest.getStartRowIndex();
-        RepositoryFilter filter = new AssetItemFilter();
+        int endRowIndex = (pageSize == null) ? entries.size() : Math.min( entries.size(),
+                                                                          startRowIndex + pageSize );
         List<QueryPageRow> rowList = new ArrayList<QueryPageRow>();
 
-        while ( iterator.hasNext() && (pageSize == null || rowList.size() < pageSize) ) {
-            AssetItem assetItem = (AssetItem) iterator.next();
-
-            // Filter surplus assets
-            if ( filter.accept( assetItem,
-                                RoleType.PACKAGE_READONLY.getName() ) ) {
-
-                // Cannot use AssetItemIterator.skip() as it skips non-filtered
-                // assets whereas startRowIndex is the index of the
-                // first displayed asset (i.e. filtered)
-                if ( skipped >= startRowIndex ) {
-                    rowList.add( QueryPageRowCreator.makeQueryPageRow( assetItem ) );
-                }
-                skipped++;
+        for ( int i = startRowIndex; i < endRowIndex; i++ ) {
+            AssetItem assetItem;
+            try {
+                assetItem = repository.loadAssetByUUID( entries.get( i ).getUUID() );
+            } catch ( RulesRepositoryException e ) {
+                // Removed since it was indexed (by a change that was rolled back)
+                continue;
             }
+            rowList.add( QueryPageRowCreator.makeQueryPageRow( assetItem ) );
         }
         return rowList;
     }
-    
+
     public void validate() {
         if ( pageRequest == null ) {
             throw new IllegalArgumentException( "PageRequest cannot be null" );
         }
 
-        if ( iterator == null ) {
+        if ( entries == null ) {
             throw new IllegalArgumentException( "Content cannot be null" );
         }
 
+        if ( repository == null ) {
+            throw new IllegalArgumentException( "RulesRepository cannot be null" );
+        }
     }
 
     public QuickFindPageRowBuilder withPageRequest(PageRequest pageRequest) {
@@ -76,8 +76,13 @@ public class QuickFindPageRowBuilder implements PageRowBuilder<PageRequest, Iter
         return this;
     }
 
-    public QuickFindPageRowBuilder withContent(Iterator<AssetItem> iterator) {
-        this.iterator = iterator;
+    public QuickFindPageRowBuilder withContent(List<AssetNameIndex.Entry> entries) {
+        this.entries = entries;
+        return this;
+    }
+
+    public QuickFindPageRowBuilder withRulesRepository(RulesRepository repository) {
+        this.repository = repository;
         return this;
     }
 
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2011 JBoss Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.drools.guvnor.server.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.drools.lang.dsl.DSLTokenizedMappingFile;
+import org.drools.repository.AssetItem;
+import org.drools.repository.metrics.HitRatio;
+import org.drools.repository.metrics.Metrics;
+
+/**
+ * Parsed DSL assets, keyed by asset UUID and version, so that building a
+ * package, compiling a DSL rule, verifying or loading the suggestion
+ * completion engine don't parse the same DSL text again. An entry is only
+ * used while the source is unchanged, as content can be updated without a
+ * new version. Files
+ * that failed to parse are cached too, with their errors. The parsed mappings
+ * are only read after loading, so they can be shared between builders; each
+ * builder still has its own expander, as expanders collect errors.
+ */
+public class DSLMappingFileCache {
+
+    // TODO: This class should be injected with DI Singleton (when we have working DI)
+    private static final int                        MAX_ENTRIES = 500;
+
+    private final Map<String, CachedDSL>            dslFiles    = new LinkedHashMap<String, CachedDSL>( 16,
+                                                                                                        0.75f,
+                                                                                                        true ) {
+                                                                    private static final long serialVersionUID = 510l;
+
+                                                                    @Override
+                                                                    protected boolean removeEldestEntry(Map.Entry<String, CachedDSL> eldest) {
+                                                                        return size() > MAX_ENTRIES;
+                                                                    }
+                                                                };
+
+    private static final DSLMappingFileCache        instance    = new DSLMappingFileCache();
+    private static final HitRatio                   hitRatio    = Metrics.hitRatio( "cache.dslMapping" );
+
+    private DSLMappingFileCache() {
+    }
+
+    public static DSLMappingFileCache getInstance() {
+        return instance;
+    }
+
+    public static String key(AssetItem assetItem) {
+        return assetItem.getUUID() + ":" + assetItem.getVersionNumber();
+    }
+
+    public CachedDSL get(final String key,
+                         final String source) {
+        CachedDSL cached;
+        synchronized ( dslFiles ) {
+            cached = dslFiles.get( key );
+        }
+        boolean hit = cached != null && cached.source.equals( source );
+        hitRatio.record( hit );
+        return hit ? cached : null;
+    }
+
+    public CachedDSL put(final String key,
+                         final String source,
+                         final DSLTokenizedMappingFile file,
+                         final boolean parsed) {
+        CachedDSL cached = new CachedDSL( source,
+                                          file,
+                                          parsed );
+        synchronized ( dslFiles ) {
+            dslFiles.put( key,
+                          cached );
+        }
+        return cached;
+    }
+
+    public void clearCache() {
+        synchronized ( dslFiles ) {
+            dslFiles.clear();
+        }
+    }
+
+    public static class CachedDSL {
+
+        private final String                  source;
+        private final DSLTokenizedMappingFile file;
+        private final boolean                 parsed;
+
+        CachedDSL(String source,
+                  DSLTokenizedMappingFile file,
+                  boolean parsed) {
+            this.source = source;
+            this.file = file;
+            this.parsed = parsed;
+        }
+
+        public DSLTokenizedMappingFile getFile() {
+            return file;
+        }
+
+        /**
+         * @return false if the file had errors.
+         */
+        public boolean isParsed() {
+            return parsed;
+        }
+    }
+}
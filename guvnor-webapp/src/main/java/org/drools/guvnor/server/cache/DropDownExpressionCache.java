@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.drools.guvnor.server.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.drools.repository.metrics.HitRatio;
+import org.drools.repository.metrics.Metrics;
+
+/**
+ * Caches the results of dependent drop down expressions (see
+ * ServiceImplementation.loadDropDownExpression). Only expressions that can't
+ * have side effects - those made of literals, without method calls,
+ * constructors or assignments - are cached, keyed by the expression and the
+ * context value pairs it was evaluated with.
+ */
+public class DropDownExpressionCache {
+
+    // TODO: This class should be injected with DI Singleton (when we have working DI)
+    private static final int                     MAX_ENTRIES = 1000;
+
+    private static final DropDownExpressionCache instance    = new DropDownExpressionCache();
+    private static final HitRatio                hitRatio    = Metrics.hitRatio( "cache.dropDownExpression" );
+
+    private final Map<String, String[]>          results     = new LinkedHashMap<String, String[]>( 16,
+                                                                                                    0.75f,
+                                                                                                    true ) {
+                                                                 private static final long serialVersionUID = 510l;
+
+                                                                 @Override
+                                                                 protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+                                                                     return size() > MAX_ENTRIES;
+                                                                 }
+                                                             };
+
+    private DropDownExpressionCache() {
+    }
+
+    public static DropDownExpressionCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param expression the MVEL expression, before interpolation of the
+     *            context values (which are checked too, as they may not be
+     *            quoted).
+     */
+    public static boolean isSideEffectFree(String expression,
+                                           Map<String, String> context) {
+        if ( !isSideEffectFree( expression ) ) {
+            return false;
+        }
+        for ( String value : context.values() ) {
+            if ( !isSideEffectFree( value ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSideEffectFree(String text) {
+        return text.indexOf( '(' ) < 0
+               && text.indexOf( '=' ) < 0
+               && text.indexOf( ';' ) < 0;
+    }
+
+    public static String key(String expression,
+                             Map<String, String> context) {
+        return expression + "|" + new TreeMap<String, String>( context );
+    }
+
+    public String[] get(String key) {
+        String[] result;
+        synchronized ( results ) {
+            result = results.get( key );
+        }
+        hitRatio.record( result != null );
+        return result == null ? null : result.clone();
+    }
+
+    public void put(String key,
+                    String[] result) {
+        synchronized ( results ) {
+            results.put( key,
+                         result.clone() );
+        }
+    }
+
+    public void clearCache() {
+        synchronized ( results ) {
+            results.clear();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011 JBoss Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.drools.guvnor.server.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
+import org.drools.repository.AssetItem;
+import org.drools.repository.metrics.HitRatio;
+import org.drools.repository.metrics.Metrics;
+
+/**
+ * Parsed guided decision tables, keyed by asset UUID and version, so that
+ * opening a table, paging through its rows or building its DRL don't
+ * unmarshal the same XML again. As with {@link DSLMappingFileCache}, an entry
+ * is only used while the source is unchanged. The cached models must not be
+ * modified; callers that need to change a model take a copy first.
+ * <p>
+ * The cache is bounded by the total size of the sources of the tables it
+ * holds (a parsed table takes memory in proportion to its XML), evicting the
+ * least recently used tables first.
+ */
+public class GuidedDTModelCache {
+
+    // TODO: This class should be injected with DI Singleton (when we have working DI)
+    private static final String                     MAX_SIZE_PROPERTY = "guvnor.dtcache.maxChars";
+
+    private final long                              maxSize           = Long.getLong( MAX_SIZE_PROPERTY,
+                                                                                      8 * 1024 * 1024 );
+
+    private final Map<String, CachedModel>          models            = new LinkedHashMap<String, CachedModel>( 16,
+                                                                                                                0.75f,
+                                                                                                                true );
+    private long                                    size;
+
+    private static final GuidedDTModelCache         instance          = new GuidedDTModelCache();
+    private static final HitRatio                   hitRatio          = Metrics.hitRatio( "cache.guidedDTModel" );
+
+    private GuidedDTModelCache() {
+    }
+
+    public static GuidedDTModelCache getInstance() {
+        return instance;
+    }
+
+    public static String key(AssetItem assetItem) {
+        return assetItem.getUUID() + ":" + assetItem.getVersionNumber();
+    }
+
+    public GuidedDecisionTable52 get(final String key,
+                                     final String source) {
+        CachedModel cached;
+        synchronized ( models ) {
+            cached = models.get( key );
+        }
+        boolean hit = cached != null && cached.source.equals( source );
+        hitRatio.record( hit );
+        return hit ? cached.model : null;
+    }
+
+    /**
+     * Caches a table, unless its source alone is more than a quarter of the
+     * cache.
+     */
+    public void put(final String key,
+                    final String source,
+                    final GuidedDecisionTable52 model) {
+        synchronized ( models ) {
+            remove( key );
+            if ( source.length() > maxSize / 4 ) {
+                return;
+            }
+            models.put( key,
+                        new CachedModel( source,
+                                         model ) );
+            size += source.length();
+            Iterator<CachedModel> eldest = models.values().iterator();
+            while ( size > maxSize && eldest.hasNext() ) {
+                size -= eldest.next().source.length();
+                eldest.remove();
+            }
+        }
+    }
+
+    // Called holding the lock on models
+    private void remove(String key) {
+        CachedModel removed = models.remove( key );
+        if ( removed != null ) {
+            size -= removed.source.length();
+        }
+    }
+
+    long getSize() {
+        synchronized ( models ) {
+            return size;
+        }
+    }
+
+    public void clearCache() {
+        synchronized ( models ) {
+            models.clear();
+            size = 0;
+        }
+    }
+
+    private static class CachedModel {
+
+        private final String                source;
+        private final GuidedDecisionTable52 model;
+
+        CachedModel(String source,
+                    GuidedDecisionTable52 model) {
+            this.source = source;
+            this.model = model;
+        }
+    }
+}
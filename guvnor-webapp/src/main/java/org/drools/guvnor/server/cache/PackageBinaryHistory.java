@@ -0,0 +1,515 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.cache;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.drools.compiler.DrlParser;
+import org.drools.compiler.DroolsParserException;
+import org.drools.guvnor.server.util.LoggingHelper;
+import org.drools.lang.descr.BaseDescr;
+import org.drools.lang.descr.FunctionDescr;
+import org.drools.lang.descr.FunctionImportDescr;
+import org.drools.lang.descr.GlobalDescr;
+import org.drools.lang.descr.ImportDescr;
+import org.drools.lang.descr.PackageDescr;
+import org.drools.lang.descr.RuleDescr;
+import org.drools.lang.descr.TypeDeclarationDescr;
+import org.drools.rule.Package;
+
+/**
+ * Keeps what went into the last {@link #MAX_VERSIONS} binaries built for each
+ * package, so that a knowledge agent holding one of them can be told what
+ * changed (rules, functions and declared types) instead of downloading and
+ * deserialising the whole package again.
+ * <p>
+ * A binary is identified by its version id, a digest of its bytes, so the same
+ * id is given to a snapshot and to the package it was taken from. Only the
+ * source of each rule is kept, not the binaries themselves. What can't be
+ * changed rule by rule (imports, globals, processes and the model) is compared
+ * as a whole, and any change to it means the package has to be reloaded.
+ */
+public class PackageBinaryHistory {
+
+    private static final LoggingHelper                   log          = LoggingHelper.getLogger( PackageBinaryHistory.class );
+
+    public static final int                              MAX_VERSIONS = 10;
+
+    // TODO: This class should be injected with DI Singleton (when we have working DI)
+    private final Map<String, LinkedList<BinaryVersion>> versions     = new HashMap<String, LinkedList<BinaryVersion>>();
+    private static final PackageBinaryHistory            instance     = new PackageBinaryHistory();
+
+    private PackageBinaryHistory() {
+    }
+
+    public static PackageBinaryHistory getInstance() {
+        return instance;
+    }
+
+    /**
+     * What went into one binary of a package.
+     */
+    public static class BinaryVersion {
+
+        private final String              id;
+        private final long                timestamp;
+        private final String              header;
+        private final String              processes;
+        private final String              models;
+        private final Set<String>         imports   = new TreeSet<String>();
+        private final Map<String, String> globals   = new TreeMap<String, String>();
+        private final Map<String, String> rules     = new LinkedHashMap<String, String>();
+        private final Map<String, String> functions = new LinkedHashMap<String, String>();
+        private final Map<String, String> types     = new LinkedHashMap<String, String>();
+
+        BinaryVersion(String id,
+                      String header,
+                      String processes,
+                      String models) {
+            this.id = id;
+            this.header = header;
+            this.processes = processes;
+            this.models = models;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public List<String> getRuleNames() {
+            return new ArrayList<String>( rules.keySet() );
+        }
+
+        /**
+         * @return the DRL of a single rule, with the package header so that it
+         *         can be compiled on its own, or null if the binary has no such
+         *         rule.
+         */
+        public String getRuleDRL(String ruleName) {
+            String rule = rules.get( ruleName );
+            if ( rule == null ) {
+                return null;
+            }
+            return header + "\n\n" + rule + "\n";
+        }
+    }
+
+    /**
+     * The changes between two binaries of a package.
+     */
+    public static class Delta {
+
+        private final String       fromId;
+        private final String       toId;
+        private final boolean      headerChanged;
+        private final boolean      processesChanged;
+        private final boolean      modelsChanged;
+        private final List<String> addedRules       = new ArrayList<String>();
+        private final List<String> changedRules     = new ArrayList<String>();
+        private final List<String> removedRules     = new ArrayList<String>();
+        private final List<String> addedFunctions   = new ArrayList<String>();
+        private final List<String> changedFunctions = new ArrayList<String>();
+        private final List<String> removedFunctions = new ArrayList<String>();
+        private final List<String> addedTypes       = new ArrayList<String>();
+        private final List<String> changedTypes     = new ArrayList<String>();
+        private final List<String> removedTypes     = new ArrayList<String>();
+
+        Delta(BinaryVersion from,
+              BinaryVersion to) {
+            this.fromId = from.id;
+            this.toId = to.id;
+            this.headerChanged = !from.header.equals( to.header ) || !from.imports.equals( to.imports ) || !from.globals.equals( to.globals );
+            this.processesChanged = !from.processes.equals( to.processes );
+            this.modelsChanged = !from.models.equals( to.models );
+            compare( from.rules,
+                     to.rules,
+                     addedRules,
+                     changedRules,
+                     removedRules );
+            compare( from.functions,
+                     to.functions,
+                     addedFunctions,
+                     changedFunctions,
+                     removedFunctions );
+            compare( from.types,
+                     to.types,
+                     addedTypes,
+                     changedTypes,
+                     removedTypes );
+        }
+
+        private static void compare(Map<String, String> from,
+                                    Map<String, String> to,
+                                    List<String> added,
+                                    List<String> changed,
+                                    List<String> removed) {
+            for ( Map.Entry<String, String> entry : to.entrySet() ) {
+                String previous = from.get( entry.getKey() );
+                if ( previous == null ) {
+                    added.add( entry.getKey() );
+                } else if ( !previous.equals( entry.getValue() ) ) {
+                    changed.add( entry.getKey() );
+                }
+            }
+            for ( String name : from.keySet() ) {
+                if ( !to.containsKey( name ) ) {
+                    removed.add( name );
+                }
+            }
+        }
+
+        public String getFromId() {
+            return fromId;
+        }
+
+        public String getToId() {
+            return toId;
+        }
+
+        /**
+         * @return true if the package, imports or globals changed.
+         */
+        public boolean isHeaderChanged() {
+            return headerChanged;
+        }
+
+        /**
+         * @return true if any rule flow or process changed.
+         */
+        public boolean isProcessesChanged() {
+            return processesChanged;
+        }
+
+        /**
+         * @return true if the model jars or the package configuration changed.
+         */
+        public boolean isModelsChanged() {
+            return modelsChanged;
+        }
+
+        public List<String> getAddedRules() {
+            return addedRules;
+        }
+
+        public List<String> getChangedRules() {
+            return changedRules;
+        }
+
+        public List<String> getRemovedRules() {
+            return removedRules;
+        }
+
+        public List<String> getAddedFunctions() {
+            return addedFunctions;
+        }
+
+        public List<String> getChangedFunctions() {
+            return changedFunctions;
+        }
+
+        public List<String> getRemovedFunctions() {
+            return removedFunctions;
+        }
+
+        public List<String> getAddedTypes() {
+            return addedTypes;
+        }
+
+        public List<String> getChangedTypes() {
+            return changedTypes;
+        }
+
+        public List<String> getRemovedTypes() {
+            return removedTypes;
+        }
+
+        /**
+         * @return true if the changes can't be applied rule by rule: the
+         *         header, the processes, the model, the functions or the
+         *         declared types changed.
+         */
+        public boolean isReloadNeeded() {
+            return headerChanged || processesChanged || modelsChanged || !addedFunctions.isEmpty() || !changedFunctions.isEmpty() || !removedFunctions.isEmpty()
+                   || !addedTypes.isEmpty() || !changedTypes.isEmpty() || !removedTypes.isEmpty();
+        }
+
+        public boolean isEmpty() {
+            return !isReloadNeeded() && addedRules.isEmpty() && changedRules.isEmpty() && removedRules.isEmpty();
+        }
+    }
+
+    /**
+     * @return the version id of a package binary.
+     */
+    public static String getVersionId(byte[] binary) {
+        try {
+            byte[] digest = MessageDigest.getInstance( "SHA-1" ).digest( binary );
+            StringBuilder id = new StringBuilder( digest.length * 2 );
+            for ( byte b : digest ) {
+                id.append( Character.forDigit( (b >> 4) & 0xF,
+                                               16 ) );
+                id.append( Character.forDigit( b & 0xF,
+                                               16 ) );
+            }
+            return id.toString();
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * @return a digest of some text, such as the sources of the processes.
+     */
+    public static String getDigest(String text) {
+        try {
+            return getVersionId( text.getBytes( "UTF-8" ) );
+        } catch ( UnsupportedEncodingException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Records a newly built binary of a package. Rules that are in the source
+     * but were left out of the binary (by a selector) are left out here too.
+     * A binary that is already the latest one recorded is not parsed again.
+     *
+     * @param versionId the version id of the binary, see getVersionId.
+     * @param drl the source of the package, as it was compiled.
+     * @param processes the sources of the rule flows and processes, as they
+     *        were compiled.
+     * @param models what the model of the package was built from (the model
+     *        jars and configuration), see PackageAssembler.getModelInputs.
+     * @return the recorded version, or null if the source couldn't be parsed.
+     */
+    public BinaryVersion record(String packageName,
+                                String versionId,
+                                String drl,
+                                String processes,
+                                String models,
+                                Package compiled) {
+        synchronized ( versions ) {
+            LinkedList<BinaryVersion> history = versions.get( packageName );
+            if ( history != null && !history.isEmpty() && history.getFirst().id.equals( versionId ) ) {
+                return history.getFirst();
+            }
+        }
+
+        BinaryVersion version = parse( versionId,
+                                       drl,
+                                       getDigest( processes ),
+                                       getDigest( models ),
+                                       compiled );
+        if ( version == null ) {
+            // The agents will have to load the whole package
+            remove( packageName );
+            return null;
+        }
+
+        synchronized ( versions ) {
+            LinkedList<BinaryVersion> history = versions.get( packageName );
+            if ( history == null ) {
+                history = new LinkedList<BinaryVersion>();
+                versions.put( packageName,
+                              history );
+            }
+            for ( Iterator<BinaryVersion> it = history.iterator(); it.hasNext(); ) {
+                if ( it.next().id.equals( version.id ) ) {
+                    it.remove();
+                }
+            }
+            if ( !history.isEmpty() ) {
+                shareSources( history.getFirst(),
+                              version );
+            }
+            history.addFirst( version );
+            while ( history.size() > MAX_VERSIONS ) {
+                history.removeLast();
+            }
+        }
+        return version;
+    }
+
+    /**
+     * @return the version with the given id, or null if it is not (or no
+     *         longer) known.
+     */
+    public BinaryVersion getVersion(String packageName,
+                                    String versionId) {
+        synchronized ( versions ) {
+            List<BinaryVersion> history = versions.get( packageName );
+            if ( history != null ) {
+                for ( BinaryVersion version : history ) {
+                    if ( version.id.equals( versionId ) ) {
+                        return version;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return the changes from one binary to another, or null if either of
+     *         them is not known, in which case the whole package has to be
+     *         loaded.
+     */
+    public Delta getDelta(String packageName,
+                          String fromId,
+                          String toId) {
+        BinaryVersion from = getVersion( packageName,
+                                         fromId );
+        BinaryVersion to = getVersion( packageName,
+                                       toId );
+        if ( from == null || to == null ) {
+            return null;
+        }
+        return new Delta( from,
+                          to );
+    }
+
+    public List<BinaryVersion> getVersions(String packageName) {
+        synchronized ( versions ) {
+            List<BinaryVersion> history = versions.get( packageName );
+            if ( history == null ) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<BinaryVersion>( history );
+        }
+    }
+
+    public void remove(String packageName) {
+        synchronized ( versions ) {
+            versions.remove( packageName );
+        }
+    }
+
+    public void clearCache() {
+        synchronized ( versions ) {
+            versions.clear();
+        }
+    }
+
+    private BinaryVersion parse(String versionId,
+                                String drl,
+                                String processes,
+                                String models,
+                                Package compiled) {
+        DrlParser parser = new DrlParser();
+        PackageDescr descr;
+        try {
+            descr = parser.parse( drl );
+        } catch ( DroolsParserException e ) {
+            log.error( "Unable to parse the source of package [" + compiled.getName() + "]: " + e.getMessage() );
+            return null;
+        }
+        if ( parser.hasErrors() ) {
+            return null;
+        }
+
+        List<BaseDescr> definitions = new ArrayList<BaseDescr>();
+        definitions.addAll( descr.getTypeDeclarations() );
+        definitions.addAll( descr.getFunctions() );
+        definitions.addAll( descr.getRules() );
+
+        // The header (package, imports, globals) is everything before the first definition
+        int headerEnd = drl.length();
+        for ( BaseDescr definition : definitions ) {
+            if ( definition.getStartCharacter() < 0 ) {
+                return null;
+            }
+            headerEnd = Math.min( headerEnd,
+                                  definition.getStartCharacter() );
+        }
+
+        BinaryVersion version = new BinaryVersion( versionId,
+                                                   drl.substring( 0,
+                                                                  headerEnd ).trim(),
+                                                   processes,
+                                                   models );
+        // Imports and globals may also come after the first definition
+        for ( ImportDescr importDescr : descr.getImports() ) {
+            version.imports.add( importDescr.getTarget() );
+        }
+        for ( FunctionImportDescr importDescr : descr.getFunctionImports() ) {
+            version.imports.add( "function " + importDescr.getTarget() );
+        }
+        for ( GlobalDescr global : descr.getGlobals() ) {
+            version.globals.put( global.getIdentifier(),
+                                 global.getType() );
+        }
+        for ( TypeDeclarationDescr type : descr.getTypeDeclarations() ) {
+            version.types.put( type.getTypeName(),
+                               getSource( drl,
+                                          type ) );
+        }
+        for ( FunctionDescr function : descr.getFunctions() ) {
+            version.functions.put( function.getName(),
+                                   getSource( drl,
+                                              function ) );
+        }
+        for ( RuleDescr rule : descr.getRules() ) {
+            if ( compiled.getRule( rule.getName() ) != null ) {
+                version.rules.put( rule.getName(),
+                                   getSource( drl,
+                                              rule ) );
+            }
+        }
+        return version;
+    }
+
+    private static String getSource(String drl,
+                                    BaseDescr descr) {
+        int end = Math.min( drl.length(),
+                            Math.max( descr.getStartCharacter(),
+                                      descr.getEndCharacter() + 1 ) );
+        return drl.substring( descr.getStartCharacter(),
+                              end ).trim();
+    }
+
+    /**
+     * Most rules are the same from one binary to the next, so they share the
+     * previous version's strings rather than keeping a copy each.
+     */
+    private static void shareSources(BinaryVersion previous,
+                                     BinaryVersion version) {
+        for ( Map.Entry<String, String> entry : version.rules.entrySet() ) {
+            String source = previous.rules.get( entry.getKey() );
+            if ( entry.getValue().equals( source ) ) {
+                entry.setValue( source );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2011 JBoss Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.drools.guvnor.server.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps package UUIDs to package names, so that permission checks on a package
+ * UUID don't have to load the package node just to find its name. Entries
+ * must be removed when a package is renamed or removed.
+ */
+public class PackageNameCache {
+
+    // TODO: This class should be injected with DI Singleton (when we have working DI)
+    private final Map<String, String>     packageNames = new ConcurrentHashMap<String, String>();
+    private static final PackageNameCache instance     = new PackageNameCache();
+
+    private PackageNameCache() {
+    }
+
+    public static PackageNameCache getInstance() {
+        return instance;
+    }
+
+    public void put(final String uuid,
+                    final String packageName) {
+        this.packageNames.put( uuid,
+                               packageName );
+    }
+
+    public String get(final String uuid) {
+        return this.packageNames.get( uuid );
+    }
+
+    public void remove(final String uuid) {
+        this.packageNames.remove( uuid );
+    }
+
+    public void clearCache() {
+        this.packageNames.clear();
+    }
+}
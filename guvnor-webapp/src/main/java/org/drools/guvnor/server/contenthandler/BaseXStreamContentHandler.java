@@ -18,10 +18,10 @@ package org.drools.guvnor.server.contenthandler;
 
 import com.google.gwt.user.client.rpc.SerializationException;
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
 import org.drools.guvnor.client.rpc.RuleAsset;
 import org.drools.guvnor.client.rpc.WorkingSetConfigData;
 import org.drools.ide.common.client.modeldriven.brl.PortableObject;
+import org.drools.ide.common.server.util.XStreamRegistry;
 import org.drools.repository.AssetItem;
 import org.drools.repository.RulesRepositoryException;
 import org.slf4j.Logger;
@@ -29,7 +29,11 @@ import org.slf4j.Logger;
 public abstract class BaseXStreamContentHandler<T extends PortableObject> extends ContentHandler {
     private final Logger log = org.slf4j.LoggerFactory.getLogger(getClass());
 
-    private static final XStream xt = new XStream(new DomDriver());
+    private static final XStream xt = XStreamRegistry.getInstance().getXStream("content",
+            new XStreamRegistry.Configurer() {
+                public void configure(XStream xt) {
+                }
+            });
 
     protected XStream getXStream() {
         return xt;
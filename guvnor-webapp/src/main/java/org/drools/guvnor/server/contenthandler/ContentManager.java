@@ -16,6 +16,11 @@
 
 package org.drools.guvnor.server.contenthandler;
 
+import com.google.gwt.user.client.rpc.SerializationException;
+import org.drools.guvnor.client.rpc.RuleAsset;
+import org.drools.repository.AssetItem;
+import org.drools.repository.metrics.Metrics;
+import org.drools.repository.metrics.Timer;
 import org.drools.repository.utils.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -101,6 +106,49 @@ public class ContentManager {
         return INSTANCE;
     }
 
+    /**
+     * Loads the content of an asset with its handler, timing it by format as
+     * "content.retrieve.[format]" (see getMetricsFormat).
+     */
+    public static void retrieveAssetContent(ContentHandler handler,
+                                            RuleAsset asset,
+                                            AssetItem item) throws SerializationException {
+        Timer timer = Metrics.timer("content.retrieve." + getMetricsFormat(item.getFormat()));
+        long start = timer.start();
+        try {
+            handler.retrieveAssetContent(asset, item);
+        } finally {
+            timer.stop(start);
+        }
+    }
+
+    /**
+     * Stores the content of an asset with its handler, timing it by format as
+     * "content.store.[format]" (see getMetricsFormat).
+     */
+    public static void storeAssetContent(ContentHandler handler,
+                                         RuleAsset asset,
+                                         AssetItem item) throws SerializationException {
+        Timer timer = Metrics.timer("content.store." + getMetricsFormat(item.getFormat()));
+        long start = timer.start();
+        try {
+            handler.storeAssetContent(asset, item);
+        } finally {
+            timer.stop(start);
+        }
+    }
+
+    /**
+     * Asset formats are free text, so only the formats that have a content
+     * handler get timers of their own, the rest are all timed as "other".
+     */
+    public static String getMetricsFormat(String format) {
+        if (format != null && ContentManager.getInstance().getContentHandlers().containsKey(format)) {
+            return format;
+        }
+        return "other";
+    }
+
     public static ContentHandler getHandler(String format) {
         ContentHandler h = ContentManager.getInstance().getContentHandlers().get(format);
         if (h == null)
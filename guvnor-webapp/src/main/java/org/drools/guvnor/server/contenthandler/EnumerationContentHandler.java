@@ -31,7 +31,9 @@ public class EnumerationContentHandler extends PlainTextContentHandler
     public BuilderResult validateAsset(AssetItem asset) {
 
         String content = asset.getContent();
-        DataEnumLoader loader = new DataEnumLoader( content );
+        DataEnumLoader loader = DataEnumLoader.forAsset( asset.getUUID(),
+                                                         asset.getVersionNumber(),
+                                                         content );
         if ( !loader.hasErrors() ) {
             return new BuilderResult();
         } else {
@@ -18,11 +18,21 @@ package org.drools.guvnor.server.contenthandler;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 import org.drools.compiler.DroolsParserException;
+import org.drools.guvnor.client.rpc.DetailedSerializationException;
+import org.drools.guvnor.client.rpc.GuidedDTRowChange;
+import org.drools.guvnor.client.rpc.GuidedDTRowPageRow;
+import org.drools.guvnor.client.rpc.PageRequest;
+import org.drools.guvnor.client.rpc.PageResponse;
 import org.drools.guvnor.client.rpc.RuleAsset;
 import org.drools.guvnor.server.builder.AssemblyErrorLogger;
 import org.drools.guvnor.server.builder.BRMSPackageBuilder;
+import org.drools.guvnor.server.cache.GuidedDTModelCache;
+import org.drools.ide.common.client.modeldriven.dt52.DTCellValue52;
 import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
 import org.drools.ide.common.server.util.GuidedDTDRLPersistence;
 import org.drools.ide.common.server.util.GuidedDTXMLPersistence;
@@ -31,7 +41,9 @@ import org.drools.repository.AssetItem;
 import com.google.gwt.user.client.rpc.SerializationException;
 
 /**
- * For guided decision tables.
+ * For guided decision tables. Parsed tables are shared through the
+ * {@link GuidedDTModelCache}, so the models handed out are copies, and large
+ * tables can also be loaded and saved a range of rows at a time.
  */
 public class GuidedDTContentHandler extends ContentHandler
     implements
@@ -39,10 +51,209 @@ public class GuidedDTContentHandler extends ContentHandler
 
     public void retrieveAssetContent(RuleAsset asset,
                                      AssetItem item) throws SerializationException {
-        GuidedDecisionTable52 model = GuidedDTXMLPersistence.getInstance().unmarshal( item.getContent() );
+        asset.setContent( copyOf( loadModel( item ),
+                                  true ) );
+    }
+
+    /**
+     * Sets the table without its rows as the content, for editors that page
+     * through them.
+     */
+    public void retrieveAssetColumns(RuleAsset asset,
+                                     AssetItem item) {
+        asset.setContent( copyOf( loadModel( item ),
+                                  false ) );
+    }
+
+    public PageResponse<GuidedDTRowPageRow> loadRows(AssetItem item,
+                                                     PageRequest request) {
+        List<List<DTCellValue52>> data = loadModel( item ).getData();
+
+        int totalRowSize = data.size();
+        int startRowIndex = Math.min( Math.max( request.getStartRowIndex(),
+                                                0 ),
+                                      totalRowSize );
+        int endRowIndex = totalRowSize;
+        if ( request.getPageSize() != null ) {
+            endRowIndex = Math.min( startRowIndex + request.getPageSize(),
+                                    totalRowSize );
+        }
+
+        List<GuidedDTRowPageRow> rows = new ArrayList<GuidedDTRowPageRow>( endRowIndex - startRowIndex );
+        for ( int i = startRowIndex; i < endRowIndex; i++ ) {
+            GuidedDTRowPageRow row = new GuidedDTRowPageRow();
+            row.setRowIndex( i );
+            row.setCells( copyOf( data.get( i ) ) );
+            rows.add( row );
+        }
 
-        asset.setContent( model );
+        PageResponse<GuidedDTRowPageRow> response = new PageResponse<GuidedDTRowPageRow>();
+        response.setStartRowIndex( startRowIndex );
+        response.setPageRowList( rows );
+        response.setTotalRowSize( totalRowSize );
+        response.setTotalRowSizeExact( true );
+        response.setLastPage( endRowIndex == totalRowSize );
+        return response;
+    }
+
+    /**
+     * Applies the row changes to the current content of the asset. The content
+     * is parsed again rather than taken from the cache, as it is modified.
+     * 
+     * @return the updated table.
+     * @throws DetailedSerializationException
+     *             if a change doesn't fit the table (it is based on a version
+     *             of the table with other columns, or is malformed), in which
+     *             case nothing is stored.
+     */
+    public GuidedDecisionTable52 storeRowChanges(List<GuidedDTRowChange> changes,
+                                                 AssetItem repoAsset) throws DetailedSerializationException {
+        if ( changes == null ) {
+            throw new DetailedSerializationException( "Unable to save the decision table rows",
+                                                      "No row changes were given." );
+        }
+        GuidedDecisionTable52 model = GuidedDTXMLPersistence.getInstance().unmarshal( repoAsset.getContent() );
+        List<List<DTCellValue52>> data = model.getData();
+        int columns = model.getAllColumns().size();
+        for ( int i = 0; i < changes.size(); i++ ) {
+            GuidedDTRowChange change = changes.get( i );
+            checkChange( change,
+                         i,
+                         data.size(),
+                         columns );
+            int rowIndex = change.getRowIndex();
+            switch ( change.getType() ) {
+                case UPDATE :
+                    data.set( rowIndex,
+                              copyOf( change.getCells() ) );
+                    break;
+                case INSERT :
+                    data.add( rowIndex,
+                              copyOf( change.getCells() ) );
+                    break;
+                case DELETE :
+                    data.remove( rowIndex );
+                    break;
+            }
+        }
+        if ( model.getTableName() == null ) {
+            model.setTableName( repoAsset.getName() );
+        }
+        repoAsset.updateContent( GuidedDTXMLPersistence.getInstance().marshal( model ) );
+        return model;
+    }
 
+    private static void checkChange(GuidedDTRowChange change,
+                                    int position,
+                                    int rows,
+                                    int columns) throws DetailedSerializationException {
+        String problem = null;
+        if ( change == null || change.getType() == null ) {
+            problem = "it has no type";
+        } else {
+            int rowIndex = change.getRowIndex();
+            int maxIndex = (change.getType() == GuidedDTRowChange.ChangeType.INSERT) ? rows : rows - 1;
+            if ( rowIndex < 0 || rowIndex > maxIndex ) {
+                problem = "row " + rowIndex + " is out of range, the table has " + rows + " rows";
+            } else if ( change.getType() != GuidedDTRowChange.ChangeType.DELETE ) {
+                if ( change.getCells() == null ) {
+                    problem = "it has no cells";
+                } else if ( change.getCells().size() != columns ) {
+                    problem = "it has " + change.getCells().size() + " cells, the table has " + columns + " columns";
+                } else if ( change.getCells().contains( null ) ) {
+                    problem = "it has an empty cell";
+                }
+            }
+        }
+        if ( problem != null ) {
+            throw new DetailedSerializationException( "Unable to save the decision table rows, it may have been changed by someone else.",
+                                                      "Row change " + position + " doesn't fit the table: " + problem + "." );
+        }
+    }
+
+    /**
+     * Caches the table as the content of the (checked in) asset, so that it
+     * isn't parsed again on the next load.
+     */
+    public void cacheModel(AssetItem item,
+                           GuidedDecisionTable52 model) {
+        GuidedDTModelCache.getInstance().put( GuidedDTModelCache.key( item ),
+                                              item.getContent(),
+                                              model );
+    }
+
+    private GuidedDecisionTable52 loadModel(AssetItem item) {
+        String key = GuidedDTModelCache.key( item );
+        String content = item.getContent();
+        GuidedDecisionTable52 model = GuidedDTModelCache.getInstance().get( key,
+                                                                            content );
+        if ( model == null ) {
+            model = GuidedDTXMLPersistence.getInstance().unmarshal( content );
+            GuidedDTModelCache.getInstance().put( key,
+                                                  content,
+                                                  model );
+        }
+        return model;
+    }
+
+    /**
+     * A deep copy of the table, so it can be changed without affecting the
+     * cached table. The columns are copied through XML (there are few of
+     * them), the cells directly.
+     */
+    static GuidedDecisionTable52 copyOf(GuidedDecisionTable52 model,
+                                        boolean withRows) {
+        List<List<DTCellValue52>> data = model.getData();
+        GuidedDecisionTable52 columns = new GuidedDecisionTable52();
+        columns.setTableName( model.getTableName() );
+        columns.setParentName( model.getParentName() );
+        columns.setRowNumberCol( model.getRowNumberCol() );
+        columns.setDescriptionCol( model.getDescriptionCol() );
+        columns.setMetadataCols( model.getMetadataCols() );
+        columns.setAttributeCols( model.getAttributeCols() );
+        columns.setConditionPatterns( model.getConditionPatterns() );
+        columns.setActionCols( model.getActionCols() );
+        columns.setData( new ArrayList<List<DTCellValue52>>() );
+
+        GuidedDTXMLPersistence persistence = GuidedDTXMLPersistence.getInstance();
+        GuidedDecisionTable52 copy = persistence.unmarshal( persistence.marshal( columns ) );
+        List<List<DTCellValue52>> rows = new ArrayList<List<DTCellValue52>>();
+        if ( withRows ) {
+            for ( List<DTCellValue52> row : data ) {
+                rows.add( copyOf( row ) );
+            }
+        }
+        copy.setData( rows );
+        return copy;
+    }
+
+    static List<DTCellValue52> copyOf(List<DTCellValue52> row) {
+        List<DTCellValue52> copy = new ArrayList<DTCellValue52>( row.size() );
+        for ( DTCellValue52 cell : row ) {
+            copy.add( copyOf( cell ) );
+        }
+        return copy;
+    }
+
+    private static DTCellValue52 copyOf(DTCellValue52 cell) {
+        DTCellValue52 copy = new DTCellValue52();
+        if ( cell.getDataType() != null ) {
+            switch ( cell.getDataType() ) {
+                case BOOLEAN :
+                    copy.setBooleanValue( cell.getBooleanValue() );
+                    break;
+                case DATE :
+                    copy.setDateValue( cell.getDateValue() == null ? null : new Date( cell.getDateValue().getTime() ) );
+                    break;
+                case NUMERIC :
+                    copy.setNumericValue( cell.getNumericValue() );
+                    break;
+                default :
+                    copy.setStringValue( cell.getStringValue() );
+            }
+        }
+        copy.setOtherwise( cell.isOtherwise() );
+        return copy;
     }
 
     public void storeAssetContent(RuleAsset asset,
@@ -79,7 +290,8 @@ public class GuidedDTContentHandler extends ContentHandler
     }
 
     public String getRawDRL(AssetItem asset) {
-        GuidedDecisionTable52 model = GuidedDTXMLPersistence.getInstance().unmarshal( asset.getContent() );
+        GuidedDecisionTable52 model = copyOf( loadModel( asset ),
+                                              true );
         model.setTableName( asset.getName() );
         model.setParentName( this.parentNameFromCategory( asset,
                                                           model.getParentName() ) );
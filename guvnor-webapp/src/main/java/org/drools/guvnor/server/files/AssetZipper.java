@@ -1,20 +1,24 @@
 package org.drools.guvnor.server.files;
 
+import org.drools.guvnor.server.util.IOBufferPool;
 import org.drools.repository.AssetItem;
 import org.drools.repository.PackageItem;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.io.OutputStream;
 import java.util.LinkedList;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
  * This Class Allows us to Zip a set of Assets, in fact we generate an extra asset
  * whith the "zip" format, so we can add it to the package.
+ * <p>
+ * The content of the assets is streamed from the repository to the output,
+ * so the zip is never held in memory. Assets that are already compressed
+ * (jars) are stored rather than deflated again.
  */
 public class AssetZipper {
 
@@ -27,50 +31,78 @@ public class AssetZipper {
         this.pkg = pkg;
     }
 
-    public InputStream zipAssets() {
-
-        AssetItem zipFileElement = null;
-        BufferedInputStream inputZip = null;
-        Iterator<AssetItem> it = assets.iterator();
-        byte[] data = new byte[1000];
-        int count = 0;
-
-        try {
-
-            if (assets.size() > 1) {
-                ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
-                ZipOutputStream outputZip = new ZipOutputStream(outputBytes);
+    /**
+     * Writes the content of the asset if there is only one, a zip of the
+     * assets otherwise. The output is not closed.
+     */
+    public void zipAssets(OutputStream out) throws IOException {
+        if (assets.size() == 1) {
+            copyContent(assets.getFirst(),
+                    out);
+            return;
+        }
 
-                while (it.hasNext()) {
+        ZipOutputStream outputZip = new ZipOutputStream(out);
+        for (AssetItem asset : assets) {
+            ZipEntry entry = new ZipEntry(asset.getName() + "." + asset.getFormat());
+            if (isCompressed(asset)) {
+                storeEntry(asset,
+                        entry);
+            }
+            outputZip.putNextEntry(entry);
+            copyContent(asset,
+                    outputZip);
+            outputZip.closeEntry();
+        }
+        outputZip.finish();
+    }
 
-                    zipFileElement = it.next();
-                    inputZip = new BufferedInputStream(zipFileElement.getBinaryContentAttachment());
-                    outputZip.putNextEntry(new ZipEntry(zipFileElement.getName() + "." + zipFileElement.getFormat()));
+    static boolean isCompressed(AssetItem asset) {
+        return "jar".equals(asset.getFormat()) || "zip".equals(asset.getFormat());
+    }
 
-                    while ((count = inputZip.read(data,
+    /**
+     * A stored entry needs its size and CRC before it is written, so the
+     * content is read twice. That is still cheaper than deflating it again.
+     */
+    private void storeEntry(AssetItem asset,
+                            ZipEntry entry) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        InputStream in = asset.getBinaryContentAttachment();
+        if (in != null) {
+            byte[] buffer = IOBufferPool.acquire();
+            try {
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    crc.update(buffer,
                             0,
-                            1000)) != -1) {
-                        outputZip.write(data,
-                                0,
-                                count);
-                    }
-
-                    outputZip.flush();
-                    inputZip.close();
+                            count);
+                    size += count;
                 }
-                outputZip.close();
-
-                return new ByteArrayInputStream(outputBytes.toByteArray());
-            } else {
-
-                return it.next().getBinaryContentAttachment();
+            } finally {
+                IOBufferPool.release(buffer);
+                in.close();
             }
-        } catch (Exception ex) {
-
         }
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+    }
 
-        return null;
-
+    private void copyContent(AssetItem asset,
+                             OutputStream out) throws IOException {
+        InputStream in = asset.getBinaryContentAttachment();
+        if (in == null) {
+            return;
+        }
+        try {
+            IOBufferPool.copy(in,
+                    out);
+        } finally {
+            in.close();
+        }
     }
 
 }
@@ -26,6 +26,7 @@ import org.drools.guvnor.server.util.ISO8601;
 import org.drools.repository.AssetItem;
 import org.drools.repository.AssetItemPageResult;
 import org.drools.repository.PackageItem;
+import org.drools.repository.RulesRepository;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.security.AuthorizationException;
 import org.jboss.seam.security.Identity;
@@ -53,8 +54,14 @@ public class FeedServlet extends RepositoryServlet {
                         response,
                         new Command() {
                             public void execute() throws Exception {
-                                doPackageFeed(request,
-                                        response);
+                                FileManagerUtils fm = getReadOnlyFileManager();
+                                try {
+                                    doPackageFeed(request,
+                                            response,
+                                            fm.getRepository());
+                                } finally {
+                                    releaseReadOnlyFileManager(fm);
+                                }
                             }
                         });
             } else if (url.indexOf("feed/category") > -1) {
@@ -62,8 +69,14 @@ public class FeedServlet extends RepositoryServlet {
                         response,
                         new Command() {
                             public void execute() throws Exception {
-                                doCategoryFeed(request,
-                                        response);
+                                FileManagerUtils fm = getReadOnlyFileManager();
+                                try {
+                                    doCategoryFeed(request,
+                                            response,
+                                            fm.getRepository());
+                                } finally {
+                                    releaseReadOnlyFileManager(fm);
+                                }
                             }
                         });
             } else if (url.indexOf("feed/discussion") > -1) {
@@ -71,8 +84,14 @@ public class FeedServlet extends RepositoryServlet {
                         response,
                         new Command() {
                             public void execute() throws Exception {
-                                doDiscussionFeed(request,
-                                        response);
+                                FileManagerUtils fm = getReadOnlyFileManager();
+                                try {
+                                    doDiscussionFeed(request,
+                                            response,
+                                            fm.getRepository());
+                                } finally {
+                                    releaseReadOnlyFileManager(fm);
+                                }
                             }
                         });
             }
@@ -85,16 +104,17 @@ public class FeedServlet extends RepositoryServlet {
     }
 
     private void doDiscussionFeed(HttpServletRequest request,
-                                  HttpServletResponse response) throws IOException {
+                                  HttpServletResponse response,
+                                  RulesRepository repository) throws IOException {
         String assetName = request.getParameter("assetName");
         String packageName = request.getParameter("package");
-        AssetItem asset = getFileManager().getRepository().loadPackage(packageName).loadAsset(assetName);
+        AssetItem asset = repository.loadPackage(packageName).loadAsset(assetName);
         checkPackageReadPermission(asset.getPackageName());
 
         List<AtomFeed.AtomEntry> entries = new ArrayList<AtomFeed.AtomEntry>();
         entries.add(new AtomFeed.AtomEntry(request,
                 asset));
-        List<DiscussionRecord> drs = new Discussion().fromString(asset.getStringProperty(Discussion.DISCUSSION_PROPERTY_KEY));
+        List<DiscussionRecord> drs = new Discussion().loadDiscussion(asset);
         for (DiscussionRecord dr : drs) {
             entries.add(new AtomFeed.AtomEntry(request,
                     asset,
@@ -112,11 +132,12 @@ public class FeedServlet extends RepositoryServlet {
     }
 
     private void doCategoryFeed(HttpServletRequest request,
-                                HttpServletResponse response) throws IOException {
+                                HttpServletResponse response,
+                                RulesRepository repository) throws IOException {
         String cat = request.getParameter("name");
         String status = request.getParameter("status");
         checkCategoryPermission(cat);
-        AssetItemPageResult pg = getFileManager().getRepository().findAssetsByCategory(cat,
+        AssetItemPageResult pg = repository.findAssetsByCategory(cat,
                 false,
                 0,
                 -1);
@@ -145,11 +166,12 @@ public class FeedServlet extends RepositoryServlet {
     }
 
     private void doPackageFeed(HttpServletRequest request,
-                               HttpServletResponse response) throws IOException {
+                               HttpServletResponse response,
+                               RulesRepository repository) throws IOException {
         String packageName = request.getParameter("name");
         checkPackageReadPermission(packageName);
 
-        PackageItem pkg = getFileManager().getRepository().loadPackage(packageName);
+        PackageItem pkg = repository.loadPackage(packageName);
 
         List<AtomFeed.AtomEntry> entries = new ArrayList<AtomFeed.AtomEntry>();
         Iterator<AssetItem> it = pkg.getAssets();
@@ -32,11 +32,13 @@ import org.apache.commons.fileupload.FileItemFactory;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.lang.StringEscapeUtils;
 import org.drools.compiler.DroolsParserException;
 import org.drools.guvnor.client.common.HTMLFileManagerFields;
 import org.drools.guvnor.server.builder.BRMSPackageBuilder;
 import org.drools.guvnor.server.builder.DSLLoader;
 import org.drools.guvnor.server.builder.PackageDRLAssembler;
+import org.drools.guvnor.server.cache.PackageBinaryHistory;
 import org.drools.guvnor.server.cache.RuleBaseCache;
 import org.drools.guvnor.server.contenthandler.ContentHandler;
 import org.drools.guvnor.server.contenthandler.ContentManager;
@@ -233,6 +235,182 @@ public class FileManagerUtils {
 
     }
 
+    /**
+     * Writes what changed in the package binary since the given version, for
+     * knowledge agents that would rather not load the whole package again:
+     * <pre>
+     * &lt;package-delta package="..." from="..." to="..." reload="false"&gt;
+     *     &lt;rule name="..." change="added|changed|removed" source="..."/&gt;
+     *     &lt;function name="..." change="..."/&gt;
+     *     &lt;type name="..." change="..."/&gt;
+     * &lt;/package-delta&gt;
+     * </pre>
+     * The source of an added or changed rule is the URL of that rule alone.
+     * Reload is true when the changes can't be applied rule by rule (the
+     * header, functions or types changed, or the earlier version is no longer
+     * known), in which case the whole package has to be loaded.
+     *
+     * @param fromVersionId the version id of the binary the agent has, or null
+     *        if it has none (reload is then true).
+     * @param packageURL the URL of the package, up to (not including) the version.
+     * @return The filename if its all good.
+     */
+    public String loadPackageDelta(String packageName,
+                                   String packageVersion,
+                                   boolean isLatest,
+                                   String fromVersionId,
+                                   String packageURL,
+                                   OutputStream out) throws IOException {
+        String toVersionId = getBinaryVersionId( packageName,
+                                                 packageVersion,
+                                                 isLatest );
+        PackageBinaryHistory.Delta delta = PackageBinaryHistory.getInstance().getDelta( packageName,
+                                                                                       fromVersionId,
+                                                                                       toVersionId );
+        boolean reload = delta == null || delta.isReloadNeeded();
+
+        StringBuilder xml = new StringBuilder();
+        xml.append( "<package-delta package=\"" ).append( StringEscapeUtils.escapeXml( packageName ) );
+        xml.append( "\" from=\"" ).append( (fromVersionId == null) ? "" : StringEscapeUtils.escapeXml( fromVersionId ) );
+        xml.append( "\" to=\"" ).append( toVersionId );
+        xml.append( "\" reload=\"" ).append( reload ).append( "\">\n" );
+        if ( delta != null ) {
+            String rulesURL = packageURL + "/" + toVersionId + "/rule/";
+            for ( String rule : delta.getAddedRules() ) {
+                appendDeltaEntry( xml,
+                                  "rule",
+                                  rule,
+                                  "added",
+                                  rulesURL + URLEncoder.encode( rule,
+                                                                "UTF-8" ) );
+            }
+            for ( String rule : delta.getChangedRules() ) {
+                appendDeltaEntry( xml,
+                                  "rule",
+                                  rule,
+                                  "changed",
+                                  rulesURL + URLEncoder.encode( rule,
+                                                                "UTF-8" ) );
+            }
+            for ( String rule : delta.getRemovedRules() ) {
+                appendDeltaEntry( xml,
+                                  "rule",
+                                  rule,
+                                  "removed",
+                                  null );
+            }
+            appendDeltaEntries( xml,
+                                "function",
+                                delta.getAddedFunctions(),
+                                delta.getChangedFunctions(),
+                                delta.getRemovedFunctions() );
+            appendDeltaEntries( xml,
+                                "type",
+                                delta.getAddedTypes(),
+                                delta.getChangedTypes(),
+                                delta.getRemovedTypes() );
+        }
+        xml.append( "</package-delta>\n" );
+
+        out.write( xml.toString().getBytes( "UTF-8" ) );
+        out.flush();
+        return packageName + "_delta.xml";
+    }
+
+    /**
+     * Writes the DRL of a single rule of a package binary, as it was built.
+     *
+     * @param packageVersion a snapshot name or a binary version id.
+     * @return The filename, or null if the binary (or the rule) is not known.
+     */
+    public String loadRuleSource(String packageName,
+                                 String packageVersion,
+                                 boolean isLatest,
+                                 String ruleName,
+                                 OutputStream out) throws IOException {
+        PackageBinaryHistory history = PackageBinaryHistory.getInstance();
+        PackageBinaryHistory.BinaryVersion version = isLatest ? null : history.getVersion( packageName,
+                                                                                           packageVersion );
+        if ( version == null ) {
+            version = history.getVersion( packageName,
+                                          getBinaryVersionId( packageName,
+                                                              packageVersion,
+                                                              isLatest ) );
+        }
+        String drl = (version == null) ? null : version.getRuleDRL( ruleName );
+        if ( drl == null ) {
+            return null;
+        }
+        out.write( drl.getBytes( "UTF-8" ) );
+        out.flush();
+        return URLEncoder.encode( ruleName,
+                                  "UTF-8" ) + ".drl";
+    }
+
+    /**
+     * @return the version id of the binary of the package, or of a snapshot,
+     *         as it was stored when the binary was built.
+     */
+    public String getBinaryVersionId(String packageName,
+                                     String packageVersion,
+                                     boolean isLatest) {
+        PackageItem item;
+        if ( isLatest ) {
+            item = repository.loadPackage( packageName );
+        } else {
+            item = repository.loadPackageSnapshot( packageName,
+                                                   packageVersion );
+        }
+        String versionId = item.getBinaryVersionId();
+        if ( versionId == null ) {
+            // Built before the version id was stored with the binary
+            versionId = PackageBinaryHistory.getVersionId( item.getCompiledPackageBytes() );
+        }
+        return versionId;
+    }
+
+    private void appendDeltaEntries(StringBuilder xml,
+                                    String element,
+                                    List<String> added,
+                                    List<String> changed,
+                                    List<String> removed) {
+        for ( String name : added ) {
+            appendDeltaEntry( xml,
+                              element,
+                              name,
+                              "added",
+                              null );
+        }
+        for ( String name : changed ) {
+            appendDeltaEntry( xml,
+                              element,
+                              name,
+                              "changed",
+                              null );
+        }
+        for ( String name : removed ) {
+            appendDeltaEntry( xml,
+                              element,
+                              name,
+                              "removed",
+                              null );
+        }
+    }
+
+    private void appendDeltaEntry(StringBuilder xml,
+                                  String element,
+                                  String name,
+                                  String change,
+                                  String source) {
+        xml.append( "    <" ).append( element );
+        xml.append( " name=\"" ).append( StringEscapeUtils.escapeXml( name ) );
+        xml.append( "\" change=\"" ).append( change ).append( "\"" );
+        if ( source != null ) {
+            xml.append( " source=\"" ).append( StringEscapeUtils.escapeXml( source ) ).append( "\"" );
+        }
+        xml.append( "/>\n" );
+    }
+
     public byte[] exportPackageFromRepository(String packageName) {
         try {
             return this.repository.exportPackageFromRepository( packageName );
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.files;
+
+import org.drools.guvnor.server.security.AdminType;
+import org.drools.guvnor.server.security.RoleType;
+import org.drools.repository.metrics.Metrics;
+import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.security.AuthorizationException;
+import org.jboss.seam.security.Identity;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Reports the {@link Metrics} (timers with their histograms, counters, cache
+ * hit ratios and gauges) as JSON, for administrators. The same metrics are
+ * available through JMX.
+ */
+public class MetricsServlet extends RepositoryServlet {
+
+    private static final long serialVersionUID = 510l;
+
+    @Override
+    protected void doGet(final HttpServletRequest request,
+                         final HttpServletResponse response) throws ServletException,
+            IOException {
+        try {
+            doAuthorizedAction(request,
+                    response,
+                    new Command() {
+                        public void execute() throws Exception {
+                            checkAdminPermission();
+                            response.setContentType("application/json");
+                            response.setCharacterEncoding("UTF-8");
+                            response.setHeader("Cache-Control", "no-cache");
+                            response.getWriter().write(Metrics.toJSON());
+                        }
+                    });
+        } catch (AuthorizationException e) {
+            response.setHeader("WWW-Authenticate",
+                    "BASIC realm=\"users\"");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        }
+    }
+
+    void checkAdminPermission() {
+        if (Contexts.isSessionContextActive()) {
+            Identity.instance().checkPermission(new AdminType(),
+                    RoleType.ADMIN.getName());
+        }
+    }
+
+}
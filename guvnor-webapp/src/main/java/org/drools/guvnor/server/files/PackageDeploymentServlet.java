@@ -17,15 +17,12 @@
 package org.drools.guvnor.server.files;
 
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Locale;
 
@@ -60,15 +57,31 @@ public class PackageDeploymentServlet extends RepositoryServlet {
     public static final String RFC822DATEFORMAT = "EEE', 'dd' 'MMM' 'yyyy' 'HH:mm:ss' 'Z";
     public static final Locale HEADER_LOCALE = Locale.US;
 
+    /**
+     * The response header giving the version id of a package binary, which an
+     * agent passes back to the delta URI to learn what changed since.
+     */
+    public static final String BINARY_VERSION_HEADER = "X-Guvnor-Binary-Version";
+
+    private static final String DELTA = "/delta";
+
 
     @Override
     protected long getLastModified(HttpServletRequest request) {
         PackageDeploymentURIHelper helper = null;
         try {
             helper = new PackageDeploymentURIHelper( request.getRequestURI() );
-            FileManagerUtils fm = getFileManager();
-            return fm.getLastModified( helper.getPackageName(),
-                                       helper.getVersion() );
+            if ( helper.isRule() || request.getRequestURI().endsWith( DELTA ) ) {
+                // Their versions need not be snapshots
+                return super.getLastModified( request );
+            }
+            FileManagerUtils fm = getReadOnlyFileManager();
+            try {
+                return fm.getLastModified( helper.getPackageName(),
+                                           helper.getVersion() );
+            } finally {
+                releaseReadOnlyFileManager( fm );
+            }
         } catch ( UnsupportedEncodingException e ) {
             return super.getLastModified( request );
         }
@@ -81,9 +94,14 @@ public class PackageDeploymentServlet extends RepositoryServlet {
         if ( request.getMethod().equals( "HEAD" ) ) {
             SimpleDateFormat dateFormat = new SimpleDateFormat(RFC822DATEFORMAT, HEADER_LOCALE);
             PackageDeploymentURIHelper helper = new PackageDeploymentURIHelper( request.getRequestURI() );
-            FileManagerUtils fm = getFileManager();
-            long mod = fm.getLastModified( helper.getPackageName(),
-                                           helper.getVersion() );
+            FileManagerUtils fm = getReadOnlyFileManager();
+            long mod;
+            try {
+                mod = fm.getLastModified( helper.getPackageName(),
+                                          helper.getVersion() );
+            } finally {
+                releaseReadOnlyFileManager( fm );
+            }
             response.addHeader( "lastModified",
                                 "" + mod );
             response.addHeader( "Last-Modified",
@@ -130,6 +148,11 @@ public class PackageDeploymentServlet extends RepositoryServlet {
      * if you pass in "LATEST" it will get the latest (not a snapshot) if it exists.
      * Normally that will only be used when downloading on demand, otherwise you should ONLY
      * use a snapshot as they are always "up to date".
+     *
+     * For agents that keep up with the package binary:
+     * /<packageName>/<version>/delta?from=<versionId> tells what changed since
+     * the binary with that version id (see BINARY_VERSION_HEADER), and
+     * /<packageName>/<versionId>/rule/<ruleName> is the DRL of a single rule.
      */
     protected void doGet(final HttpServletRequest req,
                          final HttpServletResponse res) throws ServletException,
@@ -144,139 +167,178 @@ public class PackageDeploymentServlet extends RepositoryServlet {
                 log.info( "PackageIsLatest: " + helper.isLatest() );
                 log.info( "PackageIsSource: " + helper.isSource() );
 
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                FileManagerUtils fm = getFileManager();
-                String fileName = null;
-                if ( helper.isSource() ) {
-                    if ( helper.isAsset() ) {
-                        fileName = fm.loadSourceAsset( helper.getPackageName(),
-                                                       helper.getVersion(),
-                                                       helper.isLatest(),
-                                                       helper.getAssetName(),
-                                                       out );
-                    } else {
-                        fileName = fm.loadSourcePackage( helper.getPackageName(),
-                                                         helper.getVersion(),
-                                                         helper.isLatest(),
-                                                         out );
-                    }
-                } else if ( helper.isDocumentation() ) {
-
-                    PackageItem pkg = fm.getRepository().loadPackage( helper.getPackageName() );
-
-                    GuvnorDroolsDocsBuilder builder;
-                    try {
-                        builder = GuvnorDroolsDocsBuilder.getInstance( pkg );
-                    } catch ( DroolsParserException e ) {
-                        throw new ServletException( "Could not parse the rule package." );
-
-                    }
-
-                    fileName = "documentation.pdf";
-
-                    builder.writePDF( out );
-
-                } else if ( helper.isPng() ) {
-                    PackageItem pkg = fm.getRepository().loadPackage( helper.getPackageName() );
-                    AssetItem asset = pkg.loadAsset(helper.getAssetName());
-
-                    fileName = getFileManager().loadFileAttachmentByUUID( asset.getUUID(),
-                                                                                 out );
-                } else {
-                    if ( req.getRequestURI().endsWith( "SCENARIOS" ) ) {
-                        fileName="TestScenariosResult.txt";
-                        doRunScenarios( helper,
-                                        out );
-                    } else if ( req.getRequestURI().endsWith( "ChangeSet.xml" ) ) {
-                        String url = req.getRequestURL().toString().replace( "/ChangeSet.xml",
-                                                                             "" );
-                        fileName = "ChangeSet.xml";
-                        String xml = "";
-                        xml += "<change-set xmlns='http://drools.org/drools-5.0/change-set'\n";
-                        xml += "    xmlns:xs='http://www.w3.org/2001/XMLSchema-instance'\n";
-                        xml += "    xs:schemaLocation='http://drools.org/drools-5.0/change-set http://anonsvn.jboss.org/repos/labs/labs/jbossrules/trunk/drools-api/src/main/resources/change-set-1.0.0.xsd' >\n";
-                        xml += "    <add>\n ";
-                        xml += "        <resource source='" + url + "' type='PKG' />\n";
-                        xml += "    </add>\n";
-                        xml += "</change-set>";
-                        out.write( xml.getBytes() );
-                    } else if(req.getRequestURI().endsWith( "MODEL")) {
-                         PackageItem pkg = fm.getRepository().loadPackage(helper.getPackageName());
-                         AssetItemIterator it = pkg.listAssetsByFormat(AssetFormats.MODEL);
-                         BufferedInputStream inputFile = null;
-                         byte[] data = new byte[1000];
-                         int count = 0;
-                         int numberOfAssets = 0;
-                         while(it.hasNext()){
-                             it.next();
-                             numberOfAssets++;
-                         }
-
-                         if (numberOfAssets==0){
-                             res.setContentType( "text/html" );
-                             PrintWriter outEM = res.getWriter();
-                             outEM.println("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 " +
-                                     "Transitional//EN\">\n" +
-                                     "<HTML>\n" +
-                                     "<HEAD><TITLE>Empty POJO Model(jar)</TITLE></HEAD>\n" +
-                                     "<BODY>\n" +
-                                     "<H1>EMPTY MODEL</H1>\n" +
-                             "</BODY></HTML>");
-                             return;
-                         }
-
-                         if(numberOfAssets>1){
-                             fileName="Model.zip";
-                             inputFile = new BufferedInputStream(zipModel(pkg));
-                             while((count = inputFile.read(data,0,1000)) != -1)
-                             {
-                                 out.write(data, 0, count);
-                             }
-
-                             inputFile.close();
-                         }else{
-                             fileName="ModelJar.jar";
-                             inputFile = new BufferedInputStream(zipModel(pkg));
-                             while((count = inputFile.read(data,0,1000)) != -1)
-                             {
-                                 out.write(data, 0, count);
-                             }
-
-                             inputFile.close();
-
-                         }
-
-
-                    } else if (req.getRequestURI().contains("/SpringContext/")) {
-
-                        String uri = req.getRequestURI();
-                        int lastIndexOfSlash = uri.lastIndexOf('/');
-                        String assetName = uri.substring(lastIndexOfSlash + 1);
-                        fileName = assetName + ".xml";
-
-                        PackageItem pkg = fm.getRepository().loadPackage( helper.getPackageName() );
-                        AssetItem asset = pkg.loadAsset(assetName);
-                        out.write(asset.getBinaryContentAsBytes());
-
-                    } else {
-                        fileName = fm.loadBinaryPackage( helper.getPackageName(),
-                                helper.getVersion(),
-                                helper.isLatest(),
-                                out );
-                    }
-
+                if ( !helper.isSource() && req.getRequestURI().endsWith( "SCENARIOS" ) ) {
+                    //Runs on the user's own session, the pooled sessions are only for reading
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    doRunScenarios( helper,
+                                    out );
+                    writeDownload( res,
+                                   "TestScenariosResult.txt",
+                                   out );
+                    return;
                 }
 
-                res.setContentType( "application/x-download" );
-                res.setHeader( "Content-Disposition",
-                                    "attachment; filename=" + fileName + ";" );
-                res.setContentLength( out.size() );
-                res.getOutputStream().write( out.toByteArray() );
-                res.getOutputStream().flush();
+                FileManagerUtils fm = getReadOnlyFileManager();
+                try {
+                    download( helper,
+                              fm,
+                              req,
+                              res );
+                } finally {
+                    releaseReadOnlyFileManager( fm );
+                }
             }
         });
     }
 
+    private void download(PackageDeploymentURIHelper helper,
+                          FileManagerUtils fm,
+                          HttpServletRequest req,
+                          HttpServletResponse res) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String fileName = null;
+        if ( helper.isSource() ) {
+            if ( helper.isAsset() ) {
+                fileName = fm.loadSourceAsset( helper.getPackageName(),
+                                               helper.getVersion(),
+                                               helper.isLatest(),
+                                               helper.getAssetName(),
+                                               out );
+            } else {
+                fileName = fm.loadSourcePackage( helper.getPackageName(),
+                                                 helper.getVersion(),
+                                                 helper.isLatest(),
+                                                 out );
+            }
+        } else if ( helper.isDocumentation() ) {
+
+            PackageItem pkg = fm.getRepository().loadPackage( helper.getPackageName() );
+
+            GuvnorDroolsDocsBuilder builder;
+            try {
+                builder = GuvnorDroolsDocsBuilder.getInstance( pkg );
+            } catch ( DroolsParserException e ) {
+                throw new ServletException( "Could not parse the rule package." );
+
+            }
+
+            fileName = "documentation.pdf";
+
+            builder.writePDF( out );
+
+        } else if ( helper.isRule() ) {
+            fileName = fm.loadRuleSource( helper.getPackageName(),
+                                          helper.getVersion(),
+                                          helper.isLatest(),
+                                          helper.getRuleName(),
+                                          out );
+            if ( fileName == null ) {
+                res.sendError( HttpServletResponse.SC_NOT_FOUND );
+                return;
+            }
+        } else if ( helper.isPng() ) {
+            PackageItem pkg = fm.getRepository().loadPackage( helper.getPackageName() );
+            AssetItem asset = pkg.loadAsset(helper.getAssetName());
+
+            fileName = fm.loadFileAttachmentByUUID( asset.getUUID(),
+                                                    out );
+        } else {
+            if ( req.getRequestURI().endsWith( DELTA ) ) {
+                String packageURL = req.getRequestURL().toString();
+                packageURL = packageURL.substring( 0,
+                                                   packageURL.length() - DELTA.length() );
+                packageURL = packageURL.substring( 0,
+                                                   packageURL.lastIndexOf( '/' ) );
+                fileName = fm.loadPackageDelta( helper.getPackageName(),
+                                                helper.getVersion(),
+                                                helper.isLatest(),
+                                                req.getParameter( "from" ),
+                                                packageURL,
+                                                out );
+            } else if ( req.getRequestURI().endsWith( "ChangeSet.xml" ) ) {
+                String url = req.getRequestURL().toString().replace( "/ChangeSet.xml",
+                                                                     "" );
+                fileName = "ChangeSet.xml";
+                String xml = "";
+                xml += "<change-set xmlns='http://drools.org/drools-5.0/change-set'\n";
+                xml += "    xmlns:xs='http://www.w3.org/2001/XMLSchema-instance'\n";
+                xml += "    xs:schemaLocation='http://drools.org/drools-5.0/change-set http://anonsvn.jboss.org/repos/labs/labs/jbossrules/trunk/drools-api/src/main/resources/change-set-1.0.0.xsd' >\n";
+                xml += "    <add>\n ";
+                xml += "        <resource source='" + url + "' type='PKG' />\n";
+                xml += "    </add>\n";
+                xml += "</change-set>";
+                out.write( xml.getBytes() );
+            } else if(req.getRequestURI().endsWith( "MODEL")) {
+                 PackageItem pkg = fm.getRepository().loadPackage(helper.getPackageName());
+                 LinkedList<AssetItem> jarAssets = new LinkedList<AssetItem>();
+                 AssetItemIterator it = pkg.listAssetsByFormat(AssetFormats.MODEL);
+                 while(it.hasNext()){
+                     jarAssets.add(it.next());
+                 }
+
+                 if (jarAssets.isEmpty()){
+                     res.setContentType( "text/html" );
+                     PrintWriter outEM = res.getWriter();
+                     outEM.println("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 " +
+                             "Transitional//EN\">\n" +
+                             "<HTML>\n" +
+                             "<HEAD><TITLE>Empty POJO Model(jar)</TITLE></HEAD>\n" +
+                             "<BODY>\n" +
+                             "<H1>EMPTY MODEL</H1>\n" +
+                     "</BODY></HTML>");
+                     return;
+                 }
+
+                 // Streamed straight to the response, the jars can be large
+                 fileName = (jarAssets.size() > 1) ? "Model.zip" : "ModelJar.jar";
+                 res.setContentType( "application/x-download" );
+                 res.setHeader( "Content-Disposition",
+                                     "attachment; filename=" + fileName + ";" );
+                 new AssetZipper(jarAssets,
+                                 pkg).zipAssets(res.getOutputStream());
+                 res.getOutputStream().flush();
+                 return;
+
+            } else if (req.getRequestURI().contains("/SpringContext/")) {
+
+                String uri = req.getRequestURI();
+                int lastIndexOfSlash = uri.lastIndexOf('/');
+                String assetName = uri.substring(lastIndexOfSlash + 1);
+                fileName = assetName + ".xml";
+
+                PackageItem pkg = fm.getRepository().loadPackage( helper.getPackageName() );
+                AssetItem asset = pkg.loadAsset(assetName);
+                out.write(asset.getBinaryContentAsBytes());
+
+            } else {
+                fileName = fm.loadBinaryPackage( helper.getPackageName(),
+                        helper.getVersion(),
+                        helper.isLatest(),
+                        out );
+                res.setHeader( BINARY_VERSION_HEADER,
+                               fm.getBinaryVersionId( helper.getPackageName(),
+                                                      helper.getVersion(),
+                                                      helper.isLatest() ) );
+            }
+
+        }
+
+        writeDownload( res,
+                       fileName,
+                       out );
+    }
+
+    private void writeDownload(HttpServletResponse res,
+                               String fileName,
+                               ByteArrayOutputStream out) throws IOException {
+        res.setContentType( "application/x-download" );
+        res.setHeader( "Content-Disposition",
+                            "attachment; filename=" + fileName + ";" );
+        res.setContentLength( out.size() );
+        res.getOutputStream().write( out.toByteArray() );
+        res.getOutputStream().flush();
+    }
+
     private void doRunScenarios(PackageDeploymentURIHelper helper,
                                 ByteArrayOutputStream out) throws IOException {
         ServiceImplementation serv = RepositoryServiceServlet.getService();
@@ -299,27 +361,5 @@ public class PackageDeploymentServlet extends RepositoryServlet {
             out.write( e.getMessage().getBytes() );
         }
     }
-
-    /**
-      *  Zip Model
-      */
-   public InputStream zipModel(PackageItem pkg){
-
-       LinkedList<AssetItem> jarAssets = new LinkedList<AssetItem>();
-       AssetZipper assetZipper = null;
-
-       Iterator<AssetItem> it = pkg.getAssets();
-           while (it.hasNext()){
-               AssetItem asset = it.next();
-               if(asset.getFormat().contentEquals("jar")) jarAssets.add(asset);
-           }
-           if(jarAssets.size() != 0){
-               assetZipper = new AssetZipper(jarAssets,pkg);
-
-               return assetZipper.zipAssets();
-           }
-
-           return null;
-   }
     
 }
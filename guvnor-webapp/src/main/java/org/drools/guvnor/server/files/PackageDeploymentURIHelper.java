@@ -33,6 +33,7 @@ public class PackageDeploymentURIHelper {
     private String version;
     private String packageName;
     private String assetName = null;
+    private String ruleName = null;
 
     private enum FileType {
         UNKNOWN, SOURCE, DOCUMENTATION, PNG
@@ -76,6 +77,18 @@ public class PackageDeploymentURIHelper {
         return assetName != null;
     }
 
+    /**
+     * The name of a single rule of the package binary, for URIs of the form
+     * /package/<packageName>/<version>/rule/<ruleName>
+     */
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public boolean isRule() {
+        return ruleName != null;
+    }
+
     class URIProcessor {
 
         private static final String PDF  = ".pdf";
@@ -99,7 +112,13 @@ public class PackageDeploymentURIHelper {
         private void setPackageOrAssetData() {
             Pattern pattern = Pattern.compile( ".*/(package|asset)/(.*)" );
             Matcher matcher = pattern.matcher( url );
-            if ( matcher.matches() ) {
+            Matcher ruleMatcher = Pattern.compile( ".*/package/([^/]*)/([^/]*)/rule/(.*)" ).matcher( url );
+            if ( fileType == FileType.UNKNOWN && ruleMatcher.matches() ) {
+                // Rule names can have slashes
+                packageName = ruleMatcher.group( 1 );
+                version = ruleMatcher.group( 2 );
+                ruleName = ruleMatcher.group( 3 );
+            } else if ( matcher.matches() ) {
                 String result = matcher.group( 2 );
                 String[] tokens = result.split( "/" );
                 version = tokens[1];
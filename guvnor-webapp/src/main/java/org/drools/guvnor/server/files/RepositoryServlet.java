@@ -16,6 +16,7 @@
 
 package org.drools.guvnor.server.files;
 
+import org.drools.guvnor.server.repository.ReadOnlySessionPool;
 import org.drools.guvnor.server.util.TestEnvironmentSessionHelper;
 import org.drools.repository.RulesRepository;
 import org.drools.util.codec.Base64;
@@ -58,6 +59,31 @@ public class RepositoryServlet extends HttpServlet {
         }
     }
 
+    /**
+     * A file manager on a pooled read only session, for requests that only
+     * read from the repository. It has to be given back with
+     * releaseReadOnlyFileManager once the response is written.
+     */
+    public static FileManagerUtils getReadOnlyFileManager() {
+        if (Contexts.isApplicationContextActive()) {
+            FileManagerUtils manager = new FileManagerUtils();
+            manager.setRepository(getReadOnlySessionPool().borrow());
+            return manager;
+        } else {
+            return getFileManager();
+        }
+    }
+
+    public static void releaseReadOnlyFileManager(FileManagerUtils manager) {
+        if (Contexts.isApplicationContextActive()) {
+            getReadOnlySessionPool().release(manager.getRepository());
+        }
+    }
+
+    private static ReadOnlySessionPool getReadOnlySessionPool() {
+        return (ReadOnlySessionPool) Component.getInstance("readOnlySessionPool");
+    }
+
     /**
      * Here we perform the action in the appropriate security context.
      */
@@ -51,6 +51,11 @@ public class WebDAVImpl
 
     final ThreadLocal<RulesRepository> tlRepo = new ThreadLocal<RulesRepository>();
 
+    /**
+     * package listings, so a PROPFIND doesn't load every asset several times
+     */
+    final WebDAVStatCache statCache = new WebDAVStatCache();
+
     public WebDAVImpl(File f) {
 
     }
@@ -68,6 +73,7 @@ public class WebDAVImpl
 
     public ITransaction begin(final Principal principal) {
         tlRepo.set(RestAPIServlet.getRepository());
+        statCache.beginTransaction();
 
         return new ITransaction() {
             public Principal getPrincipal() {
@@ -81,6 +87,7 @@ public class WebDAVImpl
     }
 
     public void commit(ITransaction iTransaction) {
+        statCache.endTransaction();
         getRepo().save();
         tlRepo.set(null);
     }
@@ -93,6 +100,7 @@ public class WebDAVImpl
                 throw new UnsupportedOperationException("Can't nest packages.");
             }
             RulesRepository repository = getRepo();
+            invalidatePackageListing(path);
             if (repository.containsPackage(path[1])) {
                 PackageItem pkg = loadPackageFromRepository(repository,
                         path[1]);
@@ -117,6 +125,7 @@ public class WebDAVImpl
             if (path.length > 3) {
                 throw new UnsupportedOperationException("Can't do nested packages.");
             }
+            invalidatePackageListing(path);
             String[] resource = AssetItem.getAssetNameFromFileName(path[2]);
             PackageItem packageItem = loadPackageFromRepository(getRepo(),
                     path[1]);
@@ -136,6 +145,7 @@ public class WebDAVImpl
                 asset.updateFormat(resource[1]);
             }
         } else if (isGlobalAreas(path)) {
+            invalidatePackageListing(path);
             String[] resource = AssetItem.getAssetNameFromFileName(path[1]);
             PackageItem packageItem = loadGlobalAreaFromRepository(getRepo());
 
@@ -217,6 +227,11 @@ public class WebDAVImpl
     private void handleReadOnlySnapshotPackages(RulesRepository repository,
                                                 String[] path,
                                                 List<String> result) {
+        WebDAVStatCache.PackageListing listing = getPackageListing(path);
+        if (listing != null) {
+            result.addAll(listing.getChildrenNames());
+            return;
+        }
         Iterator<AssetItem> it = loadPackageSnapshotFromRepository(repository,
                 path).getAssets();
         while (it.hasNext()) {
@@ -231,6 +246,11 @@ public class WebDAVImpl
     private void handleReadOnlyGlobalAreaPackages(RulesRepository repository,
                                                   String[] path,
                                                   List<String> result) {
+        WebDAVStatCache.PackageListing listing = getPackageListing(path);
+        if (listing != null) {
+            result.addAll(listing.getChildrenNames());
+            return;
+        }
         Iterator<AssetItem> it = loadGlobalAreaFromRepository(repository).getAssets();
         while (it.hasNext()) {
             AssetItem asset = it.next();
@@ -244,6 +264,11 @@ public class WebDAVImpl
     private void handleReadOnlyPackages(RulesRepository repository,
                                         String[] path,
                                         List<String> result) {
+        WebDAVStatCache.PackageListing listing = getPackageListing(path);
+        if (listing != null) {
+            result.addAll(listing.getChildrenNames());
+            return;
+        }
         PackageItem pkg = loadPackageFromRepository(repository,
                 path[1]);
         Iterator<AssetItem> it = pkg.getAssets();
@@ -317,6 +342,10 @@ public class WebDAVImpl
 
     private Date getCreationDateForPackage(RulesRepository repository,
                                            String[] path) {
+        WebDAVStatCache.ItemStat stat = getItemStat(path);
+        if (stat != null) {
+            return stat.getCreated();
+        }
         PackageItem packageItem = loadPackageFromRepository(repository,
                 path[1]);
         if (path.length == 2) {
@@ -378,6 +407,10 @@ public class WebDAVImpl
 
     private Date getLastModifiedForPackage(RulesRepository repository,
                                            String[] path) {
+        WebDAVStatCache.ItemStat stat = getItemStat(path);
+        if (stat != null) {
+            return stat.getLastModified();
+        }
         PackageItem pkg = loadPackageFromRepository(repository,
                 path[1]);
         if (path.length == 2) {
@@ -488,6 +521,13 @@ public class WebDAVImpl
     private StoredObject getStoredObjectForReadOnlyPackages(String uri,
                                                             RulesRepository repository,
                                                             String[] path) {
+        WebDAVStatCache.PackageListing listing = getPackageListing(path);
+        if (listing != null) {
+            WebDAVStatCache.ItemStat stat = getItemStat(listing,
+                    path);
+            return (stat == null) ? null : createStoredObject(uri,
+                    stat);
+        }
         PackageItem packageItem = loadPackageFromRepository(repository,
                 path[1]);
         if (path.length == 2) {
@@ -555,6 +595,17 @@ public class WebDAVImpl
         return so;
     }
 
+    private StoredObject createStoredObject(String uri,
+                                            WebDAVStatCache.ItemStat stat) {
+        StoredObject so = new StoredObject();
+        so.setCreationDate(stat.getCreated());
+        so.setFolder(isFolder(uri));
+        so.setLastModified(stat.getLastModified());
+        so.setResourceLength(stat.getLength());
+
+        return so;
+    }
+
     private InputStream getContent(String uri) {
         RulesRepository repository = getRepo();
         String[] path = getPath(uri);
@@ -590,6 +641,10 @@ public class WebDAVImpl
         try {
             RulesRepository repository = getRepo();
             if (path.length == 3 && isPackages(path) && checkPackagePermissionIfReadOnly(path)) {
+                WebDAVStatCache.ItemStat stat = getItemStat(path);
+                if (stat != null) {
+                    return stat.getLength();
+                }
                 return loadAssetItemFromPackage(repository,
                         path).getContentLength();
             }
@@ -600,6 +655,10 @@ public class WebDAVImpl
             }
 
             if (path.length == 4 && isSnaphosts(path) && checkPackagePermissionIfReadOnly(path)) {
+                WebDAVStatCache.ItemStat stat = getItemStat(path);
+                if (stat != null) {
+                    return stat.getLength();
+                }
                 return loadAssetItemFromPackageSnaphot(repository,
                         path).getContentLength();
             }
@@ -726,6 +785,14 @@ public class WebDAVImpl
     private boolean handlePackagesInternalObjectExists(String uri,
                                                        RulesRepository repository,
                                                        String[] path) {
+        if (isPackages(path) && !path[path.length - 1].startsWith("._")) {
+            WebDAVStatCache.PackageListing listing = getPackageListing(path);
+            if (listing != null) {
+                WebDAVStatCache.ItemStat stat = getItemStat(listing,
+                        path);
+                return stat != null && !stat.isArchived();
+            }
+        }
         if (path.length == 2) {
             PackageItem pkg = loadPackageFromRepository(repository,
                     path[1]);
@@ -748,6 +815,7 @@ public class WebDAVImpl
             throw new IllegalArgumentException();
         }
         if (isPackages(path) && checkPackagePermissionIfDeveloper(path)) {
+            invalidatePackageListing(path);
             PackageItem packageItem = loadPackageFromRepository(repository,
                     path[1]);
             if (path.length == 3) {
@@ -766,6 +834,7 @@ public class WebDAVImpl
                 packageItem.checkin("");
             }
         } else if (isGlobalAreas(path)) {
+            invalidatePackageListing(path);
             if (path.length == 2) {
                 //delete asset
                 if (path[1].startsWith("._")) {
@@ -784,6 +853,7 @@ public class WebDAVImpl
     }
 
     public void rollback(ITransaction iTransaction) {
+        statCache.endTransaction();
         RulesRepository repository = getRepo();
         repository.getSession().logout();
     }
@@ -812,6 +882,7 @@ public class WebDAVImpl
                 }
                 return 0;
             }
+            invalidatePackageListing(path);
             AssetItem asset = loadAssetItemFromPackage(repository,
                     path);
             if (asset.getFormat().equals("drl")) {
@@ -847,6 +918,7 @@ public class WebDAVImpl
                 }
                 return 0;
             }
+            invalidatePackageListing(path);
             AssetItem asset = loadAssetItemFromGlobalArea(repository,
                     path);
             if (asset.getFormat().equals("drl")) {
@@ -971,6 +1043,86 @@ public class WebDAVImpl
                 path).containsAsset(AssetItem.getAssetNameFromFileName(path[3])[0]);
     }
 
+    /**
+     * @return the key of the package listing the path is in, or null if it
+     *         isn't in a package.
+     */
+    private String getPackageListingKey(String[] path) {
+        if (isPackages(path) && path.length >= 2) {
+            return PACKAGES + "/" + path[1];
+        }
+        if (isSnaphosts(path) && path.length >= 3) {
+            return SNAPSHOTS + "/" + path[1] + "/" + path[2];
+        }
+        if (isGlobalAreas(path)) {
+            return GLOBALAREA;
+        }
+        return null;
+    }
+
+    /**
+     * @return the (cached) listing of the package the path is in, or null if
+     *         there is no transaction or the package can't be loaded, in which
+     *         case the caller reads the repository directly.
+     */
+    private WebDAVStatCache.PackageListing getPackageListing(String[] path) {
+        String key = getPackageListingKey(path);
+        if (key == null || !statCache.isActive()) {
+            return null;
+        }
+        WebDAVStatCache.PackageListing listing = statCache.get(key);
+        if (listing == null) {
+            try {
+                RulesRepository repository = getRepo();
+                PackageItem pkg;
+                if (isPackages(path)) {
+                    pkg = loadPackageFromRepository(repository,
+                            path[1]);
+                } else if (isSnaphosts(path)) {
+                    pkg = loadPackageSnapshotFromRepository(repository,
+                            path);
+                } else {
+                    pkg = loadGlobalAreaFromRepository(repository);
+                }
+                listing = new WebDAVStatCache.PackageListing(pkg);
+            } catch (RuntimeException e) {
+                return null;
+            }
+            statCache.put(key,
+                    listing);
+        }
+        return listing;
+    }
+
+    private WebDAVStatCache.ItemStat getItemStat(String[] path) {
+        WebDAVStatCache.PackageListing listing = getPackageListing(path);
+        if (listing == null) {
+            return null;
+        }
+        return getItemStat(listing,
+                path);
+    }
+
+    /**
+     * @return the stat of the package itself, or of the asset the path points
+     *         to (null if there is no such asset).
+     */
+    private WebDAVStatCache.ItemStat getItemStat(WebDAVStatCache.PackageListing listing,
+                                                 String[] path) {
+        int packagePathLength = isSnaphosts(path) ? 3 : (isGlobalAreas(path) ? 1 : 2);
+        if (path.length == packagePathLength) {
+            return listing.getPackageStat();
+        }
+        return listing.getAssetStat(path[packagePathLength]);
+    }
+
+    private void invalidatePackageListing(String[] path) {
+        String key = getPackageListingKey(path);
+        if (key != null) {
+            statCache.invalidate(key);
+        }
+    }
+
     private PackageItem loadPackageFromRepository(RulesRepository repository,
                                                   String path) {
         return repository.loadPackage(path);
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.files;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.drools.repository.AssetItem;
+import org.drools.repository.PackageItem;
+import org.drools.repository.VersionableItem;
+
+/**
+ * Caches the stat information (dates, length, archived flag) of a package and
+ * all its assets for WebDAV, so that a PROPFIND over a package reads the asset
+ * nodes once, rather than once per property per asset.
+ *
+ * Listings are kept for the current transaction (between WebDAVImpl.begin and
+ * commit/rollback) and shared between requests for a short time to live, which
+ * can be set with the guvnor.webdav.statcache.ttl system property (in
+ * milliseconds, 0 to disable). Expired listings are dropped whenever a new
+ * one is shared, and at most MAX_SHARED listings are shared at a time. Changes
+ * made through WebDAV invalidate the listing of the package straight away.
+ * Outside of a transaction nothing is cached.
+ */
+class WebDAVStatCache {
+
+    static final String                                     TTL_PROPERTY = "guvnor.webdav.statcache.ttl";
+
+    static final long                                       DEFAULT_TTL  = 2000;
+
+    static final int                                        MAX_SHARED   = 100;
+
+    private final long                                      ttl;
+
+    private final Map<String, PackageListing>               shared       = new ConcurrentHashMap<String, PackageListing>();
+
+    private final ThreadLocal<Map<String, PackageListing>> transaction  = new ThreadLocal<Map<String, PackageListing>>();
+
+    WebDAVStatCache() {
+        this( Long.getLong( TTL_PROPERTY,
+                            DEFAULT_TTL ) );
+    }
+
+    WebDAVStatCache(long ttl) {
+        this.ttl = ttl;
+    }
+
+    void beginTransaction() {
+        transaction.set( new HashMap<String, PackageListing>() );
+    }
+
+    void endTransaction() {
+        transaction.remove();
+    }
+
+    boolean isActive() {
+        return transaction.get() != null;
+    }
+
+    /**
+     * @return the listing of the package, or null if it is not cached (or
+     *         there is no transaction).
+     */
+    PackageListing get(String key) {
+        Map<String, PackageListing> listings = transaction.get();
+        if ( listings == null ) {
+            return null;
+        }
+        PackageListing listing = listings.get( key );
+        if ( listing == null && ttl > 0 ) {
+            listing = shared.get( key );
+            if ( listing != null ) {
+                if ( System.currentTimeMillis() - listing.loadedAt > ttl ) {
+                    shared.remove( key );
+                    listing = null;
+                } else {
+                    listings.put( key,
+                                  listing );
+                }
+            }
+        }
+        return listing;
+    }
+
+    void put(String key,
+             PackageListing listing) {
+        Map<String, PackageListing> listings = transaction.get();
+        if ( listings == null ) {
+            return;
+        }
+        listings.put( key,
+                      listing );
+        if ( ttl > 0 ) {
+            pruneShared();
+            if ( shared.size() < MAX_SHARED || shared.containsKey( key ) ) {
+                shared.put( key,
+                            listing );
+            }
+        }
+    }
+
+    /**
+     * Drops the shared listings that have outlived their time to live.
+     */
+    private void pruneShared() {
+        long now = System.currentTimeMillis();
+        for ( Iterator<PackageListing> it = shared.values().iterator(); it.hasNext(); ) {
+            if ( now - it.next().loadedAt > ttl ) {
+                it.remove();
+            }
+        }
+    }
+
+    int getSharedSize() {
+        return shared.size();
+    }
+
+    void invalidate(String key) {
+        Map<String, PackageListing> listings = transaction.get();
+        if ( listings != null ) {
+            listings.remove( key );
+        }
+        shared.remove( key );
+    }
+
+    /**
+     * Stat information of a package or an asset.
+     */
+    static class ItemStat {
+
+        private final Date    created;
+        private final Date    lastModified;
+        private final long    length;
+        private final boolean archived;
+
+        ItemStat(VersionableItem item,
+                 long length) {
+            this.created = item.getCreatedDate().getTime();
+            this.lastModified = item.getLastModified().getTime();
+            this.length = length;
+            this.archived = item.isArchived();
+        }
+
+        Date getCreated() {
+            return created;
+        }
+
+        Date getLastModified() {
+            return lastModified;
+        }
+
+        long getLength() {
+            return length;
+        }
+
+        boolean isArchived() {
+            return archived;
+        }
+    }
+
+    /**
+     * A package and its assets, read in a single pass over the asset nodes.
+     */
+    static class PackageListing {
+
+        private final long                  loadedAt     = System.currentTimeMillis();
+        private final ItemStat              packageStat;
+        private final Map<String, ItemStat> assets       = new HashMap<String, ItemStat>();
+        private final List<String>          childrenNames = new ArrayList<String>();
+
+        PackageListing(PackageItem packageItem) {
+            this.packageStat = new ItemStat( packageItem,
+                                             0 );
+            Iterator<AssetItem> it = packageItem.getAssets();
+            while ( it.hasNext() ) {
+                AssetItem asset = it.next();
+                ItemStat stat = new ItemStat( asset,
+                                              asset.getContentLength() );
+                assets.put( asset.getName(),
+                            stat );
+                if ( !stat.isArchived() ) {
+                    childrenNames.add( asset.getName() + "." + asset.getFormat() );
+                }
+            }
+        }
+
+        ItemStat getPackageStat() {
+            return packageStat;
+        }
+
+        /**
+         * @param fileName the asset file name, with or without its format.
+         */
+        ItemStat getAssetStat(String fileName) {
+            return assets.get( AssetItem.getAssetNameFromFileName( fileName )[0] );
+        }
+
+        List<String> getChildrenNames() {
+            return Collections.unmodifiableList( childrenNames );
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.repository;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.RepositoryException;
+
+import org.drools.guvnor.server.util.LoggingHelper;
+import org.drools.repository.RulesRepository;
+import org.drools.repository.RulesRepositoryException;
+
+/**
+ * Updates the assets of the renamed packages in the background, on a session
+ * of its own, so that a rename doesn't hold the request that asked for it
+ * (the package is renamed at once, its assets answer to the new name
+ * meanwhile). The renames that were interrupted are taken up when it starts.
+ */
+public class PackageRenameService {
+
+    private static final LoggingHelper  log      = LoggingHelper.getLogger( PackageRenameService.class );
+    private static ExecutorService      executor = null;
+    private static PackageRenameService INSTANCE = null;
+
+    private RulesRepository             repository;
+
+    public static synchronized PackageRenameService getInstance() {
+        if ( INSTANCE == null ) {
+            INSTANCE = new PackageRenameService();
+            executor = Executors.newSingleThreadExecutor();
+        }
+        return INSTANCE;
+    }
+
+    private PackageRenameService() {
+    }
+
+    /**
+     * @param systemRepo a repository used for nothing else.
+     */
+    public void init(RulesRepository systemRepo) {
+        log.info( "Starting package rename service" );
+        this.repository = systemRepo;
+    }
+
+    public void stop() {
+        log.info( "Shutting down package rename service" );
+        executor.shutdown();
+        try {
+            if ( !executor.awaitTermination( 10,
+                                             TimeUnit.SECONDS ) ) {
+                executor.shutdownNow();
+            }
+        } catch ( InterruptedException e ) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        INSTANCE = null;
+        log.info( "Package rename service is shutdown." );
+    }
+
+    /**
+     * Updates the assets of the renames in progress. Without a repository of
+     * its own (out of the container) nothing is done: the renames are taken up
+     * on the next start.
+     */
+    public void wakeUp() {
+        executor.execute( new Runnable() {
+            public void run() {
+                resume();
+            }
+        } );
+    }
+
+    void resume() {
+        if ( repository == null ) {
+            return;
+        }
+        try {
+            repository.resumePackageRenames();
+        } catch ( RulesRepositoryException e ) {
+            log.error( "Unable to complete the package renames: " + e.getMessage(),
+                       e );
+            try {
+                // Left as it was saved, for the next time
+                repository.getSession().refresh( false );
+            } catch ( RepositoryException re ) {
+                log.error( "Unable to refresh the package rename session: " + re.getMessage() );
+            }
+        }
+    }
+
+}
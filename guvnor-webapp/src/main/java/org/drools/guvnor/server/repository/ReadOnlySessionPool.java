@@ -0,0 +1,288 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.repository;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.drools.repository.RulesRepository;
+import org.drools.repository.RulesRepositoryException;
+import org.drools.repository.metrics.Gauge;
+import org.drools.repository.metrics.Metrics;
+import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.AutoCreate;
+import org.jboss.seam.annotations.Create;
+import org.jboss.seam.annotations.Destroy;
+import org.jboss.seam.annotations.In;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of long lived repository sessions, for the servlets that
+ * only read from the repository (package deployment, feeds) and are polled
+ * often. Opening a session for each request means logging in, and starting
+ * with cold item caches, every time.
+ * <p>
+ * A session is refreshed (discarding anything left unsaved) when it is
+ * borrowed. Anything that writes keeps using the per user session of the
+ * "repository" component. Sessions that are not given back within
+ * leakThresholdMillis are reported, with where they were borrowed from.
+ */
+@Scope(ScopeType.APPLICATION)
+@AutoCreate
+@Name("readOnlySessionPool")
+public class ReadOnlySessionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadOnlySessionPool.class);
+
+    //Configured with read only privileges in the JackRabbit SimpleLoginModule,
+    //so that nothing can be written through a pooled session
+    private static final String READ_ONLY_USER = "anonymous";
+
+    @In
+    RepositoryStartupService repositoryConfiguration;
+
+    private int maxSize = 20;
+    private long maxWaitMillis = 10000;
+    private long leakThresholdMillis = 60000;
+
+    private Semaphore permits;
+    private final Queue<RulesRepository> idle = new ConcurrentLinkedQueue<RulesRepository>();
+    private final Map<RulesRepository, Borrowing> borrowed = new ConcurrentHashMap<RulesRepository, Borrowing>();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong discardedChangesCount = new AtomicLong();
+
+    /**
+     * Where and when a session was borrowed, to report it if it isn't given
+     * back.
+     */
+    private static class Borrowing {
+        private final long time = System.currentTimeMillis();
+        private final Throwable stack = new Throwable("Read only session borrowed by thread [" + Thread.currentThread().getName() + "]");
+        private volatile boolean reported;
+    }
+
+    @Create
+    public void create() {
+        permits = new Semaphore(maxSize, true);
+        Metrics.register("sessions.readOnly.idle", new Gauge() {
+            public long getValue() {
+                return getIdleCount();
+            }
+        });
+        Metrics.register("sessions.readOnly.borrowed", new Gauge() {
+            public long getValue() {
+                return getBorrowedCount();
+            }
+        });
+        Metrics.register("sessions.readOnly.created", new Gauge() {
+            public long getValue() {
+                return getCreatedCount();
+            }
+        });
+        Metrics.register("sessions.readOnly.timeouts", new Gauge() {
+            public long getValue() {
+                return getTimeoutCount();
+            }
+        });
+        Metrics.register("sessions.readOnly.leaks", new Gauge() {
+            public long getValue() {
+                return getLeakCount();
+            }
+        });
+    }
+
+    /**
+     * @return a repository on a read only session, to be given back with
+     *         {@link #release(RulesRepository)}.
+     * @throws RulesRepositoryException if none is available within maxWaitMillis.
+     */
+    public RulesRepository borrow() {
+        reportLeaks();
+        acquirePermit();
+        try {
+            RulesRepository repository = takeIdle();
+            if (repository == null) {
+                repository = new RulesRepository(repositoryConfiguration.newSession(READ_ONLY_USER));
+                createdCount.incrementAndGet();
+            }
+            borrowed.put(repository, new Borrowing());
+            borrowCount.incrementAndGet();
+            return repository;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a repository back to the pool. Anything it left unsaved is
+     * discarded.
+     */
+    public void release(RulesRepository repository) {
+        if (borrowed.remove(repository) == null) {
+            log.warn("A repository that was not borrowed from the pool was given back to it.");
+            return;
+        }
+        try {
+            Session session = repository.getSession();
+            if (session.hasPendingChanges()) {
+                log.warn("Discarding changes made on a read only session.");
+                discardedChangesCount.incrementAndGet();
+                session.refresh(false);
+            }
+            idle.offer(repository);
+        } catch (RepositoryException e) {
+            log.warn("Dropping a read only session that could not be given back: " + e.getMessage());
+            logout(repository);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Destroy
+    public void close() {
+        for (String gauge : new String[]{"idle", "borrowed", "created", "timeouts", "leaks"}) {
+            Metrics.unregister("sessions.readOnly." + gauge);
+        }
+        RulesRepository repository;
+        while ((repository = idle.poll()) != null) {
+            logout(repository);
+        }
+    }
+
+    private void acquirePermit() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        waitCount.incrementAndGet();
+        try {
+            if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timeoutCount.incrementAndGet();
+        throw new RulesRepositoryException("No read only session available after " + maxWaitMillis + "ms, " + borrowed.size() + " are in use.");
+    }
+
+    /**
+     * @return an idle repository, refreshed, or null if there are none left
+     *         that are still usable.
+     */
+    private RulesRepository takeIdle() {
+        RulesRepository repository;
+        while ((repository = idle.poll()) != null) {
+            try {
+                Session session = repository.getSession();
+                if (session.isLive()) {
+                    session.refresh(false);
+                    return repository;
+                }
+            } catch (RepositoryException e) {
+                log.warn("Dropping a read only session that could not be refreshed: " + e.getMessage());
+                logout(repository);
+            }
+        }
+        return null;
+    }
+
+    private void reportLeaks() {
+        long now = System.currentTimeMillis();
+        for (Borrowing borrowing : borrowed.values()) {
+            if (!borrowing.reported && now - borrowing.time > leakThresholdMillis) {
+                borrowing.reported = true;
+                leakCount.incrementAndGet();
+                log.warn("A read only session has not been given back after " + (now - borrowing.time) + "ms.",
+                        borrowing.stack);
+            }
+        }
+    }
+
+    private void logout(RulesRepository repository) {
+        try {
+            repository.logout();
+        } catch (RuntimeException e) {
+            log.debug("Unable to logout a read only session: " + e.getMessage());
+        }
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getBorrowedCount() {
+        return borrowed.size();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    public long getDiscardedChangesCount() {
+        return discardedChangesCount.get();
+    }
+
+}
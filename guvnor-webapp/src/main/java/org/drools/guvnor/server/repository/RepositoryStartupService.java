@@ -65,6 +65,7 @@ public class RepositoryStartupService {
     Repository repository;
     private Session sessionForSetup;
     private RulesRepository mailmanSession;
+    private RulesRepository renameSession;
 
     public Repository getRepositoryInstance() {
         try {
@@ -96,6 +97,7 @@ public class RepositoryStartupService {
         }
         sessionForSetup = newSession(username, password);
         create(sessionForSetup);
+        startPackageRenameService(username, password);
         startMailboxService();
         registerCheckinListener();
     }
@@ -121,6 +123,15 @@ public class RepositoryStartupService {
         System.out.println("Listeners removed...");
     }
 
+    /**
+     * Start up the package renames, completing any that were interrupted
+     */
+    private void startPackageRenameService(String username, String password) {
+        renameSession = new RulesRepository(newSession(username, password));
+        PackageRenameService.getInstance().init(renameSession);
+        PackageRenameService.getInstance().wakeUp();
+    }
+
     /**
      * Start up the mailbox, flush out any messages that were left
      */
@@ -174,6 +185,8 @@ public class RepositoryStartupService {
     @Destroy
     public void close() {
         sessionForSetup.logout();
+        PackageRenameService.getInstance().stop();
+        renameSession.logout();
         MailboxService.getInstance().stop();
         mailmanSession.logout();
 
@@ -17,6 +17,8 @@
 package org.drools.guvnor.server.repository;
 
 import org.drools.repository.RulesRepository;
+import org.drools.repository.metrics.Counter;
+import org.drools.repository.metrics.Metrics;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.annotations.AutoCreate;
 import org.jboss.seam.annotations.Create;
@@ -36,6 +38,9 @@ import org.jboss.seam.security.Identity;
 @Name("repository")
 public class RulesRepositoryManager {
 
+    private static final Counter openSessions = Metrics.counter("sessions.user.open");
+    private static final Counter createdSessions = Metrics.counter("sessions.user.created");
+
     @In
     RepositoryStartupService repositoryConfiguration;
 
@@ -55,6 +60,8 @@ public class RulesRepositoryManager {
             userName = DEFAULT_USER;
         }
         repository = new RulesRepository(repositoryConfiguration.newSession(userName));
+        createdSessions.increment();
+        openSessions.increment();
     }
 
     @Unwrap
@@ -64,6 +71,7 @@ public class RulesRepositoryManager {
 
     @Destroy
     public void close() {
+        openSessions.decrement();
         repository.logout();
     }
 
@@ -176,6 +176,31 @@ public class UserInbox {
         ib.save();
     }
 
+    /**
+     * As {@link #recordOpeningEvent(AssetItem)}, for several assets opened
+     * together: the inbox is read, written and saved once.
+     */
+    public synchronized static void recordOpeningEvents(List<AssetItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        UserInbox ib = new UserInbox(items.get(0).getRulesRepository());
+        List<InboxEntry> recentOpened = ib.loadRecentOpened();
+        List<InboxEntry> unreadIncoming = ib.loadIncoming();
+        for (AssetItem item : items) {
+            ib.removeAnyExisting(item.getUUID(), recentOpened);
+            if (recentOpened.size() >= MAX_RECENT_EDITED) {
+                recentOpened.remove(0);
+            }
+            recentOpened.add(new InboxEntry(item.getUUID(), item.getName(), "self"));
+            ib.removeAnyExisting(item.getUUID(), unreadIncoming);
+        }
+        ib.userInfo.writeEntries(INBOX, ExplorerNodeConfig.RECENT_VIEWED_ID, recentOpened);
+        ib.userInfo.writeEntries(INBOX, ExplorerNodeConfig.INCOMING_ID, unreadIncoming);
+
+        ib.save();
+    }
+
     /**
      * Helper method to note the event
      */
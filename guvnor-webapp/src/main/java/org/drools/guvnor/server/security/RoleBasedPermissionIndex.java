@@ -0,0 +1,196 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.security;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup structures precomputed from a user's list of RoleBasedPermissions,
+ * so that permission checks don't have to scan the whole list:
+ * <ul>
+ * <li>whether the user is an admin,</li>
+ * <li>package name (case insensitive) to the highest package role granted on it,</li>
+ * <li>a trie of category paths per analyst role.</li>
+ * </ul>
+ * Instances are immutable and built once per user session (and again whenever
+ * the user's permissions change).
+ */
+public class RoleBasedPermissionIndex {
+
+    private final List<RoleBasedPermission> permissions;
+    private final boolean                   admin;
+    private final Map<String, RoleType>     packageRoles   = new HashMap<String, RoleType>();
+    private final CategoryNode              analyst        = new CategoryNode();
+    private final CategoryNode              analystRead    = new CategoryNode();
+
+    public RoleBasedPermissionIndex(List<RoleBasedPermission> permissions) {
+        this.permissions = (permissions == null) ? Collections.<RoleBasedPermission> emptyList() : permissions;
+
+        boolean isAdmin = false;
+        for ( RoleBasedPermission permission : this.permissions ) {
+            String role = permission.getRole();
+            if ( RoleType.ADMIN.getName().equalsIgnoreCase( role ) ) {
+                isAdmin = true;
+            }
+            if ( permission.getPackageName() != null ) {
+                indexPackageRole( permission.getPackageName(),
+                                  role );
+            }
+            if ( RoleType.ANALYST.getName().equals( role ) ) {
+                analyst.add( permission.getCategoryPath() );
+            } else if ( RoleType.ANALYST_READ.getName().equals( role ) ) {
+                analystRead.add( permission.getCategoryPath() );
+            }
+        }
+        this.admin = isAdmin;
+    }
+
+    private void indexPackageRole(String packageName,
+                                  String role) {
+        RoleType roleType = packageRoleTypeOf( role );
+        if ( roleType == null ) {
+            return;
+        }
+        String key = packageName.toLowerCase();
+        RoleType existing = packageRoles.get( key );
+        if ( existing == null || rank( roleType ) > rank( existing ) ) {
+            packageRoles.put( key,
+                              roleType );
+        }
+    }
+
+    /**
+     * @return the package role matching the given name (case insensitive), or
+     *         null if it is not a package role.
+     */
+    public static RoleType packageRoleTypeOf(String role) {
+        if ( RoleType.PACKAGE_ADMIN.getName().equalsIgnoreCase( role ) ) {
+            return RoleType.PACKAGE_ADMIN;
+        } else if ( RoleType.PACKAGE_DEVELOPER.getName().equalsIgnoreCase( role ) ) {
+            return RoleType.PACKAGE_DEVELOPER;
+        } else if ( RoleType.PACKAGE_READONLY.getName().equalsIgnoreCase( role ) ) {
+            return RoleType.PACKAGE_READONLY;
+        }
+        return null;
+    }
+
+    /**
+     * package.logInAdmin > package.developer > package.readonly
+     */
+    public static int rank(RoleType packageRole) {
+        switch ( packageRole ) {
+            case PACKAGE_ADMIN :
+                return 3;
+            case PACKAGE_DEVELOPER :
+                return 2;
+            case PACKAGE_READONLY :
+                return 1;
+            default :
+                return 0;
+        }
+    }
+
+    public List<RoleBasedPermission> getPermissions() {
+        return permissions;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * @return the highest package role the user has on the package, or null
+     *         if none.
+     */
+    public RoleType getHighestPackageRole(String packageName) {
+        if ( packageName == null ) {
+            return null;
+        }
+        return packageRoles.get( packageName.toLowerCase() );
+    }
+
+    /**
+     * @return true if there is a category permission for the given analyst
+     *         role on the path itself or on one of its parents.
+     */
+    public boolean hasCategoryPermission(RoleType analystRole,
+                                         String requestedPath) {
+        CategoryNode root;
+        if ( RoleType.ANALYST == analystRole ) {
+            root = analyst;
+        } else if ( RoleType.ANALYST_READ == analystRole ) {
+            root = analystRead;
+        } else {
+            return false;
+        }
+        return root.isCovered( requestedPath );
+    }
+
+    /**
+     * A node of the category path trie, one level per path segment. The
+     * segments are split the same way as in {@link PathHelper}.
+     */
+    private static class CategoryNode {
+
+        private final Map<String, CategoryNode> children = new HashMap<String, CategoryNode>();
+        private boolean                         allowed;
+        private boolean                         nullPathAllowed;
+
+        void add(String path) {
+            if ( path == null ) {
+                nullPathAllowed = true;
+                return;
+            }
+            CategoryNode node = this;
+            for ( String segment : segments( path ) ) {
+                CategoryNode child = node.children.get( segment );
+                if ( child == null ) {
+                    child = new CategoryNode();
+                    node.children.put( segment,
+                                       child );
+                }
+                node = child;
+            }
+            node.allowed = true;
+        }
+
+        boolean isCovered(String path) {
+            if ( path == null ) {
+                return nullPathAllowed;
+            }
+            CategoryNode node = this;
+            for ( String segment : segments( path ) ) {
+                node = node.children.get( segment );
+                if ( node == null ) {
+                    return false;
+                }
+                if ( node.allowed ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String[] segments(String path) {
+            String stripped = (path.startsWith( "/" )) ? path.substring( 1 ) : path;
+            return stripped.split( "/" );
+        }
+    }
+}
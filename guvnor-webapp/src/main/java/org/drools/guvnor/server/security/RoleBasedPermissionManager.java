@@ -18,6 +18,9 @@ package org.drools.guvnor.server.security;
 
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.io.Serializable;
 
 import org.jboss.seam.Component;
@@ -29,29 +32,80 @@ import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.Scope;
 import org.jboss.seam.security.Identity;
 
-/**
- * This enhances the BRMS repository for lifecycle management.
- */
 @Scope(ScopeType.SESSION)
 @AutoCreate
 @Name("roleBasedPermissionManager")
 public class RoleBasedPermissionManager implements Serializable {
 
+    /**
+     * Bumped for a user whenever the user's permissions change, so that every
+     * session of that user reloads them on the next permission check.
+     */
+    private static final ConcurrentMap<String, AtomicLong> PERMISSION_GENERATIONS = new ConcurrentHashMap<String, AtomicLong>();
+
+    private String userName;
+
+    private long generation;
+
     //    @In
     private List<RoleBasedPermission> permissions;
 
+    private transient RoleBasedPermissionIndex permissionIndex;
+
     //    @Unwrap
     public List<RoleBasedPermission> getRoleBasedPermission() {
+        reloadIfInvalidated();
         return permissions;
     }
 
+    /**
+     * @return the lookup structures for this user's permissions, built once
+     *         and reused until the permissions change.
+     */
+    public synchronized RoleBasedPermissionIndex getPermissionIndex() {
+        reloadIfInvalidated();
+        if (permissionIndex == null) {
+            permissionIndex = new RoleBasedPermissionIndex(permissions);
+        }
+        return permissionIndex;
+    }
+
     @Create
     public void create() {
+        userName = Identity.instance().getCredentials().getUsername();
+        load();
+    }
+
+    private synchronized void load() {
+        generation = currentGeneration(userName);
         RoleBasedPermissionStore roleBasedPermissionStore = (RoleBasedPermissionStore) Component
                 .getInstance("org.drools.guvnor.server.security.RoleBasedPermissionStore");
-        permissions = roleBasedPermissionStore.getRoleBasedPermissionsByUserName(Identity
-                .instance().getCredentials().getUsername());
+        permissions = roleBasedPermissionStore.getRoleBasedPermissionsByUserName(userName);
+        permissionIndex = null;
+    }
+
+    private synchronized void reloadIfInvalidated() {
+        if (userName != null && generation != currentGeneration(userName)) {
+            load();
+        }
+    }
+
+    /**
+     * Discard the cached permissions of all the sessions of the given user.
+     */
+    public static void invalidate(String userName) {
+        if (userName == null) {
+            return;
+        }
+        AtomicLong counter = PERMISSION_GENERATIONS.putIfAbsent(userName, new AtomicLong(1));
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+    }
 
+    private static long currentGeneration(String userName) {
+        AtomicLong counter = PERMISSION_GENERATIONS.get(userName);
+        return counter == null ? 0 : counter.get();
     }
 
     @Destroy
@@ -20,7 +20,6 @@ import static org.jboss.seam.ScopeType.APPLICATION;
 
 import java.io.Serializable;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -120,7 +119,7 @@ public class RoleBasedPermissionResolver
             return true;
         }
 
-        List<RoleBasedPermission> permissions = fetchAllRoleBasedPermissionsForCurrentUser();
+        RoleBasedPermissionIndex permissions = fetchRoleBasedPermissionIndexForCurrentUser();
 
         if ( hasAdminPermission( permissions ) || RoleType.ADMIN.getName().equals( requestedPermission ) ) {
             return hasAdminPermission( permissions );
@@ -140,20 +139,18 @@ public class RoleBasedPermissionResolver
         return permissionRuleObjectConverter == null ? requestedObject : permissionRuleObjectConverter.convert( requestedObject );
     }
 
-    private List<RoleBasedPermission> fetchAllRoleBasedPermissionsForCurrentUser() {
-        return ((RoleBasedPermissionManager) Component.getInstance( "roleBasedPermissionManager" )).getRoleBasedPermission();
+    private RoleBasedPermissionIndex fetchRoleBasedPermissionIndexForCurrentUser() {
+        return ((RoleBasedPermissionManager) Component.getInstance( "roleBasedPermissionManager" )).getPermissionIndex();
     }
 
     private boolean isInvalidInstance(Object requestedObject) {
         return !((requestedObject instanceof CategoryPathType) || (requestedObject instanceof PackageNameType) || (requestedObject instanceof WebDavPackageNameType) || (requestedObject instanceof AdminType) || (requestedObject instanceof PackageUUIDType));
     }
 
-    private boolean hasAdminPermission(List<RoleBasedPermission> permissions) {
-        for ( RoleBasedPermission p : permissions ) {
-            if ( RoleType.ADMIN.getName().equalsIgnoreCase( p.getRole() ) ) {
-                log.debug( "Requested permission: unknown, Permission granted: Yes" );
-                return true;
-            }
+    private boolean hasAdminPermission(RoleBasedPermissionIndex permissions) {
+        if ( permissions.isAdmin() ) {
+            log.debug( "Requested permission: unknown, Permission granted: Yes" );
+            return true;
         }
         log.debug( "Requested permission: logInAdmin, Permission granted: No" );
         return false;
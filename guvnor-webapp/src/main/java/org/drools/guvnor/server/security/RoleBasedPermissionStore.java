@@ -106,6 +106,7 @@ public class RoleBasedPermissionStore {
         }
 
         permissionManager.updateUserPermissions(userName, perms);
+        RoleBasedPermissionManager.invalidate(userName);
     }
 
 }
@@ -15,11 +15,10 @@
  */
 package org.drools.guvnor.server.security.rules;
 
-import java.util.List;
-
 import org.drools.guvnor.server.security.CategoryPathType;
 import org.drools.guvnor.server.security.PathHelper;
 import org.drools.guvnor.server.security.RoleBasedPermission;
+import org.drools.guvnor.server.security.RoleBasedPermissionIndex;
 import org.drools.guvnor.server.security.RoleType;
 import org.drools.guvnor.server.util.LoggingHelper;
 
@@ -31,11 +30,11 @@ public class CategoryPathTypePermissionRule
 
     public boolean hasPermission(Object requestedObject,
                                  String requestedPermission,
-                                 List<RoleBasedPermission> permissions) {
+                                 RoleBasedPermissionIndex permissions) {
         String requestedPath = ((CategoryPathType) requestedObject).getCategoryPath();
         String requestedPermType = (requestedPermission == null) ? RoleType.ANALYST.getName() : requestedPermission;
         if ( requestedPermType.equals( "navigate" ) ) {
-            for ( RoleBasedPermission roleBasedPermission : permissions ) {
+            for ( RoleBasedPermission roleBasedPermission : permissions.getPermissions() ) {
                 if ( roleBasedPermission.getCategoryPath() != null ) {
                     if ( isCategoryPathMatched( requestedPath,
                                                 roleBasedPermission ) ) {
@@ -55,25 +54,32 @@ public class CategoryPathTypePermissionRule
             log.debug( "Requested permission: " + requestedPermType + ", Requested object: " + requestedPath + " , Permission granted: No" );
             return false;
         }
-        for ( RoleBasedPermission roleBasedPermission : permissions ) {
-            if ( isRoleAnalyst( roleBasedPermission ) && isPermissionToCurrentDirectory( requestedPermType,
-                                                                                         roleBasedPermission ) && isPermittedCategoryPath( requestedPath,
-                                                                                                                                           roleBasedPermission.getCategoryPath() ) ) {
-                log.debug( "Requested permission: " + requestedPermType + ", Requested object: " + requestedPath + " , Permission granted: Yes" );
-                return true;
-            }
+        if ( isPermittedCategoryPath( requestedPermType,
+                                      requestedPath,
+                                      permissions ) ) {
+            log.debug( "Requested permission: " + requestedPermType + ", Requested object: " + requestedPath + " , Permission granted: Yes" );
+            return true;
         }
         log.debug( "Requested permission: " + requestedPermType + ", Requested object: " + requestedPath + " , Permission granted: No" );
         return false;
     }
 
-    private boolean isPermissionToCurrentDirectory(String requestedPermType,
-                                                   RoleBasedPermission roleBasedPermission) {
-        return requestedPermType.equals( roleBasedPermission.getRole() ) || (requestedPermType.equals( RoleType.ANALYST_READ.getName() ) && roleBasedPermission.getRole().equals( RoleType.ANALYST.getName() ));
-    }
-
-    private boolean isRoleAnalyst(RoleBasedPermission roleBasedPermission) {
-        return roleBasedPermission.getRole().equals( RoleType.ANALYST.getName() ) || roleBasedPermission.getRole().equals( RoleType.ANALYST_READ.getName() );
+    /**
+     * An analyst permission grants both analyst and analyst.readonly requests,
+     * on its category path and all the sub paths.
+     */
+    private boolean isPermittedCategoryPath(String requestedPermType,
+                                            String requestedPath,
+                                            RoleBasedPermissionIndex permissions) {
+        if ( requestedPermType.equals( RoleType.ANALYST.getName() ) ) {
+            return permissions.hasCategoryPermission( RoleType.ANALYST,
+                                                      requestedPath );
+        } else if ( requestedPermType.equals( RoleType.ANALYST_READ.getName() ) ) {
+            return permissions.hasCategoryPermission( RoleType.ANALYST,
+                                                      requestedPath ) || permissions.hasCategoryPermission( RoleType.ANALYST_READ,
+                                                                                                            requestedPath );
+        }
+        return false;
     }
 
     private boolean isCategoryPathMatched(String requestedPath,
@@ -81,15 +87,4 @@ public class CategoryPathTypePermissionRule
         return roleBasedPermission.getCategoryPath().equals( requestedPath );
     }
 
-    private boolean isPermittedCategoryPath(String requestedPath,
-                                            String allowedPath) {
-        if ( requestedPath == null && allowedPath == null ) {
-            return true;
-        } else if ( requestedPath == null || allowedPath == null ) {
-            return false;
-        }
-        return requestedPath.equals( allowedPath ) || PathHelper.isSubPath( allowedPath,
-                                                                            requestedPath );
-    }
-
 }
@@ -15,12 +15,10 @@
  */
 package org.drools.guvnor.server.security.rules;
 
-import org.drools.guvnor.server.security.RoleBasedPermission;
+import org.drools.guvnor.server.security.RoleBasedPermissionIndex;
 import org.drools.guvnor.server.security.RoleType;
 import org.drools.guvnor.server.util.LoggingHelper;
 
-import java.util.List;
-
 public class PackagePermissionRule
         implements
         PermissionRule {
@@ -29,43 +27,31 @@ public class PackagePermissionRule
 
     public boolean hasPermission(Object requestedObject,
                                  String requestedPermission,
-                                 List<RoleBasedPermission> permissions) {
+                                 RoleBasedPermissionIndex permissions) {
         String targetName = (String) requestedObject;
-        for (RoleBasedPermission pbp : permissions) {
-            if (targetName.equalsIgnoreCase(pbp.getPackageName()) && isPermittedPackage(requestedPermission,
-                    pbp.getRole())) {
-                log.debug("Requested permission: " + requestedPermission + ", Requested object: " + targetName + " , Permission granted: Yes");
-                return true;
-            }
+        if (isPermittedPackage(requestedPermission,
+                permissions.getHighestPackageRole(targetName))) {
+            log.debug("Requested permission: " + requestedPermission + ", Requested object: " + targetName + " , Permission granted: Yes");
+            return true;
         }
 
         log.debug("Requested permission: " + requestedPermission + ", Requested object: " + targetName + " , Permission granted: No");
         return false;
     }
 
+    /**
+     * package.logInAdmin can do anything, otherwise the requested package role
+     * must not require a higher privilege than the highest assigned one.
+     */
     private boolean isPermittedPackage(String requestedAction,
-                                       String role) {
-        if (RoleType.PACKAGE_ADMIN.getName().equalsIgnoreCase(role)) {
+                                       RoleType highestRole) {
+        if (highestRole == null) {
+            return false;
+        } else if (highestRole == RoleType.PACKAGE_ADMIN) {
             return true;
-        } else if (RoleType.PACKAGE_DEVELOPER.getName().equalsIgnoreCase(role)) {
-            if (RoleType.PACKAGE_ADMIN.getName().equalsIgnoreCase(requestedAction)) {
-                return false;
-            } else if (RoleType.PACKAGE_DEVELOPER.getName().equalsIgnoreCase(requestedAction)) {
-                return true;
-            } else if (RoleType.PACKAGE_READONLY.getName().equalsIgnoreCase(requestedAction)) {
-                return true;
-            }
-        } else if (RoleType.PACKAGE_READONLY.getName().equalsIgnoreCase(role)) {
-            if (RoleType.PACKAGE_ADMIN.getName().equalsIgnoreCase(requestedAction)) {
-                return false;
-            } else if (RoleType.PACKAGE_DEVELOPER.getName().equalsIgnoreCase(requestedAction)) {
-                return false;
-            } else if (RoleType.PACKAGE_READONLY.getName().equalsIgnoreCase(requestedAction)) {
-                return true;
-            }
         }
-
-        return false;
+        RoleType requestedRole = RoleBasedPermissionIndex.packageRoleTypeOf(requestedAction);
+        return requestedRole != null && RoleBasedPermissionIndex.rank(requestedRole) <= RoleBasedPermissionIndex.rank(highestRole);
     }
 
 }
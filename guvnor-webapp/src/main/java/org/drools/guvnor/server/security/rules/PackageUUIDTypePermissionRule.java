@@ -15,11 +15,10 @@
  */
 package org.drools.guvnor.server.security.rules;
 
-import java.util.List;
-
 import org.drools.guvnor.server.ServiceImplementation;
+import org.drools.guvnor.server.cache.PackageNameCache;
 import org.drools.guvnor.server.security.PackageUUIDType;
-import org.drools.guvnor.server.security.RoleBasedPermission;
+import org.drools.guvnor.server.security.RoleBasedPermissionIndex;
 import org.drools.repository.RulesRepository;
 import org.drools.repository.RulesRepositoryException;
 import org.jboss.seam.Component;
@@ -30,13 +29,17 @@ public class PackageUUIDTypePermissionRule
 
     public boolean hasPermission(Object requestedObject,
                                  String requestedPermission,
-                                 List<RoleBasedPermission> permissions) {
-        String targetName;
+                                 RoleBasedPermissionIndex permissions) {
         String targetUUID = ((PackageUUIDType) requestedObject).getUUID();
-        try {
-            targetName = fetchRulesRepository().loadPackageByUUID( targetUUID ).getName();
-        } catch ( RulesRepositoryException e ) {
-            return false;
+        String targetName = PackageNameCache.getInstance().get( targetUUID );
+        if ( targetName == null ) {
+            try {
+                targetName = fetchRulesRepository().loadPackageByUUID( targetUUID ).getName();
+            } catch ( RulesRepositoryException e ) {
+                return false;
+            }
+            PackageNameCache.getInstance().put( targetUUID,
+                                                targetName );
         }
 
         return new PackagePermissionRule().hasPermission( targetName,
@@ -15,12 +15,10 @@
  */
 package org.drools.guvnor.server.security.rules;
 
-import java.util.List;
-
-import org.drools.guvnor.server.security.RoleBasedPermission;
+import org.drools.guvnor.server.security.RoleBasedPermissionIndex;
 
 public interface PermissionRule {
     public boolean hasPermission(Object requestedObject,
                                  String requestedPermission,
-                                 List<RoleBasedPermission> permissions);
+                                 RoleBasedPermissionIndex permissions);
 }
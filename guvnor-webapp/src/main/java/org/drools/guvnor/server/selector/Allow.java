@@ -16,11 +16,27 @@
 
 package org.drools.guvnor.server.selector;
 
+import org.drools.repository.AssetItem;
+
 /**
  * This is a simple named fact for the selectors.
+ * When an Allow names the asset it allows, (eg "insert(new Allow($asset))")
+ * the selector rules can be evaluated for all the assets of a package at once.
  */
 public class Allow {
 
-    public Allow() {}
+    private final AssetItem asset;
+
+    public Allow() {
+        this( null );
+    }
+
+    public Allow(AssetItem asset) {
+        this.asset = asset;
+    }
+
+    public AssetItem getAsset() {
+        return asset;
+    }
 
 }
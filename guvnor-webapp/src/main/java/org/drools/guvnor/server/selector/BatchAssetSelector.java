@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.drools.guvnor.server.selector;
+
+import java.util.List;
+import java.util.Set;
+
+import org.drools.repository.AssetItem;
+
+/**
+ * An asset selector that can decide on a whole set of assets at once, which
+ * is cheaper than calling isAssetAllowed for each asset of a big package.
+ */
+public interface BatchAssetSelector extends AssetSelector {
+
+    /**
+     * @param assets The assets to be tested.
+     * @return the UUIDs of the assets that are allowed.
+     */
+    Set<String> getAllowedAssetUUIDs(List<AssetItem> assets);
+
+}
@@ -19,26 +19,67 @@ package org.drools.guvnor.server.selector;
 import org.drools.*;
 import org.drools.compiler.RuleBaseLoader;
 import org.drools.repository.AssetItem;
+import org.drools.repository.CategoryItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This uses rules to decide if an asset is to be included in a build.
+ *
+ * Decisions are cached per asset version (and last modified time, status and
+ * categories, which can change without a new version), so unchanged assets
+ * are not evaluated again on the next build. A selector configured for batch
+ * mode ("name.batch=true" in selectors.properties), whose rules name the
+ * allowed asset (insert(new Allow($asset))), evaluates a whole package in one
+ * session instead. Those decisions are not cached, as the rules may have
+ * weighed the assets against each other.
  */
-public class RuleBasedSelector implements AssetSelector {
+public class RuleBasedSelector implements BatchAssetSelector {
 
     private static final Logger log = LoggerFactory.getLogger(RuleBasedSelector.class);
 
+    private static final int MAX_CACHED_DECISIONS = 20000;
 
     final String ruleFile;
+    final boolean batch;
     private RuleBase ruleBase;
 
+    /**
+     * Set if the rules of a batch selector insert Allow facts that don't name
+     * an asset, after which assets are evaluated one at a time.
+     */
+    private volatile boolean batchFailed;
+
+    final Map<String, Boolean> decisions = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        private static final long serialVersionUID = 510l;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CACHED_DECISIONS;
+        }
+    };
+
     public RuleBasedSelector(String val) {
+        this(val, false);
+    }
+
+    /**
+     * @param batch whether to evaluate the assets of a package in one session.
+     */
+    public RuleBasedSelector(String val, boolean batch) {
         this.ruleFile = val;
+        this.batch = batch;
 
         InputStream ins = this.getClass().getResourceAsStream(ruleFile);
         InputStreamReader reader = new InputStreamReader(ins);
@@ -57,12 +98,76 @@ public class RuleBasedSelector implements AssetSelector {
     }
 
     public boolean isAssetAllowed(AssetItem asset) {
-        return evalRules(asset);
+        String key = decisionKey(asset);
+        Boolean allowed = getDecision(key);
+        if (allowed == null) {
+            allowed = evalRules(ruleBase.newStatelessSession(), asset);
+            putDecision(key, allowed);
+        }
+        return allowed;
     }
 
+    public Set<String> getAllowedAssetUUIDs(List<AssetItem> assets) {
+        StatelessSession session = ruleBase.newStatelessSession();
+        if (batch && !batchFailed) {
+            // All of them, as the rules may weigh the assets against each other
+            Set<String> evaluated = evalRulesInBatch(session, assets);
+            if (evaluated != null) {
+                return evaluated;
+            }
+        }
+
+        Set<String> allowedUUIDs = new HashSet<String>();
+        List<AssetItem> toEvaluate = new ArrayList<AssetItem>();
+        for (AssetItem asset : assets) {
+            Boolean allowed = getDecision(decisionKey(asset));
+            if (allowed == null) {
+                toEvaluate.add(asset);
+            } else if (allowed) {
+                allowedUUIDs.add(asset.getUUID());
+            }
+        }
+        for (AssetItem asset : toEvaluate) {
+            boolean allowed = evalRules(session, asset);
+            putDecision(decisionKey(asset), allowed);
+            if (allowed) {
+                allowedUUIDs.add(asset.getUUID());
+            }
+        }
+        return allowedUUIDs;
+    }
+
+    /**
+     * @return the UUIDs of the allowed assets, or null if the rules allowed
+     *         something without saying which asset.
+     */
     @SuppressWarnings("rawtypes")
+    private Set<String> evalRulesInBatch(StatelessSession session, List<AssetItem> assets) {
+        StatelessSessionResult result = session.executeWithResults(assets);
+
+        Set<String> allowedUUIDs = new HashSet<String>();
+        java.util.Iterator objects = result.iterateObjects();
+        while (objects.hasNext()) {
+            Object object = objects.next();
+            if (object instanceof Allow) {
+                AssetItem allowed = ((Allow) object).getAsset();
+                if (allowed == null) {
+                    log.warn("Selector " + ruleFile + " is in batch mode but does not name allowed assets, evaluating assets one at a time.");
+                    batchFailed = true;
+                    return null;
+                }
+                allowedUUIDs.add(allowed.getUUID());
+            }
+        }
+        return allowedUUIDs;
+    }
+
     boolean evalRules(Object asset) {
-        StatelessSession session = ruleBase.newStatelessSession();
+        return evalRules(ruleBase.newStatelessSession(), asset);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private boolean evalRules(StatelessSession session, Object asset) {
         StatelessSessionResult result = session.executeWithResults(asset);
 
         java.util.Iterator objects = result.iterateObjects();
@@ -74,4 +179,34 @@ public class RuleBasedSelector implements AssetSelector {
         return false;
     }
 
+    private String decisionKey(AssetItem asset) {
+        Calendar lastModified = asset.getLastModified();
+        StringBuilder key = new StringBuilder();
+        key.append(asset.getUUID()).append(':').append(asset.getVersionNumber());
+        key.append(':').append(lastModified == null ? 0 : lastModified.getTimeInMillis());
+        key.append(':').append(asset.getStateDescription());
+        for (CategoryItem category : asset.getCategories()) {
+            key.append(':').append(category.getFullPath());
+        }
+        return key.toString();
+    }
+
+    private Boolean getDecision(String key) {
+        synchronized (decisions) {
+            return decisions.get(key);
+        }
+    }
+
+    private void putDecision(String key, boolean allowed) {
+        synchronized (decisions) {
+            decisions.put(key, allowed);
+        }
+    }
+
+    public void clearCache() {
+        synchronized (decisions) {
+            decisions.clear();
+        }
+    }
+
 }
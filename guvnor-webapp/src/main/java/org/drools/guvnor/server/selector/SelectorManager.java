@@ -33,6 +33,9 @@ public class SelectorManager {
     public static final String BUILT_IN_SELECTOR = "BuiltInSelector";
     public static final String CUSTOM_SELECTOR = "customSelector";
 
+    // Suffix of the property that puts a rule based selector in batch mode
+    private static final String BATCH_SUFFIX = ".batch";
+
     /**
      * This is a map of the selectors to use.
      */
@@ -47,18 +50,21 @@ public class SelectorManager {
             props.put("BuiltInSelector", "org.drools.guvnor.server.selector.BuiltInSelector");
             for (Object o : props.keySet()) {
                 String selectorName = (String) o;
+                if (selectorName.endsWith(BATCH_SUFFIX)) {
+                    continue;
+                }
                 String val = props.getProperty(selectorName);
-                detemineSelector(selectorName, val);
+                detemineSelector(selectorName, val, Boolean.parseBoolean(props.getProperty(selectorName + BATCH_SUFFIX)));
             }
         } catch (IOException e) {
             log.error("Unable to load selectors.", e);
         }
     }
 
-    private void detemineSelector(String selectorName, String val) {
+    private void detemineSelector(String selectorName, String val, boolean batch) {
         try {
             if (val.endsWith("drl")) {
-                selectors.put(selectorName, loadRuleSelector(val));
+                selectors.put(selectorName, loadRuleSelector(val, batch));
             } else {
                 selectors.put(selectorName, loadSelectorImplementation(val));
             }
@@ -105,9 +111,9 @@ public class SelectorManager {
         return (AssetSelector) Thread.currentThread().getContextClassLoader().loadClass(val).newInstance();
     }
 
-    private AssetSelector loadRuleSelector(String val) {
+    private AssetSelector loadRuleSelector(String val, boolean batch) {
 
-        return new RuleBasedSelector(val);
+        return new RuleBasedSelector(val, batch);
     }
 
     public static SelectorManager getInstance() {
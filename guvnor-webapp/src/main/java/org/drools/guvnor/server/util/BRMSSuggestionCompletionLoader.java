@@ -22,6 +22,7 @@ import org.drools.guvnor.server.builder.ClassLoaderBuilder;
 import org.drools.guvnor.server.builder.DSLLoader;
 import org.drools.ide.common.client.modeldriven.SuggestionCompletionEngine;
 import org.drools.ide.common.server.rules.SuggestionCompletionLoader;
+import org.drools.ide.common.server.util.DataEnumLoader;
 import org.drools.lang.dsl.DSLTokenizedMappingFile;
 import org.drools.repository.AssetItem;
 import org.drools.repository.AssetItemIterator;
@@ -60,7 +61,7 @@ public class BRMSSuggestionCompletionLoader extends SuggestionCompletionLoader {
 
 //        String packageName = packageItem.getName();
 //        return super.getSuggestionEngine("package " + packageName + "\n\n" + droolsHeader + "\n" + buf.toString(),
-        return super.getSuggestionEngine(droolsHeader + "\n" + buf.toString(),
+        return super.getSuggestionEngineFromEnumLoaders(droolsHeader + "\n" + buf.toString(),
                 classLoaderBuilder.getJarInputStreams(),
                 getDSLMappingFiles(packageItem),
                 getDataEnums(packageItem));
@@ -72,12 +73,14 @@ public class BRMSSuggestionCompletionLoader extends SuggestionCompletionLoader {
     }
 
     @SuppressWarnings("rawtypes")
-    private List<String> getDataEnums(PackageItem pkg) {
+    private List<DataEnumLoader> getDataEnums(PackageItem pkg) {
         Iterator it = pkg.listAssetsByFormat(new String[]{AssetFormats.ENUMERATION});
-        List<String> list = new ArrayList<String>();
+        List<DataEnumLoader> list = new ArrayList<DataEnumLoader>();
         while (it.hasNext()) {
             AssetItem item = (AssetItem) it.next();
-            list.add(item.getContent());
+            list.add(DataEnumLoader.forAsset(item.getUUID(),
+                    item.getVersionNumber(),
+                    item.getContent()));
         }
         return list;
     }
@@ -18,18 +18,33 @@ package org.drools.guvnor.server.util;
 
 import com.thoughtworks.xstream.XStream;
 import org.drools.guvnor.client.rpc.DiscussionRecord;
+import org.drools.ide.common.server.util.XStreamRegistry;
+import org.drools.repository.AssetDiscussion;
+import org.drools.repository.AssetItem;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Utility methods for persisting discussion data as a property on an asset.
+ * Utility methods for persisting discussion data. Discussions are kept in an
+ * {@link AssetDiscussion}, one record per comment. They used to be a single
+ * XML property on the asset ({@link #DISCUSSION_PROPERTY_KEY}): such a
+ * discussion is read from the property until it is next changed, when it is
+ * moved to the new storage.
  */
 public class Discussion {
 
     public static final String DISCUSSION_PROPERTY_KEY = "discussion";
 
-    private final XStream xs = getXStream();
+    private final XStream xs = XStreamRegistry.getInstance().getXStream("discussion",
+            new XStreamRegistry.Configurer() {
+                public void configure(XStream xs) {
+                    xs.alias("discussion-record",
+                            DiscussionRecord.class);
+                    xs.alias("discussion",
+                            List.class);
+                }
+            });
 
     public String toString(List<DiscussionRecord> recs) {
         return xs.toXML(recs);
@@ -44,11 +59,75 @@ public class Discussion {
     }
 
     public XStream getXStream() {
-        XStream xs = new XStream();
-        xs.alias("discussion-record",
-                DiscussionRecord.class);
-        xs.alias("discussion",
-                List.class);
         return xs;
     }
+
+    public List<DiscussionRecord> loadDiscussion(AssetItem asset) {
+        AssetDiscussion discussion = new AssetDiscussion(asset.getRulesRepository(),
+                asset.getUUID());
+        if (!discussion.exists()) {
+            return fromString(asset.getStringProperty(DISCUSSION_PROPERTY_KEY));
+        }
+        return toRecords(discussion.loadAll());
+    }
+
+    /**
+     * @return the last records added, oldest first.
+     */
+    public List<DiscussionRecord> loadLatestDiscussion(AssetItem asset,
+                                                       int maxRecords) {
+        AssetDiscussion discussion = new AssetDiscussion(asset.getRulesRepository(),
+                asset.getUUID());
+        if (!discussion.exists()) {
+            List<DiscussionRecord> records = fromString(asset.getStringProperty(DISCUSSION_PROPERTY_KEY));
+            return new ArrayList<DiscussionRecord>(records.subList(Math.max(0,
+                    records.size() - maxRecords),
+                    records.size()));
+        }
+        return toRecords(discussion.loadLatest(maxRecords));
+    }
+
+    /**
+     * Appends a record. The change is saved by the caller.
+     */
+    public void addToDiscussion(AssetItem asset,
+                                DiscussionRecord record) {
+        getMigratedDiscussion(asset).append(new AssetDiscussion.Entry(record.author,
+                record.note,
+                record.timestamp));
+    }
+
+    /**
+     * The change is saved by the caller.
+     */
+    public void clearDiscussion(AssetItem asset) {
+        new AssetDiscussion(asset.getRulesRepository(),
+                asset.getUUID()).clear();
+    }
+
+    private AssetDiscussion getMigratedDiscussion(AssetItem asset) {
+        AssetDiscussion discussion = new AssetDiscussion(asset.getRulesRepository(),
+                asset.getUUID());
+        if (!discussion.exists()) {
+            // Creates the discussion, even if there was nothing to migrate
+            discussion.clear();
+            for (DiscussionRecord record : fromString(asset.getStringProperty(DISCUSSION_PROPERTY_KEY))) {
+                discussion.append(new AssetDiscussion.Entry(record.author,
+                        record.note,
+                        record.timestamp));
+            }
+        }
+        return discussion;
+    }
+
+    private List<DiscussionRecord> toRecords(List<AssetDiscussion.Entry> entries) {
+        List<DiscussionRecord> records = new ArrayList<DiscussionRecord>(entries.size());
+        for (AssetDiscussion.Entry entry : entries) {
+            DiscussionRecord record = new DiscussionRecord(entry.getAuthor(),
+                    entry.getNote());
+            record.timestamp = entry.getTimestamp();
+            records.add(record);
+        }
+        return records;
+    }
 }
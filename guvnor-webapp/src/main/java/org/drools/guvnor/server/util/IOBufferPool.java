@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of large buffers for copying streams (binary content of assets to
+ * servlet responses, zip files...), so that each download doesn't allocate
+ * its own. At most {@link #MAX_POOLED} buffers are kept, any more are left to
+ * the garbage collector when released.
+ */
+public class IOBufferPool {
+
+    public static final int            BUFFER_SIZE = 64 * 1024;
+
+    static final int                   MAX_POOLED  = 16;
+
+    private static final Queue<byte[]> buffers     = new ConcurrentLinkedQueue<byte[]>();
+    private static final AtomicInteger pooled      = new AtomicInteger();
+
+    private IOBufferPool() {
+    }
+
+    public static byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        if ( buffer == null ) {
+            return new byte[BUFFER_SIZE];
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    public static void release(byte[] buffer) {
+        if ( buffer.length == BUFFER_SIZE && pooled.incrementAndGet() <= MAX_POOLED ) {
+            buffers.offer( buffer );
+        } else if ( buffer.length == BUFFER_SIZE ) {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copies the input to the output with a pooled buffer. Neither stream is
+     * closed.
+     *
+     * @return the number of bytes copied.
+     */
+    public static long copy(InputStream in,
+                            OutputStream out) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            long total = 0;
+            int count;
+            while ( (count = in.read( buffer )) != -1 ) {
+                out.write( buffer,
+                           0,
+                           count );
+                total += count;
+            }
+            return total;
+        } finally {
+            release( buffer );
+        }
+    }
+
+}
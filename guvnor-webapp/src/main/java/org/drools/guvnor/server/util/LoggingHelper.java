@@ -19,20 +19,65 @@ package org.drools.guvnor.server.util;
 import org.drools.guvnor.client.rpc.LogEntry;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Collects messages for displaying in the GUI as well as providing a logger.
+ * The last messages are kept, as many as the "guvnor.log.capacity" system
+ * property says (500 by default).
  */
 public class LoggingHelper {
+
+    public static final String CAPACITY_PROPERTY = "guvnor.log.capacity";
+
+    public static final int ERROR = 0;
+    public static final int INFO = 1;
+
     private final org.slf4j.Logger log;
 
-    static final MessageList messages = new MessageList();
+    static final MessageList messages = new MessageList(getCapacity());
 
     public static LogEntry[] getMessages() {
         return messages.getMessages();
     }
 
+    /**
+     * @param severity only the messages of this severity, or null for all.
+     * @param text only the messages containing this text (ignoring case), or null for all.
+     * @param from only the messages logged from then, or null.
+     * @param to only the messages logged before then, or null.
+     * @return the messages kept that match, the oldest first.
+     */
+    public static List<LogEntry> findMessages(Integer severity,
+                                              String text,
+                                              Date from,
+                                              Date to) {
+        return messages.find(severity,
+                text,
+                from,
+                to);
+    }
+
+    /**
+     * @return how many messages of a severity were logged since startup,
+     *         including those no longer kept.
+     */
+    public static long getMessageCount(int severity) {
+        return messages.getCount(severity);
+    }
+
+    /**
+     * @return how many messages were dropped to make room for newer ones.
+     */
+    public static long getOverwrittenCount() {
+        return messages.getOverwrittenCount();
+    }
+
     public static void cleanLog() {
         messages.cleanEntry();
     }
@@ -48,7 +93,7 @@ public class LoggingHelper {
     public void info(String message) {
         log.info(message);
         messages.add(message,
-                1);
+                INFO);
     }
 
     public void info(String message,
@@ -56,7 +101,7 @@ public class LoggingHelper {
         log.info(message,
                 error);
         messages.add(message + " " + error.getMessage(),
-                1);
+                INFO);
     }
 
     public void debug(String message) {
@@ -66,7 +111,7 @@ public class LoggingHelper {
     public void error(String message) {
         log.error(message);
         messages.add(message,
-                0);
+                ERROR);
     }
 
     public void error(String message,
@@ -74,7 +119,7 @@ public class LoggingHelper {
         log.error(message,
                 error);
         messages.add(message + " " + error.getMessage(),
-                0);
+                ERROR);
     }
 
     public void warn(String message) {
@@ -85,45 +130,143 @@ public class LoggingHelper {
         return log.isDebugEnabled();
     }
 
+    private static int getCapacity() {
+        String capacity = System.getProperty(CAPACITY_PROPERTY);
+        if (capacity != null) {
+            try {
+                int value = Integer.parseInt(capacity.trim());
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // Fall back to the default
+            }
+            LoggerFactory.getLogger(LoggingHelper.class).warn("Ignoring " + CAPACITY_PROPERTY + "=" + capacity + ", it should be a positive number.");
+        }
+        return MessageList.MAX;
+    }
+
 }
 
+/**
+ * A ring buffer of the last messages. Adding a message doesn't lock: each one
+ * takes the next sequence number, and goes in the slot of that number (in
+ * place of the message that came capacity messages before). Reading goes
+ * through the sequence numbers still in the buffer, skipping slots that were
+ * overwritten meanwhile.
+ */
 class MessageList {
     static final int MAX = 500;
-    LogEntry[] messages = new LogEntry[MAX];
-    int current = 0;
+
+    private static class Slot {
+        private final long sequence;
+        private final LogEntry entry;
+
+        Slot(long sequence,
+             LogEntry entry) {
+            this.sequence = sequence;
+            this.entry = entry;
+        }
+    }
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot> slots;
+    private final AtomicLong next = new AtomicLong();
+    // The messages before this sequence number were cleaned
+    private final AtomicLong cleaned = new AtomicLong();
+    private final AtomicLongArray counts = new AtomicLongArray(2);
 
     public MessageList() {
+        this(MAX);
+    }
 
+    public MessageList(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<Slot>(capacity);
     }
 
-    public synchronized void add(String message,
-                                 int severity) {
+    public void add(String message,
+                    int severity) {
         LogEntry entry = new LogEntry();
         entry.message = message;
         entry.timestamp = new Date();
         entry.severity = severity;
 
-        if (current == MAX) {
-            current = 0;
+        if (severity >= 0 && severity < counts.length()) {
+            counts.incrementAndGet(severity);
+        }
+        long sequence = next.getAndIncrement();
+        Slot slot = new Slot(sequence,
+                entry);
+        int index = (int) (sequence % capacity);
+        while (true) {
+            Slot current = slots.get(index);
+            // A slower writer doesn't overwrite a newer message
+            if (current != null && current.sequence > sequence) {
+                return;
+            }
+            if (slots.compareAndSet(index,
+                    current,
+                    slot)) {
+                return;
+            }
         }
-        messages[current++] = entry;
     }
 
     public LogEntry[] getMessages() {
-        //JDK1.5 Incompatible. 
-        //return Arrays.copyOf( messages, current );
-        LogEntry[] result = new LogEntry[current];
-        System.arraycopy(messages,
-                0,
-                result,
-                0,
-                Math.min(messages.length,
-                        current));
+        List<LogEntry> result = find(null,
+                null,
+                null,
+                null);
+        return result.toArray(new LogEntry[result.size()]);
+    }
+
+    public List<LogEntry> find(Integer severity,
+                               String text,
+                               Date from,
+                               Date to) {
+        String lowerText = (text == null || text.length() == 0) ? null : text.toLowerCase();
+        long end = next.get();
+        long start = Math.max(cleaned.get(),
+                end - capacity);
+        List<LogEntry> result = new ArrayList<LogEntry>();
+        for (long sequence = start; sequence < end; sequence++) {
+            Slot slot = slots.get((int) (sequence % capacity));
+            if (slot == null || slot.sequence != sequence) {
+                // Not written yet, or already overwritten
+                continue;
+            }
+            LogEntry entry = slot.entry;
+            if (severity != null && entry.severity != severity) {
+                continue;
+            }
+            if (from != null && entry.timestamp.before(from)) {
+                continue;
+            }
+            if (to != null && !entry.timestamp.before(to)) {
+                continue;
+            }
+            if (lowerText != null && (entry.message == null || !entry.message.toLowerCase().contains(lowerText))) {
+                continue;
+            }
+            result.add(entry);
+        }
         return result;
     }
 
-    public synchronized void cleanEntry() {
-        messages = new LogEntry[MAX];
-        current = 0;
+    public long getCount(int severity) {
+        if (severity < 0 || severity >= counts.length()) {
+            return 0;
+        }
+        return counts.get(severity);
+    }
+
+    public long getOverwrittenCount() {
+        return Math.max(0,
+                next.get() - capacity);
+    }
+
+    public void cleanEntry() {
+        cleaned.set(next.get());
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.util;
+
+import org.drools.repository.metrics.Gauge;
+import org.drools.repository.metrics.Metrics;
+import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.Create;
+import org.jboss.seam.annotations.Destroy;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.Startup;
+
+/**
+ * Publishes the {@link Metrics} through JMX for as long as the application
+ * runs, and adds the log counters to them. They are also served as JSON by the
+ * MetricsServlet.
+ */
+@Scope(ScopeType.APPLICATION)
+@Startup
+@Name("metricsService")
+public class MetricsService {
+
+    @Create
+    public void create() {
+        Metrics.register("log.errors", new Gauge() {
+            public long getValue() {
+                return LoggingHelper.getMessageCount(LoggingHelper.ERROR);
+            }
+        });
+        Metrics.register("log.infos", new Gauge() {
+            public long getValue() {
+                return LoggingHelper.getMessageCount(LoggingHelper.INFO);
+            }
+        });
+        Metrics.register("log.overwritten", new Gauge() {
+            public long getValue() {
+                return LoggingHelper.getOverwrittenCount();
+            }
+        });
+        Metrics.registerMBean();
+    }
+
+    @Destroy
+    public void close() {
+        Metrics.unregisterMBean();
+        Metrics.unregister("log.errors");
+        Metrics.unregister("log.infos");
+        Metrics.unregister("log.overwritten");
+    }
+
+}
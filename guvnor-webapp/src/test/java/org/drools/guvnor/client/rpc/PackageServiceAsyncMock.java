@@ -29,6 +29,9 @@ public abstract class PackageServiceAsyncMock implements PackageServiceAsync {
     public void listArchivedPackages( AsyncCallback<PackageConfigData[]> cb ) {
     }
 
+    public void listPackageLevel( String parentUUID, String workspace, boolean archived, AsyncCallback<PackageConfigData[]> cb ) {
+    }
+
     public void loadGlobalPackage( AsyncCallback<PackageConfigData> cb ) {
     }
 
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.drools.guvnor.client.widgets.decoratedgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.guvnor.client.widgets.decoratedgrid.data.DynamicData;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the rows rendered by VerticalMergableGridWidget
+ */
+public class RowWindowTest {
+
+    private static final int ROWS = 200;
+
+    private DynamicData      data = new DynamicData();
+
+    private boolean          isCol0Visible;
+
+    private RowWindow        window;
+
+    @Before
+    public void setup() {
+        isCol0Visible = true;
+        window = new RowWindow( data ) {
+
+            @Override
+            boolean isColumnVisible(int iCol) {
+                return iCol != 0
+                       || isCol0Visible;
+            }
+
+        };
+
+        for ( int iCol = 0; iCol < 3; iCol++ ) {
+            data.addColumn( iCol,
+                            new ArrayList<CellValue< ? extends Comparable< ? >>>(),
+                            true );
+        }
+        for ( int iRow = 0; iRow < ROWS; iRow++ ) {
+            List<CellValue< ? extends Comparable< ? >>> row = new ArrayList<CellValue< ? extends Comparable< ? >>>();
+            for ( int iCol = 0; iCol < 3; iCol++ ) {
+                row.add( new CellValue<String>( iRow + ":" + iCol,
+                                                iRow,
+                                                iCol ) );
+            }
+            data.addRow( row );
+        }
+        data.setMerged( true );
+    }
+
+    @Test
+    public void testAll() {
+        window.setAll();
+        assertEquals( 0,
+                      window.getStart() );
+        assertEquals( ROWS - 1,
+                      window.getEnd() );
+        assertTrue( window.isAll() );
+        assertTrue( window.isAligned() );
+    }
+
+    @Test
+    public void testViewport() {
+        window.setViewport( 100,
+                            20 );
+        assertEquals( 100 - RowWindow.BUFFER_ROWS,
+                      window.getStart() );
+        assertEquals( 120 + RowWindow.BUFFER_ROWS,
+                      window.getEnd() );
+        assertFalse( window.isAll() );
+        assertTrue( window.isAligned() );
+
+        assertTrue( window.containsViewport( 100,
+                                             20 ) );
+        assertTrue( window.containsViewport( 110,
+                                             20 ) );
+        assertFalse( window.containsViewport( 10,
+                                              20 ) );
+        assertFalse( window.containsViewport( 140,
+                                              20 ) );
+
+        assertTrue( window.contains( 100 - RowWindow.BUFFER_ROWS ) );
+        assertFalse( window.contains( 100 - RowWindow.BUFFER_ROWS - 1 ) );
+    }
+
+    @Test
+    public void testViewportAtTheEnds() {
+        window.setViewport( 0,
+                            20 );
+        assertEquals( 0,
+                      window.getStart() );
+        window.setViewport( ROWS - 10,
+                            20 );
+        assertEquals( ROWS - 1,
+                      window.getEnd() );
+    }
+
+    @Test
+    public void testViewportDoesNotSplitMergedCells() {
+        //Rows 60 to 75 are merged in the first column, rows 145 to 155 in the second
+        merge( 0,
+               60,
+               75 );
+        merge( 1,
+               145,
+               155 );
+
+        window.setViewport( 100,
+                            20 );
+        assertEquals( 60,
+                      window.getStart() );
+        assertEquals( 155,
+                      window.getEnd() );
+        assertTrue( window.isAligned() );
+    }
+
+    @Test
+    public void testMergedCellsInHiddenColumnsAreIgnored() {
+        merge( 0,
+               60,
+               75 );
+        isCol0Visible = false;
+
+        window.setViewport( 100,
+                            20 );
+        assertEquals( 100 - RowWindow.BUFFER_ROWS,
+                      window.getStart() );
+    }
+
+    @Test
+    public void testMergingAcrossTheWindow() {
+        window.setViewport( 100,
+                            20 );
+        assertTrue( window.isAligned() );
+
+        merge( 2,
+               65,
+               75 );
+        assertFalse( window.isAligned() );
+    }
+
+    @Test
+    public void testInsertRow() {
+        window.setViewport( 100,
+                            20 );
+
+        //Above the window, it moves down
+        assertFalse( window.insertRow( 10 ) );
+        assertEquals( 71,
+                      window.getStart() );
+        assertEquals( 151,
+                      window.getEnd() );
+
+        //Within and directly below the window, it grows
+        assertTrue( window.insertRow( 100 ) );
+        assertTrue( window.insertRow( 153 ) );
+        assertEquals( 71,
+                      window.getStart() );
+        assertEquals( 153,
+                      window.getEnd() );
+
+        //Below the window, nothing changes
+        assertFalse( window.insertRow( 190 ) );
+        assertEquals( 153,
+                      window.getEnd() );
+    }
+
+    @Test
+    public void testDeleteRow() {
+        window.setViewport( 100,
+                            20 );
+
+        //Above the window, it moves up
+        assertFalse( window.deleteRow( 0 ) );
+        assertEquals( 69,
+                      window.getStart() );
+        assertEquals( 149,
+                      window.getEnd() );
+
+        //Within the window, it shrinks
+        assertTrue( window.deleteRow( 69 ) );
+        assertEquals( 69,
+                      window.getStart() );
+        assertEquals( 148,
+                      window.getEnd() );
+
+        //Below the window, nothing changes
+        assertFalse( window.deleteRow( 149 ) );
+        assertEquals( 148,
+                      window.getEnd() );
+    }
+
+    //Give the rows the same value in the column, so they are merged
+    private void merge(int iCol,
+                       int startRow,
+                       int endRow) {
+        for ( int iRow = startRow; iRow <= endRow; iRow++ ) {
+            data.get( iRow ).get( iCol ).setValue( "merged" );
+        }
+        data.setMerged( true );
+    }
+
+}
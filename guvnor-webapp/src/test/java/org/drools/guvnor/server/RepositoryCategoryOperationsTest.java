@@ -130,6 +130,12 @@ public class RepositoryCategoryOperationsTest {
                       1 );
         assertEquals( loadRuleListForCategories.isLastPage(),
                       true );
+        // The last page gives the count, not the index
+        assertEquals( 1,
+                      loadRuleListForCategories.getTotalRowSize() );
+        verify( rulesRepository,
+                Mockito.never() ).countAssetsByCategory( "/path",
+                                                         false );
 
     }
 
@@ -625,6 +625,58 @@ public class RepositoryPackageServiceTest extends GuvnorTestBase {
                       arch.length );
     }
 
+    @Test
+    public void testListPackageLevel() throws Exception {
+        RepositoryPackageService repositoryPackageService = getRepositoryPackageService();
+        int n = repositoryPackageService.listPackageLevel( null,
+                                                           null,
+                                                           false ).length;
+
+        String uuid = repositoryPackageService.createPackage( "testListPackageLevel",
+                                                              "" );
+        PackageConfigData[] top = repositoryPackageService.listPackageLevel( null,
+                                                                             null,
+                                                                             false );
+        assertEquals( n + 1,
+                      top.length );
+
+        repositoryPackageService.createSubPackage( "testListPackageLevelSub",
+                                                   "",
+                                                   "testListPackageLevel" );
+        PackageConfigData parent = null;
+        for ( PackageConfigData data : repositoryPackageService.listPackageLevel( null,
+                                                                                  null,
+                                                                                  false ) ) {
+            if ( data.getUuid().equals( uuid ) ) {
+                parent = data;
+            }
+        }
+        assertNotNull( parent );
+        assertEquals( 1,
+                      parent.getSubPackageCount() );
+        assertNull( parent.getSubPackages() );
+
+        PackageConfigData[] children = repositoryPackageService.listPackageLevel( uuid,
+                                                                                  null,
+                                                                                  false );
+        assertEquals( 1,
+                      children.length );
+        assertEquals( "testListPackageLevelSub",
+                      children[0].getName() );
+
+        PackageItem sub = getServiceImplementation().getRulesRepository().loadPackageByUUID( children[0].getUuid() );
+        sub.archiveItem( true );
+        sub.checkin( "archived" );
+        assertEquals( 0,
+                      repositoryPackageService.listPackageLevel( uuid,
+                                                                 null,
+                                                                 false ).length );
+        assertEquals( 1,
+                      repositoryPackageService.listPackageLevel( uuid,
+                                                                 null,
+                                                                 true ).length );
+    }
+
     @Test
     public void testCreatePackage() throws Exception {
         ServiceImplementation impl = getServiceImplementation();
@@ -31,6 +31,9 @@ import org.drools.guvnor.client.common.AssetFormats;
 import org.drools.guvnor.client.explorer.ExplorerNodeConfig;
 import org.drools.guvnor.client.rpc.AdminArchivedPageRow;
 import org.drools.guvnor.client.rpc.BuilderResult;
+import org.drools.guvnor.client.rpc.DetailedSerializationException;
+import org.drools.guvnor.client.rpc.GuidedDTRowChange;
+import org.drools.guvnor.client.rpc.GuidedDTRowPageRow;
 import org.drools.guvnor.client.rpc.PageRequest;
 import org.drools.guvnor.client.rpc.PageResponse;
 import org.drools.guvnor.client.rpc.RepositoryService;
@@ -46,6 +49,10 @@ import org.drools.ide.common.client.modeldriven.brl.ActionSetField;
 import org.drools.ide.common.client.modeldriven.brl.FactPattern;
 import org.drools.ide.common.client.modeldriven.brl.RuleModel;
 import org.drools.ide.common.client.modeldriven.brl.SingleFieldConstraint;
+import org.drools.ide.common.client.modeldriven.dt52.ConditionCol52;
+import org.drools.ide.common.client.modeldriven.dt52.DTCellValue52;
+import org.drools.ide.common.client.modeldriven.dt52.GuidedDecisionTable52;
+import org.drools.ide.common.client.modeldriven.dt52.Pattern52;
 import org.drools.repository.AssetItem;
 import org.drools.repository.AssetItemIterator;
 import org.drools.repository.PackageItem;
@@ -1250,4 +1257,195 @@ public class RepositoyAssetServiceTest extends GuvnorTestBase {
         assertTrue( response.isLastPage() );
     }
 
+    @Test
+    public void testGuidedDecisionTableRowPaging() throws Exception {
+        ServiceImplementation impl = getServiceImplementation();
+        RepositoryAssetService repositoryAssetService = getRepositoryAssetService();
+        impl.getRulesRepository().createPackage( "testGuidedDTRowPaging",
+                                                 "" );
+        getRepositoryCategoryService().createCategory( "",
+                                                       "testGuidedDTRowPagingCat",
+                                                       "" );
+        String uuid = impl.createNewRule( "testGuidedDTRowPagingTable",
+                                          "",
+                                          "testGuidedDTRowPagingCat",
+                                          "testGuidedDTRowPaging",
+                                          AssetFormats.DECISION_TABLE_GUIDED );
+
+        GuidedDecisionTable52 dt = new GuidedDecisionTable52();
+        Pattern52 pattern = new Pattern52();
+        pattern.setBoundName( "p" );
+        pattern.setFactType( "Person" );
+        ConditionCol52 condition = new ConditionCol52();
+        condition.setFactField( "name" );
+        condition.setOperator( "==" );
+        pattern.getConditions().add( condition );
+        dt.getConditionPatterns().add( pattern );
+        for ( int i = 0; i < 3; i++ ) {
+            dt.getData().add( makeRow( i + 1,
+                                       "row" + i ) );
+        }
+
+        RuleAsset asset = repositoryAssetService.loadRuleAsset( uuid );
+        asset.setContent( dt );
+        repositoryAssetService.checkinVersion( asset );
+
+        RuleAsset columns = repositoryAssetService.loadGuidedDecisionTableColumns( uuid );
+        GuidedDecisionTable52 header = (GuidedDecisionTable52) columns.getContent();
+        assertEquals( 1,
+                      header.getConditionPatterns().size() );
+        assertEquals( 0,
+                      header.getData().size() );
+
+        PageResponse<GuidedDTRowPageRow> rows = repositoryAssetService.loadGuidedDecisionTableRows( uuid,
+                                                                                                    new PageRequest( 1,
+                                                                                                                     1 ) );
+        assertEquals( 3,
+                      rows.getTotalRowSize() );
+        assertEquals( 1,
+                      rows.getPageRowList().size() );
+        assertEquals( 1,
+                      rows.getPageRowList().get( 0 ).getRowIndex() );
+        assertEquals( "row1",
+                      rows.getPageRowList().get( 0 ).getCells().get( 2 ).getStringValue() );
+        assertFalse( rows.isLastPage() );
+
+        List<GuidedDTRowChange> changes = new ArrayList<GuidedDTRowChange>();
+        changes.add( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.UPDATE,
+                                            0,
+                                            makeRow( 1,
+                                                     "changed" ) ) );
+        changes.add( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.DELETE,
+                                            2,
+                                            null ) );
+        changes.add( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.INSERT,
+                                            1,
+                                            makeRow( 2,
+                                                     "inserted" ) ) );
+        assertEquals( uuid,
+                      repositoryAssetService.checkinGuidedDecisionTableRows( uuid,
+                                                                             columns.getLastModified(),
+                                                                             changes,
+                                                                             "row changes" ) );
+
+        GuidedDecisionTable52 saved = (GuidedDecisionTable52) repositoryAssetService.loadRuleAsset( uuid ).getContent();
+        assertEquals( 3,
+                      saved.getData().size() );
+        assertEquals( "changed",
+                      saved.getData().get( 0 ).get( 2 ).getStringValue() );
+        assertEquals( "inserted",
+                      saved.getData().get( 1 ).get( 2 ).getStringValue() );
+        assertEquals( "row1",
+                      saved.getData().get( 2 ).get( 2 ).getStringValue() );
+
+        //the changes were based on an old version
+        String result = repositoryAssetService.checkinGuidedDecisionTableRows( uuid,
+                                                                               columns.getLastModified(),
+                                                                               changes,
+                                                                               "stale" );
+        assertTrue( result.startsWith( "ERR" ) );
+    }
+
+    @Test
+    public void testGuidedDecisionTableRowChangesChecked() throws Exception {
+        ServiceImplementation impl = getServiceImplementation();
+        RepositoryAssetService repositoryAssetService = getRepositoryAssetService();
+        impl.getRulesRepository().createPackage( "testGuidedDTRowChecks",
+                                                 "" );
+        getRepositoryCategoryService().createCategory( "",
+                                                       "testGuidedDTRowChecksCat",
+                                                       "" );
+        String uuid = impl.createNewRule( "testGuidedDTRowChecksTable",
+                                          "",
+                                          "testGuidedDTRowChecksCat",
+                                          "testGuidedDTRowChecks",
+                                          AssetFormats.DECISION_TABLE_GUIDED );
+
+        GuidedDecisionTable52 dt = new GuidedDecisionTable52();
+        Pattern52 pattern = new Pattern52();
+        pattern.setBoundName( "p" );
+        pattern.setFactType( "Person" );
+        ConditionCol52 condition = new ConditionCol52();
+        condition.setFactField( "name" );
+        condition.setOperator( "==" );
+        pattern.getConditions().add( condition );
+        dt.getConditionPatterns().add( pattern );
+        dt.getData().add( makeRow( 1,
+                                   "row0" ) );
+
+        RuleAsset asset = repositoryAssetService.loadRuleAsset( uuid );
+        asset.setContent( dt );
+        repositoryAssetService.checkinVersion( asset );
+
+        //changing a loaded table doesn't change the cached one
+        RuleAsset loaded = repositoryAssetService.loadRuleAsset( uuid );
+        GuidedDecisionTable52 model = (GuidedDecisionTable52) loaded.getContent();
+        model.getData().get( 0 ).get( 2 ).setStringValue( "modified" );
+        model.getConditionPatterns().get( 0 ).setFactType( "Modified" );
+        GuidedDecisionTable52 again = (GuidedDecisionTable52) repositoryAssetService.loadRuleAsset( uuid ).getContent();
+        assertEquals( "row0",
+                      again.getData().get( 0 ).get( 2 ).getStringValue() );
+        assertEquals( "Person",
+                      again.getConditionPatterns().get( 0 ).getFactType() );
+
+        List<List<GuidedDTRowChange>> invalid = new ArrayList<List<GuidedDTRowChange>>();
+        invalid.add( makeChanges( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.UPDATE,
+                                                         1,
+                                                         makeRow( 2,
+                                                                  "out of range" ) ) ) );
+        invalid.add( makeChanges( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.DELETE,
+                                                         -1,
+                                                         null ) ) );
+        invalid.add( makeChanges( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.INSERT,
+                                                         0,
+                                                         null ) ) );
+        List<DTCellValue52> shortRow = makeRow( 1,
+                                                "short" );
+        shortRow.remove( 2 );
+        invalid.add( makeChanges( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.INSERT,
+                                                         1,
+                                                         shortRow ) ) );
+        //the first change is fine, the second isn't: nothing is stored
+        invalid.add( makeChanges( new GuidedDTRowChange( GuidedDTRowChange.ChangeType.DELETE,
+                                                         0,
+                                                         null ),
+                                  new GuidedDTRowChange( GuidedDTRowChange.ChangeType.DELETE,
+                                                         0,
+                                                         null ) ) );
+        for ( List<GuidedDTRowChange> changes : invalid ) {
+            try {
+                repositoryAssetService.checkinGuidedDecisionTableRows( uuid,
+                                                                       loaded.getLastModified(),
+                                                                       changes,
+                                                                       "invalid" );
+                fail( "The changes don't fit the table." );
+            } catch ( DetailedSerializationException e ) {
+                assertNotNull( e.getLongDescription() );
+            }
+        }
+
+        GuidedDecisionTable52 saved = (GuidedDecisionTable52) repositoryAssetService.loadRuleAsset( uuid ).getContent();
+        assertEquals( 1,
+                      saved.getData().size() );
+        assertEquals( "row0",
+                      saved.getData().get( 0 ).get( 2 ).getStringValue() );
+    }
+
+    private List<GuidedDTRowChange> makeChanges(GuidedDTRowChange... changes) {
+        List<GuidedDTRowChange> list = new ArrayList<GuidedDTRowChange>();
+        for ( GuidedDTRowChange change : changes ) {
+            list.add( change );
+        }
+        return list;
+    }
+
+    private List<DTCellValue52> makeRow(int rowNumber,
+                                        String name) {
+        List<DTCellValue52> row = new ArrayList<DTCellValue52>();
+        row.add( new DTCellValue52( rowNumber ) );
+        row.add( new DTCellValue52( "" ) );
+        row.add( new DTCellValue52( name ) );
+        return row;
+    }
+
 }
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
@@ -44,6 +45,7 @@ import org.drools.guvnor.client.rpc.BulkTestRunResult;
 import org.drools.guvnor.client.rpc.DiscussionRecord;
 import org.drools.guvnor.client.rpc.InboxPageRequest;
 import org.drools.guvnor.client.rpc.InboxPageRow;
+import org.drools.guvnor.client.rpc.LogPageRequest;
 import org.drools.guvnor.client.rpc.LogPageRow;
 import org.drools.guvnor.client.rpc.MetaDataQuery;
 import org.drools.guvnor.client.rpc.PackageConfigData;
@@ -64,6 +66,7 @@ import org.drools.guvnor.server.cache.RuleBaseCache;
 import org.drools.guvnor.server.repository.MailboxService;
 import org.drools.guvnor.server.repository.RepositoryStartupService;
 import org.drools.guvnor.server.repository.UserInbox;
+import org.drools.guvnor.server.util.Discussion;
 import org.drools.guvnor.server.util.DroolsHeader;
 import org.drools.guvnor.server.util.TableDisplayHandler;
 import org.drools.guvnor.server.util.TestEnvironmentSessionHelper;
@@ -1017,6 +1020,61 @@ public class ServiceImplementationTest extends GuvnorTestBase {
                       d_.size() );
     }
 
+    @Test
+    public void testDiscussionMigratedFromProperty() throws Exception {
+        ServiceImplementation impl = getServiceImplementation();
+        RepositoryAssetService repositoryAssetService = getRepositoryAssetService();
+        RulesRepository repo = impl.getRulesRepository();
+
+        PackageItem pkg = repo.createPackage( "testDiscussionMigratedFromProperty",
+                                              "" );
+        AssetItem rule1 = pkg.addAsset( "rule_1",
+                                        "" );
+        Discussion dp = new Discussion();
+        List<DiscussionRecord> old = new ArrayList<DiscussionRecord>();
+        old.add( new DiscussionRecord( "foo",
+                                       "old note 1" ) );
+        old.add( new DiscussionRecord( "bar",
+                                       "old note 2" ) );
+        rule1.updateStringProperty( dp.toString( old ),
+                                    Discussion.DISCUSSION_PROPERTY_KEY );
+        rule1.checkin( "" );
+        repo.save();
+
+        List<DiscussionRecord> d_ = repositoryAssetService.loadDiscussionForAsset( rule1.getUUID() );
+        assertEquals( 2,
+                      d_.size() );
+
+        repositoryAssetService.addToDiscussionForAsset( rule1.getUUID(),
+                                                        "new note" );
+        d_ = repositoryAssetService.loadDiscussionForAsset( rule1.getUUID() );
+        assertEquals( 3,
+                      d_.size() );
+        assertEquals( "old note 1",
+                      d_.get( 0 ).note );
+        assertEquals( "foo",
+                      d_.get( 0 ).author );
+        assertEquals( "new note",
+                      d_.get( 2 ).note );
+
+        d_ = repositoryAssetService.loadLatestDiscussionForAsset( rule1.getUUID(),
+                                                                  2 );
+        assertEquals( 2,
+                      d_.size() );
+        assertEquals( "old note 2",
+                      d_.get( 0 ).note );
+        assertEquals( "new note",
+                      d_.get( 1 ).note );
+
+        // The asset itself is not changed by the discussion
+        assertEquals( rule1.getVersionNumber(),
+                      repo.loadAssetByUUID( rule1.getUUID() ).getVersionNumber() );
+
+        repositoryAssetService.clearAllDiscussionsForAsset( rule1.getUUID() );
+        assertEquals( 0,
+                      repositoryAssetService.loadDiscussionForAsset( rule1.getUUID() ).size() );
+    }
+
     @Test
     public void testSuggestionCompletionLoading() throws Exception {
         ServiceImplementation impl = getServiceImplementation();
@@ -1438,6 +1496,36 @@ public class ServiceImplementationTest extends GuvnorTestBase {
         assertTrue( response.isLastPage() );
     }
 
+    @Test
+    public void testShowLogFilteredResults() throws Exception {
+
+        //Setup data (createUser makes log entries)
+        ServiceImplementation impl = getServiceImplementation();
+        impl.cleanLog();
+        impl.createUser( "user1" );
+        impl.createUser( "user2" );
+        impl.createUser( "user3" );
+
+        LogPageRequest request = new LogPageRequest( 0,
+                                                     null );
+        request.setText( "[user2]" );
+        PageResponse<LogPageRow> response;
+        response = impl.showLog( request );
+
+        assertNotNull( response );
+        assertEquals( 1,
+                      response.getPageRowList().size() );
+        assertEquals( 1,
+                      response.getTotalRowSize() );
+        assertTrue( response.isLastPage() );
+
+        request.setText( null );
+        request.setSeverity( 0 );
+        response = impl.showLog( request );
+        assertEquals( 0,
+                      response.getPageRowList().size() );
+    }
+
     @Test
     public void testLoadRuleListForStatePagedResults() throws Exception {
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2005 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.guvnor.client.common.AssetFormats;
+import org.drools.guvnor.server.GuvnorTestBase;
+import org.drools.lang.dsl.DSLTokenizedMappingFile;
+import org.drools.repository.AssetItem;
+import org.drools.repository.PackageItem;
+import org.drools.repository.RulesRepository;
+import org.junit.Test;
+
+public class DSLLoaderTest extends GuvnorTestBase {
+
+    @Test
+    public void testParsedDSLIsReusedUntilChanged() throws Exception {
+        RulesRepository repo = getServiceImplementation().getRulesRepository();
+        PackageItem pkg = repo.createPackage( "testParsedDSLIsReusedUntilChanged",
+                                              "" );
+        AssetItem dsl = pkg.addAsset( "mydsl",
+                                      "" );
+        dsl.updateFormat( AssetFormats.DSL );
+        dsl.updateContent( "[when]This is a sentence=Person()" );
+        dsl.checkin( "" );
+
+        List<DSLTokenizedMappingFile> first = DSLLoader.loadDSLMappingFiles( pkg );
+        List<DSLTokenizedMappingFile> second = DSLLoader.loadDSLMappingFiles( pkg );
+        assertEquals( 1,
+                      first.size() );
+        assertSame( first.get( 0 ),
+                    second.get( 0 ) );
+
+        dsl.updateContent( "[when]This is another sentence=Person()" );
+        List<DSLTokenizedMappingFile> changed = DSLLoader.loadDSLMappingFiles( pkg );
+        assertNotSame( first.get( 0 ),
+                       changed.get( 0 ) );
+    }
+
+    @Test
+    public void testErrorsAreReportedOnEveryLoad() throws Exception {
+        RulesRepository repo = getServiceImplementation().getRulesRepository();
+        PackageItem pkg = repo.createPackage( "testDSLErrorsAreReportedOnEveryLoad",
+                                              "" );
+        AssetItem dsl = pkg.addAsset( "baddsl",
+                                      "" );
+        dsl.updateFormat( AssetFormats.DSL );
+        dsl.updateContent( "[when]This is a sentence" );
+        dsl.checkin( "" );
+
+        final List<String> errors = new ArrayList<String>();
+        BRMSPackageBuilder.DSLErrorEvent event = new BRMSPackageBuilder.DSLErrorEvent() {
+            public void recordError(AssetItem asset,
+                                    String message) {
+                errors.add( message );
+            }
+        };
+        assertEquals( 0,
+                      DSLLoader.loadDSLMappingFiles( pkg,
+                                                     event ).size() );
+        int errorCount = errors.size();
+        DSLLoader.loadDSLMappingFiles( pkg,
+                                       event );
+        assertEquals( errorCount * 2,
+                      errors.size() );
+    }
+
+}
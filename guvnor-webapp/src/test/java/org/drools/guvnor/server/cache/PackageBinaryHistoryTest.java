@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.drools.compiler.PackageBuilder;
+import org.drools.guvnor.server.cache.PackageBinaryHistory.Delta;
+import org.drools.rule.Package;
+import org.junit.After;
+import org.junit.Test;
+
+public class PackageBinaryHistoryTest {
+
+    private static final String PACKAGE = "testPackageBinaryHistory";
+
+    private static final String RULES   = "rule \"first\"\n" + "when\n" + "    java.util.List()\n" + "then\n" + "end\n";
+
+    private PackageBinaryHistory history = PackageBinaryHistory.getInstance();
+
+    @After
+    public void tearDown() {
+        history.remove( PACKAGE );
+    }
+
+    @Test
+    public void testRuleChange() throws Exception {
+        String drl = "package " + PACKAGE + "\n" + RULES;
+        record( "1",
+                drl,
+                "",
+                "" );
+        record( "2",
+                drl.replace( "java.util.List()",
+                             "java.util.Map()" ),
+                "",
+                "" );
+
+        Delta delta = history.getDelta( PACKAGE,
+                                        "1",
+                                        "2" );
+        assertNotNull( delta );
+        assertEquals( 1,
+                      delta.getChangedRules().size() );
+        assertFalse( delta.isReloadNeeded() );
+    }
+
+    @Test
+    public void testProcessChange() throws Exception {
+        String drl = "package " + PACKAGE + "\n" + RULES;
+        record( "1",
+                drl,
+                "<process id=\"flow\" version=\"1\"/>",
+                "" );
+        record( "2",
+                drl,
+                "<process id=\"flow\" version=\"2\"/>",
+                "" );
+
+        Delta delta = history.getDelta( PACKAGE,
+                                        "1",
+                                        "2" );
+        assertTrue( delta.isProcessesChanged() );
+        assertTrue( delta.isReloadNeeded() );
+    }
+
+    @Test
+    public void testModelChange() throws Exception {
+        String drl = "package " + PACKAGE + "\n" + RULES;
+        record( "1",
+                drl,
+                "",
+                "model.jar:1:1000\n" );
+        record( "2",
+                drl,
+                "",
+                "model.jar:2:2000\n" );
+
+        Delta delta = history.getDelta( PACKAGE,
+                                        "1",
+                                        "2" );
+        assertTrue( delta.isModelsChanged() );
+        assertTrue( delta.isReloadNeeded() );
+    }
+
+    @Test
+    public void testImportAfterTheFirstRule() throws Exception {
+        // The DRL of each asset is added as it is, so its imports and globals
+        // may well come after the rules of another one
+        String drl = "package " + PACKAGE + "\n" + RULES;
+        record( "1",
+                drl,
+                "",
+                "" );
+        record( "2",
+                drl + "\nimport java.util.Date\nglobal java.util.List results\n",
+                "",
+                "" );
+
+        Delta delta = history.getDelta( PACKAGE,
+                                        "1",
+                                        "2" );
+        assertTrue( delta.isHeaderChanged() );
+        assertTrue( delta.isReloadNeeded() );
+    }
+
+    private void record(String versionId,
+                        String drl,
+                        String processes,
+                        String models) throws Exception {
+        PackageBuilder builder = new PackageBuilder();
+        builder.addPackageFromDrl( new StringReader( drl ) );
+        assertFalse( builder.getErrors().toString(),
+                     builder.hasErrors() );
+        Package compiled = builder.getPackage();
+        assertNotNull( history.record( PACKAGE,
+                                       versionId,
+                                       drl,
+                                       processes,
+                                       models,
+                                       compiled ) );
+    }
+
+}
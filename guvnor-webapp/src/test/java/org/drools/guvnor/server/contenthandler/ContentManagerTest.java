@@ -16,6 +16,7 @@
 
 package org.drools.guvnor.server.contenthandler;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -38,4 +39,11 @@ public class ContentManagerTest {
 
     }
 
+    @Test
+    public void testMetricsFormat() throws Exception {
+        assertEquals(AssetFormats.DRL, ContentManager.getMetricsFormat(AssetFormats.DRL));
+        assertEquals("other", ContentManager.getMetricsFormat("someone's own format"));
+        assertEquals("other", ContentManager.getMetricsFormat(null));
+    }
+
 }
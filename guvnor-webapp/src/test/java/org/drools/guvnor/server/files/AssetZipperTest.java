@@ -0,0 +1,117 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.drools.repository.AssetItem;
+import org.drools.repository.PackageItem;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AssetZipperTest {
+
+    @Test
+    public void testSingleAssetIsNotZipped() throws Exception {
+        LinkedList<AssetItem> assets = new LinkedList<AssetItem>();
+        assets.add( mockAsset( "model",
+                               "jar",
+                               "jar content".getBytes() ) );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new AssetZipper( assets,
+                         mock( PackageItem.class ) ).zipAssets( out );
+
+        assertArrayEquals( "jar content".getBytes(),
+                           out.toByteArray() );
+    }
+
+    @Test
+    public void testJarsAreStored() throws Exception {
+        byte[] big = new byte[200 * 1024];
+        for ( int i = 0; i < big.length; i++ ) {
+            big[i] = (byte) i;
+        }
+        LinkedList<AssetItem> assets = new LinkedList<AssetItem>();
+        assets.add( mockAsset( "model1",
+                               "jar",
+                               big ) );
+        assets.add( mockAsset( "model2",
+                               "jar",
+                               "second".getBytes() ) );
+        assets.add( mockAsset( "readme",
+                               "txt",
+                               "some text".getBytes() ) );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new AssetZipper( assets,
+                         mock( PackageItem.class ) ).zipAssets( out );
+
+        ZipInputStream zip = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        ZipEntry entry = zip.getNextEntry();
+        assertEquals( "model1.jar",
+                      entry.getName() );
+        assertEquals( ZipEntry.STORED,
+                      entry.getMethod() );
+        assertArrayEquals( big,
+                           IOUtils.toByteArray( zip ) );
+
+        entry = zip.getNextEntry();
+        assertEquals( "model2.jar",
+                      entry.getName() );
+        assertArrayEquals( "second".getBytes(),
+                           IOUtils.toByteArray( zip ) );
+
+        entry = zip.getNextEntry();
+        assertEquals( "readme.txt",
+                      entry.getName() );
+        assertEquals( ZipEntry.DEFLATED,
+                      entry.getMethod() );
+        assertArrayEquals( "some text".getBytes(),
+                           IOUtils.toByteArray( zip ) );
+
+        assertNull( zip.getNextEntry() );
+    }
+
+    private AssetItem mockAsset(String name,
+                                String format,
+                                final byte[] content) {
+        AssetItem asset = mock( AssetItem.class );
+        when( asset.getName() ).thenReturn( name );
+        when( asset.getFormat() ).thenReturn( format );
+        // A new stream each time, as the repository does
+        when( asset.getBinaryContentAttachment() ).thenAnswer( new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                return new ByteArrayInputStream( content );
+            }
+        } );
+        return asset;
+    }
+
+}
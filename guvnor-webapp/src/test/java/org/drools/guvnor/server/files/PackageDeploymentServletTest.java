@@ -17,6 +17,7 @@
 package org.drools.guvnor.server.files;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -25,9 +26,11 @@ import java.io.FileInputStream;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.drools.guvnor.client.common.AssetFormats;
 import org.drools.guvnor.server.GuvnorTestBase;
 import org.drools.guvnor.server.RepositoryPackageService;
 import org.drools.guvnor.server.ServiceImplementation;
+import org.drools.guvnor.server.cache.PackageBinaryHistory;
 import org.drools.repository.AssetItem;
 import org.drools.repository.PackageItem;
 import org.drools.repository.RulesRepository;
@@ -385,4 +388,113 @@ public class PackageDeploymentServletTest extends GuvnorTestBase {
         byte[] bin = res.extractContentBytes();
         assertTrue( bin.length > 0 );
     }
+
+    @Test
+    public void testDeltaAndRuleSource() throws Exception {
+        RulesRepository repo = getServiceImplementation().getRulesRepository();
+        RepositoryPackageService repoServiceImpl = getRepositoryPackageService();
+
+        PackageItem pkg = repo.createPackage( "testDeltaPackage",
+                                              "" );
+        AssetItem first = pkg.addAsset( "first",
+                                        "" );
+        first.updateFormat( AssetFormats.DRL );
+        first.updateContent( "rule first \n when \n then \n System.out.println(1); \n end" );
+        first.checkin( "" );
+        AssetItem second = pkg.addAsset( "second",
+                                         "" );
+        second.updateFormat( AssetFormats.DRL );
+        second.updateContent( "rule second \n when \n then \n System.out.println(2); \n end" );
+        second.checkin( "" );
+        assertFalse( repoServiceImpl.buildPackage( pkg.getUUID(),
+                                                   true ).hasLines() );
+
+        Map<String, String> headers = getAuthorizationHeaders();
+        PackageDeploymentServlet serv = new PackageDeploymentServlet();
+        MockHTTPRequest req = new MockHTTPRequest( "/package/testDeltaPackage/LATEST",
+                                                   headers );
+        MockHTTPResponse res = new MockHTTPResponse();
+        serv.doGet( req,
+                    res );
+        String fromId = res.headers.get( PackageDeploymentServlet.BINARY_VERSION_HEADER );
+        assertNotNull( fromId );
+
+        // Only the consequence changes
+        first.updateContent( "rule first \n when \n then \n System.out.println(10); \n end" );
+        first.checkin( "" );
+        second.archiveItem( true );
+        AssetItem third = pkg.addAsset( "third",
+                                        "" );
+        third.updateFormat( AssetFormats.DRL );
+        third.updateContent( "rule third \n when \n then \n System.out.println(3); \n end" );
+        third.checkin( "" );
+        assertFalse( repoServiceImpl.buildPackage( pkg.getUUID(),
+                                                   true ).hasLines() );
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put( "from",
+                        fromId );
+        req = new MockHTTPRequest( "/package/testDeltaPackage/LATEST/delta",
+                                   headers,
+                                   parameters );
+        req.url = new StringBuffer( "http://foo/package/testDeltaPackage/LATEST/delta" );
+        res = new MockHTTPResponse();
+        serv.doGet( req,
+                    res );
+        String delta = res.extractContent();
+        String toId = repo.loadPackage( "testDeltaPackage" ).getBinaryVersionId();
+        assertEquals( PackageBinaryHistory.getVersionId( repo.loadPackage( "testDeltaPackage" ).getCompiledPackageBytes() ),
+                      toId );
+        assertTrue( delta.indexOf( "reload=\"false\"" ) > 0 );
+        assertTrue( delta.indexOf( "<rule name=\"first\" change=\"changed\" source=\"http://foo/package/testDeltaPackage/" + toId + "/rule/first\"/>" ) > 0 );
+        assertTrue( delta.indexOf( "<rule name=\"second\" change=\"removed\"/>" ) > 0 );
+        assertTrue( delta.indexOf( "<rule name=\"third\" change=\"added\"" ) > 0 );
+
+        req = new MockHTTPRequest( "/package/testDeltaPackage/" + toId + "/rule/first",
+                                   headers );
+        res = new MockHTTPResponse();
+        serv.doGet( req,
+                    res );
+        String drl = res.extractContent();
+        assertTrue( drl.startsWith( "package testDeltaPackage" ) );
+        assertTrue( drl.indexOf( "System.out.println(10);" ) > 0 );
+        assertFalse( drl.indexOf( "rule third" ) > 0 );
+
+        // An unknown version can only be caught up with by loading everything
+        parameters.put( "from",
+                        "unknown" );
+        req = new MockHTTPRequest( "/package/testDeltaPackage/LATEST/delta",
+                                   headers,
+                                   parameters );
+        req.url = new StringBuffer( "http://foo/package/testDeltaPackage/LATEST/delta" );
+        res = new MockHTTPResponse();
+        serv.doGet( req,
+                    res );
+        assertTrue( res.extractContent().indexOf( "reload=\"true\"" ) > 0 );
+
+        // Neither can no version at all
+        parameters.remove( "from" );
+        req = new MockHTTPRequest( "/package/testDeltaPackage/LATEST/delta",
+                                   headers,
+                                   parameters );
+        req.url = new StringBuffer( "http://foo/package/testDeltaPackage/LATEST/delta" );
+        res = new MockHTTPResponse();
+        serv.doGet( req,
+                    res );
+        delta = res.extractContent();
+        assertTrue( delta.indexOf( "from=\"\"" ) > 0 );
+        assertTrue( delta.indexOf( "reload=\"true\"" ) > 0 );
+    }
+
+    private Map<String, String> getAuthorizationHeaders() {
+        Base64 enc = new Base64();
+        String userpassword = "test" + ":" + "password";
+        final String encodedAuthorization = enc.encodeToString( userpassword.getBytes() );
+        return new HashMap<String, String>() {
+            {
+                put( "Authorization",
+                     "BASIC " + encodedAuthorization );
+            }
+        };
+    }
 }
@@ -92,4 +92,18 @@ public class PackageDeploymentURIHelperTest {
         assertTrue(helper.isPng());
     }
 
+    @Test
+    public void testGetRule() throws Exception {
+        String uri = "/org.drools.guvnor.Guvnor/package/packName/0a1b2c/rule/some+rule/with+slash";
+        PackageDeploymentURIHelper helper = new PackageDeploymentURIHelper( uri );
+        assertTrue( helper.isRule() );
+        assertFalse( helper.isSource() );
+        assertFalse( helper.isAsset() );
+        assertEquals( "0a1b2c",
+                      helper.getVersion() );
+        assertEquals( "packName",
+                      helper.getPackageName() );
+        assertEquals( "some rule/with slash",
+                      helper.getRuleName() );
+    }
 }
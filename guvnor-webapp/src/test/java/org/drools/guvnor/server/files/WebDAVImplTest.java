@@ -820,6 +820,104 @@ public class WebDAVImplTest extends GuvnorTestBase {
         }
     }
 
+    @Test
+    public void testStatCacheWithinTransaction() throws Exception {
+        WebDAVImpl imp = getWebDAVImpl();
+        try {
+            RulesRepository repo = imp.getRepo();
+            PackageItem pkg = repo.createPackage( "testWebDavStatCache",
+                                                  "" );
+            AssetItem asset = pkg.addAsset( "asset1",
+                                            "something" );
+            asset.updateFormat( "drl" );
+            asset.checkin( "" );
+            repo.save();
+
+            imp.statCache.beginTransaction();
+
+            String[] children = imp.getChildrenNames( new TransactionMock(),
+                                                      "/packages/testWebDavStatCache" );
+            assertEquals( 1,
+                          children.length );
+            assertEquals( "asset1.drl",
+                          children[0] );
+            assertEquals( asset.getContentLength(),
+                          imp.getResourceLength( new TransactionMock(),
+                                                 "/packages/testWebDavStatCache/asset1.drl" ) );
+            assertEquals( asset.getLastModified().getTime(),
+                          imp.getLastModified( "/packages/testWebDavStatCache/asset1.drl" ) );
+            assertEquals( asset.getCreatedDate().getTime(),
+                          imp.getCreationDate( "/packages/testWebDavStatCache/asset1.drl" ) );
+            assertTrue( imp.objectExists( "/packages/testWebDavStatCache/asset1.drl" ) );
+            assertFalse( imp.objectExists( "/packages/testWebDavStatCache/nothere.drl" ) );
+            assertNull( imp.getStoredObject( new TransactionMock(),
+                                             "/packages/testWebDavStatCache/nothere.drl" ) );
+
+            //changes made outside of webdav are not seen by this transaction
+            pkg.addAsset( "asset2",
+                          "" ).updateFormat( "drl" );
+            repo.save();
+            assertEquals( 1,
+                          imp.getChildrenNames( new TransactionMock(),
+                                                "/packages/testWebDavStatCache" ).length );
+
+            //changes made through webdav are
+            imp.createResource( new TransactionMock(),
+                                "/packages/testWebDavStatCache/asset3.drl" );
+            children = imp.getChildrenNames( new TransactionMock(),
+                                             "/packages/testWebDavStatCache" );
+            assertEquals( 3,
+                          children.length );
+            assertTrue( imp.objectExists( "/packages/testWebDavStatCache/asset3.drl" ) );
+
+            imp.removeObject( new TransactionMock(),
+                              "/packages/testWebDavStatCache/asset3.drl" );
+            assertFalse( imp.objectExists( "/packages/testWebDavStatCache/asset3.drl" ) );
+            assertEquals( 2,
+                          imp.getChildrenNames( new TransactionMock(),
+                                                "/packages/testWebDavStatCache" ).length );
+        } finally {
+            if ( imp != null ) {
+                //This clears the ThreadLocal reference to Repository and the stat cache
+                imp.commit( new TransactionMock() );
+            }
+        }
+        assertFalse( imp.statCache.isActive() );
+    }
+
+    @Test
+    public void testStatCacheSharesALimitedNumberOfListings() throws Exception {
+        WebDAVImpl imp = getWebDAVImpl();
+        try {
+            PackageItem pkg = imp.getRepo().createPackage( "testWebDavStatCacheLimit",
+                                                           "" );
+            WebDAVStatCache.PackageListing listing = new WebDAVStatCache.PackageListing( pkg );
+
+            WebDAVStatCache cache = new WebDAVStatCache( 60000 );
+            cache.beginTransaction();
+            for ( int i = 0; i < WebDAVStatCache.MAX_SHARED + 10; i++ ) {
+                cache.put( "key" + i,
+                           listing );
+            }
+            assertEquals( WebDAVStatCache.MAX_SHARED,
+                          cache.getSharedSize() );
+            cache.endTransaction();
+
+            cache = new WebDAVStatCache( 1 );
+            cache.beginTransaction();
+            cache.put( "old",
+                       listing );
+            Thread.sleep( 10 );
+            cache.put( "new",
+                       new WebDAVStatCache.PackageListing( pkg ) );
+            assertEquals( 1,
+                          cache.getSharedSize() );
+            cache.endTransaction();
+        } finally {
+            imp.commit( new TransactionMock() );
+        }
+    }
+
     private void createFolderTry(WebDAVImpl imp,
                                  String path) {
         try {
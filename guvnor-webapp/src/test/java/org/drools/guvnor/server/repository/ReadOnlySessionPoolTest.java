@@ -0,0 +1,123 @@
+/*
+ * Copyright 2005 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.jcr.AccessDeniedException;
+
+import org.drools.guvnor.server.util.TestEnvironmentSessionHelper;
+import org.drools.repository.RulesRepository;
+import org.drools.repository.RulesRepositoryConfigurator;
+import org.drools.repository.RulesRepositoryException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadOnlySessionPoolTest {
+
+    private ReadOnlySessionPool pool;
+
+    @Before
+    public void setUp() {
+        RepositoryStartupService config = new RepositoryStartupService();
+        config.properties.put( RulesRepositoryConfigurator.CONFIGURATOR_CLASS,
+                               "org.drools.repository.jackrabbit.JackrabbitRepositoryConfigurator" );
+        config.repository = config.getRepositoryInstance();
+
+        pool = new ReadOnlySessionPool();
+        pool.repositoryConfiguration = config;
+        pool.setMaxSize( 1 );
+        pool.setMaxWaitMillis( 10 );
+        pool.create();
+    }
+
+    @Test
+    public void testSessionsAreReused() {
+        RulesRepository repo = pool.borrow();
+        assertTrue( repo.getSession().isLive() );
+        assertEquals( 1,
+                      pool.getBorrowedCount() );
+        pool.release( repo );
+        assertEquals( 0,
+                      pool.getBorrowedCount() );
+        assertEquals( 1,
+                      pool.getIdleCount() );
+
+        assertSame( repo,
+                    pool.borrow() );
+        assertEquals( 1,
+                      pool.getCreatedCount() );
+        assertEquals( 2,
+                      pool.getBorrowCount() );
+        pool.release( repo );
+
+        pool.close();
+        assertFalse( repo.getSession().isLive() );
+    }
+
+    @Test
+    public void testBoundedAndLeaksReported() {
+        pool.setLeakThresholdMillis( -1 );
+        RulesRepository repo = pool.borrow();
+        try {
+            pool.borrow();
+            fail( "The pool only has one session." );
+        } catch ( RulesRepositoryException e ) {
+            assertEquals( 1,
+                          pool.getTimeoutCount() );
+        }
+        assertEquals( 1,
+                      pool.getLeakCount() );
+
+        pool.release( repo );
+        pool.release( pool.borrow() );
+        // Reported once only
+        assertEquals( 1,
+                      pool.getLeakCount() );
+        pool.close();
+    }
+
+    @Test
+    public void testSessionsCannotWrite() throws Exception {
+        RulesRepository repo = pool.borrow();
+        try {
+            repo.getSession().getRootNode().addNode( "readOnlySessionPoolTest" );
+            repo.getSession().save();
+            fail( "The pooled sessions are read only." );
+        } catch ( AccessDeniedException e ) {
+            assertNotNull( e.getMessage() );
+        }
+        pool.release( repo );
+
+        assertFalse( repo.getSession().hasPendingChanges() );
+        assertFalse( pool.borrow().getSession().getRootNode().hasNode( "readOnlySessionPoolTest" ) );
+        pool.release( repo );
+        pool.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestEnvironmentSessionHelper.shutdown();
+    }
+
+}
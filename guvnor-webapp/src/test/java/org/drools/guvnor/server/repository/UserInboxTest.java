@@ -19,6 +19,7 @@ package org.drools.guvnor.server.repository;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.drools.guvnor.client.explorer.ExplorerNodeConfig;
@@ -281,4 +282,35 @@ public class UserInboxTest extends GuvnorTestBase {
 
     }
 
+    @Test
+    public void testRecordOpeningEvents() throws Exception {
+
+        ServiceImplementation impl = getServiceImplementation();
+        RulesRepository repo = impl.getRulesRepository();
+
+        AssetItem first = repo.loadDefaultPackage().addAsset( "testRecordOpeningEvents1",
+                                                              "" );
+        AssetItem second = repo.loadDefaultPackage().addAsset( "testRecordOpeningEvents2",
+                                                               "" );
+        UserInbox ib = new UserInbox( repo );
+        ib.clearAll();
+        ib.addToIncoming( second.getUUID(),
+                          "hey",
+                          "mic" );
+        UserInbox.recordOpeningEvent( first );
+
+        UserInbox.recordOpeningEvents( Arrays.asList( second,
+                                                      first ) );
+
+        List<InboxEntry> es = ib.loadRecentOpened();
+        assertEquals( 2,
+                      es.size() );
+        assertEquals( second.getUUID(),
+                      es.get( 0 ).assetUUID );
+        assertEquals( first.getUUID(),
+                      es.get( 1 ).assetUUID );
+        assertEquals( 0,
+                      ib.loadIncoming().size() );
+    }
+
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RoleBasedPermissionIndexTest {
+
+    @Test
+    public void testHighestPackageRole() {
+        List<RoleBasedPermission> pbps = new ArrayList<RoleBasedPermission>();
+        pbps.add( new RoleBasedPermission( "jervis",
+                                           RoleType.PACKAGE_READONLY.getName(),
+                                           "package1",
+                                           null ) );
+        pbps.add( new RoleBasedPermission( "jervis",
+                                           RoleType.PACKAGE_DEVELOPER.getName(),
+                                           "Package1",
+                                           null ) );
+        pbps.add( new RoleBasedPermission( "jervis",
+                                           RoleType.PACKAGE_READONLY.getName(),
+                                           "package2",
+                                           null ) );
+
+        RoleBasedPermissionIndex index = new RoleBasedPermissionIndex( pbps );
+
+        assertFalse( index.isAdmin() );
+        assertEquals( RoleType.PACKAGE_DEVELOPER,
+                      index.getHighestPackageRole( "PACKAGE1" ) );
+        assertEquals( RoleType.PACKAGE_READONLY,
+                      index.getHighestPackageRole( "package2" ) );
+        assertNull( index.getHighestPackageRole( "package3" ) );
+    }
+
+    @Test
+    public void testCategoryTrie() {
+        List<RoleBasedPermission> pbps = new ArrayList<RoleBasedPermission>();
+        pbps.add( new RoleBasedPermission( "jervis",
+                                           RoleType.ANALYST.getName(),
+                                           null,
+                                           "category1" ) );
+        pbps.add( new RoleBasedPermission( "jervis",
+                                           RoleType.ANALYST_READ.getName(),
+                                           null,
+                                           "/category2/sub" ) );
+        pbps.add( new RoleBasedPermission( "jervis",
+                                           RoleType.ADMIN.getName(),
+                                           null,
+                                           null ) );
+
+        RoleBasedPermissionIndex index = new RoleBasedPermissionIndex( pbps );
+
+        assertTrue( index.isAdmin() );
+        assertTrue( index.hasCategoryPermission( RoleType.ANALYST,
+                                                 "category1" ) );
+        assertTrue( index.hasCategoryPermission( RoleType.ANALYST,
+                                                 "/category1/category2" ) );
+        assertFalse( index.hasCategoryPermission( RoleType.ANALYST,
+                                                  "category10" ) );
+        assertFalse( index.hasCategoryPermission( RoleType.ANALYST,
+                                                  "category2/sub" ) );
+        assertTrue( index.hasCategoryPermission( RoleType.ANALYST_READ,
+                                                 "category2/sub/leaf" ) );
+        assertFalse( index.hasCategoryPermission( RoleType.ANALYST_READ,
+                                                  "category2" ) );
+        assertFalse( index.hasCategoryPermission( RoleType.PACKAGE_ADMIN,
+                                                  "category1" ) );
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.guvnor.server.selector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.drools.guvnor.server.GuvnorTestBase;
+import org.drools.guvnor.server.ServiceImplementation;
+import org.drools.repository.AssetItem;
+import org.junit.Test;
+
+public class RuleBasedSelectorTest extends GuvnorTestBase {
+
+    @Test
+    public void testBatchSelection() throws Exception {
+        List<AssetItem> assets = createAssets( "testRuleBasedSelectorBatch" );
+
+        RuleBasedSelector selector = new RuleBasedSelector( "/TestBatchSelector.drl",
+                                                            true );
+        Set<String> allowed = selector.getAllowedAssetUUIDs( assets );
+
+        assertEquals( 1,
+                      allowed.size() );
+        assertTrue( allowed.contains( assets.get( 0 ).getUUID() ) );
+        assertTrue( selector.isAssetAllowed( assets.get( 0 ) ) );
+        assertFalse( selector.isAssetAllowed( assets.get( 1 ) ) );
+
+        assets.get( 1 ).updateState( "Dev" );
+        assertTrue( selector.isAssetAllowed( assets.get( 1 ) ) );
+        assertEquals( 2,
+                      selector.getAllowedAssetUUIDs( assets ).size() );
+    }
+
+    @Test
+    public void testBatchDecisionsAreNotCached() throws Exception {
+        List<AssetItem> assets = createAssets( "testRuleBasedSelectorBatchNotCached" );
+
+        RuleBasedSelector selector = new RuleBasedSelector( "/TestBatchSelector.drl",
+                                                            true );
+        assertEquals( 1,
+                      selector.getAllowedAssetUUIDs( assets ).size() );
+        assertTrue( selector.decisions.isEmpty() );
+
+        // Unless made one at a time
+        assertFalse( selector.isAssetAllowed( assets.get( 1 ) ) );
+        assertEquals( 1,
+                      selector.decisions.size() );
+    }
+
+    @Test
+    public void testBatchIsOptIn() throws Exception {
+        List<AssetItem> assets = createAssets( "testRuleBasedSelectorNotBatch" );
+
+        RuleBasedSelector selector = new RuleBasedSelector( "/TestBatchSelector.drl" );
+        assertEquals( 1,
+                      selector.getAllowedAssetUUIDs( assets ).size() );
+        assertEquals( 2,
+                      selector.decisions.size() );
+    }
+
+    @Test
+    public void testCategoryChangeIsNotCached() throws Exception {
+        List<AssetItem> assets = createAssets( "testRuleBasedSelectorCategory" );
+        getServiceImplementation().getRulesRepository().loadCategory( "/" ).addCategory( "SelectorApproved",
+                                                                                          "" );
+
+        RuleBasedSelector selector = new RuleBasedSelector( "/TestCategorySelector.drl" );
+        assertFalse( selector.isAssetAllowed( assets.get( 0 ) ) );
+
+        assets.get( 0 ).addCategory( "SelectorApproved" );
+        assertTrue( selector.isAssetAllowed( assets.get( 0 ) ) );
+    }
+
+    @Test
+    public void testAnonymousAllowFallsBackToSingleEvaluation() throws Exception {
+        List<AssetItem> assets = createAssets( "testRuleBasedSelectorSingle" );
+
+        RuleBasedSelector selector = new RuleBasedSelector( "/TestSelector.drl" );
+
+        assertEquals( 2,
+                      selector.getAllowedAssetUUIDs( assets ).size() );
+        assertEquals( 2,
+                      selector.getAllowedAssetUUIDs( assets ).size() );
+    }
+
+    private List<AssetItem> createAssets(String packageName) throws Exception {
+        ServiceImplementation impl = getServiceImplementation();
+        impl.getRulesRepository().createPackage( packageName,
+                                                 "woot" );
+        impl.getRulesRepository().createState( "Dev" );
+        impl.getRulesRepository().createState( "QA" );
+
+        List<AssetItem> assets = new ArrayList<AssetItem>();
+        String uuid1 = impl.createNewRule( packageName + "1",
+                                           "a description",
+                                           null,
+                                           packageName,
+                                           "txt" );
+        AssetItem item1 = impl.getRulesRepository().loadAssetByUUID( uuid1 );
+        item1.updateState( "Dev" );
+        assets.add( item1 );
+        String uuid2 = impl.createNewRule( packageName + "2",
+                                           "a description",
+                                           null,
+                                           packageName,
+                                           "txt" );
+        AssetItem item2 = impl.getRulesRepository().loadAssetByUUID( uuid2 );
+        item2.updateState( "QA" );
+        assets.add( item2 );
+        return assets;
+    }
+
+}
@@ -41,6 +41,7 @@ public class SelectorManagerTest {
 
         RuleBasedSelector sel = (RuleBasedSelector) sm.getSelector( "selector2" );
         assertEquals("/TestSelector.drl", sel.ruleFile);
+        assertTrue(sel.batch);
 
         assertFalse(sel.evalRules( new DummyClass() ));
         assertTrue(sel.evalRules( new Allow() ));
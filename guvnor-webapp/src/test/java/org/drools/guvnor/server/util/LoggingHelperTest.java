@@ -19,6 +19,9 @@ package org.drools.guvnor.server.util;
 import org.drools.guvnor.client.rpc.LogEntry;
 import org.junit.Test;
 
+import java.util.Date;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -83,4 +86,46 @@ public class LoggingHelperTest  {
 
     }
 
+    @Test
+    public void testWrapAround() throws Exception {
+        MessageList ml = new MessageList(10);
+        for (int i = 0; i < 25; i++) {
+            ml.add("entry " + i, i % 2);
+        }
+
+        LogEntry[] results = ml.getMessages();
+        assertEquals(10, results.length);
+        for (int i = 0; i < results.length; i++) {
+            assertEquals("entry " + (15 + i), results[i].message);
+        }
+        assertEquals(13, ml.getCount(0));
+        assertEquals(12, ml.getCount(1));
+        assertEquals(15, ml.getOverwrittenCount());
+
+        ml.cleanEntry();
+        assertEquals(0, ml.getMessages().length);
+        ml.add("after", 0);
+        assertEquals(1, ml.getMessages().length);
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        MessageList ml = new MessageList();
+        ml.add("Creating user [bob]", 1);
+        ml.add("Unable to build package", 0);
+        ml.add("Creating user [alice]", 1);
+
+        List<LogEntry> found = ml.find(1, null, null, null);
+        assertEquals(2, found.size());
+        assertEquals("Creating user [bob]", found.get(0).message);
+
+        found = ml.find(null, "ALICE", null, null);
+        assertEquals(1, found.size());
+        assertEquals("Creating user [alice]", found.get(0).message);
+
+        assertEquals(0, ml.find(0, "user", null, null).size());
+        assertEquals(3, ml.find(null, null, new Date(0), null).size());
+        assertEquals(0, ml.find(null, null, null, new Date(0)).size());
+    }
+
 }